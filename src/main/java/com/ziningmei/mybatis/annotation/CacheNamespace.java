@@ -0,0 +1,64 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.annotation;
+
+import com.ziningmei.mybatis.cache.Cache;
+import com.ziningmei.mybatis.cache.decorators.LruCache;
+import com.ziningmei.mybatis.cache.impl.PerpetualCache;
+
+import java.lang.annotation.*;
+
+/**
+ * 为 mapper 所在命名空间声明二级缓存
+ *
+ * @author Clinton Begin
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface CacheNamespace {
+
+    /**
+     * 缓存实现，非 PerpetualCache 的自定义实现不会再加淘汰策略和分段锁，需要自行保证线程安全
+     */
+    Class<? extends Cache> implementation() default PerpetualCache.class;
+
+    /**
+     * 淘汰策略，可选 LruCache、FifoCache、SoftCache
+     */
+    Class<? extends Cache> eviction() default LruCache.class;
+
+    /**
+     * 每条缓存的存活时间，毫秒，0 表示不过期
+     */
+    long ttl() default 0;
+
+    /**
+     * 缓存条目上限，平均分配到各个分段
+     */
+    int size() default 1024;
+
+    /**
+     * 分段数，向上取整为 2 的幂
+     */
+    int stripes() default 16;
+
+    /**
+     * 字节上限，0 表示使用实现的默认值，只对有 maxBytes 属性的实现（如 OffHeapCache）生效
+     */
+    long maxBytes() default 0;
+
+}
@@ -0,0 +1,50 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 以嵌套查询或嵌套结果映射加载集合
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({})
+public @interface Many {
+
+    /**
+     * 嵌套查询的语句 id，不含命名空间时使用当前 mapper 的命名空间
+     */
+    String select() default "";
+
+    /**
+     * 批量加载时每批的父行数。大于 0 时一批父行的不同键合并成一次 IN 查询，
+     * 要求嵌套查询只有一个形如 "column = #{key}" 的参数；否则仍逐行查询
+     */
+    int batchSize() default 0;
+
+    /**
+     * 嵌套结果映射的 id，不含命名空间时使用当前 mapper 的命名空间。
+     * 从连接查询的同一行中映射集合，不再发起嵌套查询
+     */
+    String resultMap() default "";
+
+    /**
+     * 嵌套结果映射的列名前缀
+     */
+    String columnPrefix() default "";
+
+}
@@ -0,0 +1,54 @@
+package com.ziningmei.mybatis.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 语句的附加选项
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Options {
+
+    /**
+     * 执行前是否清空缓存
+     */
+    enum FlushCachePolicy {
+        /**
+         * select 不清空，insert/update/delete 清空
+         */
+        DEFAULT,
+        /**
+         * 总是清空
+         */
+        TRUE,
+        /**
+         * 从不清空
+         */
+        FALSE
+    }
+
+    /**
+     * 是否使用缓存
+     */
+    boolean useCache() default true;
+
+    /**
+     * 是否合并并发的相同查询：语句、sql 和参数都相同的查询同时执行时，只有一个真正访问数据库，
+     * 其余等待它的结果并各自得到一份副本。只对查询生效，会话中有未提交的修改时不合并
+     */
+    boolean singleFlight() default false;
+
+    /**
+     * 流水线映射的映射线程数。大于 0 时读取结果集和映射对象并行进行，结果顺序不变；
+     * 含嵌套查询或嵌套结果映射的语句仍逐行映射
+     */
+    int mappingThreads() default 0;
+
+    FlushCachePolicy flushCache() default FlushCachePolicy.DEFAULT;
+
+    int fetchSize() default -1;
+
+    int timeout() default -1;
+
+}
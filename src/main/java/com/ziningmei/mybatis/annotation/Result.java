@@ -0,0 +1,55 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 单个属性的映射
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({})
+public @interface Result {
+
+    /**
+     * 是否为 id 列，嵌套结果映射按 id 列合并重复的行
+     */
+    boolean id() default false;
+
+    String property();
+
+    /**
+     * 列名，嵌套结果映射可以不指定
+     */
+    String column() default "";
+
+    /**
+     * 属性类型，默认取 setter 的参数类型
+     */
+    Class<?> javaType() default void.class;
+
+    /**
+     * 以嵌套查询加载单个对象
+     */
+    One one() default @One;
+
+    /**
+     * 以嵌套查询加载集合
+     */
+    Many many() default @Many;
+
+}
@@ -0,0 +1,35 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 查询结果的属性映射，未声明的列仍按自动映射处理
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Results {
+
+    /**
+     * 结果映射的 id，不为空时可被 {@link One#resultMap()} 和 {@link Many#resultMap()} 引用
+     */
+    String id() default "";
+
+    Result[] value() default {};
+
+}
@@ -0,0 +1,46 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 分片路由选项，只在环境的数据源为 {@link com.ziningmei.mybatis.datasource.shard.ShardedDataSource} 时生效
+ * <p>
+ * 有分片键的语句路由到单个分片；没有分片键的查询在所有分片上并行执行后合并，增删改则在所有分片上执行
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Shard {
+
+    /**
+     * 分片键，参数对象中的属性名；参数为简单类型时使用参数本身。为空表示不按键路由
+     */
+    String key() default "";
+
+    /**
+     * 合并排序的属性，多个用逗号分隔，属性后可加 desc，如 "balance desc, id"。
+     * 各分片的 sql 需要按相同的顺序排序，合并时只做多路归并
+     */
+    String mergeOrderBy() default "";
+
+    /**
+     * 合并后最多返回的行数，-1 表示不限
+     */
+    int mergeLimit() default -1;
+
+}
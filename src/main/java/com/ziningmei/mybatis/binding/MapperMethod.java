@@ -15,8 +15,10 @@
  */
 package com.ziningmei.mybatis.binding;
 
+import com.ziningmei.mybatis.cursor.Cursor;
 import com.ziningmei.mybatis.mapping.MappedStatement;
 import com.ziningmei.mybatis.mapping.SqlCommandType;
+import com.ziningmei.mybatis.reactive.Publisher;
 import com.ziningmei.mybatis.reflection.ParamNameResolver;
 import com.ziningmei.mybatis.reflection.TypeParameterResolver;
 import com.ziningmei.mybatis.session.Configuration;
@@ -26,8 +28,10 @@ import com.ziningmei.mybatis.session.SqlSession;
 import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 映射方法
@@ -79,15 +83,54 @@ public class MapperMethod {
     public Object execute(SqlSession sqlSession, Object[] args) {
         Object result;
         switch (command.getType()) {
-            case SELECT:
+            case SELECT: {
                 Object param = method.convertArgsToSqlCommandParam(args);
+                if (method.returnsFuture()) {
+                    //返回 CompletableFuture 的方法异步执行
+                    result = method.returnsManyInFuture()
+                            ? sqlSession.selectListAsync(command.getName(), param)
+                            : sqlSession.selectOneAsync(command.getName(), param);
+                    break;
+                }
+                if (method.returnsPublisher()) {
+                    result = sqlSession.selectPublisher(command.getName(), param);
+                    break;
+                }
+                if (method.returnsCursor()) {
+                    result = method.getRowBoundsIndex() == null
+                            ? sqlSession.selectCursor(command.getName(), param)
+                            : sqlSession.selectCursor(command.getName(), param, method.extractRowBounds(args));
+                    break;
+                }
+                if (method.returnsMany()) {
+                    result = method.getRowBoundsIndex() == null
+                            ? sqlSession.selectList(command.getName(), param)
+                            : sqlSession.selectList(command.getName(), param, method.extractRowBounds(args));
+                    break;
+                }
                 result = sqlSession.selectOne(command.getName(), param);
                 if (method.returnsOptional() &&
                         (result == null || !method.getReturnType().equals(result.getClass()))) {
                     result = Optional.ofNullable(result);
                 }
                 break;
+            }
 
+            case INSERT:
+            case UPDATE:
+            case DELETE: {
+                Object param = method.convertArgsToSqlCommandParam(args);
+                if (method.returnsLong()) {
+                    result = rowCountResult(sqlSession.largeUpdate(command.getName(), param));
+                } else if (command.getType() == SqlCommandType.INSERT) {
+                    result = rowCountResult(sqlSession.insert(command.getName(), param));
+                } else if (command.getType() == SqlCommandType.UPDATE) {
+                    result = rowCountResult(sqlSession.update(command.getName(), param));
+                } else {
+                    result = rowCountResult(sqlSession.delete(command.getName(), param));
+                }
+                break;
+            }
             default:
                 throw new BindingException("Unknown execution method for: " + command.getName());
         }
@@ -98,6 +141,28 @@ public class MapperMethod {
         return result;
     }
 
+    /**
+     * 根据方法返回值类型转换影响行数
+     *
+     * @param rowCount
+     * @return
+     */
+    private Object rowCountResult(long rowCount) {
+        final Object result;
+        if (method.returnsVoid()) {
+            result = null;
+        } else if (Integer.class.equals(method.getReturnType()) || Integer.TYPE.equals(method.getReturnType())) {
+            result = (int) rowCount;
+        } else if (Long.class.equals(method.getReturnType()) || Long.TYPE.equals(method.getReturnType())) {
+            result = rowCount;
+        } else if (Boolean.class.equals(method.getReturnType()) || Boolean.TYPE.equals(method.getReturnType())) {
+            result = rowCount > 0;
+        } else {
+            throw new BindingException("Mapper method '" + command.getName() + "' has an unsupported return type: " + method.getReturnType());
+        }
+        return result;
+    }
+
     public static class SqlCommand {
 
         private final String name;
@@ -140,7 +205,13 @@ public class MapperMethod {
     public static class MethodSignature {
 
         private final boolean returnsVoid;
+        private final boolean returnsLong;
         private final boolean returnsOptional;
+        private final boolean returnsMany;
+        private final boolean returnsFuture;
+        private final boolean returnsCursor;
+        private final boolean returnsPublisher;
+        private final boolean returnsManyInFuture;
         private final Class<?> returnType;
         private final Integer rowBoundsIndex;
         private final ParamNameResolver paramNameResolver;
@@ -155,7 +226,13 @@ public class MapperMethod {
                 this.returnType = method.getReturnType();
             }
             this.returnsVoid = void.class.equals(this.returnType);
+            this.returnsLong = Long.class.equals(this.returnType) || Long.TYPE.equals(this.returnType);
             this.returnsOptional = Optional.class.equals(this.returnType);
+            this.returnsMany = Collection.class.isAssignableFrom(this.returnType);
+            this.returnsFuture = CompletableFuture.class.equals(this.returnType);
+            this.returnsCursor = Cursor.class.equals(this.returnType);
+            this.returnsPublisher = Publisher.class.equals(this.returnType);
+            this.returnsManyInFuture = returnsFuture && Collection.class.isAssignableFrom(getFutureResultType(resolvedReturnType));
             this.rowBoundsIndex = getUniqueParamIndex(method, RowBounds.class);
             this.paramNameResolver = new ParamNameResolver(configuration, method);
         }
@@ -172,6 +249,15 @@ public class MapperMethod {
             return returnsVoid;
         }
 
+        /**
+         * 返回值为 long 时走 executeLargeUpdate
+         *
+         * @return
+         */
+        public boolean returnsLong() {
+            return returnsLong;
+        }
+
 
         /**
          * return whether return type is {@code java.util.Optional}
@@ -183,6 +269,71 @@ public class MapperMethod {
             return returnsOptional;
         }
 
+        /**
+         * 返回值是否为集合，是则执行 selectList
+         *
+         * @return
+         */
+        public boolean returnsMany() {
+            return returnsMany;
+        }
+
+        /**
+         * 返回值是否为游标
+         *
+         * @return
+         */
+        public boolean returnsCursor() {
+            return returnsCursor;
+        }
+
+        /**
+         * 返回值是否为发布者
+         *
+         * @return
+         */
+        public boolean returnsPublisher() {
+            return returnsPublisher;
+        }
+
+        public Integer getRowBoundsIndex() {
+            return rowBoundsIndex;
+        }
+
+        public RowBounds extractRowBounds(Object[] args) {
+            return rowBoundsIndex != null ? (RowBounds) args[rowBoundsIndex] : null;
+        }
+
+        /**
+         * 返回值是否为 CompletableFuture
+         *
+         * @return
+         */
+        public boolean returnsFuture() {
+            return returnsFuture;
+        }
+
+        /**
+         * CompletableFuture 的结果是否为集合，是则异步执行 selectList
+         *
+         * @return
+         */
+        public boolean returnsManyInFuture() {
+            return returnsManyInFuture;
+        }
+
+        private static Class<?> getFutureResultType(Type futureType) {
+            if (futureType instanceof ParameterizedType) {
+                Type resultType = ((ParameterizedType) futureType).getActualTypeArguments()[0];
+                if (resultType instanceof Class<?>) {
+                    return (Class<?>) resultType;
+                } else if (resultType instanceof ParameterizedType) {
+                    return (Class<?>) ((ParameterizedType) resultType).getRawType();
+                }
+            }
+            return Object.class;
+        }
+
         private Integer getUniqueParamIndex(Method method, Class<?> paramType) {
             Integer index = null;
             final Class<?>[] argTypes = method.getParameterTypes();
@@ -31,6 +31,10 @@ public class MapperProxyFactory<T> {
         this.mapperInterface = mapperInterface;
     }
 
+    public Map<Method, MapperMethod> getMethodCache() {
+        return methodCache;
+    }
+
     public T newInstance(SqlSession sqlSession) {
         final MapperProxy<T> mapperProxy = new MapperProxy<>(sqlSession, mapperInterface, methodCache);
 
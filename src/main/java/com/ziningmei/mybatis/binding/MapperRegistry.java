@@ -64,6 +64,18 @@ public class MapperRegistry {
         }
     }
 
+    /**
+     * 所有 Mapper 已缓存的 MapperMethod 数量
+     * @return
+     */
+    public int getMethodCacheSize() {
+        int size = 0;
+        for (MapperProxyFactory<?> factory : knownMappers.values()) {
+            size += factory.getMethodCache().size();
+        }
+        return size;
+    }
+
     /**
      * 获取mapper代理
      * @param type
@@ -1,14 +1,24 @@
 package com.ziningmei.mybatis.builder;
 
+import com.ziningmei.mybatis.annotation.CacheNamespace;
 import com.ziningmei.mybatis.annotation.Delete;
 import com.ziningmei.mybatis.annotation.Insert;
+import com.ziningmei.mybatis.annotation.Options;
+import com.ziningmei.mybatis.annotation.Result;
+import com.ziningmei.mybatis.annotation.Results;
 import com.ziningmei.mybatis.annotation.Select;
+import com.ziningmei.mybatis.annotation.Shard;
 import com.ziningmei.mybatis.annotation.Update;
 import com.ziningmei.mybatis.binding.MapperMethod;
+import com.ziningmei.mybatis.cursor.Cursor;
+import com.ziningmei.mybatis.mapping.ResultFlag;
+import com.ziningmei.mybatis.mapping.ResultMapping;
 import com.ziningmei.mybatis.mapping.ResultSetType;
 import com.ziningmei.mybatis.mapping.SqlCommandType;
 import com.ziningmei.mybatis.mapping.SqlSource;
 import com.ziningmei.mybatis.mapping.StatementType;
+import com.ziningmei.mybatis.reactive.Publisher;
+import com.ziningmei.mybatis.reflection.MetaClass;
 import com.ziningmei.mybatis.reflection.TypeParameterResolver;
 import com.ziningmei.mybatis.scripting.LanguageDriver;
 import com.ziningmei.mybatis.scripting.xml.XMLLanguageDriver;
@@ -16,11 +26,16 @@ import com.ziningmei.mybatis.session.Configuration;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * mapper 注解构造器
@@ -78,6 +93,8 @@ public class MapperAnnotationBuilder {
 
             //设置当前到空间
             assistant.setCurrentNamespace(type.getName());
+            //解析二级缓存，需要在解析语句之前
+            parseCache();
             //获取所有方法
             Method[] methods = type.getMethods();
             //遍历方法，解析
@@ -99,6 +116,19 @@ public class MapperAnnotationBuilder {
     }
 
 
+    /**
+     * 解析 @CacheNamespace
+     */
+    private void parseCache() {
+        CacheNamespace cacheDomain = type.getAnnotation(CacheNamespace.class);
+        if (cacheDomain != null) {
+            Integer size = cacheDomain.size() == 0 ? null : cacheDomain.size();
+            Long ttl = cacheDomain.ttl() == 0 ? null : cacheDomain.ttl();
+            Long maxBytes = cacheDomain.maxBytes() == 0 ? null : cacheDomain.maxBytes();
+            assistant.useNewCache(cacheDomain.implementation(), cacheDomain.eviction(), ttl, size, cacheDomain.stripes(), maxBytes);
+        }
+    }
+
     /**
      * 解析语句
      *
@@ -126,6 +156,37 @@ public class MapperAnnotationBuilder {
             SqlCommandType sqlCommandType = getSqlCommandType(method);
             //判断类型是不是select
             boolean isSelect = sqlCommandType == SqlCommandType.SELECT;
+            //select 默认使用缓存，增删改默认清空缓存
+            boolean flushCache = !isSelect;
+            boolean useCache = isSelect;
+            boolean singleFlight = false;
+            int mappingThreads = 0;
+
+            //解析 @Options
+            Options options = method.getAnnotation(Options.class);
+            if (options != null) {
+                if (Options.FlushCachePolicy.TRUE.equals(options.flushCache())) {
+                    flushCache = true;
+                } else if (Options.FlushCachePolicy.FALSE.equals(options.flushCache())) {
+                    flushCache = false;
+                }
+                useCache = options.useCache();
+                singleFlight = isSelect && options.singleFlight();
+                mappingThreads = isSelect ? Math.max(0, options.mappingThreads()) : 0;
+                fetchSize = options.fetchSize() > -1 || options.fetchSize() == Integer.MIN_VALUE ? options.fetchSize() : null;
+                timeout = options.timeout() > -1 ? options.timeout() : null;
+            }
+
+            //解析 @Shard
+            String shardKey = null;
+            String mergeOrderBy = null;
+            Integer mergeLimit = null;
+            Shard shard = method.getAnnotation(Shard.class);
+            if (shard != null) {
+                shardKey = shard.key().isEmpty() ? null : shard.key();
+                mergeOrderBy = shard.mergeOrderBy().isEmpty() ? null : shard.mergeOrderBy();
+                mergeLimit = shard.mergeLimit() > -1 ? shard.mergeLimit() : null;
+            }
 
             //获得 resultMapId 编号字符串
             String resultMapId = null;
@@ -134,7 +195,8 @@ public class MapperAnnotationBuilder {
                 resultMapId = parseResultMap(method);
             }
             //添加语句
-            assistant.addMappedStatement(mappedStatementId, sqlSource, statementType, sqlCommandType, fetchSize, timeout, parameterTypeClass, resultMapId, getReturnType(method), resultSetType, false, languageDriver);
+            assistant.addMappedStatement(mappedStatementId, sqlSource, statementType, sqlCommandType, fetchSize, timeout, parameterTypeClass, resultMapId, getReturnType(method), resultSetType, flushCache, useCache, false, singleFlight, mappingThreads,
+                    shardKey, mergeOrderBy, mergeLimit, languageDriver);
         }
 
     }
@@ -148,14 +210,68 @@ public class MapperAnnotationBuilder {
     private String parseResultMap(Method method) {
         //获取返回类型
         Class<?> returnType = getReturnType(method);
-        //生成resultMapId
-        String resultMapId = generateResultMapName(method);
-        //生成ResultMap对象
-        assistant.addResultMap(resultMapId, returnType, new ArrayList<>(), null);
+        //生成resultMapId，@Results 指定了 id 时使用该 id
+        Results results = method.getAnnotation(Results.class);
+        String resultMapId = results != null && !results.id().isEmpty()
+                ? type.getName() + "." + results.id() : generateResultMapName(method);
+        //生成ResultMap对象，@Results 中的属性映射优先，其余列自动映射
+        assistant.addResultMap(resultMapId, returnType, buildResultMappings(method, returnType), null);
         //返回resultMapId
         return resultMapId;
     }
 
+    /**
+     * 解析 @Results
+     *
+     * @param method
+     * @param resultType
+     * @return
+     */
+    private List<ResultMapping> buildResultMappings(Method method, Class<?> resultType) {
+        List<ResultMapping> resultMappings = new ArrayList<>();
+        Results results = method.getAnnotation(Results.class);
+        if (results == null) {
+            return resultMappings;
+        }
+        MetaClass metaResultType = MetaClass.forClass(resultType, configuration.getReflectorFactory());
+        for (Result result : results.value()) {
+            Class<?> javaType = result.javaType() == void.class
+                    ? metaResultType.getSetterType(result.property()) : result.javaType();
+            ResultMapping.Builder builder = new ResultMapping.Builder(configuration, result.property(),
+                    result.column().isEmpty() ? null : result.column(), javaType);
+            if (result.id()) {
+                builder.flags(Collections.singletonList(ResultFlag.ID));
+            }
+            //嵌套查询
+            String nestedSelect = result.one().select().isEmpty() ? result.many().select() : result.one().select();
+            if (!nestedSelect.isEmpty()) {
+                int batchSize = result.one().select().isEmpty() ? result.many().batchSize() : result.one().batchSize();
+                builder.nestedQueryId(applyMapperNamespace(nestedSelect))
+                        .batchSize(Math.max(0, batchSize));
+            }
+            //嵌套结果映射
+            boolean one = !result.one().resultMap().isEmpty();
+            String nestedResultMap = one ? result.one().resultMap() : result.many().resultMap();
+            if (!nestedResultMap.isEmpty()) {
+                String columnPrefix = one ? result.one().columnPrefix() : result.many().columnPrefix();
+                builder.nestedResultMapId(applyMapperNamespace(nestedResultMap))
+                        .columnPrefix(columnPrefix.isEmpty() ? null : columnPrefix);
+            }
+            resultMappings.add(builder.build());
+        }
+        return resultMappings;
+    }
+
+    /**
+     * 不含命名空间的 id 加上当前 mapper 的命名空间
+     *
+     * @param id
+     * @return
+     */
+    private String applyMapperNamespace(String id) {
+        return id.contains(".") ? id : type.getName() + "." + id;
+    }
+
     /**
      * 生成resultMapId
      * <p>
@@ -278,6 +394,28 @@ public class MapperAnnotationBuilder {
         if (resolvedReturnType instanceof Class) {
             //那么直接赋值
             returnType = (Class<?>) resolvedReturnType;
+        } else if (resolvedReturnType instanceof ParameterizedType) {
+            //CompletableFuture<T> 取 T，集合、游标和发布者取元素类型
+            ParameterizedType parameterizedType = (ParameterizedType) resolvedReturnType;
+            Class<?> rawType = (Class<?>) parameterizedType.getRawType();
+            if (CompletableFuture.class.equals(rawType)) {
+                Type resultType = parameterizedType.getActualTypeArguments()[0];
+                if (resultType instanceof Class) {
+                    returnType = (Class<?>) resultType;
+                } else if (resultType instanceof ParameterizedType) {
+                    parameterizedType = (ParameterizedType) resultType;
+                    rawType = (Class<?>) parameterizedType.getRawType();
+                    returnType = rawType;
+                }
+            }
+            if (Collection.class.isAssignableFrom(rawType) || Cursor.class.equals(rawType) || Publisher.class.equals(rawType)) {
+                Type elementType = parameterizedType.getActualTypeArguments()[0];
+                if (elementType instanceof Class) {
+                    returnType = (Class<?>) elementType;
+                } else if (elementType instanceof ParameterizedType) {
+                    returnType = (Class<?>) ((ParameterizedType) elementType).getRawType();
+                }
+            }
         }
 
         return returnType;
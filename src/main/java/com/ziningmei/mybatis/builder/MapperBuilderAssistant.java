@@ -1,5 +1,6 @@
 package com.ziningmei.mybatis.builder;
 
+import com.ziningmei.mybatis.cache.Cache;
 import com.ziningmei.mybatis.mapping.*;
 import com.ziningmei.mybatis.scripting.LanguageDriver;
 import com.ziningmei.mybatis.session.Configuration;
@@ -16,6 +17,11 @@ public class MapperBuilderAssistant extends BaseBuilder {
 
     private final String resource;
 
+    /**
+     * 当前命名空间的二级缓存
+     */
+    private Cache currentCache;
+
     public MapperBuilderAssistant(Configuration configuration, String resource) {
         super(configuration);
         this.resource = resource;
@@ -42,6 +48,36 @@ public class MapperBuilderAssistant extends BaseBuilder {
         return resource;
     }
 
+    /**
+     * 为当前命名空间创建二级缓存
+     *
+     * @param typeClass     缓存实现
+     * @param evictionClass 淘汰策略
+     * @param ttl           存活时间，毫秒
+     * @param size          条目上限
+     * @param stripes       分段数
+     * @param maxBytes      字节上限
+     * @return
+     */
+    public Cache useNewCache(Class<? extends Cache> typeClass,
+                             Class<? extends Cache> evictionClass,
+                             Long ttl,
+                             Integer size,
+                             Integer stripes,
+                             Long maxBytes) {
+        Cache cache = new CacheBuilder(currentNamespace)
+                .implementation(typeClass)
+                .addDecorator(evictionClass)
+                .ttl(ttl)
+                .size(size)
+                .stripes(stripes)
+                .maxBytes(maxBytes)
+                .build();
+        configuration.addCache(cache);
+        currentCache = cache;
+        return cache;
+    }
+
     public MappedStatement addMappedStatement(
             String id,
             SqlSource sqlSource,
@@ -53,7 +89,14 @@ public class MapperBuilderAssistant extends BaseBuilder {
             String resultMap,
             Class<?> resultType,
             ResultSetType resultSetType,
+            boolean flushCache,
+            boolean useCache,
             boolean resultOrdered,
+            boolean singleFlight,
+            int mappingThreads,
+            String shardKey,
+            String mergeOrderBy,
+            Integer mergeLimit,
             LanguageDriver lang) {
 
         //获取命名空间
@@ -67,6 +110,14 @@ public class MapperBuilderAssistant extends BaseBuilder {
                 .statementType(statementType)
                 .lang(lang)
                 .resultOrdered(resultOrdered)
+                .flushCacheRequired(flushCache)
+                .useCache(useCache)
+                .singleFlight(singleFlight)
+                .mappingThreads(mappingThreads)
+                .cache(currentCache)
+                .shardKey(shardKey)
+                .mergeOrderBy(mergeOrderBy)
+                .mergeLimit(mergeLimit)
                 .resultMaps(getStatementResultMaps(resultMap, resultType, id))
                 .resultSetType(resultSetType);
 
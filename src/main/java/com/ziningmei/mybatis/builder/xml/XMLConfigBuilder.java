@@ -3,6 +3,9 @@ package com.ziningmei.mybatis.builder.xml;
 import com.ziningmei.mybatis.builder.BaseBuilder;
 import com.ziningmei.mybatis.builder.BuilderException;
 import com.ziningmei.mybatis.datasource.DataSourceFactory;
+import com.ziningmei.mybatis.datasource.replica.ReplicaLagProbe;
+import com.ziningmei.mybatis.datasource.replica.ReplicaSelector;
+import com.ziningmei.mybatis.datasource.replica.ReplicaSet;
 import com.ziningmei.mybatis.executor.ErrorContext;
 import com.ziningmei.mybatis.io.Resources;
 import com.ziningmei.mybatis.parsing.XNode;
@@ -14,6 +17,8 @@ import com.ziningmei.mybatis.transaction.TransactionFactory;
 import javax.sql.DataSource;
 import java.io.InputStream;
 import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 public class XMLConfigBuilder extends BaseBuilder {
@@ -107,7 +112,8 @@ public class XMLConfigBuilder extends BaseBuilder {
                 //创建environment
                 Environment environment = new Environment.Builder(id)
                         .transactionFactory(txFactory)
-                        .dataSource(dataSource).build();
+                        .dataSource(dataSource)
+                        .replicaSet(replicasElement(child.evalNode("replicas"))).build();
                 //将environment存在configuration
                 configuration.setEnvironment(environment);
             }
@@ -160,6 +166,39 @@ public class XMLConfigBuilder extends BaseBuilder {
     }
 
 
+    /**
+     * 解析只读从库，每个子节点是一个 dataSource
+     *
+     * @param context
+     * @return 没有配置时为空
+     */
+    private ReplicaSet replicasElement(XNode context) throws Exception {
+        if (context == null) {
+            return null;
+        }
+        List<DataSource> replicas = new ArrayList<>();
+        for (XNode child : context.getChildren()) {
+            replicas.add(dataSourceElement(child).getDataSource());
+        }
+        //从库选择策略，默认轮询
+        String selector = context.getStringAttribute("selector", "ROUND_ROBIN");
+        ReplicaSet replicaSet = new ReplicaSet(replicas, (ReplicaSelector) resolveClass(selector).newInstance());
+        String maxLagMillis = context.getStringAttribute("maxLagMillis");
+        if (maxLagMillis != null) {
+            replicaSet.setMaxLagMillis(Long.parseLong(maxLagMillis));
+        }
+        String lagProbeIntervalMillis = context.getStringAttribute("lagProbeIntervalMillis");
+        if (lagProbeIntervalMillis != null) {
+            replicaSet.setLagProbeIntervalMillis(Long.parseLong(lagProbeIntervalMillis));
+        }
+        //设置探测器后开始后台探测，先设置间隔
+        String lagProbe = context.getStringAttribute("lagProbe");
+        if (lagProbe != null) {
+            replicaSet.setLagProbe((ReplicaLagProbe) resolveClass(lagProbe).newInstance());
+        }
+        return replicaSet;
+    }
+
     /**
      * 判断当前environment和default相同
      * @param id
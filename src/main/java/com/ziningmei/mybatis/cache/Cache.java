@@ -0,0 +1,74 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.cache;
+
+/**
+ * SPI for cache providers.
+ * <p>
+ * One instance of cache will be created for each namespace.
+ * <p>
+ * The cache implementation must have a constructor that receives the cache id as an String parameter.
+ *
+ * 缓存接口
+ *
+ * @author Clinton Begin
+ */
+public interface Cache {
+
+  /**
+   * @return The identifier of this cache
+   */
+  String getId();
+
+  /**
+   * 添加缓存
+   *
+   * @param key Can be any object but usually it is a {@link CacheKey}
+   * @param value The result of a select.
+   */
+  void putObject(Object key, Object value);
+
+  /**
+   * 获取缓存
+   *
+   * @param key The key
+   * @return The object stored in the cache.
+   */
+  Object getObject(Object key);
+
+  /**
+   * 移除缓存
+   *
+   * @param key The key
+   * @return Not used
+   */
+  Object removeObject(Object key);
+
+  /**
+   * Clears this cache instance.
+   *
+   * 清空缓存
+   */
+  void clear();
+
+  /**
+   * Optional. This method is not called by the core.
+   *
+   * @return The number of elements stored in the cache (not its capacity).
+   */
+  int getSize();
+
+}
@@ -0,0 +1,45 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.cache;
+
+import com.ziningmei.mybatis.exception.PersistenceException;
+
+/**
+ * @author Clinton Begin
+ *
+ * 缓存异常
+ */
+public class CacheException extends PersistenceException {
+
+  private static final long serialVersionUID = -193202262468464650L;
+
+  public CacheException() {
+    super();
+  }
+
+  public CacheException(String message) {
+    super(message);
+  }
+
+  public CacheException(String message, Throwable cause) {
+    super(message, cause);
+  }
+
+  public CacheException(Throwable cause) {
+    super(cause);
+  }
+
+}
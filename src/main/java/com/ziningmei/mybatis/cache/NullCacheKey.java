@@ -0,0 +1,40 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.cache;
+
+/**
+ * @author Clinton Begin
+ *
+ * 空缓存键，不允许 update
+ */
+public final class NullCacheKey extends CacheKey {
+
+  private static final long serialVersionUID = 3704229911977019465L;
+
+  public NullCacheKey() {
+    super();
+  }
+
+  @Override
+  public void update(Object object) {
+    throw new CacheException("Not allowed to update a NullCacheKey instance.");
+  }
+
+  @Override
+  public void updateAll(Object[] objects) {
+    throw new CacheException("Not allowed to update a NullCacheKey instance.");
+  }
+}
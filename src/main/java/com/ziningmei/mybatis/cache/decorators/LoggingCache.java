@@ -0,0 +1,102 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.cache.decorators;
+
+import com.ziningmei.mybatis.cache.Cache;
+import com.ziningmei.mybatis.logging.Log;
+import com.ziningmei.mybatis.logging.LogFactory;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author Clinton Begin
+ *
+ * 统计命中率的缓存，计数器无锁
+ */
+public class LoggingCache implements Cache {
+
+  private final Log log;
+  private final Cache delegate;
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder hits = new LongAdder();
+
+  public LoggingCache(Cache delegate) {
+    this.delegate = delegate;
+    this.log = LogFactory.getLog(getId());
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  @Override
+  public void putObject(Object key, Object object) {
+    delegate.putObject(key, object);
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    requests.increment();
+    final Object value = delegate.getObject(key);
+    if (value != null) {
+      hits.increment();
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("Cache Hit Ratio [" + getId() + "]: " + getHitRatio());
+    }
+    return value;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    return delegate.removeObject(key);
+  }
+
+  @Override
+  public void clear() {
+    delegate.clear();
+  }
+
+  public long getRequests() {
+    return requests.sum();
+  }
+
+  public long getHits() {
+    return hits.sum();
+  }
+
+  public double getHitRatio() {
+    long requestCount = requests.sum();
+    return requestCount == 0 ? 0 : (double) hits.sum() / (double) requestCount;
+  }
+
+  @Override
+  public int hashCode() {
+    return delegate.hashCode();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return delegate.equals(obj);
+  }
+
+}
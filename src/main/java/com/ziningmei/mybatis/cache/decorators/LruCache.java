@@ -0,0 +1,99 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.cache.decorators;
+
+import com.ziningmei.mybatis.cache.Cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Lru (least recently used) cache decorator.
+ *
+ * 最近最少使用淘汰，非线程安全
+ *
+ * @author Clinton Begin
+ */
+public class LruCache implements Cache {
+
+  private final Cache delegate;
+  private Map<Object, Object> keyMap;
+  private Object eldestKey;
+
+  public LruCache(Cache delegate) {
+    this.delegate = delegate;
+    setSize(1024);
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  public void setSize(final int size) {
+    //accessOrder 为 true，get 时会移动到队尾
+    keyMap = new LinkedHashMap<Object, Object>(size, .75F, true) {
+      private static final long serialVersionUID = 4267176411845948333L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Object, Object> eldest) {
+        boolean tooBig = size() > size;
+        if (tooBig) {
+          eldestKey = eldest.getKey();
+        }
+        return tooBig;
+      }
+    };
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    delegate.putObject(key, value);
+    cycleKeyList(key);
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    keyMap.get(key); //touch
+    return delegate.getObject(key);
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    keyMap.remove(key);
+    return delegate.removeObject(key);
+  }
+
+  @Override
+  public void clear() {
+    delegate.clear();
+    keyMap.clear();
+  }
+
+  private void cycleKeyList(Object key) {
+    keyMap.put(key, key);
+    if (eldestKey != null) {
+      delegate.removeObject(eldestKey);
+      eldestKey = null;
+    }
+  }
+
+}
@@ -0,0 +1,116 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.cache.decorators;
+
+import com.ziningmei.mybatis.cache.Cache;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.Deque;
+import java.util.LinkedList;
+
+/**
+ * Soft Reference cache decorator
+ * Thanks to Dr. Heinz Kabutz for his guidance here.
+ *
+ * 软引用缓存，内存不足时由 GC 回收，最近访问的若干条用强引用保留
+ *
+ * @author Clinton Begin
+ */
+public class SoftCache implements Cache {
+  private final Deque<Object> hardLinksToAvoidGarbageCollection;
+  private final ReferenceQueue<Object> queueOfGarbageCollectedEntries;
+  private final Cache delegate;
+  private int numberOfHardLinks;
+
+  public SoftCache(Cache delegate) {
+    this.delegate = delegate;
+    this.numberOfHardLinks = 256;
+    this.hardLinksToAvoidGarbageCollection = new LinkedList<>();
+    this.queueOfGarbageCollectedEntries = new ReferenceQueue<>();
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    removeGarbageCollectedItems();
+    return delegate.getSize();
+  }
+
+  public void setSize(int size) {
+    this.numberOfHardLinks = size;
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    removeGarbageCollectedItems();
+    delegate.putObject(key, new SoftEntry(key, value, queueOfGarbageCollectedEntries));
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    Object result = null;
+    @SuppressWarnings("unchecked") // assumed delegate cache is totally managed by this cache
+    SoftReference<Object> softReference = (SoftReference<Object>) delegate.getObject(key);
+    if (softReference != null) {
+      result = softReference.get();
+      if (result == null) {
+        delegate.removeObject(key);
+      } else {
+        // See #586 (and #335) modifications need more than a read lock
+        hardLinksToAvoidGarbageCollection.addFirst(result);
+        if (hardLinksToAvoidGarbageCollection.size() > numberOfHardLinks) {
+          hardLinksToAvoidGarbageCollection.removeLast();
+        }
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    removeGarbageCollectedItems();
+    return delegate.removeObject(key);
+  }
+
+  @Override
+  public void clear() {
+    hardLinksToAvoidGarbageCollection.clear();
+    removeGarbageCollectedItems();
+    delegate.clear();
+  }
+
+  private void removeGarbageCollectedItems() {
+    SoftEntry sv;
+    while ((sv = (SoftEntry) queueOfGarbageCollectedEntries.poll()) != null) {
+      delegate.removeObject(sv.key);
+    }
+  }
+
+  private static class SoftEntry extends SoftReference<Object> {
+    private final Object key;
+
+    SoftEntry(Object key, Object value, ReferenceQueue<Object> garbageCollectionQueue) {
+      super(value, garbageCollectionQueue);
+      this.key = key;
+    }
+  }
+
+}
@@ -0,0 +1,142 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.cache.decorators;
+
+import com.ziningmei.mybatis.cache.Cache;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 分段加锁的缓存
+ * <p>
+ * 每个分段是一条独立的装饰链（如 LRU -> PerpetualCache），由 key 的 hash 决定分段，
+ * 每个分段一把锁，访问不同分段的线程互不阻塞。淘汰策略在分段内生效。
+ */
+public class StripedCache implements Cache {
+
+  private final String id;
+  private final Cache[] segments;
+  private final Lock[] locks;
+  private final int mask;
+
+  /**
+   * @param id
+   * @param segments 分段，数量必须是 2 的幂
+   */
+  public StripedCache(String id, Cache[] segments) {
+    if (Integer.bitCount(segments.length) != 1) {
+      throw new IllegalArgumentException("Number of cache segments must be a power of two but was " + segments.length);
+    }
+    this.id = id;
+    this.segments = segments;
+    this.mask = segments.length - 1;
+    this.locks = new Lock[segments.length];
+    for (int i = 0; i < locks.length; i++) {
+      locks[i] = new ReentrantLock();
+    }
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    int i = segmentFor(key);
+    locks[i].lock();
+    try {
+      segments[i].putObject(key, value);
+    } finally {
+      locks[i].unlock();
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    int i = segmentFor(key);
+    locks[i].lock();
+    try {
+      return segments[i].getObject(key);
+    } finally {
+      locks[i].unlock();
+    }
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    int i = segmentFor(key);
+    locks[i].lock();
+    try {
+      return segments[i].removeObject(key);
+    } finally {
+      locks[i].unlock();
+    }
+  }
+
+  @Override
+  public void clear() {
+    for (int i = 0; i < segments.length; i++) {
+      locks[i].lock();
+      try {
+        segments[i].clear();
+      } finally {
+        locks[i].unlock();
+      }
+    }
+  }
+
+  @Override
+  public int getSize() {
+    int size = 0;
+    for (int i = 0; i < segments.length; i++) {
+      locks[i].lock();
+      try {
+        size += segments[i].getSize();
+      } finally {
+        locks[i].unlock();
+      }
+    }
+    return size;
+  }
+
+  public int getSegmentCount() {
+    return segments.length;
+  }
+
+  private int segmentFor(Object key) {
+    int h = key == null ? 0 : key.hashCode();
+    return (h ^ (h >>> 16)) & mask;
+  }
+
+  @Override
+  public int hashCode() {
+    return id.hashCode();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof Cache)) {
+      return false;
+    }
+    return id.equals(((Cache) obj).getId());
+  }
+
+}
@@ -0,0 +1,112 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.cache.decorators;
+
+import com.ziningmei.mybatis.cache.Cache;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The 2nd level cache transactional buffer.
+ * <p>
+ * This class holds all cache entries that are to be added to the 2nd level cache during a Session.
+ * Entries are sent to the cache when commit is called or discarded if the Session is rolled back.
+ *
+ * 事务缓存，会话中的 put 先缓冲在本地，提交时才写入二级缓存
+ *
+ * @author Clinton Begin
+ * @author Eduardo Macarron
+ */
+public class TransactionalCache implements Cache {
+
+  private final Cache delegate;
+
+  /**
+   * 提交时是否清空二级缓存
+   */
+  private boolean clearOnCommit;
+
+  /**
+   * 待提交的缓存
+   */
+  private final Map<Object, Object> entriesToAddOnCommit;
+
+  public TransactionalCache(Cache delegate) {
+    this.delegate = delegate;
+    this.clearOnCommit = false;
+    this.entriesToAddOnCommit = new HashMap<>();
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    // issue #116
+    if (clearOnCommit) {
+      return null;
+    }
+    return delegate.getObject(key);
+  }
+
+  @Override
+  public void putObject(Object key, Object object) {
+    entriesToAddOnCommit.put(key, object);
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    return null;
+  }
+
+  @Override
+  public void clear() {
+    clearOnCommit = true;
+    entriesToAddOnCommit.clear();
+  }
+
+  public void commit() {
+    if (clearOnCommit) {
+      delegate.clear();
+    }
+    flushPendingEntries();
+    reset();
+  }
+
+  public void rollback() {
+    reset();
+  }
+
+  private void reset() {
+    clearOnCommit = false;
+    entriesToAddOnCommit.clear();
+  }
+
+  private void flushPendingEntries() {
+    for (Map.Entry<Object, Object> entry : entriesToAddOnCommit.entrySet()) {
+      delegate.putObject(entry.getKey(), entry.getValue());
+    }
+  }
+
+}
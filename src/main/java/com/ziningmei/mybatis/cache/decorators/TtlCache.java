@@ -0,0 +1,134 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.cache.decorators;
+
+import com.ziningmei.mybatis.cache.Cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按条目过期的缓存，每条缓存在放入 ttl 毫秒后失效，非线程安全
+ * <p>
+ * 所有条目的 ttl 相同，所以插入顺序就是过期顺序，清理时只需要从头遍历到第一条未过期的条目。
+ * 被装饰的缓存自行淘汰的条目在读取未命中时移除，放入时过期表明显大于缓存条目数也会整体清理一次，
+ * 过期表不会随淘汰无限增长
+ */
+public class TtlCache implements Cache {
+
+  private final Cache delegate;
+
+  /**
+   * key 与过期时间（纳秒）的映射，按插入顺序排列
+   */
+  private final Map<Object, Long> expirations = new LinkedHashMap<>();
+
+  /**
+   * 存活时间，纳秒
+   */
+  private long ttlNanos;
+
+  public TtlCache(Cache delegate) {
+    this.delegate = delegate;
+    this.ttlNanos = TimeUnit.HOURS.toNanos(1);
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    purgeExpired(System.nanoTime());
+    return delegate.getSize();
+  }
+
+  /**
+   * 设置存活时间
+   *
+   * @param ttl 毫秒
+   */
+  public void setTtl(long ttl) {
+    this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttl);
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    long now = System.nanoTime();
+    purgeExpired(now);
+    purgeEvicted();
+    //重新放入时移到队尾
+    expirations.remove(key);
+    expirations.put(key, now + ttlNanos);
+    delegate.putObject(key, value);
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    Long expireAt = expirations.get(key);
+    if (expireAt == null) {
+      return null;
+    }
+    if (System.nanoTime() - expireAt >= 0) {
+      removeObject(key);
+      return null;
+    }
+    Object value = delegate.getObject(key);
+    if (value == null) {
+      //已被被装饰的缓存淘汰
+      expirations.remove(key);
+    }
+    return value;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    expirations.remove(key);
+    return delegate.removeObject(key);
+  }
+
+  @Override
+  public void clear() {
+    expirations.clear();
+    delegate.clear();
+  }
+
+  /**
+   * 过期表超过缓存条目数两倍时，移除已被被装饰的缓存淘汰的 key，清理后两者大小一致，均摊开销为常数
+   */
+  private void purgeEvicted() {
+    if (expirations.size() <= 2 * delegate.getSize() + 16) {
+      return;
+    }
+    expirations.keySet().removeIf(key -> delegate.getObject(key) == null);
+  }
+
+  private void purgeExpired(long now) {
+    Iterator<Map.Entry<Object, Long>> iterator = expirations.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<Object, Long> entry = iterator.next();
+      if (now - entry.getValue() < 0) {
+        break;
+      }
+      iterator.remove();
+      delegate.removeObject(entry.getKey());
+    }
+  }
+
+}
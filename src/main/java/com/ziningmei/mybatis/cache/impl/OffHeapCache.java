@@ -0,0 +1,260 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.cache.impl;
+
+import com.ziningmei.mybatis.cache.Cache;
+import com.ziningmei.mybatis.cache.CacheException;
+import com.ziningmei.mybatis.logging.Log;
+import com.ziningmei.mybatis.logging.LogFactory;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 堆外缓存，查询结果编码后存放在 direct ByteBuffer 中，命中时解码为新的结果对象
+ * <p>
+ * 只有 key 和缓冲区引用留在堆内，缓存几 GB 的结果也不会增加 GC 扫描的负担。
+ * 按字节数和条目数限制容量，超出时淘汰最近最少使用的条目。
+ * 无法编码的结果（如没有默认构造器的对象）不会被缓存，只计入 rejects。
+ * <p>
+ * 线程安全，可直接作为 {@link com.ziningmei.mybatis.annotation.CacheNamespace#implementation()} 使用
+ */
+public class OffHeapCache implements Cache {
+
+  private static final Log log = LogFactory.getLog(OffHeapCache.class);
+
+  private final String id;
+
+  private final OffHeapRowCodec codec = new OffHeapRowCodec();
+
+  private final Lock lock = new ReentrantLock();
+
+  /**
+   * 按访问顺序排列，队首为最近最少使用
+   */
+  private final Map<Object, ByteBuffer> entries = new LinkedHashMap<>(16, .75F, true);
+
+  private long maxBytes = 64L * 1024 * 1024;
+
+  private int size = Integer.MAX_VALUE;
+
+  private long usedBytes;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final LongAdder rejects = new LongAdder();
+
+  public OffHeapCache(String id) {
+    this.id = id;
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  /**
+   * 设置字节上限
+   *
+   * @param maxBytes
+   */
+  public void setMaxBytes(long maxBytes) {
+    if (maxBytes <= 0) {
+      throw new CacheException("maxBytes of off-heap cache " + id + " must be positive but was " + maxBytes);
+    }
+    this.maxBytes = maxBytes;
+  }
+
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  /**
+   * 设置条目上限
+   *
+   * @param size
+   */
+  public void setSize(int size) {
+    this.size = size;
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    if (!(value instanceof List)) {
+      rejects.increment();
+      return;
+    }
+    //编码在锁外进行
+    ByteBuffer buffer;
+    try {
+      OffHeapRowCodec.Sink sink = codec.encode((List<?>) value);
+      if (sink.size() > maxBytes) {
+        rejects.increment();
+        return;
+      }
+      buffer = ByteBuffer.allocateDirect(sink.size());
+      sink.writeTo(buffer);
+      buffer.flip();
+    } catch (CacheException e) {
+      rejects.increment();
+      if (log.isDebugEnabled()) {
+        log.debug("Result not stored in off-heap cache " + id + ". Cause: " + e.getMessage());
+      }
+      return;
+    }
+    lock.lock();
+    try {
+      ByteBuffer previous = entries.put(key, buffer);
+      if (previous != null) {
+        usedBytes -= previous.capacity();
+      }
+      usedBytes += buffer.capacity();
+      evictIfNecessary();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    ByteBuffer buffer;
+    lock.lock();
+    try {
+      buffer = entries.get(key);
+    } finally {
+      lock.unlock();
+    }
+    if (buffer == null) {
+      misses.increment();
+      return null;
+    }
+    hits.increment();
+    //缓冲区写入后不再修改，淘汰也只是丢弃引用，可以在锁外解码
+    return codec.decode(buffer.duplicate());
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    ByteBuffer buffer;
+    lock.lock();
+    try {
+      buffer = entries.remove(key);
+      if (buffer != null) {
+        usedBytes -= buffer.capacity();
+      }
+    } finally {
+      lock.unlock();
+    }
+    return buffer == null ? null : codec.decode(buffer.duplicate());
+  }
+
+  @Override
+  public void clear() {
+    lock.lock();
+    try {
+      entries.clear();
+      usedBytes = 0;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int getSize() {
+    lock.lock();
+    try {
+      return entries.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * 当前占用的堆外字节数
+   *
+   * @return
+   */
+  public long getUsedBytes() {
+    lock.lock();
+    try {
+      return usedBytes;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public long getHits() {
+    return hits.sum();
+  }
+
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  public long getEvictions() {
+    return evictions.sum();
+  }
+
+  /**
+   * 因无法编码或超过字节上限而未缓存的次数
+   *
+   * @return
+   */
+  public long getRejects() {
+    return rejects.sum();
+  }
+
+  private void evictIfNecessary() {
+    Iterator<ByteBuffer> iterator = entries.values().iterator();
+    while ((usedBytes > maxBytes || entries.size() > size) && iterator.hasNext()) {
+      ByteBuffer eldest = iterator.next();
+      iterator.remove();
+      usedBytes -= eldest.capacity();
+      evictions.increment();
+    }
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Cache)) {
+      return false;
+    }
+    Cache otherCache = (Cache) o;
+    return getId().equals(otherCache.getId());
+  }
+
+  @Override
+  public int hashCode() {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    return getId().hashCode();
+  }
+
+}
@@ -0,0 +1,408 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.cache.impl;
+
+import com.ziningmei.mybatis.cache.CacheException;
+import com.ziningmei.mybatis.reflection.MetaObject;
+import com.ziningmei.mybatis.reflection.Reflector;
+import com.ziningmei.mybatis.reflection.SystemMetaObject;
+import com.ziningmei.mybatis.reflection.factory.DefaultReflectorFactory;
+import com.ziningmei.mybatis.reflection.factory.ObjectFactory;
+import com.ziningmei.mybatis.reflection.factory.ReflectorFactory;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 结果行的紧凑二进制编码
+ * <p>
+ * 每个值以一个字节的类型标记开头，整数使用 zigzag 变长编码。
+ * 结果对象按类记录一次属性布局（可读且可写的属性，顺序固定），行内只写布局编号和各属性的值，
+ * 解码时和 DefaultResultSetHandler 一样通过 ObjectFactory 创建对象、MetaObject 设置属性。
+ * <p>
+ * 布局只保存在堆内，编号在当前进程内有效。
+ */
+class OffHeapRowCodec {
+
+  private static final byte NULL = 0;
+  private static final byte INT = 1;
+  private static final byte LONG = 2;
+  private static final byte SHORT = 3;
+  private static final byte BYTE = 4;
+  private static final byte TRUE = 5;
+  private static final byte FALSE = 6;
+  private static final byte DOUBLE = 7;
+  private static final byte FLOAT = 8;
+  private static final byte STRING = 9;
+  private static final byte BIG_DECIMAL = 10;
+  private static final byte BIG_INTEGER = 11;
+  private static final byte DATE = 12;
+  private static final byte TIMESTAMP = 13;
+  private static final byte SQL_DATE = 14;
+  private static final byte SQL_TIME = 15;
+  private static final byte BYTES = 16;
+  private static final byte CHAR = 17;
+  private static final byte LIST = 18;
+  private static final byte OBJECT = 19;
+  private static final byte MAP = 20;
+
+  /**
+   * 嵌套深度上限，防止循环引用
+   */
+  private static final int MAX_DEPTH = 32;
+
+  private final ObjectFactory objectFactory = SystemMetaObject.DEFAULT_OBJECT_FACTORY;
+  private final ReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+
+  private final Map<Class<?>, RowLayout> layoutsByType = new ConcurrentHashMap<>();
+  private final Map<Integer, RowLayout> layoutsById = new ConcurrentHashMap<>();
+  private final AtomicInteger nextLayoutId = new AtomicInteger();
+
+  /**
+   * 编码结果列表
+   *
+   * @param rows
+   * @return 编码后的字节，有效长度为 {@link Sink#size()}
+   * @throws CacheException 含有无法编码的值
+   */
+  Sink encode(List<?> rows) {
+    Sink sink = new Sink(64 + rows.size() * 32);
+    sink.writeVarInt(rows.size());
+    for (Object row : rows) {
+      writeValue(sink, row, 0);
+    }
+    return sink;
+  }
+
+  List<Object> decode(ByteBuffer buffer) {
+    int size = readVarInt(buffer);
+    List<Object> rows = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      rows.add(readValue(buffer));
+    }
+    return rows;
+  }
+
+  private void writeValue(Sink sink, Object value, int depth) {
+    if (depth > MAX_DEPTH) {
+      throw new CacheException("Result object graph is too deep to be stored off-heap (possible cycle).");
+    }
+    if (value == null) {
+      sink.writeByte(NULL);
+    } else if (value instanceof Integer) {
+      sink.writeByte(INT);
+      sink.writeVarLong((Integer) value);
+    } else if (value instanceof Long) {
+      sink.writeByte(LONG);
+      sink.writeVarLong((Long) value);
+    } else if (value instanceof String) {
+      sink.writeByte(STRING);
+      sink.writeBytes(((String) value).getBytes(StandardCharsets.UTF_8));
+    } else if (value instanceof Boolean) {
+      sink.writeByte((Boolean) value ? TRUE : FALSE);
+    } else if (value instanceof Short) {
+      sink.writeByte(SHORT);
+      sink.writeVarLong((Short) value);
+    } else if (value instanceof Byte) {
+      sink.writeByte(BYTE);
+      sink.writeByte((Byte) value);
+    } else if (value instanceof Double) {
+      sink.writeByte(DOUBLE);
+      sink.writeLong(Double.doubleToRawLongBits((Double) value));
+    } else if (value instanceof Float) {
+      sink.writeByte(FLOAT);
+      sink.writeInt(Float.floatToRawIntBits((Float) value));
+    } else if (value instanceof BigDecimal) {
+      BigDecimal decimal = (BigDecimal) value;
+      sink.writeByte(BIG_DECIMAL);
+      sink.writeVarLong(decimal.scale());
+      sink.writeBytes(decimal.unscaledValue().toByteArray());
+    } else if (value instanceof BigInteger) {
+      sink.writeByte(BIG_INTEGER);
+      sink.writeBytes(((BigInteger) value).toByteArray());
+    } else if (value instanceof Timestamp) {
+      Timestamp timestamp = (Timestamp) value;
+      sink.writeByte(TIMESTAMP);
+      sink.writeVarLong(timestamp.getTime());
+      sink.writeVarLong(timestamp.getNanos());
+    } else if (value instanceof java.sql.Date) {
+      sink.writeByte(SQL_DATE);
+      sink.writeVarLong(((Date) value).getTime());
+    } else if (value instanceof Time) {
+      sink.writeByte(SQL_TIME);
+      sink.writeVarLong(((Date) value).getTime());
+    } else if (value.getClass() == Date.class) {
+      sink.writeByte(DATE);
+      sink.writeVarLong(((Date) value).getTime());
+    } else if (value instanceof byte[]) {
+      sink.writeByte(BYTES);
+      sink.writeBytes((byte[]) value);
+    } else if (value instanceof Character) {
+      sink.writeByte(CHAR);
+      sink.writeVarLong((Character) value);
+    } else if (value instanceof List) {
+      Collection<?> list = (Collection<?>) value;
+      sink.writeByte(LIST);
+      sink.writeVarInt(list.size());
+      for (Object element : list) {
+        writeValue(sink, element, depth + 1);
+      }
+    } else if (value instanceof Map) {
+      Map<?, ?> map = (Map<?, ?>) value;
+      sink.writeByte(MAP);
+      sink.writeVarInt(map.size());
+      for (Map.Entry<?, ?> entry : map.entrySet()) {
+        writeValue(sink, entry.getKey(), depth + 1);
+        writeValue(sink, entry.getValue(), depth + 1);
+      }
+    } else {
+      RowLayout layout = layoutFor(value.getClass());
+      MetaObject metaObject = SystemMetaObject.forObject(value);
+      sink.writeByte(OBJECT);
+      sink.writeVarInt(layout.id);
+      for (String property : layout.properties) {
+        writeValue(sink, metaObject.getValue(property), depth + 1);
+      }
+    }
+  }
+
+  private Object readValue(ByteBuffer buffer) {
+    byte tag = buffer.get();
+    switch (tag) {
+      case NULL:
+        return null;
+      case INT:
+        return (int) readVarLong(buffer);
+      case LONG:
+        return readVarLong(buffer);
+      case STRING:
+        return new String(readBytes(buffer), StandardCharsets.UTF_8);
+      case TRUE:
+        return Boolean.TRUE;
+      case FALSE:
+        return Boolean.FALSE;
+      case SHORT:
+        return (short) readVarLong(buffer);
+      case BYTE:
+        return buffer.get();
+      case DOUBLE:
+        return Double.longBitsToDouble(buffer.getLong());
+      case FLOAT:
+        return Float.intBitsToFloat(buffer.getInt());
+      case BIG_DECIMAL: {
+        int scale = (int) readVarLong(buffer);
+        return new BigDecimal(new BigInteger(readBytes(buffer)), scale);
+      }
+      case BIG_INTEGER:
+        return new BigInteger(readBytes(buffer));
+      case TIMESTAMP: {
+        Timestamp timestamp = new Timestamp(readVarLong(buffer));
+        timestamp.setNanos((int) readVarLong(buffer));
+        return timestamp;
+      }
+      case SQL_DATE:
+        return new java.sql.Date(readVarLong(buffer));
+      case SQL_TIME:
+        return new Time(readVarLong(buffer));
+      case DATE:
+        return new Date(readVarLong(buffer));
+      case BYTES:
+        return readBytes(buffer);
+      case CHAR:
+        return (char) readVarLong(buffer);
+      case LIST: {
+        int size = readVarInt(buffer);
+        List<Object> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+          list.add(readValue(buffer));
+        }
+        return list;
+      }
+      case MAP: {
+        int size = readVarInt(buffer);
+        Map<Object, Object> map = new HashMap<>(size * 4 / 3 + 1);
+        for (int i = 0; i < size; i++) {
+          Object key = readValue(buffer);
+          map.put(key, readValue(buffer));
+        }
+        return map;
+      }
+      case OBJECT: {
+        RowLayout layout = layoutsById.get(readVarInt(buffer));
+        Object row = objectFactory.create(layout.type);
+        MetaObject metaObject = SystemMetaObject.forObject(row);
+        for (String property : layout.properties) {
+          Object value = readValue(buffer);
+          if (value != null) {
+            metaObject.setValue(property, value);
+          }
+        }
+        return row;
+      }
+      default:
+        throw new CacheException("Corrupted off-heap cache entry, unknown value tag " + tag);
+    }
+  }
+
+  private RowLayout layoutFor(Class<?> type) {
+    RowLayout layout = layoutsByType.get(type);
+    if (layout == null) {
+      layout = layoutsByType.computeIfAbsent(type, this::newLayout);
+    }
+    return layout;
+  }
+
+  private RowLayout newLayout(Class<?> type) {
+    Reflector reflector = reflectorFactory.findForClass(type);
+    if (!reflector.hasDefaultConstructor()) {
+      throw new CacheException("Cannot store " + type.getName() + " off-heap, it has no default constructor.");
+    }
+    List<String> properties = new ArrayList<>();
+    for (String property : reflector.getGetablePropertyNames()) {
+      if (reflector.hasSetter(property)) {
+        properties.add(property);
+      }
+    }
+    if (properties.isEmpty()) {
+      throw new CacheException("Cannot store " + type.getName() + " off-heap, it has no readable and writable properties.");
+    }
+    //属性顺序固定，编码和解码一致
+    String[] names = properties.toArray(new String[0]);
+    Arrays.sort(names);
+    RowLayout layout = new RowLayout(nextLayoutId.getAndIncrement(), type, names);
+    layoutsById.put(layout.id, layout);
+    return layout;
+  }
+
+  private static int readVarInt(ByteBuffer buffer) {
+    return (int) readVarLong(buffer);
+  }
+
+  private static long readVarLong(ByteBuffer buffer) {
+    long raw = 0;
+    int shift = 0;
+    byte b;
+    do {
+      b = buffer.get();
+      raw |= (long) (b & 0x7F) << shift;
+      shift += 7;
+    } while ((b & 0x80) != 0);
+    //zigzag 解码
+    return (raw >>> 1) ^ -(raw & 1);
+  }
+
+  private static byte[] readBytes(ByteBuffer buffer) {
+    byte[] bytes = new byte[readVarInt(buffer)];
+    buffer.get(bytes);
+    return bytes;
+  }
+
+  /**
+   * 一个类的属性布局
+   */
+  private static final class RowLayout {
+    private final int id;
+    private final Class<?> type;
+    private final String[] properties;
+
+    private RowLayout(int id, Class<?> type, String[] properties) {
+      this.id = id;
+      this.type = type;
+      this.properties = properties;
+    }
+  }
+
+  /**
+   * 可增长的堆内写缓冲，编码完成后整体拷贝到堆外
+   */
+  static final class Sink {
+    private byte[] bytes;
+    private int size;
+
+    Sink(int capacity) {
+      this.bytes = new byte[capacity];
+    }
+
+    int size() {
+      return size;
+    }
+
+    void writeTo(ByteBuffer buffer) {
+      buffer.put(bytes, 0, size);
+    }
+
+    void writeByte(int b) {
+      ensureCapacity(1);
+      bytes[size++] = (byte) b;
+    }
+
+    void writeInt(int v) {
+      ensureCapacity(4);
+      for (int shift = 24; shift >= 0; shift -= 8) {
+        bytes[size++] = (byte) (v >>> shift);
+      }
+    }
+
+    void writeLong(long v) {
+      ensureCapacity(8);
+      for (int shift = 56; shift >= 0; shift -= 8) {
+        bytes[size++] = (byte) (v >>> shift);
+      }
+    }
+
+    void writeVarInt(int v) {
+      writeVarLong(v);
+    }
+
+    void writeVarLong(long v) {
+      ensureCapacity(10);
+      //zigzag 编码，小的负数也只占一两个字节
+      long raw = (v << 1) ^ (v >> 63);
+      while ((raw & ~0x7FL) != 0) {
+        bytes[size++] = (byte) ((raw & 0x7F) | 0x80);
+        raw >>>= 7;
+      }
+      bytes[size++] = (byte) raw;
+    }
+
+    void writeBytes(byte[] value) {
+      writeVarInt(value.length);
+      ensureCapacity(value.length);
+      System.arraycopy(value, 0, bytes, size, value.length);
+      size += value.length;
+    }
+
+    private void ensureCapacity(int extra) {
+      if (size + extra > bytes.length) {
+        bytes = Arrays.copyOf(bytes, Math.max(bytes.length << 1, size + extra));
+      }
+    }
+  }
+
+}
@@ -0,0 +1,48 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.cursor;
+
+import java.io.Closeable;
+
+/**
+ * Cursor contract to handle fetching items lazily using an Iterator.
+ * Cursors are a perfect fit to handle millions of items queries that would not normally fits in memory.
+ * If you use collections in resultMaps then cursor SQL queries must be ordered (resultOrdered="true")
+ * using the id columns of the resultMap.
+ *
+ * 游标，每次 next 只映射一行，语句在游标关闭前保持打开
+ *
+ * @author Guillaume Darmont / guillaume@dropinocean.com
+ */
+public interface Cursor<T> extends Closeable, Iterable<T> {
+
+  /**
+   * @return true if the cursor has started to fetch items from database.
+   */
+  boolean isOpen();
+
+  /**
+   *
+   * @return true if the cursor is fully consumed and has returned all elements matching the query.
+   */
+  boolean isConsumed();
+
+  /**
+   * Get the current item index. The first item has the index 0.
+   * @return -1 if the first cursor item has not been retrieved. The index of the current item retrieved.
+   */
+  int getCurrentIndex();
+}
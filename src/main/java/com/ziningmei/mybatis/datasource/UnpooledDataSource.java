@@ -24,6 +24,8 @@ import java.util.Enumeration;
 import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Logger;
 
 /**
@@ -46,6 +48,21 @@ public class UnpooledDataSource implements DataSource {
      */
     private static Map<String, Driver> registeredDrivers = new ConcurrentHashMap<>();
 
+    /**
+     * 未设置登录超时时等待驱动初始化的秒数
+     */
+    private static final int DEFAULT_DRIVER_LOCK_TIMEOUT = 30;
+
+    /**
+     * 保护驱动初始化的公平锁，不使用 synchronized，等待的虚拟线程不会占住载体线程
+     */
+    private final ReentrantLock driverLock = new ReentrantLock(true);
+
+    /**
+     * 已初始化的驱动，直接调用它的 connect，不经过 DriverManager 遍历所有驱动
+     */
+    private volatile Driver driverInstance;
+
     private String driver;
     private String url;
     private String username;
@@ -150,8 +167,14 @@ public class UnpooledDataSource implements DataSource {
         return driver;
     }
 
-    public synchronized void setDriver(String driver) {
-        this.driver = driver;
+    public void setDriver(String driver) {
+        driverLock.lock();
+        try {
+            this.driver = driver;
+            this.driverInstance = null;
+        } finally {
+            driverLock.unlock();
+        }
     }
 
     public String getUrl() {
@@ -225,16 +248,45 @@ public class UnpooledDataSource implements DataSource {
      * @throws SQLException
      */
     private Connection doGetConnection(Properties properties) throws SQLException {
-        //初始化驱动
-        initializeDriver();
-        //通过反射获取连接
-        Connection connection = DriverManager.getConnection(url, properties);
+        //初始化驱动，初始化过后不再进入同步块
+        Driver cachedDriver = driverInstance;
+        if (cachedDriver == null) {
+            initializeDriver();
+            cachedDriver = driverInstance;
+        }
+        //驱动不接受 url 时交给 DriverManager
+        Connection connection = cachedDriver == null ? null : cachedDriver.connect(url, properties);
+        if (connection == null) {
+            connection = DriverManager.getConnection(url, properties);
+        }
         //配置事务自动提交和隔离级别
         configureConnection(connection);
         return connection;
     }
 
-    private synchronized void initializeDriver() throws SQLException {
+    /**
+     * 加载并注册驱动，等待锁的时间不超过登录超时时间
+     *
+     * @throws SQLException
+     */
+    private void initializeDriver() throws SQLException {
+        final int timeout = DriverManager.getLoginTimeout() > 0 ? DriverManager.getLoginTimeout() : DEFAULT_DRIVER_LOCK_TIMEOUT;
+        try {
+            if (!driverLock.tryLock(timeout, TimeUnit.SECONDS)) {
+                throw new SQLTimeoutException("Timed out after " + timeout + "s waiting for driver initialization of " + driver);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for driver initialization of " + driver, e);
+        }
+        try {
+            doInitializeDriver();
+        } finally {
+            driverLock.unlock();
+        }
+    }
+
+    private void doInitializeDriver() throws SQLException {
         //判断驱动是否已经加载
         if (!registeredDrivers.containsKey(driver)) {
             Class<?> driverType;
@@ -257,6 +309,7 @@ public class UnpooledDataSource implements DataSource {
                 throw new SQLException("Error setting driver on UnpooledDataSource. Cause: " + e);
             }
         }
+        this.driverInstance = registeredDrivers.get(driver);
     }
 
     /**
@@ -0,0 +1,32 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.datasource.pooled;
+
+import java.sql.PreparedStatement;
+
+/**
+ * 连接池语句缓存返回的 PreparedStatement，close 时放回所属物理连接的缓存
+ */
+public interface CachedStatement extends PreparedStatement {
+
+  /**
+   * 这次 prepare 是否复用了缓存中的语句
+   *
+   * @return
+   */
+  boolean isCacheHit();
+
+}
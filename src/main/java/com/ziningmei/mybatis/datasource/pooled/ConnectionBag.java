@@ -0,0 +1,231 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.datasource.pooled;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.ziningmei.mybatis.datasource.pooled.PooledConnection.STATE_IN_USE;
+import static com.ziningmei.mybatis.datasource.pooled.PooledConnection.STATE_NOT_IN_USE;
+import static com.ziningmei.mybatis.datasource.pooled.PooledConnection.STATE_REMOVED;
+import static com.ziningmei.mybatis.datasource.pooled.PooledConnection.STATE_RESERVED;
+
+/**
+ * 无锁的连接容器，借出和归还只对连接的状态做 CAS，不加锁
+ * <p>
+ * 借出时依次尝试：
+ * 1. 当前线程最近归还的连接（线程亲和，通常还在 CPU 缓存里，也不和其他线程竞争）
+ * 2. 扫描全部连接
+ * 3. 通知 {@link Listener} 补充连接，在公平的 SynchronousQueue 上等待其他线程归还或新建的连接
+ * <p>
+ * 归还时有线程在等待则直接交给等待的线程，否则记到当前线程的列表里
+ */
+class ConnectionBag {
+
+  /**
+   * 每个线程记住的最近归还的连接数
+   */
+  private static final int MAX_THREAD_LOCAL = 16;
+
+  interface Listener {
+
+    /**
+     * 借出时没有空闲连接
+     *
+     * @param waiting 正在等待的线程数
+     */
+    void addBagItem(int waiting);
+
+  }
+
+  private final Listener listener;
+  private final CopyOnWriteArrayList<PooledConnection> sharedList = new CopyOnWriteArrayList<>();
+  private final ThreadLocal<List<WeakReference<PooledConnection>>> threadList = ThreadLocal.withInitial(ArrayList::new);
+  private final SynchronousQueue<PooledConnection> handoffQueue = new SynchronousQueue<>(true);
+  private final AtomicInteger waiters = new AtomicInteger();
+
+  ConnectionBag(Listener listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * 借出一个空闲连接
+   *
+   * @param timeout
+   * @param unit
+   * @return 超时返回 null
+   * @throws InterruptedException
+   */
+  PooledConnection borrow(long timeout, TimeUnit unit) throws InterruptedException {
+    final List<WeakReference<PooledConnection>> list = threadList.get();
+    for (int i = list.size() - 1; i >= 0; i--) {
+      final PooledConnection entry = list.remove(i).get();
+      if (entry != null && entry.compareAndSetState(STATE_NOT_IN_USE, STATE_IN_USE)) {
+        return entry;
+      }
+    }
+
+    //先登记等待，再扫描，避免扫描之后归还的连接没有交给自己
+    final int waiting = waiters.incrementAndGet();
+    try {
+      for (PooledConnection entry : sharedList) {
+        if (entry.compareAndSetState(STATE_NOT_IN_USE, STATE_IN_USE)) {
+          if (waiting > 1) {
+            //可能拿走了别的等待线程的连接，让监听者再补一个
+            listener.addBagItem(waiting - 1);
+          }
+          return entry;
+        }
+      }
+
+      listener.addBagItem(waiting);
+
+      long remaining = unit.toNanos(timeout);
+      do {
+        final long start = System.nanoTime();
+        final PooledConnection entry = handoffQueue.poll(remaining, TimeUnit.NANOSECONDS);
+        if (entry == null || entry.compareAndSetState(STATE_NOT_IN_USE, STATE_IN_USE)) {
+          return entry;
+        }
+        remaining -= System.nanoTime() - start;
+      } while (remaining > 10_000);
+
+      return null;
+    } finally {
+      waiters.decrementAndGet();
+    }
+  }
+
+  /**
+   * 归还借出的连接
+   *
+   * @param entry
+   */
+  void requite(PooledConnection entry) {
+    entry.setState(STATE_NOT_IN_USE);
+
+    for (int i = 0; waiters.get() > 0; i++) {
+      if (entry.getState() != STATE_NOT_IN_USE || handoffQueue.offer(entry)) {
+        return;
+      } else if ((i & 0xff) == 0xff) {
+        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(10));
+      } else {
+        Thread.yield();
+      }
+    }
+
+    final List<WeakReference<PooledConnection>> list = threadList.get();
+    if (list.size() < MAX_THREAD_LOCAL) {
+      list.add(new WeakReference<>(entry));
+    }
+  }
+
+  /**
+   * 加入新建的连接，有线程在等待时直接交给它
+   *
+   * @param entry
+   */
+  void add(PooledConnection entry) {
+    sharedList.add(entry);
+
+    while (waiters.get() > 0 && entry.getState() == STATE_NOT_IN_USE && !handoffQueue.offer(entry)) {
+      Thread.yield();
+    }
+  }
+
+  /**
+   * 移除借出或预留的连接
+   *
+   * @param entry
+   * @return 状态不对时返回 false
+   */
+  boolean remove(PooledConnection entry) {
+    if (!entry.compareAndSetState(STATE_IN_USE, STATE_REMOVED)
+        && !entry.compareAndSetState(STATE_RESERVED, STATE_REMOVED)) {
+      return false;
+    }
+    return sharedList.remove(entry);
+  }
+
+  /**
+   * 预留一个空闲连接，预留期间不会被借出
+   *
+   * @param entry
+   * @return
+   */
+  boolean reserve(PooledConnection entry) {
+    return entry.compareAndSetState(STATE_NOT_IN_USE, STATE_RESERVED);
+  }
+
+  /**
+   * 取消预留，放回空闲连接
+   *
+   * @param entry
+   */
+  void unreserve(PooledConnection entry) {
+    if (entry.compareAndSetState(STATE_RESERVED, STATE_NOT_IN_USE)) {
+      //有线程在等待时交给它
+      while (waiters.get() > 0 && entry.getState() == STATE_NOT_IN_USE && !handoffQueue.offer(entry)) {
+        Thread.yield();
+      }
+    }
+  }
+
+  /**
+   * 指定状态的连接
+   *
+   * @param state
+   * @return
+   */
+  List<PooledConnection> values(int state) {
+    final List<PooledConnection> list = new ArrayList<>(sharedList.size());
+    for (PooledConnection entry : sharedList) {
+      if (entry.getState() == state) {
+        list.add(entry);
+      }
+    }
+    return list;
+  }
+
+  List<PooledConnection> values() {
+    return new ArrayList<>(sharedList);
+  }
+
+  int getCount(int state) {
+    int count = 0;
+    for (PooledConnection entry : sharedList) {
+      if (entry.getState() == state) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  int getWaitingThreadCount() {
+    return waiters.get();
+  }
+
+  int size() {
+    return sharedList.size();
+  }
+
+}
@@ -0,0 +1,194 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.datasource.pooled;
+
+import com.ziningmei.mybatis.reflection.ExceptionUtil;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * 连接池中的一个物理连接
+ * <p>
+ * 每次借出创建一个新的代理，代理的 close 把连接还给连接池，
+ * 之后再使用这个代理会抛出异常，不会影响下一个借到这个物理连接的线程。
+ * 开启语句缓存时 prepareStatement 先从这个物理连接的 {@link StatementCache} 中取
+ */
+class PooledConnection {
+
+  static final int STATE_NOT_IN_USE = 0;
+  static final int STATE_IN_USE = 1;
+  static final int STATE_REMOVED = -1;
+  static final int STATE_RESERVED = -2;
+
+  private static final Class<?>[] IFACES = new Class<?>[]{Connection.class};
+
+  private static final AtomicIntegerFieldUpdater<PooledConnection> STATE =
+      AtomicIntegerFieldUpdater.newUpdater(PooledConnection.class, "state");
+
+  private final PooledDataSource dataSource;
+  private final Connection realConnection;
+  private final long createdNanos;
+
+  /**
+   * 语句缓存，poolPreparedStatementCacheSize 为 0 时为空
+   */
+  private final StatementCache statementCache;
+
+  private volatile int state;
+
+  /**
+   * 被 forceCloseAll 标记，归还时关闭
+   */
+  private volatile boolean evicted;
+
+  /**
+   * 最近一次借出或归还的时间
+   */
+  private volatile long lastAccessedNanos;
+
+  PooledConnection(PooledDataSource dataSource, Connection realConnection, int statementCacheSize) {
+    this.dataSource = dataSource;
+    this.realConnection = realConnection;
+    this.statementCache = statementCacheSize > 0 ? new StatementCache(dataSource, statementCacheSize) : null;
+    this.createdNanos = System.nanoTime();
+    this.lastAccessedNanos = createdNanos;
+  }
+
+  /**
+   * 为这次借出创建代理
+   *
+   * @return
+   */
+  Connection newProxy() {
+    return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), IFACES, new Handle());
+  }
+
+  Connection getRealConnection() {
+    return realConnection;
+  }
+
+  /**
+   * 缓存中空闲的语句数
+   *
+   * @return
+   */
+  int getCachedStatementCount() {
+    return statementCache == null ? 0 : statementCache.size();
+  }
+
+  /**
+   * 关闭物理连接前关闭缓存的语句
+   */
+  void closeStatements() {
+    if (statementCache != null) {
+      statementCache.close();
+    }
+  }
+
+  int getState() {
+    return state;
+  }
+
+  void setState(int state) {
+    this.state = state;
+  }
+
+  boolean compareAndSetState(int expect, int update) {
+    return STATE.compareAndSet(this, expect, update);
+  }
+
+  long getCreatedNanos() {
+    return createdNanos;
+  }
+
+  long getAgeNanos(long now) {
+    return now - createdNanos;
+  }
+
+  long getLastAccessedNanos() {
+    return lastAccessedNanos;
+  }
+
+  void touch(long now) {
+    this.lastAccessedNanos = now;
+  }
+
+  boolean isEvicted() {
+    return evicted;
+  }
+
+  void evict() {
+    this.evicted = true;
+  }
+
+  @Override
+  public String toString() {
+    return "PooledConnection[" + realConnection + "]";
+  }
+
+  /**
+   * 一次借出的连接代理
+   */
+  private final class Handle implements InvocationHandler {
+
+    private boolean closed;
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      final String methodName = method.getName();
+      if ("close".equals(methodName)) {
+        if (!closed) {
+          closed = true;
+          if (statementCache != null) {
+            statementCache.releaseAll();
+          }
+          dataSource.recycle(PooledConnection.this);
+        }
+        return null;
+      }
+      if ("isClosed".equals(methodName)) {
+        return closed || realConnection.isClosed();
+      }
+      if (Object.class.equals(method.getDeclaringClass())) {
+        if ("equals".equals(methodName)) {
+          return proxy == args[0];
+        }
+        if ("hashCode".equals(methodName)) {
+          return System.identityHashCode(proxy);
+        }
+        return "Pooled" + realConnection;
+      }
+      if (closed) {
+        throw new SQLException("Connection is closed.");
+      }
+      if (statementCache != null && "prepareStatement".equals(methodName)) {
+        return statementCache.prepare((Connection) proxy, realConnection, method, args);
+      }
+      try {
+        return method.invoke(realConnection, args);
+      } catch (Throwable t) {
+        throw ExceptionUtil.unwrapThrowable(t);
+      }
+    }
+
+  }
+
+}
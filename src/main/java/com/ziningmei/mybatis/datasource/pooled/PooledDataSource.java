@@ -0,0 +1,901 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.datasource.pooled;
+
+import com.ziningmei.mybatis.datasource.UnpooledDataSource;
+import com.ziningmei.mybatis.logging.Log;
+import com.ziningmei.mybatis.logging.LogFactory;
+import com.ziningmei.mybatis.mapping.LatencyHistogram;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * 池化的数据源，物理连接由内部的 {@link UnpooledDataSource} 创建
+ * <p>
+ * 空闲连接放在无锁的 {@link ConnectionBag} 中，借出和归还不加锁。
+ * 没有空闲连接时由后台线程新建，连接数不超过 poolMaximumSize，
+ * 借出的线程最多等待 poolMaximumWait 毫秒；存活超过 poolMaximumLifetime 的连接在借出或归还时关闭
+ * <p>
+ * 第一次借出连接后启动后台的整理线程，每 poolHousekeepingPeriod 毫秒检查一遍空闲连接：
+ * 关闭超过最长存活时间或空闲超过 poolMaximumIdleTime 的连接，
+ * 用 {@link Connection#isValid(int)} 或 poolPingQuery 校验其余的连接，再补充到 poolMinimumSize 和 poolMinimumIdle。
+ * 借出连接的线程不做校验，不多一次往返
+ *
+ * @author Clinton Begin
+ */
+public class PooledDataSource implements DataSource, ConnectionBag.Listener {
+
+  private static final Log log = LogFactory.getLog(PooledDataSource.class);
+
+  /**
+   * 预热时最多使用的线程数
+   */
+  private static final int MAX_WARM_UP_THREADS = 16;
+
+  private final UnpooledDataSource dataSource;
+
+  private final ConnectionBag bag = new ConnectionBag(this);
+
+  /**
+   * 连接总数，包括正在创建的
+   */
+  private final AtomicInteger totalConnections = new AtomicInteger();
+
+  /**
+   * 正在创建的连接数
+   */
+  private final AtomicInteger pendingConnections = new AtomicInteger();
+
+  /**
+   * 新建连接的线程
+   */
+  private final ThreadPoolExecutor connectionAdder;
+
+  /**
+   * 关闭物理连接的线程，借出和归还连接的线程不等待驱动关闭连接
+   */
+  private final ThreadPoolExecutor connectionCloser;
+
+  /**
+   * 后台整理空闲连接的线程，第一次借出连接时启动
+   */
+  private final ScheduledThreadPoolExecutor housekeeper;
+  private final AtomicBoolean housekeeperStarted = new AtomicBoolean();
+
+  /**
+   * 借出连接的等待时间
+   */
+  private final LatencyHistogram waitTimeHistogram = new LatencyHistogram();
+
+  private final LongAdder createdCount = new LongAdder();
+  private final LongAdder closedCount = new LongAdder();
+  private final LongAdder timeoutCount = new LongAdder();
+  private final LongAdder validationFailureCount = new LongAdder();
+  private final LongAdder statementCacheHitCount = new LongAdder();
+  private final LongAdder statementCacheMissCount = new LongAdder();
+
+  /**
+   * 最近一次新建连接的失败，等待超时时作为原因抛出
+   */
+  private volatile SQLException lastConnectionFailure;
+
+  private volatile boolean closed;
+
+  // OPTIONAL CONFIGURATION FIELDS
+  protected int poolMinimumSize = 0;
+  protected int poolMaximumSize = 10;
+  protected int poolMaximumWait = 30000;
+  protected long poolMaximumLifetime = 1800000;
+  protected int poolMinimumIdle = 0;
+  protected long poolMaximumIdleTime = 600000;
+  protected long poolHousekeepingPeriod = 30000;
+  protected String poolPingQuery;
+  protected int poolValidationTimeout = 5000;
+  protected int poolWarmUpSize = 0;
+  protected boolean poolWarmUpBlocking = true;
+  protected int poolPreparedStatementCacheSize = 0;
+
+  public PooledDataSource() {
+    this(new UnpooledDataSource());
+  }
+
+  public PooledDataSource(String driver, String url, String username, String password) {
+    this(new UnpooledDataSource(driver, url, username, password));
+  }
+
+  public PooledDataSource(String driver, String url, Properties driverProperties) {
+    this(new UnpooledDataSource(driver, url, driverProperties));
+  }
+
+  private PooledDataSource(UnpooledDataSource dataSource) {
+    this.dataSource = dataSource;
+    this.connectionAdder = new ThreadPoolExecutor(1, 1, 5, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+      Thread thread = new Thread(runnable, "mybatis-pool-connection-adder");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.connectionAdder.allowCoreThreadTimeOut(true);
+    this.connectionCloser = new ThreadPoolExecutor(1, 1, 5, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+      Thread thread = new Thread(runnable, "mybatis-pool-connection-closer");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.connectionCloser.allowCoreThreadTimeOut(true);
+    this.housekeeper = new ScheduledThreadPoolExecutor(1, runnable -> {
+      Thread thread = new Thread(runnable, "mybatis-pool-housekeeper");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    return popConnection();
+  }
+
+  /**
+   * 用户名密码和配置不同时不走连接池
+   */
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    if (equals(username, dataSource.getUsername()) && equals(password, dataSource.getPassword())) {
+      return popConnection();
+    }
+    return dataSource.getConnection(username, password);
+  }
+
+  @Override
+  public void setLoginTimeout(int loginTimeout) throws SQLException {
+    dataSource.setLoginTimeout(loginTimeout);
+  }
+
+  @Override
+  public int getLoginTimeout() throws SQLException {
+    return dataSource.getLoginTimeout();
+  }
+
+  @Override
+  public void setLogWriter(PrintWriter logWriter) throws SQLException {
+    dataSource.setLogWriter(logWriter);
+  }
+
+  @Override
+  public PrintWriter getLogWriter() throws SQLException {
+    return dataSource.getLogWriter();
+  }
+
+  public void setDriver(String driver) {
+    dataSource.setDriver(driver);
+    forceCloseAll();
+  }
+
+  public void setUrl(String url) {
+    dataSource.setUrl(url);
+    forceCloseAll();
+  }
+
+  public void setUsername(String username) {
+    dataSource.setUsername(username);
+    forceCloseAll();
+  }
+
+  public void setPassword(String password) {
+    dataSource.setPassword(password);
+    forceCloseAll();
+  }
+
+  public void setDefaultAutoCommit(boolean defaultAutoCommit) {
+    dataSource.setAutoCommit(defaultAutoCommit);
+    forceCloseAll();
+  }
+
+  public void setDefaultTransactionIsolationLevel(Integer defaultTransactionIsolationLevel) {
+    dataSource.setDefaultTransactionIsolationLevel(defaultTransactionIsolationLevel);
+    forceCloseAll();
+  }
+
+  public void setDriverProperties(Properties driverProps) {
+    dataSource.setDriverProperties(driverProps);
+    forceCloseAll();
+  }
+
+  /**
+   * 保持的最少连接数
+   *
+   * @param poolMinimumSize
+   */
+  public void setPoolMinimumSize(int poolMinimumSize) {
+    this.poolMinimumSize = poolMinimumSize;
+  }
+
+  /**
+   * 最多的连接数，包括借出和空闲的
+   *
+   * @param poolMaximumSize
+   */
+  public void setPoolMaximumSize(int poolMaximumSize) {
+    this.poolMaximumSize = poolMaximumSize;
+  }
+
+  /**
+   * 借出连接的最长等待时间（毫秒），超时抛出 {@link SQLTransientConnectionException}
+   *
+   * @param poolMaximumWait
+   */
+  public void setPoolMaximumWait(int poolMaximumWait) {
+    this.poolMaximumWait = poolMaximumWait;
+  }
+
+  /**
+   * 连接的最长存活时间（毫秒），0 表示不限制
+   *
+   * @param poolMaximumLifetime
+   */
+  public void setPoolMaximumLifetime(long poolMaximumLifetime) {
+    this.poolMaximumLifetime = poolMaximumLifetime;
+  }
+
+  /**
+   * 保持的最少空闲连接数，由后台线程补充
+   *
+   * @param poolMinimumIdle
+   */
+  public void setPoolMinimumIdle(int poolMinimumIdle) {
+    this.poolMinimumIdle = poolMinimumIdle;
+  }
+
+  /**
+   * 空闲超过这个时间（毫秒）的连接在连接数多于最小值时关闭，0 表示不关闭
+   *
+   * @param poolMaximumIdleTime
+   */
+  public void setPoolMaximumIdleTime(long poolMaximumIdleTime) {
+    this.poolMaximumIdleTime = poolMaximumIdleTime;
+  }
+
+  /**
+   * 后台整理的间隔（毫秒），在整理线程启动前设置，0 表示不整理
+   *
+   * @param poolHousekeepingPeriod
+   */
+  public void setPoolHousekeepingPeriod(long poolHousekeepingPeriod) {
+    this.poolHousekeepingPeriod = poolHousekeepingPeriod;
+  }
+
+  /**
+   * 校验空闲连接的 sql，为空时使用 {@link Connection#isValid(int)}
+   *
+   * @param poolPingQuery
+   */
+  public void setPoolPingQuery(String poolPingQuery) {
+    this.poolPingQuery = poolPingQuery;
+  }
+
+  /**
+   * 校验的超时时间（毫秒）
+   *
+   * @param poolValidationTimeout
+   */
+  public void setPoolValidationTimeout(int poolValidationTimeout) {
+    this.poolValidationTimeout = poolValidationTimeout;
+  }
+
+  /**
+   * 工厂设置完属性后预热的连接数
+   *
+   * @param poolWarmUpSize
+   */
+  public void setPoolWarmUpSize(int poolWarmUpSize) {
+    this.poolWarmUpSize = poolWarmUpSize;
+  }
+
+  /**
+   * 是否等待预热完成，最多等待 poolMaximumWait 毫秒
+   *
+   * @param poolWarmUpBlocking
+   */
+  public void setPoolWarmUpBlocking(boolean poolWarmUpBlocking) {
+    this.poolWarmUpBlocking = poolWarmUpBlocking;
+  }
+
+  /**
+   * 每个物理连接缓存的 PreparedStatement 数，0 表示不缓存。已有的连接被关闭后按新的大小重建
+   *
+   * @param poolPreparedStatementCacheSize
+   */
+  public void setPoolPreparedStatementCacheSize(int poolPreparedStatementCacheSize) {
+    this.poolPreparedStatementCacheSize = poolPreparedStatementCacheSize;
+    forceCloseAll();
+  }
+
+  public String getDriver() {
+    return dataSource.getDriver();
+  }
+
+  public String getUrl() {
+    return dataSource.getUrl();
+  }
+
+  public String getUsername() {
+    return dataSource.getUsername();
+  }
+
+  public String getPassword() {
+    return dataSource.getPassword();
+  }
+
+  public boolean isAutoCommit() {
+    return Boolean.TRUE.equals(dataSource.isAutoCommit());
+  }
+
+  public Integer getDefaultTransactionIsolationLevel() {
+    return dataSource.getDefaultTransactionIsolationLevel();
+  }
+
+  public Properties getDriverProperties() {
+    return dataSource.getDriverProperties();
+  }
+
+  public int getPoolMinimumSize() {
+    return poolMinimumSize;
+  }
+
+  public int getPoolMaximumSize() {
+    return poolMaximumSize;
+  }
+
+  public int getPoolMaximumWait() {
+    return poolMaximumWait;
+  }
+
+  public long getPoolMaximumLifetime() {
+    return poolMaximumLifetime;
+  }
+
+  public int getPoolMinimumIdle() {
+    return poolMinimumIdle;
+  }
+
+  public long getPoolMaximumIdleTime() {
+    return poolMaximumIdleTime;
+  }
+
+  public long getPoolHousekeepingPeriod() {
+    return poolHousekeepingPeriod;
+  }
+
+  public String getPoolPingQuery() {
+    return poolPingQuery;
+  }
+
+  public int getPoolValidationTimeout() {
+    return poolValidationTimeout;
+  }
+
+  public int getPoolPreparedStatementCacheSize() {
+    return poolPreparedStatementCacheSize;
+  }
+
+  public int getPoolWarmUpSize() {
+    return poolWarmUpSize;
+  }
+
+  public boolean isPoolWarmUpBlocking() {
+    return poolWarmUpBlocking;
+  }
+
+  /**
+   * 借出中的连接数
+   *
+   * @return
+   */
+  public int getActiveConnections() {
+    return bag.getCount(PooledConnection.STATE_IN_USE);
+  }
+
+  /**
+   * 空闲的连接数
+   *
+   * @return
+   */
+  public int getIdleConnections() {
+    return bag.getCount(PooledConnection.STATE_NOT_IN_USE);
+  }
+
+  /**
+   * 正在等待连接的线程数
+   *
+   * @return
+   */
+  public int getWaitingThreads() {
+    return bag.getWaitingThreadCount();
+  }
+
+  /**
+   * 连接总数，包括正在创建的
+   *
+   * @return
+   */
+  public int getTotalConnections() {
+    return totalConnections.get();
+  }
+
+  /**
+   * 借出连接的等待时间，包括超时的
+   *
+   * @return
+   */
+  public LatencyHistogram getWaitTimeHistogram() {
+    return waitTimeHistogram;
+  }
+
+  public long getCreatedCount() {
+    return createdCount.sum();
+  }
+
+  public long getClosedCount() {
+    return closedCount.sum();
+  }
+
+  public long getTimeoutCount() {
+    return timeoutCount.sum();
+  }
+
+  /**
+   * 后台校验失败而关闭的连接数
+   *
+   * @return
+   */
+  public long getValidationFailureCount() {
+    return validationFailureCount.sum();
+  }
+
+  /**
+   * 从语句缓存取到语句的次数
+   *
+   * @return
+   */
+  public long getStatementCacheHitCount() {
+    return statementCacheHitCount.sum();
+  }
+
+  /**
+   * 开启语句缓存时在物理连接上 prepare 的次数
+   *
+   * @return
+   */
+  public long getStatementCacheMissCount() {
+    return statementCacheMissCount.sum();
+  }
+
+  /**
+   * 所有连接缓存中空闲的语句数
+   *
+   * @return
+   */
+  public int getCachedStatementCount() {
+    int count = 0;
+    for (PooledConnection entry : bag.values()) {
+      count += entry.getCachedStatementCount();
+    }
+    return count;
+  }
+
+  void recordStatementCacheHit() {
+    statementCacheHitCount.increment();
+  }
+
+  void recordStatementCacheMiss() {
+    statementCacheMissCount.increment();
+  }
+
+  /**
+   * 关闭所有空闲连接，借出的连接在归还时关闭
+   */
+  public void forceCloseAll() {
+    for (PooledConnection entry : bag.values()) {
+      if (bag.reserve(entry)) {
+        closeConnection(entry, "(forceCloseAll)");
+      } else {
+        entry.evict();
+      }
+    }
+  }
+
+  /**
+   * 按 poolWarmUpSize 预热，poolWarmUpBlocking 时等待完成
+   */
+  public void warmUp() {
+    if (poolWarmUpSize <= 0) {
+      return;
+    }
+    final CompletableFuture<Integer> warmUp = warmUp(poolWarmUpSize);
+    if (!poolWarmUpBlocking) {
+      return;
+    }
+    try {
+      warmUp.get(poolMaximumWait, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      log.warn("Pool warm-up did not finish within " + poolMaximumWait + "ms, continuing. " + this);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      log.warn("Pool warm-up failed.  Cause: " + e.getCause());
+    }
+  }
+
+  /**
+   * 并行打开连接，不超过最大连接数
+   *
+   * @param connections
+   * @return 完成时为成功打开的连接数
+   */
+  public CompletableFuture<Integer> warmUp(int connections) {
+    final int requested = Math.min(connections, poolMaximumSize - totalConnections.get());
+    if (requested <= 0) {
+      return CompletableFuture.completedFuture(0);
+    }
+    final long start = System.nanoTime();
+    final AtomicInteger threadCount = new AtomicInteger();
+    final ExecutorService executor = Executors.newFixedThreadPool(Math.min(requested, MAX_WARM_UP_THREADS), runnable -> {
+      Thread thread = new Thread(runnable, "mybatis-pool-warmup-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    final List<CompletableFuture<Boolean>> futures = new ArrayList<>(requested);
+    try {
+      for (int i = 0; i < requested && reserveConnection(); i++) {
+        futures.add(CompletableFuture.supplyAsync(this::createConnection, executor));
+      }
+    } finally {
+      //已提交的任务执行完后线程退出
+      executor.shutdown();
+    }
+    return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenApply(ignore -> {
+      int opened = 0;
+      for (CompletableFuture<Boolean> future : futures) {
+        if (future.join()) {
+          opened++;
+        }
+      }
+      final long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+      if (opened < requested) {
+        log.warn("Pool warm-up opened " + opened + " of " + requested + " connections in " + millis + "ms. " + this);
+      } else if (log.isDebugEnabled()) {
+        log.debug("Pool warm-up opened " + opened + " connections in " + millis + "ms. " + this);
+      }
+      return opened;
+    });
+  }
+
+  /**
+   * 关闭连接池，之后不能再借出连接
+   */
+  public void close() {
+    closed = true;
+    housekeeper.shutdownNow();
+    forceCloseAll();
+    connectionAdder.shutdown();
+    connectionCloser.shutdown();
+  }
+
+  private Connection popConnection() throws SQLException {
+    if (closed) {
+      throw new SQLException("PooledDataSource has been closed.");
+    }
+    if (poolHousekeepingPeriod > 0 && !housekeeperStarted.get() && housekeeperStarted.compareAndSet(false, true)) {
+      housekeeper.scheduleWithFixedDelay(this::housekeep, poolHousekeepingPeriod, poolHousekeepingPeriod, TimeUnit.MILLISECONDS);
+    }
+    if (totalConnections.get() < poolMinimumSize) {
+      fillPool();
+    }
+    final long start = System.nanoTime();
+    final long deadline = start + TimeUnit.MILLISECONDS.toNanos(poolMaximumWait);
+    long remaining = deadline - start;
+    try {
+      do {
+        final PooledConnection entry = bag.borrow(remaining, TimeUnit.NANOSECONDS);
+        if (entry == null) {
+          break;
+        }
+        final long now = System.nanoTime();
+        if (entry.isEvicted() || isExpired(entry, now)) {
+          closeConnection(entry, "(connection has passed maxLifetime)");
+          remaining = deadline - now;
+          continue;
+        }
+        entry.touch(now);
+        waitTimeHistogram.record(now - start);
+        return entry.newProxy();
+      } while (remaining > 0);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SQLException("Interrupted while waiting for a connection.", e);
+    }
+    final long waited = System.nanoTime() - start;
+    waitTimeHistogram.record(waited);
+    timeoutCount.increment();
+    throw new SQLTransientConnectionException("Connection is not available, request timed out after "
+        + TimeUnit.NANOSECONDS.toMillis(waited) + "ms. " + this, lastConnectionFailure);
+  }
+
+  /**
+   * 代理的 close 调用，回滚未提交的事务后放回连接池
+   *
+   * @param entry
+   */
+  void recycle(PooledConnection entry) {
+    final Connection realConnection = entry.getRealConnection();
+    try {
+      if (!realConnection.getAutoCommit()) {
+        realConnection.rollback();
+      }
+    } catch (SQLException e) {
+      if (log.isDebugEnabled()) {
+        log.debug("Error rolling back returned connection " + entry + ".  Cause: " + e);
+      }
+      closeConnection(entry, "(rollback failed)");
+      return;
+    }
+    final long now = System.nanoTime();
+    if (closed || entry.isEvicted() || isExpired(entry, now)) {
+      closeConnection(entry, "(connection evicted or expired)");
+      return;
+    }
+    entry.touch(now);
+    bag.requite(entry);
+  }
+
+  /**
+   * 移出连接池并在后台线程关闭物理连接，连接数不足时补充
+   *
+   * @param entry 借出或预留的连接
+   * @param reason
+   */
+  void closeConnection(PooledConnection entry, String reason) {
+    if (!bag.remove(entry)) {
+      return;
+    }
+    totalConnections.decrementAndGet();
+    closedCount.increment();
+    if (log.isDebugEnabled()) {
+      log.debug("Closing connection " + entry + " " + reason);
+    }
+    if (closed) {
+      //关闭连接池时同步关闭，close 返回后不再有打开的物理连接
+      closeRealConnection(entry);
+      return;
+    }
+    try {
+      connectionCloser.execute(() -> closeRealConnection(entry));
+    } catch (RejectedExecutionException e) {
+      closeRealConnection(entry);
+    }
+    fillPool();
+  }
+
+  private void closeRealConnection(PooledConnection entry) {
+    entry.closeStatements();
+    try {
+      entry.getRealConnection().close();
+    } catch (SQLException e) {
+      // ignore
+    }
+  }
+
+  /**
+   * 借出时没有空闲连接，等待的线程比正在创建的连接多时再创建一个
+   *
+   * @param waiting
+   */
+  @Override
+  public void addBagItem(int waiting) {
+    if (pendingConnections.get() < waiting) {
+      addConnectionAsync();
+    }
+  }
+
+  /**
+   * 整理空闲连接：关闭过期、空闲太久和校验失败的连接，再补充连接
+   */
+  void housekeep() {
+    try {
+      final long now = System.nanoTime();
+      final long maximumIdleNanos = TimeUnit.MILLISECONDS.toNanos(poolMaximumIdleTime);
+      int idle = getIdleConnections();
+      for (PooledConnection entry : bag.values(PooledConnection.STATE_NOT_IN_USE)) {
+        //预留后不会被借出，校验时也不会和借出的线程竞争
+        if (!bag.reserve(entry)) {
+          continue;
+        }
+        if (entry.isEvicted() || isExpired(entry, now)) {
+          closeConnection(entry, "(connection has passed maxLifetime)");
+        } else if (poolMaximumIdleTime > 0 && now - entry.getLastAccessedNanos() > maximumIdleNanos
+            && idle > poolMinimumIdle && totalConnections.get() > poolMinimumSize) {
+          idle--;
+          closeConnection(entry, "(connection has been idle too long)");
+        } else if (!isConnectionAlive(entry.getRealConnection())) {
+          validationFailureCount.increment();
+          closeConnection(entry, "(connection is no longer valid)");
+        } else {
+          bag.unreserve(entry);
+        }
+      }
+      fillPool();
+    } catch (Throwable t) {
+      log.warn("Unexpected error during pool housekeeping.  Cause: " + t);
+    }
+  }
+
+  /**
+   * 校验连接，配置了 poolPingQuery 时执行它，否则调用 {@link Connection#isValid(int)}
+   *
+   * @param connection
+   * @return
+   */
+  private boolean isConnectionAlive(Connection connection) {
+    final int timeoutSeconds = (int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(poolValidationTimeout));
+    try {
+      if (poolPingQuery == null) {
+        return connection.isValid(timeoutSeconds);
+      }
+      try (Statement statement = connection.createStatement()) {
+        statement.setQueryTimeout(timeoutSeconds);
+        statement.execute(poolPingQuery);
+      }
+      if (!connection.getAutoCommit()) {
+        connection.rollback();
+      }
+      return true;
+    } catch (SQLException e) {
+      if (log.isDebugEnabled()) {
+        log.debug("Validation of connection " + connection + " failed.  Cause: " + e);
+      }
+      return false;
+    }
+  }
+
+  /**
+   * 补充到最少连接数和最少空闲连接数，在后台线程创建
+   */
+  private void fillPool() {
+    while (totalConnections.get() < poolMinimumSize
+        || getIdleConnections() + pendingConnections.get() < poolMinimumIdle) {
+      if (!addConnectionAsync()) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * 预占一个连接数后在后台线程创建连接
+   *
+   * @return 已达到最大连接数时返回 false
+   */
+  private boolean addConnectionAsync() {
+    if (!reserveConnection()) {
+      return false;
+    }
+    try {
+      connectionAdder.execute(this::createConnection);
+      return true;
+    } catch (RejectedExecutionException e) {
+      pendingConnections.decrementAndGet();
+      totalConnections.decrementAndGet();
+      return false;
+    }
+  }
+
+  /**
+   * 预占一个连接数
+   *
+   * @return 已达到最大连接数时返回 false
+   */
+  private boolean reserveConnection() {
+    int total;
+    do {
+      total = totalConnections.get();
+      if (total >= poolMaximumSize || closed) {
+        return false;
+      }
+    } while (!totalConnections.compareAndSet(total, total + 1));
+    pendingConnections.incrementAndGet();
+    return true;
+  }
+
+  /**
+   * 创建预占的连接并放入连接池
+   *
+   * @return 是否创建成功
+   */
+  private boolean createConnection() {
+    final Connection connection;
+    try {
+      connection = dataSource.getConnection();
+    } catch (SQLException e) {
+      totalConnections.decrementAndGet();
+      lastConnectionFailure = e;
+      log.warn("Error creating pooled connection.  Cause: " + e);
+      return false;
+    } finally {
+      //交给等待线程之前减掉，否则它紧接着借出时会以为还有连接在创建
+      pendingConnections.decrementAndGet();
+    }
+    final PooledConnection entry = new PooledConnection(this, connection, poolPreparedStatementCacheSize);
+    createdCount.increment();
+    lastConnectionFailure = null;
+    if (closed) {
+      entry.setState(PooledConnection.STATE_RESERVED);
+      bag.add(entry);
+      closeConnection(entry, "(pool closed)");
+      return false;
+    }
+    bag.add(entry);
+    return true;
+  }
+
+  private boolean isExpired(PooledConnection entry, long now) {
+    return poolMaximumLifetime > 0 && entry.getAgeNanos(now) > TimeUnit.MILLISECONDS.toNanos(poolMaximumLifetime);
+  }
+
+  private static boolean equals(String a, String b) {
+    return a == null ? b == null : a.equals(b);
+  }
+
+  @Override
+  public String toString() {
+    return "PooledDataSource(total=" + getTotalConnections() + ", active=" + getActiveConnections()
+        + ", idle=" + getIdleConnections() + ", waiting=" + getWaitingThreads() + ")";
+  }
+
+  @Override
+  public <T> T unwrap(Class<T> iface) throws SQLException {
+    throw new SQLException(getClass().getName() + " is not a wrapper.");
+  }
+
+  @Override
+  public boolean isWrapperFor(Class<?> iface) {
+    return false;
+  }
+
+  @Override
+  public Logger getParentLogger() {
+    return Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
+  }
+
+}
@@ -0,0 +1,44 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.datasource.pooled;
+
+import com.ziningmei.mybatis.datasource.UnpooledDataSourceFactory;
+
+import java.util.Properties;
+
+/**
+ * @author Clinton Begin
+ *
+ * 池化的数据源，别名 POOLED
+ */
+public class PooledDataSourceFactory extends UnpooledDataSourceFactory {
+
+  public PooledDataSourceFactory() {
+    this.dataSource = new PooledDataSource();
+  }
+
+  /**
+   * 设置属性后按 poolWarmUpSize 预热
+   *
+   * @param properties
+   */
+  @Override
+  public void setProperties(Properties properties) {
+    super.setProperties(properties);
+    ((PooledDataSource) dataSource).warmUp();
+  }
+
+}
@@ -0,0 +1,280 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.datasource.pooled;
+
+import com.ziningmei.mybatis.logging.Log;
+import com.ziningmei.mybatis.logging.LogFactory;
+import com.ziningmei.mybatis.reflection.ExceptionUtil;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 一个物理连接上按 sql 和 prepareStatement 参数缓存的 PreparedStatement，按数量做 LRU 淘汰
+ * <p>
+ * 借出的语句从缓存中移除，逻辑 close 时清理参数、批次和结果集后放回；
+ * 连接同一时刻只属于一个借用者，所以这里不加锁
+ */
+class StatementCache {
+
+  private static final Log log = LogFactory.getLog(StatementCache.class);
+
+  private static final Class<?>[] IFACES = new Class<?>[]{CachedStatement.class};
+
+  private final PooledDataSource dataSource;
+
+  /**
+   * 空闲的语句，按访问顺序排列，最久未用的在前
+   */
+  private final LinkedHashMap<Key, PreparedStatement> idle;
+
+  /**
+   * 借出未关闭的语句
+   */
+  private final Set<Handle> checkedOut = Collections.newSetFromMap(new IdentityHashMap<>());
+
+  StatementCache(PooledDataSource dataSource, final int maxSize) {
+    this.dataSource = dataSource;
+    this.idle = new LinkedHashMap<Key, PreparedStatement>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, PreparedStatement> eldest) {
+        if (size() <= maxSize) {
+          return false;
+        }
+        closeQuietly(eldest.getValue());
+        return true;
+      }
+    };
+  }
+
+  /**
+   * 从缓存取出语句，没有时在物理连接上 prepare
+   *
+   * @param connection 本次借出的连接代理，作为语句的 getConnection
+   * @param realConnection
+   * @param method Connection 的 prepareStatement 方法
+   * @param args
+   * @return
+   * @throws Throwable
+   */
+  PreparedStatement prepare(Connection connection, Connection realConnection, Method method, Object[] args) throws Throwable {
+    final Key key = new Key(args);
+    PreparedStatement statement = idle.remove(key);
+    //closeOnCompletion 的语句可能已经随结果集关闭
+    final boolean hit = statement != null && !statement.isClosed();
+    if (hit) {
+      dataSource.recordStatementCacheHit();
+    } else {
+      dataSource.recordStatementCacheMiss();
+      try {
+        statement = (PreparedStatement) method.invoke(realConnection, args);
+      } catch (Throwable t) {
+        throw ExceptionUtil.unwrapThrowable(t);
+      }
+    }
+    final Handle handle = new Handle(key, statement, connection, hit);
+    checkedOut.add(handle);
+    return (PreparedStatement) Proxy.newProxyInstance(CachedStatement.class.getClassLoader(), IFACES, handle);
+  }
+
+  /**
+   * 连接归还时放回还没关闭的语句
+   */
+  void releaseAll() {
+    if (checkedOut.isEmpty()) {
+      return;
+    }
+    for (Handle handle : new ArrayList<>(checkedOut)) {
+      handle.close();
+    }
+  }
+
+  /**
+   * 物理连接关闭前关闭所有语句
+   */
+  void close() {
+    for (Handle handle : checkedOut) {
+      closeQuietly(handle.statement);
+    }
+    checkedOut.clear();
+    for (Iterator<PreparedStatement> it = idle.values().iterator(); it.hasNext(); ) {
+      closeQuietly(it.next());
+      it.remove();
+    }
+  }
+
+  int size() {
+    return idle.size();
+  }
+
+  private void release(Handle handle) {
+    checkedOut.remove(handle);
+    final PreparedStatement statement = handle.statement;
+    try {
+      if (statement.isClosed()) {
+        return;
+      }
+      reset(statement);
+    } catch (SQLException e) {
+      if (log.isDebugEnabled()) {
+        log.debug("Error resetting cached statement, closing it.  Cause: " + e);
+      }
+      closeQuietly(statement);
+      return;
+    }
+    //同一 sql 同时借出过两条时只保留一条
+    if (idle.containsKey(handle.key)) {
+      closeQuietly(statement);
+    } else {
+      idle.put(handle.key, statement);
+    }
+  }
+
+  /**
+   * 清理上一次使用留下的状态，下一个借用者拿到的和新 prepare 的一样
+   *
+   * @param statement
+   * @throws SQLException
+   */
+  private static void reset(PreparedStatement statement) throws SQLException {
+    final ResultSet resultSet = statement.getResultSet();
+    if (resultSet != null) {
+      resultSet.close();
+    }
+    statement.clearParameters();
+    statement.clearBatch();
+    statement.clearWarnings();
+    if (statement.getQueryTimeout() != 0) {
+      statement.setQueryTimeout(0);
+    }
+    if (statement.getFetchSize() != 0) {
+      statement.setFetchSize(0);
+    }
+    if (statement.getMaxRows() != 0) {
+      statement.setMaxRows(0);
+    }
+  }
+
+  private static void closeQuietly(PreparedStatement statement) {
+    try {
+      statement.close();
+    } catch (SQLException e) {
+      // ignore
+    }
+  }
+
+  /**
+   * prepareStatement 的全部参数，sql 相同但结果集类型或主键返回方式不同的语句分开缓存
+   */
+  private static final class Key {
+
+    private final Object[] args;
+    private final int hashCode;
+
+    Key(Object[] args) {
+      this.args = args;
+      this.hashCode = Arrays.deepHashCode(args);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return this == o || o instanceof Key && Arrays.deepEquals(args, ((Key) o).args);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
+  /**
+   * 一次借出的语句代理
+   */
+  private final class Handle implements InvocationHandler {
+
+    private final Key key;
+    private final PreparedStatement statement;
+    private final Connection connection;
+    private final boolean hit;
+    private boolean closed;
+
+    Handle(Key key, PreparedStatement statement, Connection connection, boolean hit) {
+      this.key = key;
+      this.statement = statement;
+      this.connection = connection;
+      this.hit = hit;
+    }
+
+    void close() {
+      if (!closed) {
+        closed = true;
+        release(this);
+      }
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      final String methodName = method.getName();
+      if ("close".equals(methodName)) {
+        close();
+        return null;
+      }
+      if ("isClosed".equals(methodName)) {
+        return closed || statement.isClosed();
+      }
+      if ("isCacheHit".equals(methodName)) {
+        return hit;
+      }
+      if (Object.class.equals(method.getDeclaringClass())) {
+        if ("equals".equals(methodName)) {
+          return proxy == args[0];
+        }
+        if ("hashCode".equals(methodName)) {
+          return System.identityHashCode(proxy);
+        }
+        return "Cached" + statement;
+      }
+      if (closed) {
+        throw new SQLException("Statement is closed.");
+      }
+      if ("getConnection".equals(methodName)) {
+        return connection;
+      }
+      try {
+        return method.invoke(statement, args);
+      } catch (Throwable t) {
+        throw ExceptionUtil.unwrapThrowable(t);
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,37 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.datasource.replica;
+
+/**
+ * 选择进行中请求最少的从库，相同时取下标小的
+ */
+public class LeastOutstandingReplicaSelector implements ReplicaSelector {
+
+  @Override
+  public int select(int[] candidates, ReplicaSet replicaSet) {
+    int selected = candidates[0];
+    int least = replicaSet.getOutstanding(selected);
+    for (int i = 1; i < candidates.length; i++) {
+      int outstanding = replicaSet.getOutstanding(candidates[i]);
+      if (outstanding < least) {
+        least = outstanding;
+        selected = candidates[i];
+      }
+    }
+    return selected;
+  }
+
+}
@@ -0,0 +1,33 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.datasource.replica;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+/**
+ * 查询从库的复制延迟，例如读取心跳表的最后写入时间
+ */
+public interface ReplicaLagProbe {
+
+  /**
+   * @param replica 从库数据源
+   * @return 延迟的毫秒数
+   * @throws SQLException 查询失败时该从库视为延迟过大
+   */
+  long getLagMillis(DataSource replica) throws SQLException;
+
+}
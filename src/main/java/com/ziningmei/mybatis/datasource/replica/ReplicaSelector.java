@@ -0,0 +1,30 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.datasource.replica;
+
+/**
+ * 从库选择策略
+ */
+public interface ReplicaSelector {
+
+  /**
+   * @param candidates 当前可用（未超过延迟阈值）的从库下标，不为空
+   * @param replicaSet 从库集合，可用于读取各从库的进行中请求数
+   * @return candidates 中的一个下标
+   */
+  int select(int[] candidates, ReplicaSet replicaSet);
+
+}
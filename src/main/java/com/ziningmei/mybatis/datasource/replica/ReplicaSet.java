@@ -0,0 +1,236 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.datasource.replica;
+
+import com.ziningmei.mybatis.datasource.DataSourceException;
+import com.ziningmei.mybatis.logging.Log;
+import com.ziningmei.mybatis.logging.LogFactory;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 只读从库集合，配置在 {@link com.ziningmei.mybatis.session.Environment} 中
+ * <p>
+ * 会话中没有写操作时，查询语句通过 {@link #acquire()} 选择一个从库执行。
+ * 延迟超过 maxLagMillis 的从库不参与选择，全部超过时回退到主库。
+ * 延迟可以通过 {@link #reportLag(int, long)} 上报，也可以配置 {@link ReplicaLagProbe} 由后台线程按间隔探测，
+ * 选择从库时只读取最近一次的结果，不会在查询线程上探测
+ */
+public class ReplicaSet {
+
+  private static final Log log = LogFactory.getLog(ReplicaSet.class);
+
+  private final List<DataSource> replicas;
+  private final ReplicaSelector selector;
+
+  /**
+   * 每个从库进行中的请求数
+   */
+  private final AtomicIntegerArray outstanding;
+
+  /**
+   * 每个从库最近一次的延迟
+   */
+  private final AtomicLongArray lagMillis;
+
+  /**
+   * 后台探测延迟的线程，配置探测器后启动
+   */
+  private final ScheduledThreadPoolExecutor prober;
+  private ScheduledFuture<?> probeTask;
+
+  private final LongAdder primaryFallbacks = new LongAdder();
+
+  private volatile long maxLagMillis = Long.MAX_VALUE;
+  private volatile ReplicaLagProbe lagProbe;
+  private volatile long lagProbeIntervalMillis = 1000L;
+
+  public ReplicaSet(List<DataSource> replicas) {
+    this(replicas, new RoundRobinReplicaSelector());
+  }
+
+  public ReplicaSet(List<DataSource> replicas, ReplicaSelector selector) {
+    if (replicas == null || replicas.isEmpty()) {
+      throw new DataSourceException("A replica set requires at least one replica.");
+    }
+    if (selector == null) {
+      throw new DataSourceException("A replica set requires a replica selector.");
+    }
+    this.replicas = Collections.unmodifiableList(new ArrayList<>(replicas));
+    this.selector = selector;
+    this.outstanding = new AtomicIntegerArray(replicas.size());
+    this.lagMillis = new AtomicLongArray(replicas.size());
+    this.prober = new ScheduledThreadPoolExecutor(1, runnable -> {
+      Thread thread = new Thread(runnable, "mybatis-replica-lag-probe");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.prober.setRemoveOnCancelPolicy(true);
+  }
+
+  /**
+   * 选择一个从库并增加其进行中的请求数，用完后调用 {@link #release(int)}
+   *
+   * @return 从库下标，没有可用从库时为 -1，此时应使用主库
+   */
+  public int acquire() {
+    int[] candidates = new int[replicas.size()];
+    int count = 0;
+    for (int i = 0; i < replicas.size(); i++) {
+      if (!isLagging(i)) {
+        candidates[count++] = i;
+      }
+    }
+    if (count == 0) {
+      primaryFallbacks.increment();
+      return -1;
+    }
+    if (count < candidates.length) {
+      int[] available = new int[count];
+      System.arraycopy(candidates, 0, available, 0, count);
+      candidates = available;
+    }
+    int replica = selector.select(candidates, this);
+    outstanding.incrementAndGet(replica);
+    return replica;
+  }
+
+  public void release(int replica) {
+    outstanding.decrementAndGet(replica);
+  }
+
+  /**
+   * 上报从库的延迟
+   *
+   * @param replica
+   * @param lagMillis
+   */
+  public void reportLag(int replica, long lagMillis) {
+    this.lagMillis.set(replica, lagMillis);
+  }
+
+  /**
+   * 从库最近一次的延迟是否超过阈值
+   *
+   * @param replica
+   * @return
+   */
+  public boolean isLagging(int replica) {
+    return lagMillis.get(replica) > maxLagMillis;
+  }
+
+  public DataSource getReplica(int replica) {
+    return replicas.get(replica);
+  }
+
+  public int size() {
+    return replicas.size();
+  }
+
+  public int getOutstanding(int replica) {
+    return outstanding.get(replica);
+  }
+
+  public long getLagMillis(int replica) {
+    return lagMillis.get(replica);
+  }
+
+  /**
+   * 因为没有可用从库而回退到主库的查询次数
+   *
+   * @return
+   */
+  public long getPrimaryFallbackCount() {
+    return primaryFallbacks.sum();
+  }
+
+  public ReplicaSelector getSelector() {
+    return selector;
+  }
+
+  public long getMaxLagMillis() {
+    return maxLagMillis;
+  }
+
+  public void setMaxLagMillis(long maxLagMillis) {
+    this.maxLagMillis = maxLagMillis;
+  }
+
+  public ReplicaLagProbe getLagProbe() {
+    return lagProbe;
+  }
+
+  public void setLagProbe(ReplicaLagProbe lagProbe) {
+    this.lagProbe = lagProbe;
+    scheduleProbe();
+  }
+
+  public long getLagProbeIntervalMillis() {
+    return lagProbeIntervalMillis;
+  }
+
+  public void setLagProbeIntervalMillis(long lagProbeIntervalMillis) {
+    this.lagProbeIntervalMillis = lagProbeIntervalMillis;
+    scheduleProbe();
+  }
+
+  /**
+   * 停止后台探测
+   */
+  public void close() {
+    prober.shutdownNow();
+  }
+
+  /**
+   * 按当前的探测器和间隔重新安排后台探测，立即探测一次
+   */
+  private synchronized void scheduleProbe() {
+    if (probeTask != null) {
+      probeTask.cancel(false);
+      probeTask = null;
+    }
+    if (lagProbe != null && !prober.isShutdown()) {
+      probeTask = prober.scheduleWithFixedDelay(this::probeAll, 0, Math.max(1, lagProbeIntervalMillis), TimeUnit.MILLISECONDS);
+    }
+  }
+
+  private void probeAll() {
+    ReplicaLagProbe probe = lagProbe;
+    if (probe == null) {
+      return;
+    }
+    for (int replica = 0; replica < replicas.size(); replica++) {
+      try {
+        lagMillis.set(replica, probe.getLagMillis(replicas.get(replica)));
+      } catch (Throwable t) {
+        if (log.isDebugEnabled()) {
+          log.debug("Error probing lag of replica " + replica + ", treating it as lagging.  Cause: " + t);
+        }
+        lagMillis.set(replica, Long.MAX_VALUE);
+      }
+    }
+  }
+
+}
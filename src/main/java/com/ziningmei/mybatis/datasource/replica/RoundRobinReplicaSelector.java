@@ -0,0 +1,32 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.datasource.replica;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 轮询选择从库
+ */
+public class RoundRobinReplicaSelector implements ReplicaSelector {
+
+  private final AtomicInteger next = new AtomicInteger();
+
+  @Override
+  public int select(int[] candidates, ReplicaSet replicaSet) {
+    return candidates[Math.floorMod(next.getAndIncrement(), candidates.length)];
+  }
+
+}
@@ -0,0 +1,31 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.datasource.shard;
+
+/**
+ * 按 hashCode 取模的分片策略，整数键直接取模，保证相邻的键分布到不同分片
+ */
+public class HashShardingStrategy implements ShardingStrategy {
+
+  @Override
+  public int shardFor(Object shardKey, int shardCount) {
+    if (shardKey instanceof Number) {
+      return (int) Math.floorMod(((Number) shardKey).longValue(), (long) shardCount);
+    }
+    return Math.floorMod(shardKey.hashCode(), shardCount);
+  }
+
+}
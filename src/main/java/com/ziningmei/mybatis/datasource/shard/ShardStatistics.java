@@ -0,0 +1,119 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.datasource.shard;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 每个分片的执行耗时统计，无锁
+ */
+public class ShardStatistics {
+
+  private final LongAdder[] counts;
+  private final LongAdder[] totalNanos;
+  private final LongAccumulator[] maxNanos;
+
+  public ShardStatistics(int shardCount) {
+    counts = new LongAdder[shardCount];
+    totalNanos = new LongAdder[shardCount];
+    maxNanos = new LongAccumulator[shardCount];
+    for (int i = 0; i < shardCount; i++) {
+      counts[i] = new LongAdder();
+      totalNanos[i] = new LongAdder();
+      maxNanos[i] = new LongAccumulator(Long::max, 0);
+    }
+  }
+
+  /**
+   * 记录一次执行
+   *
+   * @param shard
+   * @param nanos
+   */
+  public void record(int shard, long nanos) {
+    counts[shard].increment();
+    totalNanos[shard].add(nanos);
+    maxNanos[shard].accumulate(nanos);
+  }
+
+  /**
+   * 当前统计的快照
+   *
+   * @return
+   */
+  public List<ShardLatency> snapshot() {
+    List<ShardLatency> latencies = new ArrayList<>(counts.length);
+    for (int i = 0; i < counts.length; i++) {
+      latencies.add(new ShardLatency(i, counts[i].sum(), totalNanos[i].sum(), maxNanos[i].get()));
+    }
+    return Collections.unmodifiableList(latencies);
+  }
+
+  public void reset() {
+    for (int i = 0; i < counts.length; i++) {
+      counts[i].reset();
+      totalNanos[i].reset();
+      maxNanos[i].reset();
+    }
+  }
+
+  /**
+   * 单个分片的耗时快照
+   */
+  public static class ShardLatency {
+    private final int shard;
+    private final long count;
+    private final long totalNanos;
+    private final long maxNanos;
+
+    public ShardLatency(int shard, long count, long totalNanos, long maxNanos) {
+      this.shard = shard;
+      this.count = count;
+      this.totalNanos = totalNanos;
+      this.maxNanos = maxNanos;
+    }
+
+    public int getShard() {
+      return shard;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public long getTotalNanos() {
+      return totalNanos;
+    }
+
+    public long getMaxNanos() {
+      return maxNanos;
+    }
+
+    public long getMeanNanos() {
+      return count == 0 ? 0 : totalNanos / count;
+    }
+
+    @Override
+    public String toString() {
+      return "shard " + shard + ": count=" + count + ", mean=" + getMeanNanos() + "ns, max=" + maxNanos + "ns";
+    }
+  }
+
+}
@@ -0,0 +1,143 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.datasource.shard;
+
+import com.ziningmei.mybatis.datasource.DataSourceException;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * 分片数据源，持有每个分片的数据源和分片策略
+ * <p>
+ * 作为 Environment 的数据源时，Configuration 为每个会话创建 ShardingExecutor，每个分片一个执行器和事务。
+ * 直接获取连接时返回第 0 个分片的连接。
+ */
+public class ShardedDataSource implements DataSource {
+
+  private final List<DataSource> shards;
+  private final ShardingStrategy shardingStrategy;
+  private final ShardStatistics statistics;
+
+  public ShardedDataSource(List<DataSource> shards) {
+    this(shards, new HashShardingStrategy());
+  }
+
+  public ShardedDataSource(List<DataSource> shards, ShardingStrategy shardingStrategy) {
+    if (shards == null || shards.isEmpty()) {
+      throw new DataSourceException("A sharded data source requires at least one shard.");
+    }
+    if (shardingStrategy == null) {
+      throw new DataSourceException("A sharded data source requires a sharding strategy.");
+    }
+    this.shards = Collections.unmodifiableList(new ArrayList<>(shards));
+    this.shardingStrategy = shardingStrategy;
+    this.statistics = new ShardStatistics(shards.size());
+  }
+
+  /**
+   * 根据分片键的值计算分片下标
+   *
+   * @param shardKey
+   * @return
+   */
+  public int shardFor(Object shardKey) {
+    int shard = shardingStrategy.shardFor(shardKey, shards.size());
+    if (shard < 0 || shard >= shards.size()) {
+      throw new DataSourceException("Sharding strategy " + shardingStrategy.getClass().getName() + " returned shard "
+          + shard + " for key " + shardKey + " but only " + shards.size() + " shards exist.");
+    }
+    return shard;
+  }
+
+  public DataSource getShard(int shard) {
+    return shards.get(shard);
+  }
+
+  public int getShardCount() {
+    return shards.size();
+  }
+
+  public ShardingStrategy getShardingStrategy() {
+    return shardingStrategy;
+  }
+
+  /**
+   * 每个分片的耗时统计
+   *
+   * @return
+   */
+  public ShardStatistics getStatistics() {
+    return statistics;
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    return shards.get(0).getConnection();
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    return shards.get(0).getConnection(username, password);
+  }
+
+  @Override
+  public PrintWriter getLogWriter() throws SQLException {
+    return shards.get(0).getLogWriter();
+  }
+
+  @Override
+  public void setLogWriter(PrintWriter out) throws SQLException {
+    for (DataSource shard : shards) {
+      shard.setLogWriter(out);
+    }
+  }
+
+  @Override
+  public void setLoginTimeout(int seconds) throws SQLException {
+    for (DataSource shard : shards) {
+      shard.setLoginTimeout(seconds);
+    }
+  }
+
+  @Override
+  public int getLoginTimeout() throws SQLException {
+    return shards.get(0).getLoginTimeout();
+  }
+
+  @Override
+  public <T> T unwrap(Class<T> iface) throws SQLException {
+    throw new SQLException(getClass().getName() + " is not a wrapper.");
+  }
+
+  @Override
+  public boolean isWrapperFor(Class<?> iface) throws SQLException {
+    return false;
+  }
+
+  @Override
+  public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+    throw new SQLFeatureNotSupportedException();
+  }
+
+}
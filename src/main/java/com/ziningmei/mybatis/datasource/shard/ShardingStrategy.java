@@ -0,0 +1,30 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.datasource.shard;
+
+/**
+ * 分片策略，把分片键的值映射到分片下标
+ */
+public interface ShardingStrategy {
+
+  /**
+   * @param shardKey   分片键的值，不为空
+   * @param shardCount 分片数量
+   * @return 分片下标，取值范围 [0, shardCount)
+   */
+  int shardFor(Object shardKey, int shardCount);
+
+}
@@ -15,15 +15,27 @@
  */
 package com.ziningmei.mybatis.executor;
 
+import com.ziningmei.mybatis.cache.CacheKey;
+import com.ziningmei.mybatis.cache.impl.PerpetualCache;
+import com.ziningmei.mybatis.cursor.Cursor;
 import com.ziningmei.mybatis.logging.Log;
 import com.ziningmei.mybatis.logging.LogFactory;
 import com.ziningmei.mybatis.mapping.BoundSql;
 import com.ziningmei.mybatis.mapping.MappedStatement;
+import com.ziningmei.mybatis.mapping.ParameterMapping;
+import com.ziningmei.mybatis.mapping.ParameterMode;
+import com.ziningmei.mybatis.mapping.StatementMetrics;
+import com.ziningmei.mybatis.reflection.MetaObject;
 import com.ziningmei.mybatis.session.Configuration;
+import com.ziningmei.mybatis.session.LocalCacheScope;
 import com.ziningmei.mybatis.session.ResultHandler;
 import com.ziningmei.mybatis.session.RowBounds;
+import com.ziningmei.mybatis.transaction.Deadline;
 import com.ziningmei.mybatis.transaction.Transaction;
+import com.ziningmei.mybatis.type.TypeHandlerRegistry;
 
+import javax.sql.DataSource;
+import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.List;
@@ -40,13 +52,34 @@ public abstract class BaseExecutor implements Executor {
 
     protected Configuration configuration;
 
+    /**
+     * 一级缓存
+     */
+    protected PerpetualCache localCache;
+
+    /**
+     * 会话级别的一级缓存范围，为空时使用 Configuration 的配置
+     */
+    private LocalCacheScope localCacheScope;
+
+    /**
+     * 执行器访问的数据源，合并查询时区分分片和从库
+     */
+    private DataSource dataSource;
+
     protected int queryStack;
     private boolean closed;
 
+    /**
+     * 自上次提交或回滚以来是否执行过增删改
+     */
+    private boolean dirty;
+
     protected BaseExecutor(Configuration configuration, Transaction transaction) {
         this.transaction = transaction;
         this.closed = false;
         this.configuration = configuration;
+        this.localCache = new PerpetualCache("LocalCache");
         this.wrapper = this;
     }
 
@@ -58,6 +91,22 @@ public abstract class BaseExecutor implements Executor {
         return transaction;
     }
 
+    @Override
+    public Deadline getDeadline() {
+        if (closed) {
+            throw new ExecutorException("Executor was closed.");
+        }
+        return transaction.getDeadline();
+    }
+
+    @Override
+    public void setDeadline(Deadline deadline) {
+        if (closed) {
+            throw new ExecutorException("Executor was closed.");
+        }
+        transaction.setDeadline(deadline);
+    }
+
     @Override
     public void close(boolean forceRollback) {
         try {
@@ -73,6 +122,7 @@ public abstract class BaseExecutor implements Executor {
             log.warn("Unexpected exception on closing transaction.  Cause: " + e);
         } finally {
             transaction = null;
+            localCache = null;
             closed = true;
         }
     }
@@ -82,11 +132,39 @@ public abstract class BaseExecutor implements Executor {
         return closed;
     }
 
+    @Override
+    public void setExecutorWrapper(Executor wrapper) {
+        this.wrapper = wrapper;
+    }
+
+
+    @Override
+    public long update(MappedStatement ms, Object parameter) throws SQLException {
+        ErrorContext.instance().resource(ms.getResource()).activity("executing an update").object(ms.getId());
+        if (closed) {
+            throw new ExecutorException("Executor was closed.");
+        }
+        dirty = true;
+        clearLocalCache();
+        return doUpdate(ms, parameter);
+    }
+
+    @Override
+    public boolean isDirty() {
+        return dirty;
+    }
 
     @Override
     public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler) throws SQLException {
         BoundSql boundSql = ms.getBoundSql(parameter);
-        return query(ms, parameter, rowBounds, resultHandler, boundSql);
+        CacheKey key = createCacheKey(ms, parameter, rowBounds, boundSql);
+        return query(ms, parameter, rowBounds, resultHandler, key, boundSql);
+    }
+
+    @Override
+    public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql) throws SQLException {
+        CacheKey key = createCacheKey(ms, parameter, rowBounds, boundSql);
+        return query(ms, parameter, rowBounds, resultHandler, key, boundSql);
     }
 
     /**
@@ -95,23 +173,120 @@ public abstract class BaseExecutor implements Executor {
      * @param parameter
      * @param rowBounds
      * @param resultHandler
+     * @param key
      * @param boundSql
      * @param <E>
      * @return
      * @throws SQLException
      */
     @Override
-    public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql) throws SQLException {
+    @SuppressWarnings("unchecked")
+    public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler, CacheKey key, BoundSql boundSql) throws SQLException {
         ErrorContext.instance().resource(ms.getResource()).activity("executing a query").object(ms.getId());
         if (closed) {
             throw new ExecutorException("Executor was closed.");
         }
-
+        //最外层查询且语句要求刷新缓存时，清空一级缓存
+        if (queryStack == 0 && ms.isFlushCacheRequired()) {
+            clearLocalCache();
+        }
         List<E> list;
+        try {
+            queryStack++;
+            //自定义 ResultHandler 的查询不走缓存
+            list = resultHandler == null ? (List<E>) localCache.getObject(key) : null;
+            if (list == null) {
+                list = queryFromDatabase(ms, parameter, rowBounds, resultHandler, key, boundSql);
+            }
+        } finally {
+            queryStack--;
+        }
+        if (queryStack == 0 && getLocalCacheScope() == LocalCacheScope.STATEMENT) {
+            // issue #482
+            clearLocalCache();
+        }
+        return list;
+    }
 
-        list = queryFromDatabase(ms, parameter, rowBounds, resultHandler, boundSql);
+    @Override
+    public <E> Cursor<E> queryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds) throws SQLException {
+        BoundSql boundSql = ms.getBoundSql(parameter);
+        return doQueryCursor(ms, parameter, rowBounds, boundSql);
+    }
 
-        return list;
+    /**
+     * 创建缓存键：语句 id + RowBounds + sql + 参数值 + 环境 id
+     *
+     * @param ms
+     * @param parameterObject
+     * @param rowBounds
+     * @param boundSql
+     * @return
+     */
+    @Override
+    public CacheKey createCacheKey(MappedStatement ms, Object parameterObject, RowBounds rowBounds, BoundSql boundSql) {
+        if (closed) {
+            throw new ExecutorException("Executor was closed.");
+        }
+        CacheKey cacheKey = new CacheKey();
+        cacheKey.update(ms.getId());
+        cacheKey.update(rowBounds.getOffset());
+        cacheKey.update(rowBounds.getLimit());
+        cacheKey.update(boundSql.getSql());
+        List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
+        TypeHandlerRegistry typeHandlerRegistry = ms.getConfiguration().getTypeHandlerRegistry();
+        // mimic DefaultParameterHandler logic
+        for (ParameterMapping parameterMapping : parameterMappings) {
+            if (parameterMapping.getMode() != ParameterMode.OUT) {
+                Object value;
+                String propertyName = parameterMapping.getProperty();
+                if (boundSql.hasAdditionalParameter(propertyName)) {
+                    value = boundSql.getAdditionalParameter(propertyName);
+                } else if (parameterObject == null) {
+                    value = null;
+                } else if (typeHandlerRegistry.hasTypeHandler(parameterObject.getClass())) {
+                    value = parameterObject;
+                } else {
+                    MetaObject metaObject = configuration.newMetaObject(parameterObject);
+                    value = metaObject.getValue(propertyName);
+                }
+                cacheKey.update(value);
+            }
+        }
+        if (configuration.getEnvironment() != null) {
+            // issue #176
+            cacheKey.update(configuration.getEnvironment().getId());
+        }
+        return cacheKey;
+    }
+
+    @Override
+    public void clearLocalCache() {
+        if (!closed) {
+            localCache.clear();
+        }
+    }
+
+    /**
+     * 设置执行器访问的数据源，只和同一数据源上的相同查询合并
+     *
+     * @param dataSource
+     */
+    public void setDataSource(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    public LocalCacheScope getLocalCacheScope() {
+        return localCacheScope != null ? localCacheScope : configuration.getLocalCacheScope();
+    }
+
+    /**
+     * 覆盖当前会话的一级缓存范围
+     *
+     * @param localCacheScope
+     */
+    public void setLocalCacheScope(LocalCacheScope localCacheScope) {
+        this.localCacheScope = localCacheScope;
     }
 
     @Override
@@ -119,18 +294,24 @@ public abstract class BaseExecutor implements Executor {
         if (closed) {
             throw new ExecutorException("Cannot commit, transaction is already closed");
         }
+        clearLocalCache();
         flushStatements();
         if (required) {
             transaction.commit();
         }
+        dirty = false;
     }
 
     @Override
     public List<BatchResult> flushStatements() throws SQLException {
+        return flushStatements(false);
+    }
+
+    public List<BatchResult> flushStatements(boolean isRollBack) throws SQLException {
         if (closed) {
             throw new ExecutorException("Executor was closed.");
         }
-        return doFlushStatements(false);
+        return doFlushStatements(isRollBack);
     }
 
 
@@ -138,20 +319,68 @@ public abstract class BaseExecutor implements Executor {
     public void rollback(boolean required) throws SQLException {
         if (!closed) {
             try {
-                flushStatements();
+                clearLocalCache();
+                flushStatements(true);
             } finally {
                 if (required) {
                     transaction.rollback();
                 }
+                dirty = false;
             }
         }
     }
 
+    protected abstract long doUpdate(MappedStatement ms, Object parameter)
+            throws SQLException;
+
     protected abstract List<BatchResult> doFlushStatements(boolean isRollback) throws SQLException;
 
     protected abstract <E> List<E> doQuery(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql)
             throws SQLException;
 
+    protected abstract <E> Cursor<E> doQueryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds, BoundSql boundSql)
+            throws SQLException;
+
+
+    /**
+     * 获取连接，记录 ACQUIRE 阶段耗时
+     *
+     * @param ms
+     * @return
+     * @throws SQLException
+     */
+    protected Connection getConnection(MappedStatement ms) throws SQLException {
+        if (!configuration.isStatementMetricsEnabled()) {
+            return transaction.getConnection();
+        }
+        final long start = System.nanoTime();
+        final Connection connection = transaction.getConnection();
+        ms.getMetrics().recordSince(StatementMetrics.Phase.ACQUIRE, start);
+        return connection;
+    }
+
+    /**
+     * 复用 Statement 时重新应用事务超时时间
+     *
+     * @param statement
+     * @throws SQLException
+     */
+    protected void applyTransactionTimeout(Statement statement) throws SQLException {
+        StatementUtil.applyTransactionTimeout(statement, statement.getQueryTimeout(), transaction.getTimeout());
+    }
+
+    /**
+     * 在事务截止时间内执行语句，到期时由看门狗取消
+     *
+     * @param statement
+     * @param execution
+     * @param <T>
+     * @return
+     * @throws SQLException
+     */
+    protected <T> T executeWithDeadline(Statement statement, StatementWatchdog.Execution<T> execution) throws SQLException {
+        return StatementWatchdog.execute(statement, transaction.getDeadline(), execution);
+    }
 
     protected void closeStatement(Statement statement) {
         if (statement != null) {
@@ -165,13 +394,16 @@ public abstract class BaseExecutor implements Executor {
         }
     }
 
-    private <E> List<E> queryFromDatabase(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql) throws SQLException {
+    private <E> List<E> queryFromDatabase(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler, CacheKey key, BoundSql boundSql) throws SQLException {
         List<E> list;
-        try {
+        //有未提交修改的会话要读到自己的修改，不和其他会话合并
+        if (ms.isSingleFlight() && resultHandler == null && !dirty) {
+            list = configuration.getSingleFlight().execute(ms.getId(), dataSource, key, () -> doQuery(ms, parameter, rowBounds, null, boundSql));
+        } else {
             list = doQuery(ms, parameter, rowBounds, resultHandler, boundSql);
-        } finally {
-
         }
+        //查询成功后放入一级缓存
+        localCache.putObject(key, list);
         return list;
     }
 
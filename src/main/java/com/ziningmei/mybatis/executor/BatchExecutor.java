@@ -0,0 +1,174 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.executor;
+
+import com.ziningmei.mybatis.cursor.Cursor;
+import com.ziningmei.mybatis.mapping.BoundSql;
+import com.ziningmei.mybatis.mapping.MappedStatement;
+import com.ziningmei.mybatis.session.Configuration;
+import com.ziningmei.mybatis.session.ResultHandler;
+import com.ziningmei.mybatis.session.RowBounds;
+import com.ziningmei.mybatis.transaction.Transaction;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author Jeff Butler
+ *
+ * 批量执行器，连续相同 sql 的语句合并成一次 addBatch/executeBatch，
+ * 在 flushStatements（包括提交）时统一执行
+ */
+public class BatchExecutor extends BaseExecutor {
+
+  /**
+   * 批量模式下 update 的返回值，真实的影响行数在 {@link BatchResult} 中
+   */
+  public static final int BATCH_UPDATE_RETURN_VALUE = Integer.MIN_VALUE + 1002;
+
+  /**
+   * 待执行的 Statement 集合
+   */
+  private final List<Statement> statementList = new ArrayList<>();
+
+  /**
+   * 与 statementList 一一对应的结果集合
+   */
+  private final List<BatchResult> batchResultList = new ArrayList<>();
+
+  /**
+   * 当前批次的 sql
+   */
+  private String currentSql;
+
+  /**
+   * 当前批次的 MappedStatement
+   */
+  private MappedStatement currentStatement;
+
+  public BatchExecutor(Configuration configuration, Transaction transaction) {
+    super(configuration, transaction);
+  }
+
+  @Override
+  public long doUpdate(MappedStatement ms, Object parameterObject) throws SQLException {
+    final Configuration configuration = ms.getConfiguration();
+    final StatementHandler handler = configuration.newStatementHandler(this, ms, parameterObject, RowBounds.DEFAULT, null, null);
+    final BoundSql boundSql = handler.getBoundSql();
+    final String sql = boundSql.getSql();
+    final Statement stmt;
+    //和上一条语句相同，追加到当前批次
+    if (sql.equals(currentSql) && ms.equals(currentStatement)) {
+      int last = statementList.size() - 1;
+      stmt = statementList.get(last);
+      applyTransactionTimeout(stmt);
+      handler.parameterize(stmt);
+      BatchResult batchResult = batchResultList.get(last);
+      batchResult.addParameterObject(parameterObject);
+    } else {
+      //开启新的批次
+      Connection connection = getConnection(ms);
+      stmt = handler.prepare(connection, transaction.getTimeout());
+      handler.parameterize(stmt);
+      currentSql = sql;
+      currentStatement = ms;
+      statementList.add(stmt);
+      batchResultList.add(new BatchResult(ms, sql, parameterObject));
+    }
+    handler.batch(stmt);
+    return BATCH_UPDATE_RETURN_VALUE;
+  }
+
+  @Override
+  public <E> List<E> doQuery(MappedStatement ms, Object parameterObject, RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql)
+      throws SQLException {
+    Statement stmt = null;
+    try {
+      //查询前先执行积压的批次，保证能读到之前的修改
+      flushStatements();
+      Configuration configuration = ms.getConfiguration();
+      StatementHandler handler = configuration.newStatementHandler(wrapper, ms, parameterObject, rowBounds, resultHandler, boundSql);
+      Connection connection = getConnection(ms);
+      stmt = handler.prepare(connection, transaction.getTimeout());
+      handler.parameterize(stmt);
+      return executeWithDeadline(stmt, statement -> handler.query(statement, resultHandler));
+    } finally {
+      closeStatement(stmt);
+    }
+  }
+
+  @Override
+  protected <E> Cursor<E> doQueryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds, BoundSql boundSql) throws SQLException {
+    flushStatements();
+    Configuration configuration = ms.getConfiguration();
+    StatementHandler handler = configuration.newStatementHandler(wrapper, ms, parameter, rowBounds, null, boundSql);
+    Connection connection = getConnection(ms);
+    Statement stmt = handler.prepare(connection, transaction.getTimeout());
+    //游标关闭结果集时语句随之关闭
+    stmt.closeOnCompletion();
+    handler.parameterize(stmt);
+    return executeWithDeadline(stmt, handler::queryCursor);
+  }
+
+  @Override
+  public List<BatchResult> doFlushStatements(boolean isRollback) throws SQLException {
+    try {
+      List<BatchResult> results = new ArrayList<>();
+      //回滚时直接丢弃
+      if (isRollback) {
+        return Collections.emptyList();
+      }
+      for (int i = 0, n = statementList.size(); i < n; i++) {
+        Statement stmt = statementList.get(i);
+        applyTransactionTimeout(stmt);
+        BatchResult batchResult = batchResultList.get(i);
+        try {
+          batchResult.setUpdateCounts(executeWithDeadline(stmt, Statement::executeBatch));
+          closeStatement(stmt);
+        } catch (BatchUpdateException e) {
+          StringBuilder message = new StringBuilder();
+          message.append(batchResult.getMappedStatement().getId())
+              .append(" (batch index #")
+              .append(i + 1)
+              .append(")")
+              .append(" failed.");
+          if (i > 0) {
+            message.append(" ")
+                .append(i)
+                .append(" prior sub executor(s) completed successfully, but will be rolled back.");
+          }
+          throw new BatchExecutorException(message.toString(), e, results, batchResult);
+        }
+        results.add(batchResult);
+      }
+      return results;
+    } finally {
+      for (Statement stmt : statementList) {
+        closeStatement(stmt);
+      }
+      currentSql = null;
+      currentStatement = null;
+      statementList.clear();
+      batchResultList.clear();
+    }
+  }
+
+}
@@ -0,0 +1,186 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.executor;
+
+import com.ziningmei.mybatis.cache.Cache;
+import com.ziningmei.mybatis.cache.CacheKey;
+import com.ziningmei.mybatis.cache.TransactionalCacheManager;
+import com.ziningmei.mybatis.cursor.Cursor;
+import com.ziningmei.mybatis.mapping.BoundSql;
+import com.ziningmei.mybatis.mapping.MappedStatement;
+import com.ziningmei.mybatis.session.ResultHandler;
+import com.ziningmei.mybatis.session.RowBounds;
+import com.ziningmei.mybatis.transaction.Deadline;
+import com.ziningmei.mybatis.transaction.Transaction;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * @author Clinton Begin
+ * @author Eduardo Macarron
+ *
+ * 二级缓存执行器，装饰真正的执行器。
+ * 查询结果先缓冲在 TransactionalCacheManager 中，提交后才对其他会话可见，回滚则丢弃
+ */
+public class CachingExecutor implements Executor {
+
+  private final Executor delegate;
+  private final TransactionalCacheManager tcm = new TransactionalCacheManager();
+
+  public CachingExecutor(Executor delegate) {
+    this.delegate = delegate;
+    delegate.setExecutorWrapper(this);
+  }
+
+  @Override
+  public Transaction getTransaction() {
+    return delegate.getTransaction();
+  }
+
+  @Override
+  public Deadline getDeadline() {
+    return delegate.getDeadline();
+  }
+
+  @Override
+  public void setDeadline(Deadline deadline) {
+    delegate.setDeadline(deadline);
+  }
+
+  @Override
+  public void close(boolean forceRollback) {
+    try {
+      //issues #499, #524 and #573
+      if (forceRollback) {
+        tcm.rollback();
+      } else {
+        tcm.commit();
+      }
+    } finally {
+      delegate.close(forceRollback);
+    }
+  }
+
+  @Override
+  public boolean isClosed() {
+    return delegate.isClosed();
+  }
+
+  @Override
+  public long update(MappedStatement ms, Object parameterObject) throws SQLException {
+    flushCacheIfRequired(ms);
+    return delegate.update(ms, parameterObject);
+  }
+
+  @Override
+  public boolean isDirty() {
+    return delegate.isDirty();
+  }
+
+  @Override
+  public <E> List<E> query(MappedStatement ms, Object parameterObject, RowBounds rowBounds, ResultHandler resultHandler) throws SQLException {
+    BoundSql boundSql = ms.getBoundSql(parameterObject);
+    CacheKey key = createCacheKey(ms, parameterObject, rowBounds, boundSql);
+    return query(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
+  }
+
+  @Override
+  public <E> List<E> query(MappedStatement ms, Object parameterObject, RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql) throws SQLException {
+    CacheKey key = createCacheKey(ms, parameterObject, rowBounds, boundSql);
+    return query(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
+  }
+
+  @Override
+  public <E> List<E> query(MappedStatement ms, Object parameterObject, RowBounds rowBounds, ResultHandler resultHandler, CacheKey key, BoundSql boundSql)
+      throws SQLException {
+    Cache cache = ms.getCache();
+    if (cache != null) {
+      flushCacheIfRequired(ms);
+      //自定义 ResultHandler 的查询不走缓存
+      if (ms.isUseCache() && resultHandler == null) {
+        @SuppressWarnings("unchecked")
+        List<E> list = (List<E>) tcm.getObject(cache, key);
+        if (list == null) {
+          list = delegate.query(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
+          tcm.putObject(cache, key, list); // issue #578 and #116
+        }
+        return list;
+      }
+    }
+    return delegate.query(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
+  }
+
+  @Override
+  public <E> Cursor<E> queryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds) throws SQLException {
+    flushCacheIfRequired(ms);
+    return delegate.queryCursor(ms, parameter, rowBounds);
+  }
+
+  @Override
+  public List<BatchResult> flushStatements() throws SQLException {
+    return delegate.flushStatements();
+  }
+
+  @Override
+  public void commit(boolean required) throws SQLException {
+    delegate.commit(required);
+    tcm.commit();
+  }
+
+  @Override
+  public void rollback(boolean required) throws SQLException {
+    try {
+      delegate.rollback(required);
+    } finally {
+      if (required) {
+        tcm.rollback();
+      }
+    }
+  }
+
+  @Override
+  public CacheKey createCacheKey(MappedStatement ms, Object parameterObject, RowBounds rowBounds, BoundSql boundSql) {
+    return delegate.createCacheKey(ms, parameterObject, rowBounds, boundSql);
+  }
+
+  @Override
+  public void clearLocalCache() {
+    delegate.clearLocalCache();
+  }
+
+  @Override
+  public void setExecutorWrapper(Executor executor) {
+    throw new UnsupportedOperationException("This method should not be called");
+  }
+
+  /**
+   * 被装饰的执行器
+   *
+   * @return
+   */
+  public Executor getDelegate() {
+    return delegate;
+  }
+
+  private void flushCacheIfRequired(MappedStatement ms) {
+    Cache cache = ms.getCache();
+    if (cache != null && ms.isFlushCacheRequired()) {
+      tcm.clear(cache);
+    }
+  }
+
+}
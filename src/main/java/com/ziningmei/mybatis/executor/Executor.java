@@ -16,10 +16,13 @@
 package com.ziningmei.mybatis.executor;
 
 
+import com.ziningmei.mybatis.cache.CacheKey;
+import com.ziningmei.mybatis.cursor.Cursor;
 import com.ziningmei.mybatis.mapping.BoundSql;
 import com.ziningmei.mybatis.mapping.MappedStatement;
 import com.ziningmei.mybatis.session.ResultHandler;
 import com.ziningmei.mybatis.session.RowBounds;
+import com.ziningmei.mybatis.transaction.Deadline;
 import com.ziningmei.mybatis.transaction.Transaction;
 
 import java.sql.SQLException;
@@ -33,6 +36,16 @@ public interface Executor {
 
   ResultHandler NO_RESULT_HANDLER = null;
 
+  /**
+   * 执行增删改语句
+   *
+   * @param ms
+   * @param parameter
+   * @return 影响的行数，批量执行器返回 {@link BatchExecutor#BATCH_UPDATE_RETURN_VALUE}
+   * @throws SQLException
+   */
+  long update(MappedStatement ms, Object parameter) throws SQLException;
+
   <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler) throws SQLException;
 
   /**
@@ -49,6 +62,56 @@ public interface Executor {
    */
   <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql) throws SQLException;
 
+  /**
+   * 使用已经计算好的缓存键执行查询
+   *
+   * @param ms
+   * @param parameter
+   * @param rowBounds
+   * @param resultHandler
+   * @param cacheKey
+   * @param boundSql
+   * @param <E>
+   * @return
+   * @throws SQLException
+   */
+  <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler, CacheKey cacheKey, BoundSql boundSql) throws SQLException;
+
+  /**
+   * 以游标方式执行查询，不使用缓存
+   *
+   * @param ms
+   * @param parameter
+   * @param rowBounds
+   * @param <E>
+   * @return
+   * @throws SQLException
+   */
+  <E> Cursor<E> queryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds) throws SQLException;
+
+  /**
+   * 创建缓存键
+   *
+   * @param ms
+   * @param parameterObject
+   * @param rowBounds
+   * @param boundSql
+   * @return
+   */
+  CacheKey createCacheKey(MappedStatement ms, Object parameterObject, RowBounds rowBounds, BoundSql boundSql);
+
+  /**
+   * 清空一级缓存
+   */
+  void clearLocalCache();
+
+  /**
+   * 自上次提交或回滚以来是否执行过增删改
+   *
+   * @return
+   */
+  boolean isDirty();
+
   /**
    * 提交
    * @param required
@@ -75,6 +138,20 @@ public interface Executor {
    */
   Transaction getTransaction();
 
+  /**
+   * 截止时间
+   *
+   * @return 未设置时为 null
+   */
+  Deadline getDeadline();
+
+  /**
+   * 设置截止时间，应用到执行器使用的所有事务，包括之后按需创建的事务
+   *
+   * @param deadline 为 null 时清除
+   */
+  void setDeadline(Deadline deadline);
+
   /**
    * 关闭executor
    * @param forceRollback
@@ -87,4 +164,11 @@ public interface Executor {
    */
   boolean isClosed();
 
+  /**
+   * 设置外层包装的执行器，嵌套查询等需要经过包装执行器
+   *
+   * @param executor
+   */
+  void setExecutorWrapper(Executor executor);
+
 }
@@ -0,0 +1,270 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.executor;
+
+import com.ziningmei.mybatis.cache.CacheKey;
+import com.ziningmei.mybatis.cursor.Cursor;
+import com.ziningmei.mybatis.datasource.replica.ReplicaSet;
+import com.ziningmei.mybatis.mapping.BoundSql;
+import com.ziningmei.mybatis.mapping.MappedStatement;
+import com.ziningmei.mybatis.mapping.SqlCommandType;
+import com.ziningmei.mybatis.session.ResultHandler;
+import com.ziningmei.mybatis.session.RowBounds;
+import com.ziningmei.mybatis.transaction.Deadline;
+import com.ziningmei.mybatis.transaction.Transaction;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * 读写分离执行器
+ * <p>
+ * 会话执行第一次增删改之前，查询语句由 {@link ReplicaSet} 选出的从库执行，每个从库在会话内按需创建一个执行器和事务；
+ * 执行过增删改之后，会话剩余的所有语句都留在主库，保证能读到自己的写入。
+ * 没有可用从库（都超过延迟阈值）时查询回退到主库
+ */
+public class ReadWriteSplittingExecutor implements Executor {
+
+  private final Executor primary;
+  private final ReplicaSet replicaSet;
+
+  /**
+   * 根据从库下标创建执行器
+   */
+  private final IntFunction<Executor> replicaExecutorFactory;
+
+  /**
+   * 按从库下标缓存的执行器，未使用的为空
+   */
+  private final Executor[] replicas;
+
+  private Executor wrapper;
+
+  /**
+   * 会话是否已经写过主库
+   */
+  private boolean pinnedToPrimary;
+
+  public ReadWriteSplittingExecutor(Executor primary, ReplicaSet replicaSet, IntFunction<Executor> replicaExecutorFactory) {
+    this.primary = primary;
+    this.replicaSet = replicaSet;
+    this.replicaExecutorFactory = replicaExecutorFactory;
+    this.replicas = new Executor[replicaSet.size()];
+  }
+
+  @Override
+  public long update(MappedStatement ms, Object parameter) throws SQLException {
+    pinnedToPrimary = true;
+    return primary.update(ms, parameter);
+  }
+
+  @Override
+  public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler) throws SQLException {
+    BoundSql boundSql = ms.getBoundSql(parameter);
+    CacheKey key = createCacheKey(ms, parameter, rowBounds, boundSql);
+    return query(ms, parameter, rowBounds, resultHandler, key, boundSql);
+  }
+
+  @Override
+  public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql) throws SQLException {
+    CacheKey key = createCacheKey(ms, parameter, rowBounds, boundSql);
+    return query(ms, parameter, rowBounds, resultHandler, key, boundSql);
+  }
+
+  @Override
+  public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler, CacheKey key, BoundSql boundSql) throws SQLException {
+    int replica = acquireReplica(ms);
+    if (replica < 0) {
+      return primary.query(ms, parameter, rowBounds, resultHandler, key, boundSql);
+    }
+    try {
+      return replicaExecutor(replica).query(ms, parameter, rowBounds, resultHandler, key, boundSql);
+    } finally {
+      replicaSet.release(replica);
+    }
+  }
+
+  /**
+   * 游标在打开后即释放从库的进行中计数，从库执行器的连接在会话关闭时释放
+   */
+  @Override
+  public <E> Cursor<E> queryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds) throws SQLException {
+    int replica = acquireReplica(ms);
+    if (replica < 0) {
+      return primary.queryCursor(ms, parameter, rowBounds);
+    }
+    try {
+      return replicaExecutor(replica).queryCursor(ms, parameter, rowBounds);
+    } finally {
+      replicaSet.release(replica);
+    }
+  }
+
+  @Override
+  public CacheKey createCacheKey(MappedStatement ms, Object parameterObject, RowBounds rowBounds, BoundSql boundSql) {
+    return primary.createCacheKey(ms, parameterObject, rowBounds, boundSql);
+  }
+
+  @Override
+  public void clearLocalCache() {
+    primary.clearLocalCache();
+    for (Executor replica : replicas) {
+      if (replica != null) {
+        replica.clearLocalCache();
+      }
+    }
+  }
+
+  @Override
+  public boolean isDirty() {
+    return primary.isDirty();
+  }
+
+  @Override
+  public void commit(boolean required) throws SQLException {
+    primary.commit(required);
+    for (Executor replica : replicas) {
+      if (replica != null) {
+        replica.commit(required);
+      }
+    }
+  }
+
+  @Override
+  public List<BatchResult> flushStatements() throws SQLException {
+    return primary.flushStatements();
+  }
+
+  @Override
+  public void rollback(boolean required) throws SQLException {
+    try {
+      primary.rollback(required);
+    } finally {
+      for (Executor replica : replicas) {
+        if (replica != null) {
+          replica.rollback(required);
+        }
+      }
+    }
+  }
+
+  /**
+   * 主库的事务
+   *
+   * @return
+   */
+  @Override
+  public Transaction getTransaction() {
+    return primary.getTransaction();
+  }
+
+  @Override
+  public Deadline getDeadline() {
+    return primary.getDeadline();
+  }
+
+  /**
+   * 主库和已创建的从库使用同一个截止时间，之后创建的从库执行器取主库的截止时间
+   *
+   * @param deadline
+   */
+  @Override
+  public void setDeadline(Deadline deadline) {
+    primary.setDeadline(deadline);
+    for (Executor replica : replicas) {
+      if (replica != null) {
+        replica.setDeadline(deadline);
+      }
+    }
+  }
+
+  @Override
+  public void close(boolean forceRollback) {
+    try {
+      primary.close(forceRollback);
+    } finally {
+      for (Executor replica : replicas) {
+        if (replica != null) {
+          replica.close(forceRollback);
+        }
+      }
+    }
+  }
+
+  @Override
+  public boolean isClosed() {
+    return primary.isClosed();
+  }
+
+  @Override
+  public void setExecutorWrapper(Executor executor) {
+    //嵌套查询重新经过外层执行器，按同样的规则路由
+    this.wrapper = executor;
+    primary.setExecutorWrapper(executor);
+    for (Executor replica : replicas) {
+      if (replica != null) {
+        replica.setExecutorWrapper(executor);
+      }
+    }
+  }
+
+  /**
+   * 会话是否已经固定在主库
+   *
+   * @return
+   */
+  public boolean isPinnedToPrimary() {
+    return pinnedToPrimary;
+  }
+
+  /**
+   * 从库的执行器，未创建过时为空
+   *
+   * @param replica
+   * @return
+   */
+  public Executor getReplicaExecutor(int replica) {
+    return replicas[replica];
+  }
+
+  private int acquireReplica(MappedStatement ms) {
+    if (pinnedToPrimary || primary.isDirty() || ms.getSqlCommandType() != SqlCommandType.SELECT) {
+      return -1;
+    }
+    return replicaSet.acquire();
+  }
+
+  private Executor replicaExecutor(int replica) {
+    Executor executor = replicas[replica];
+    if (executor == null) {
+      if (primary.isClosed()) {
+        throw new ExecutorException("Executor was closed.");
+      }
+      executor = replicaExecutorFactory.apply(replica);
+      if (wrapper != null) {
+        executor.setExecutorWrapper(wrapper);
+      }
+      Deadline deadline = primary.getDeadline();
+      if (deadline != null) {
+        executor.setDeadline(deadline);
+      }
+      replicas[replica] = executor;
+    }
+    return executor;
+  }
+
+}
@@ -0,0 +1,158 @@
+/**
+ *    Copyright 2009-2016 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.executor;
+
+import com.ziningmei.mybatis.cursor.Cursor;
+import com.ziningmei.mybatis.mapping.BoundSql;
+import com.ziningmei.mybatis.mapping.MappedStatement;
+import com.ziningmei.mybatis.session.Configuration;
+import com.ziningmei.mybatis.session.ResultHandler;
+import com.ziningmei.mybatis.session.RowBounds;
+import com.ziningmei.mybatis.transaction.Transaction;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author Clinton Begin
+ *
+ * 可重用执行器，按 sql 缓存当前会话连接上的 Statement，
+ * 在提交、回滚、关闭时统一关闭
+ */
+public class ReuseExecutor extends BaseExecutor {
+
+  /**
+   * sql 与 Statement 的映射
+   */
+  private final Map<String, Statement> statementMap = new HashMap<>();
+
+  /**
+   * 命中次数
+   */
+  private long hitCount;
+
+  /**
+   * 未命中次数，即真正 prepare 的次数
+   */
+  private long missCount;
+
+  public ReuseExecutor(Configuration configuration, Transaction transaction) {
+    super(configuration, transaction);
+  }
+
+  @Override
+  public long doUpdate(MappedStatement ms, Object parameter) throws SQLException {
+    Configuration configuration = ms.getConfiguration();
+    StatementHandler handler = configuration.newStatementHandler(this, ms, parameter, RowBounds.DEFAULT, null, null);
+    Statement stmt = prepareStatement(handler, ms);
+    return executeWithDeadline(stmt, handler::update);
+  }
+
+  @Override
+  public <E> List<E> doQuery(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql) throws SQLException {
+    Configuration configuration = ms.getConfiguration();
+    StatementHandler handler = configuration.newStatementHandler(wrapper, ms, parameter, rowBounds, resultHandler, boundSql);
+    Statement stmt = prepareStatement(handler, ms);
+    return executeWithDeadline(stmt, statement -> handler.query(statement, resultHandler));
+  }
+
+  @Override
+  protected <E> Cursor<E> doQueryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds, BoundSql boundSql) throws SQLException {
+    Configuration configuration = ms.getConfiguration();
+    StatementHandler handler = configuration.newStatementHandler(wrapper, ms, parameter, rowBounds, null, boundSql);
+    //语句被缓存复用，在提交、回滚、关闭时统一关闭
+    Statement stmt = prepareStatement(handler, ms);
+    return executeWithDeadline(stmt, handler::queryCursor);
+  }
+
+  @Override
+  public List<BatchResult> doFlushStatements(boolean isRollback) {
+    for (Statement stmt : statementMap.values()) {
+      closeStatement(stmt);
+    }
+    statementMap.clear();
+    return Collections.emptyList();
+  }
+
+  /**
+   * 命中缓存的次数
+   *
+   * @return
+   */
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * 未命中缓存的次数
+   *
+   * @return
+   */
+  public long getMissCount() {
+    return missCount;
+  }
+
+  /**
+   * 当前缓存的 Statement 数量
+   *
+   * @return
+   */
+  public int getCachedStatementCount() {
+    return statementMap.size();
+  }
+
+  private Statement prepareStatement(StatementHandler handler, MappedStatement ms) throws SQLException {
+    Statement stmt;
+    BoundSql boundSql = handler.getBoundSql();
+    String sql = boundSql.getSql();
+    if (hasStatementFor(sql)) {
+      //命中，复用已有的 Statement
+      hitCount++;
+      stmt = getStatement(sql);
+      applyTransactionTimeout(stmt);
+    } else {
+      //未命中，创建并缓存
+      missCount++;
+      Connection connection = getConnection(ms);
+      stmt = handler.prepare(connection, transaction.getTimeout());
+      putStatement(sql, stmt);
+    }
+    handler.parameterize(stmt);
+    return stmt;
+  }
+
+  private boolean hasStatementFor(String sql) {
+    try {
+      return statementMap.containsKey(sql) && !statementMap.get(sql).getConnection().isClosed();
+    } catch (SQLException e) {
+      return false;
+    }
+  }
+
+  private Statement getStatement(String s) {
+    return statementMap.get(s);
+  }
+
+  private void putStatement(String sql, Statement stmt) {
+    statementMap.put(sql, stmt);
+  }
+
+}
@@ -0,0 +1,427 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.executor;
+
+import com.ziningmei.mybatis.cache.CacheKey;
+import com.ziningmei.mybatis.cursor.Cursor;
+import com.ziningmei.mybatis.datasource.shard.ShardedDataSource;
+import com.ziningmei.mybatis.mapping.BoundSql;
+import com.ziningmei.mybatis.mapping.MappedStatement;
+import com.ziningmei.mybatis.reflection.MetaObject;
+import com.ziningmei.mybatis.session.Configuration;
+import com.ziningmei.mybatis.session.ResultHandler;
+import com.ziningmei.mybatis.session.RowBounds;
+import com.ziningmei.mybatis.transaction.Deadline;
+import com.ziningmei.mybatis.transaction.Transaction;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * 分片执行器，每个分片一个执行器（各自持有事务和连接）
+ * <p>
+ * 能从参数中取到分片键的语句只在对应分片上执行；没有分片键的查询在所有分片上并行执行，
+ * 按 {@link MappedStatement#getMergeOrderBy()} 多路归并并截断；没有分片键的增删改在所有分片上依次执行。
+ * 提交和回滚依次作用于所有分片，不是两阶段提交。
+ * <p>
+ * 嵌套查询仍由各分片自己的执行器处理，关联数据需要和主数据位于同一分片
+ */
+public class ShardingExecutor implements Executor {
+
+  private final Configuration configuration;
+  private final ShardedDataSource dataSource;
+  private final List<Executor> shards;
+
+  public ShardingExecutor(Configuration configuration, ShardedDataSource dataSource, List<Executor> shards) {
+    if (shards.size() != dataSource.getShardCount()) {
+      throw new ExecutorException("Expected " + dataSource.getShardCount() + " shard executors but got " + shards.size());
+    }
+    this.configuration = configuration;
+    this.dataSource = dataSource;
+    this.shards = shards;
+  }
+
+  @Override
+  public long update(MappedStatement ms, Object parameter) throws SQLException {
+    Integer shard = resolveShard(ms, parameter);
+    if (shard != null) {
+      return updateShard(shard, ms, parameter);
+    }
+    //没有分片键时在所有分片上执行
+    long rows = 0;
+    for (int i = 0; i < shards.size(); i++) {
+      long shardRows = updateShard(i, ms, parameter);
+      if (shardRows == BatchExecutor.BATCH_UPDATE_RETURN_VALUE) {
+        rows = BatchExecutor.BATCH_UPDATE_RETURN_VALUE;
+      } else if (rows != BatchExecutor.BATCH_UPDATE_RETURN_VALUE) {
+        rows += shardRows;
+      }
+    }
+    return rows;
+  }
+
+  @Override
+  public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler) throws SQLException {
+    BoundSql boundSql = ms.getBoundSql(parameter);
+    CacheKey key = createCacheKey(ms, parameter, rowBounds, boundSql);
+    return query(ms, parameter, rowBounds, resultHandler, key, boundSql);
+  }
+
+  @Override
+  public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql) throws SQLException {
+    CacheKey key = createCacheKey(ms, parameter, rowBounds, boundSql);
+    return query(ms, parameter, rowBounds, resultHandler, key, boundSql);
+  }
+
+  @Override
+  public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler, CacheKey key, BoundSql boundSql) throws SQLException {
+    Integer shard = resolveShard(ms, parameter);
+    if (shard != null) {
+      return queryShard(shard, ms, parameter, rowBounds, resultHandler, key, boundSql);
+    }
+    return scatterGather(ms, parameter, rowBounds, resultHandler, key, boundSql);
+  }
+
+  @Override
+  public <E> Cursor<E> queryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds) throws SQLException {
+    Integer shard = resolveShard(ms, parameter);
+    if (shard == null) {
+      throw new ExecutorException("Cursor queries require a shard key but statement '" + ms.getId() + "' has none for the given parameter.");
+    }
+    return shards.get(shard).queryCursor(ms, parameter, rowBounds);
+  }
+
+  @Override
+  public CacheKey createCacheKey(MappedStatement ms, Object parameterObject, RowBounds rowBounds, BoundSql boundSql) {
+    //缓存键与分片无关，各分片的一级缓存互相独立
+    return shards.get(0).createCacheKey(ms, parameterObject, rowBounds, boundSql);
+  }
+
+  @Override
+  public void clearLocalCache() {
+    for (Executor shard : shards) {
+      shard.clearLocalCache();
+    }
+  }
+
+  @Override
+  public boolean isDirty() {
+    for (Executor shard : shards) {
+      if (shard.isDirty()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public void commit(boolean required) throws SQLException {
+    for (Executor shard : shards) {
+      shard.commit(required);
+    }
+  }
+
+  @Override
+  public List<BatchResult> flushStatements() throws SQLException {
+    List<BatchResult> results = new ArrayList<>();
+    for (Executor shard : shards) {
+      results.addAll(shard.flushStatements());
+    }
+    return results;
+  }
+
+  @Override
+  public void rollback(boolean required) throws SQLException {
+    SQLException first = null;
+    for (Executor shard : shards) {
+      try {
+        shard.rollback(required);
+      } catch (SQLException e) {
+        //继续回滚其余分片
+        if (first == null) {
+          first = e;
+        }
+      }
+    }
+    if (first != null) {
+      throw first;
+    }
+  }
+
+  /**
+   * 第 0 个分片的事务
+   *
+   * @return
+   */
+  @Override
+  public Transaction getTransaction() {
+    return shards.get(0).getTransaction();
+  }
+
+  @Override
+  public Deadline getDeadline() {
+    return shards.get(0).getDeadline();
+  }
+
+  /**
+   * 所有分片使用同一个截止时间
+   *
+   * @param deadline
+   */
+  @Override
+  public void setDeadline(Deadline deadline) {
+    for (Executor shard : shards) {
+      shard.setDeadline(deadline);
+    }
+  }
+
+  @Override
+  public void close(boolean forceRollback) {
+    for (Executor shard : shards) {
+      shard.close(forceRollback);
+    }
+  }
+
+  @Override
+  public boolean isClosed() {
+    return shards.get(0).isClosed();
+  }
+
+  @Override
+  public void setExecutorWrapper(Executor executor) {
+    //嵌套查询留在各自的分片上，不经过外层执行器
+  }
+
+  public List<Executor> getShards() {
+    return Collections.unmodifiableList(shards);
+  }
+
+  /**
+   * 根据分片键计算分片
+   *
+   * @param ms
+   * @param parameter
+   * @return 分片下标，语句没有分片键或参数中取不到值时为空
+   */
+  private Integer resolveShard(MappedStatement ms, Object parameter) {
+    String shardKey = ms.getShardKey();
+    if (shardKey == null || parameter == null) {
+      return null;
+    }
+    Object value;
+    if (configuration.getTypeHandlerRegistry().hasTypeHandler(parameter.getClass())) {
+      value = parameter;
+    } else {
+      MetaObject metaObject = configuration.newMetaObject(parameter);
+      value = metaObject.hasGetter(shardKey) ? metaObject.getValue(shardKey) : null;
+    }
+    return value == null ? null : dataSource.shardFor(value);
+  }
+
+  private long updateShard(int shard, MappedStatement ms, Object parameter) throws SQLException {
+    long start = System.nanoTime();
+    try {
+      return shards.get(shard).update(ms, parameter);
+    } finally {
+      dataSource.getStatistics().record(shard, System.nanoTime() - start);
+    }
+  }
+
+  private <E> List<E> queryShard(int shard, MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler,
+                                 CacheKey key, BoundSql boundSql) throws SQLException {
+    long start = System.nanoTime();
+    try {
+      return shards.get(shard).query(ms, parameter, rowBounds, resultHandler, key, boundSql);
+    } finally {
+      dataSource.getStatistics().record(shard, System.nanoTime() - start);
+    }
+  }
+
+  private <E> List<E> scatterGather(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler,
+                                    CacheKey key, BoundSql boundSql) throws SQLException {
+    //每个分片最多取 offset + min(limit, mergeLimit) 行，合并后再跳过 offset
+    RowBounds shardRowBounds = rowBounds;
+    long limit = rowBounds.getLimit();
+    if (ms.getMergeLimit() != null) {
+      limit = Math.min(limit, ms.getMergeLimit());
+    }
+    if (rowBounds.getOffset() != RowBounds.NO_ROW_OFFSET || limit != rowBounds.getLimit()) {
+      limit += rowBounds.getOffset();
+      shardRowBounds = new RowBounds(RowBounds.NO_ROW_OFFSET, (int) Math.min(limit, RowBounds.NO_ROW_LIMIT));
+    }
+    List<List<E>> results = new ArrayList<>(shards.size());
+    if (resultHandler != null) {
+      //自定义 ResultHandler 不是线程安全的，依次执行
+      for (int i = 0; i < shards.size(); i++) {
+        results.add(queryShard(i, ms, parameter, shardRowBounds, resultHandler, key, boundSql));
+      }
+    } else {
+      List<CompletableFuture<List<E>>> futures = new ArrayList<>(shards.size());
+      for (int i = 0; i < shards.size(); i++) {
+        final int shard = i;
+        final RowBounds bounds = shardRowBounds;
+        futures.add(CompletableFuture.supplyAsync(() -> {
+          try {
+            return queryShard(shard, ms, parameter, bounds, null, key, boundSql);
+          } catch (SQLException e) {
+            throw new CompletionException(e);
+          } finally {
+            ErrorContext.instance().reset();
+          }
+        }, configuration.getAsyncExecutor()));
+      }
+      for (CompletableFuture<List<E>> future : futures) {
+        results.add(join(future));
+      }
+    }
+    return merge(ms, results, rowBounds);
+  }
+
+  private <E> List<E> join(CompletableFuture<List<E>> future) throws SQLException {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof SQLException) {
+        throw (SQLException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new ExecutorException("Error querying shard.  Cause: " + cause, cause);
+    }
+  }
+
+  private <E> List<E> merge(MappedStatement ms, List<List<E>> results, RowBounds rowBounds) {
+    long skip = rowBounds.getOffset();
+    long limit = rowBounds.getLimit();
+    if (ms.getMergeLimit() != null) {
+      limit = Math.min(limit, ms.getMergeLimit());
+    }
+    List<E> merged = new ArrayList<>();
+    Comparator<Object> comparator = mergeComparator(ms);
+    if (comparator == null) {
+      for (List<E> result : results) {
+        for (E row : result) {
+          if (merged.size() >= limit) {
+            return merged;
+          }
+          if (skip > 0) {
+            skip--;
+          } else {
+            merged.add(row);
+          }
+        }
+      }
+      return merged;
+    }
+    //多路归并，只比较各分片当前的首行
+    PriorityQueue<MergeHead<E>> heads = new PriorityQueue<>(results.size(), (a, b) -> {
+      int c = comparator.compare(a.current(), b.current());
+      return c != 0 ? c : Integer.compare(a.shard, b.shard);
+    });
+    for (int i = 0; i < results.size(); i++) {
+      if (!results.get(i).isEmpty()) {
+        heads.add(new MergeHead<>(i, results.get(i)));
+      }
+    }
+    while (!heads.isEmpty() && merged.size() < limit) {
+      MergeHead<E> head = heads.poll();
+      if (skip > 0) {
+        skip--;
+      } else {
+        merged.add(head.current());
+      }
+      if (head.advance()) {
+        heads.add(head);
+      }
+    }
+    return merged;
+  }
+
+  private Comparator<Object> mergeComparator(MappedStatement ms) {
+    String orderBy = ms.getMergeOrderBy();
+    if (orderBy == null) {
+      return null;
+    }
+    Comparator<Object> comparator = null;
+    for (String item : orderBy.split(",")) {
+      String[] parts = item.trim().split("\\s+");
+      final String property = parts[0];
+      boolean descending = parts.length > 1 && "desc".equals(parts[1].toLowerCase(Locale.ENGLISH));
+      Comparator<Object> next = (a, b) -> compareValues(propertyValue(a, property), propertyValue(b, property));
+      if (descending) {
+        next = next.reversed();
+      }
+      comparator = comparator == null ? next : comparator.thenComparing(next);
+    }
+    return comparator;
+  }
+
+  private Object propertyValue(Object row, String property) {
+    if (row == null) {
+      return null;
+    }
+    //简单类型的结果直接比较本身
+    if (configuration.getTypeHandlerRegistry().hasTypeHandler(row.getClass())) {
+      return row;
+    }
+    return configuration.newMetaObject(row).getValue(property);
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static int compareValues(Object a, Object b) {
+    if (a == b) {
+      return 0;
+    } else if (a == null) {
+      return -1;
+    } else if (b == null) {
+      return 1;
+    }
+    return ((Comparable) a).compareTo(b);
+  }
+
+  /**
+   * 一个分片结果的归并位置
+   */
+  private static final class MergeHead<E> {
+    private final int shard;
+    private final List<E> rows;
+    private int index;
+
+    private MergeHead(int shard, List<E> rows) {
+      this.shard = shard;
+      this.rows = rows;
+    }
+
+    private E current() {
+      return rows.get(index);
+    }
+
+    private boolean advance() {
+      return ++index < rows.size();
+    }
+  }
+
+}
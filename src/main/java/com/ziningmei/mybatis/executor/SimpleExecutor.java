@@ -15,6 +15,9 @@
  */
 package com.ziningmei.mybatis.executor;
 
+import com.ziningmei.mybatis.cursor.Cursor;
+import com.ziningmei.mybatis.logging.jfr.StatementEvent;
+import com.ziningmei.mybatis.logging.jfr.StatementEvents;
 import com.ziningmei.mybatis.mapping.BoundSql;
 import com.ziningmei.mybatis.mapping.MappedStatement;
 import com.ziningmei.mybatis.session.Configuration;
@@ -39,27 +42,54 @@ public class SimpleExecutor extends BaseExecutor {
     super(configuration, transaction);
   }
 
+  @Override
+  public long doUpdate(MappedStatement ms, Object parameter) throws SQLException {
+    Statement stmt = null;
+    try {
+      Configuration configuration = ms.getConfiguration();
+      StatementHandler handler = configuration.newStatementHandler(this, ms, parameter, RowBounds.DEFAULT, null, null);
+      stmt = prepareStatement(handler, ms);
+      return executeWithDeadline(stmt, handler::update);
+    } finally {
+      closeStatement(stmt);
+    }
+  }
+
   @Override
   public <E> List<E> doQuery(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql) throws SQLException {
+    final StatementEvent event = StatementEvents.query();
     Statement stmt = null;
+    List<E> list = null;
     try {
       Configuration configuration = ms.getConfiguration();
       StatementHandler handler = configuration.newStatementHandler(wrapper, ms, parameter, rowBounds, resultHandler, boundSql);
-      stmt = prepareStatement(handler);
-      return handler.query(stmt, resultHandler);
+      stmt = prepareStatement(handler, ms);
+      list = executeWithDeadline(stmt, statement -> handler.query(statement, resultHandler));
+      return list;
     } finally {
+      event.record(ms.getId(), boundSql.getSql(), stmt, list == null ? 0 : list.size());
       closeStatement(stmt);
     }
   }
 
+  @Override
+  protected <E> Cursor<E> doQueryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds, BoundSql boundSql) throws SQLException {
+    Configuration configuration = ms.getConfiguration();
+    StatementHandler handler = configuration.newStatementHandler(wrapper, ms, parameter, rowBounds, null, boundSql);
+    Statement stmt = prepareStatement(handler, ms);
+    //游标关闭结果集时语句随之关闭
+    stmt.closeOnCompletion();
+    return executeWithDeadline(stmt, handler::queryCursor);
+  }
+
   @Override
   public List<BatchResult> doFlushStatements(boolean isRollback) {
     return Collections.emptyList();
   }
 
-  private Statement prepareStatement(StatementHandler handler) throws SQLException {
+  private Statement prepareStatement(StatementHandler handler, MappedStatement ms) throws SQLException {
     Statement stmt;
-    Connection connection =  transaction.getConnection();
+    Connection connection = getConnection(ms);
     stmt = handler.prepare(connection, transaction.getTimeout());
     handler.parameterize(stmt);
     return stmt;
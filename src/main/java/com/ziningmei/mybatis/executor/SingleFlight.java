@@ -0,0 +1,201 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.executor;
+
+import com.ziningmei.mybatis.cache.CacheKey;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 合并并发的相同查询，所有会话共享
+ * <p>
+ * 以数据源和缓存键（语句 id + RowBounds + sql + 参数值 + 环境 id）区分查询，同一时刻相同的查询只有第一个调用者访问数据库，
+ * 其余调用者等待它的结果。每个调用者得到独立的列表；行对象可序列化时逐行深拷贝，否则共享行对象。
+ * 等待者从完成时冻结的快照复制，第一个调用者返回后修改自己的列表不影响它们
+ */
+public class SingleFlight {
+
+  /**
+   * 进行中的查询
+   */
+  private final ConcurrentHashMap<FlightKey, CompletableFuture<List<Object>>> inFlight = new ConcurrentHashMap<>();
+
+  /**
+   * 每个语句被合并的调用次数
+   */
+  private final ConcurrentHashMap<String, LongAdder> deduplicated = new ConcurrentHashMap<>();
+
+  /**
+   * 查询执行
+   */
+  public interface Query<E> {
+    List<E> execute() throws SQLException;
+  }
+
+  /**
+   * 执行查询，同一数据源上有相同的查询正在执行时等待它的结果。分片共用同一个缓存键并发查询，不能互相合并
+   *
+   * @param statementId
+   * @param dataSource 查询访问的数据源，按引用比较，为 null 时不区分
+   * @param cacheKey
+   * @param query
+   * @param <E>
+   * @return
+   * @throws SQLException
+   */
+  @SuppressWarnings("unchecked")
+  public <E> List<E> execute(String statementId, Object dataSource, CacheKey cacheKey, Query<E> query) throws SQLException {
+    final FlightKey key = new FlightKey(dataSource, cacheKey);
+    CompletableFuture<List<Object>> flight = new CompletableFuture<>();
+    CompletableFuture<List<Object>> existing = inFlight.putIfAbsent(key, flight);
+    if (existing != null) {
+      deduplicated.computeIfAbsent(statementId, id -> new LongAdder()).increment();
+      return (List<E>) copy(await(existing));
+    }
+    List<E> list;
+    try {
+      list = query.execute();
+    } catch (SQLException | RuntimeException | Error e) {
+      inFlight.remove(key, flight);
+      flight.completeExceptionally(e);
+      throw e;
+    }
+    //先移除再完成，之后到达的调用者重新查询，不会拿到过期的结果
+    inFlight.remove(key, flight);
+    flight.complete(Collections.unmodifiableList(new ArrayList<Object>(list)));
+    return list;
+  }
+
+  /**
+   * 被合并的调用总次数
+   *
+   * @return
+   */
+  public long getDeduplicatedCount() {
+    long count = 0;
+    for (LongAdder adder : deduplicated.values()) {
+      count += adder.sum();
+    }
+    return count;
+  }
+
+  /**
+   * 语句被合并的调用次数
+   *
+   * @param statementId
+   * @return
+   */
+  public long getDeduplicatedCount(String statementId) {
+    LongAdder adder = deduplicated.get(statementId);
+    return adder == null ? 0 : adder.sum();
+  }
+
+  /**
+   * 当前进行中的查询数量
+   *
+   * @return
+   */
+  public int getInFlightCount() {
+    return inFlight.size();
+  }
+
+  public void reset() {
+    deduplicated.clear();
+  }
+
+  private static List<Object> await(CompletableFuture<List<Object>> flight) throws SQLException {
+    try {
+      return flight.join();
+    } catch (CompletionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof SQLException) {
+        throw (SQLException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new ExecutorException("Error waiting for an identical query.  Cause: " + cause, cause);
+    }
+  }
+
+  /**
+   * 数据源和缓存键
+   */
+  private static final class FlightKey {
+
+    private final Object dataSource;
+    private final CacheKey cacheKey;
+
+    FlightKey(Object dataSource, CacheKey cacheKey) {
+      this.dataSource = dataSource;
+      this.cacheKey = cacheKey;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof FlightKey)) {
+        return false;
+      }
+      FlightKey other = (FlightKey) o;
+      return dataSource == other.dataSource && cacheKey.equals(other.cacheKey);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * System.identityHashCode(dataSource) + cacheKey.hashCode();
+    }
+  }
+
+  private static List<Object> copy(List<Object> list) {
+    List<Object> copy = new ArrayList<>(list.size());
+    for (Object row : list) {
+      copy.add(row instanceof Serializable ? deepCopy((Serializable) row) : row);
+    }
+    return copy;
+  }
+
+  private static Object deepCopy(Serializable row) {
+    try {
+      ByteArrayOutputStream bos = new ByteArrayOutputStream();
+      try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+        oos.writeObject(row);
+      }
+      try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()))) {
+        return ois.readObject();
+      }
+    } catch (IOException | ClassNotFoundException e) {
+      throw new ExecutorException("Error copying a deduplicated query result.  Cause: " + e, e);
+    }
+  }
+
+}
@@ -15,6 +15,7 @@
  */
 package com.ziningmei.mybatis.executor;
 
+import com.ziningmei.mybatis.cursor.Cursor;
 import com.ziningmei.mybatis.mapping.BoundSql;
 import com.ziningmei.mybatis.session.ResultHandler;
 
@@ -34,9 +35,18 @@ public interface StatementHandler {
   void parameterize(Statement statement)
       throws SQLException;
 
+  void batch(Statement statement)
+      throws SQLException;
+
+  long update(Statement statement)
+      throws SQLException;
+
   <E> List<E> query(Statement statement, ResultHandler resultHandler)
       throws SQLException;
 
+  <E> Cursor<E> queryCursor(Statement statement)
+      throws SQLException;
+
   BoundSql getBoundSql();
 
   ParameterHandler getParameterHandler();
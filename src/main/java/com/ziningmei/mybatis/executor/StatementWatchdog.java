@@ -0,0 +1,175 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.executor;
+
+import com.ziningmei.mybatis.logging.Log;
+import com.ziningmei.mybatis.logging.LogFactory;
+import com.ziningmei.mybatis.transaction.Deadline;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 截止时间看门狗：语句执行超过截止时间时调用 {@link Statement#cancel()}，
+ * 不依赖驱动对秒级 queryTimeout 的支持，及时释放连接
+ * <p>
+ * 执行结束和取消通过 {@link Guard} 的状态互斥：只有仍在执行中的语句会被取消，
+ * 已经开始的取消完成之后 execute 才返回，语句不会在放回缓存后被取消
+ */
+public final class StatementWatchdog {
+
+  private static final Log log = LogFactory.getLog(StatementWatchdog.class);
+
+  private static final ScheduledThreadPoolExecutor scheduler;
+
+  /**
+   * 被取消的语句数
+   */
+  private static final LongAdder cancelledCount = new LongAdder();
+
+  static {
+    scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+      Thread thread = new Thread(runnable, "mybatis-statement-watchdog");
+      thread.setDaemon(true);
+      return thread;
+    });
+    //执行完成的语句取消任务后立即从队列移除
+    scheduler.setRemoveOnCancelPolicy(true);
+  }
+
+  private StatementWatchdog() {
+    // NOP
+  }
+
+  /**
+   * 语句的一次执行
+   *
+   * @param <T>
+   */
+  @FunctionalInterface
+  public interface Execution<T> {
+    T execute(Statement statement) throws SQLException;
+  }
+
+  /**
+   * 在截止时间内执行语句，到期时取消语句，取消导致的异常转换为 {@link SQLTimeoutException}
+   *
+   * @param statement
+   * @param deadline  为空时直接执行
+   * @param execution
+   * @param <T>
+   * @return
+   * @throws SQLException
+   */
+  public static <T> T execute(Statement statement, Deadline deadline, Execution<T> execution) throws SQLException {
+    if (deadline == null) {
+      return execution.execute(statement);
+    }
+    deadline.check();
+    final Guard guard = new Guard();
+    final ScheduledFuture<?> task = scheduler.schedule(() -> cancel(statement, guard), deadline.remainingNanos(), TimeUnit.NANOSECONDS);
+    try {
+      return execution.execute(statement);
+    } catch (SQLException e) {
+      if (guard.isCancelled() && !(e instanceof SQLTimeoutException)) {
+        throw new SQLTimeoutException("Statement cancelled after the deadline was exceeded. Cause: " + e, e);
+      }
+      throw e;
+    } finally {
+      task.cancel(false);
+      guard.finish();
+    }
+  }
+
+  public static long getCancelledCount() {
+    return cancelledCount.sum();
+  }
+
+  private static void cancel(Statement statement, Guard guard) {
+    if (!guard.startCancel()) {
+      return;
+    }
+    cancelledCount.increment();
+    try {
+      statement.cancel();
+    } catch (SQLException e) {
+      if (log.isDebugEnabled()) {
+        log.debug("Error cancelling statement after deadline. Cause: " + e);
+      }
+    } finally {
+      guard.cancelled();
+    }
+  }
+
+  /**
+   * 一次执行的状态：RUNNING 之后要么 DONE，要么 CANCELLING 再到 CANCELLED
+   */
+  private static final class Guard extends AtomicInteger {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int RUNNING = 0;
+    private static final int CANCELLING = 1;
+    private static final int CANCELLED = 2;
+    private static final int DONE = 3;
+
+    /**
+     * 等待取消完成的执行线程
+     */
+    private volatile Thread waiter;
+
+    /**
+     * 看门狗开始取消，语句已经执行完时返回 false
+     *
+     * @return
+     */
+    boolean startCancel() {
+      return compareAndSet(RUNNING, CANCELLING);
+    }
+
+    void cancelled() {
+      set(CANCELLED);
+      LockSupport.unpark(waiter);
+    }
+
+    boolean isCancelled() {
+      int state = get();
+      return state == CANCELLING || state == CANCELLED;
+    }
+
+    /**
+     * 执行结束，取消已经开始时等它完成
+     */
+    void finish() {
+      if (compareAndSet(RUNNING, DONE)) {
+        return;
+      }
+      waiter = Thread.currentThread();
+      while (get() != CANCELLED) {
+        LockSupport.park(this);
+      }
+      waiter = null;
+    }
+  }
+
+}
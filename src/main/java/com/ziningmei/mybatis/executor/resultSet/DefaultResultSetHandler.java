@@ -17,13 +17,18 @@ package com.ziningmei.mybatis.executor.resultSet;
 
 
 import com.ziningmei.mybatis.binding.MapperMethod;
+import com.ziningmei.mybatis.cursor.Cursor;
+import com.ziningmei.mybatis.cursor.defaults.DefaultCursor;
 import com.ziningmei.mybatis.executor.*;
 import com.ziningmei.mybatis.loader.ResultLoader;
 import com.ziningmei.mybatis.loader.ResultLoaderMap;
+import com.ziningmei.mybatis.logging.jfr.StatementEvent;
+import com.ziningmei.mybatis.logging.jfr.StatementEvents;
 import com.ziningmei.mybatis.mapping.BoundSql;
 import com.ziningmei.mybatis.mapping.MappedStatement;
 import com.ziningmei.mybatis.mapping.ResultMap;
 import com.ziningmei.mybatis.mapping.ResultMapping;
+import com.ziningmei.mybatis.mapping.ResultSizeStatistics;
 import com.ziningmei.mybatis.reflection.MetaClass;
 import com.ziningmei.mybatis.reflection.MetaObject;
 import com.ziningmei.mybatis.reflection.factory.ObjectFactory;
@@ -40,6 +45,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * @author Clinton Begin
@@ -62,8 +68,15 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     private final ObjectFactory objectFactory;
     private final ReflectorFactory reflectorFactory;
 
+    // nested resultmaps
+    private final RowKeyTable nestedResultObjects = new RowKeyTable();
     private Object previousRowValue;
 
+    /**
+     * 当前批次待加载的嵌套查询，为空时嵌套查询逐行执行
+     */
+    private NestedQueryBatch nestedQueryBatch;
+
     // Cached Automappings
     private final Map<String, List<UnMappedColumnAutoMapping>> autoMappingsCache = new HashMap<>();
 
@@ -110,7 +123,17 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     public List<Object> handleResultSets(Statement stmt) throws SQLException {
         ErrorContext.instance().activity("handling results").object(mappedStatement.getId());
 
+        final StatementEvent event = StatementEvents.resultSet();
         final List<Object> multipleResults = new ArrayList<>();
+        try {
+            handleResultSets(stmt, multipleResults);
+        } finally {
+            event.record(mappedStatement.getId(), boundSql.getSql(), stmt, countRows(multipleResults));
+        }
+        return collapseSingleResultList(multipleResults);
+    }
+
+    private void handleResultSets(Statement stmt, List<Object> multipleResults) throws SQLException {
 
         int resultSetCount = 0;
         ResultSetWrapper rsw = getFirstResultSet(stmt);
@@ -125,8 +148,32 @@ public class DefaultResultSetHandler implements ResultSetHandler {
             cleanUpAfterHandlingResultSet();
             resultSetCount++;
         }
+    }
 
-        return collapseSingleResultList(multipleResults);
+    private static long countRows(List<Object> multipleResults) {
+        long rows = 0;
+        for (Object result : multipleResults) {
+            rows += result instanceof List ? ((List<?>) result).size() : 0;
+        }
+        return rows;
+    }
+
+    @Override
+    public <E> Cursor<E> handleCursorResultSets(Statement stmt) throws SQLException {
+        ErrorContext.instance().activity("handling cursor results").object(mappedStatement.getId());
+
+        ResultSetWrapper rsw = getFirstResultSet(stmt);
+
+        List<ResultMap> resultMaps = mappedStatement.getResultMaps();
+
+        int resultMapCount = resultMaps.size();
+        validateResultMapsCount(rsw, resultMapCount);
+        if (resultMapCount != 1) {
+            throw new ExecutorException("Cursor results cannot be mapped to multiple resultMaps");
+        }
+
+        ResultMap resultMap = resultMaps.get(0);
+        return new DefaultCursor<>(this, resultMap, rsw, rowBounds);
     }
 
     private ResultSetWrapper getFirstResultSet(Statement stmt) throws SQLException {
@@ -177,7 +224,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     }
 
     private void cleanUpAfterHandlingResultSet() {
-
+        nestedResultObjects.clear();
     }
 
     private void validateResultMapsCount(ResultSetWrapper rsw, int resultMapCount) {
@@ -193,9 +240,13 @@ public class DefaultResultSetHandler implements ResultSetHandler {
                 handleRowValues(rsw, resultMap, null, RowBounds.DEFAULT, parentMapping);
             } else {
                 if (resultHandler == null) {
-                    DefaultResultHandler defaultResultHandler = new DefaultResultHandler(objectFactory);
+                    final ResultSizeStatistics statistics = mappedStatement.getResultSizeStatistics();
+                    final DefaultResultHandler defaultResultHandler = configuration.isAdaptiveResultSizing()
+                            ? new DefaultResultHandler(objectFactory, statistics.getSuggestedInitialCapacity())
+                            : new DefaultResultHandler(objectFactory);
                     handleRowValues(rsw, resultMap, defaultResultHandler, rowBounds, null);
                     multipleResults.add(defaultResultHandler.getResultList());
+                    statistics.record(defaultResultHandler.getResultList().size());
                 } else {
                     handleRowValues(rsw, resultMap, resultHandler, rowBounds, null);
                 }
@@ -216,20 +267,24 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     //
 
     public void handleRowValues(ResultSetWrapper rsw, ResultMap resultMap, ResultHandler<?> resultHandler, RowBounds rowBounds, ResultMapping parentMapping) throws SQLException {
-
-        handleRowValuesForSimpleResultMap(rsw, resultMap, resultHandler, rowBounds, parentMapping);
-
+        if (resultMap.hasNestedResultMaps()) {
+            ensureNoRowBounds();
+            checkResultHandler();
+            handleRowValuesForNestedResultMap(rsw, resultMap, resultHandler, rowBounds, parentMapping);
+        } else {
+            handleRowValuesForSimpleResultMap(rsw, resultMap, resultHandler, rowBounds, parentMapping);
+        }
     }
 
     private void ensureNoRowBounds() {
-        if (rowBounds != null && (rowBounds.getLimit() < RowBounds.NO_ROW_LIMIT || rowBounds.getOffset() > RowBounds.NO_ROW_OFFSET)) {
+        if (configuration.isSafeRowBoundsEnabled() && rowBounds != null && (rowBounds.getLimit() < RowBounds.NO_ROW_LIMIT || rowBounds.getOffset() > RowBounds.NO_ROW_OFFSET)) {
             throw new ExecutorException("Mapped Statements with nested result mappings cannot be safely constrained by RowBounds. "
                     + "Use safeRowBoundsEnabled=false setting to bypass this check.");
         }
     }
 
     protected void checkResultHandler() {
-        if (resultHandler != null && !mappedStatement.isResultOrdered()) {
+        if (resultHandler != null && configuration.isSafeResultHandlerEnabled() && !mappedStatement.isResultOrdered()) {
             throw new ExecutorException("Mapped Statements with nested result mappings cannot be safely used with a custom ResultHandler. "
                     + "Use safeResultHandlerEnabled=false setting to bypass this check "
                     + "or ensure your statement returns ordered data and set resultOrdered=true on it.");
@@ -238,6 +293,15 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 
     private void handleRowValuesForSimpleResultMap(ResultSetWrapper rsw, ResultMap resultMap, ResultHandler<?> resultHandler, RowBounds rowBounds, ResultMapping parentMapping)
             throws SQLException {
+        if (parentMapping == null && mappedStatement.getMappingThreads() > 0 && isPipelineSafe(resultMap)) {
+            handleRowValuesPipelined(rsw, resultMap, resultHandler, rowBounds);
+            return;
+        }
+        final int batchSize = parentMapping == null ? getNestedQueryBatchSize(resultMap) : 0;
+        if (batchSize > 0) {
+            handleRowValuesWithBatchedNestedQueries(rsw, resultMap, resultHandler, rowBounds, batchSize);
+            return;
+        }
         DefaultResultContext<Object> resultContext = new DefaultResultContext<>();
         skipRows(rsw.getResultSet(), rowBounds);
         while (shouldProcessMoreRows(resultContext, rowBounds) && rsw.getResultSet().next()) {
@@ -246,6 +310,418 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         }
     }
 
+    //
+    // HANDLE NESTED RESULT MAPS
+    //
+
+    /**
+     * 连接查询映射为对象图：按 id 列计算行键，行键相同的行合并到同一个父对象，子对象挂到父对象的属性或集合上
+     */
+    private void handleRowValuesForNestedResultMap(ResultSetWrapper rsw, ResultMap resultMap, ResultHandler<?> resultHandler, RowBounds rowBounds, ResultMapping parentMapping)
+            throws SQLException {
+        final DefaultResultContext<Object> resultContext = new DefaultResultContext<>();
+        skipRows(rsw.getResultSet(), rowBounds);
+        Object rowValue = previousRowValue;
+        while (shouldProcessMoreRows(resultContext, rowBounds) && rsw.getResultSet().next()) {
+            final RowKeyTable.RowKey rowKey = createRowKey(resultMap, rsw, null);
+            Object partialObject = nestedResultObjects.get(rowKey);
+            // issue #577 && #542
+            if (mappedStatement.isResultOrdered()) {
+                //有序的结果中出现新的父对象时，之前的父对象已经完整，可以交出去并释放
+                if (partialObject == null && rowValue != null) {
+                    nestedResultObjects.clear();
+                    storeObject(resultHandler, resultContext, rowValue, parentMapping, rsw.getResultSet());
+                }
+                rowValue = getRowValue(rsw, resultMap, rowKey, null, partialObject);
+            } else {
+                rowValue = getRowValue(rsw, resultMap, rowKey, null, partialObject);
+                if (partialObject == null) {
+                    storeObject(resultHandler, resultContext, rowValue, parentMapping, rsw.getResultSet());
+                }
+            }
+        }
+        if (rowValue != null && mappedStatement.isResultOrdered() && shouldProcessMoreRows(resultContext, rowBounds)) {
+            storeObject(resultHandler, resultContext, rowValue, parentMapping, rsw.getResultSet());
+            previousRowValue = null;
+        } else if (rowValue != null) {
+            previousRowValue = rowValue;
+        }
+    }
+
+    private Object getRowValue(ResultSetWrapper rsw, ResultMap resultMap, RowKeyTable.RowKey rowKey, String columnPrefix, Object partialObject)
+            throws SQLException {
+        Object rowValue = partialObject;
+        if (rowValue != null) {
+            //已创建的对象只需要合并这一行的嵌套对象
+            final MetaObject metaObject = configuration.newMetaObject(rowValue);
+            applyNestedResultMappings(rsw, resultMap, metaObject, columnPrefix, rowKey);
+        } else {
+            final ResultLoaderMap lazyLoader = new ResultLoaderMap();
+            rowValue = createResultObject(rsw, resultMap, lazyLoader, columnPrefix);
+            if (rowValue != null && !hasTypeHandlerForResultObject(rsw, resultMap.getType())) {
+                final MetaObject metaObject = configuration.newMetaObject(rowValue);
+                boolean foundValues = this.useConstructorMappings;
+                if (shouldApplyAutomaticMappings(resultMap, true)) {
+                    foundValues = applyAutomaticMappings(rsw, resultMap, metaObject, columnPrefix) || foundValues;
+                }
+                foundValues = applyPropertyMappings(rsw, resultMap, metaObject, lazyLoader, columnPrefix) || foundValues;
+                foundValues = applyNestedResultMappings(rsw, resultMap, metaObject, columnPrefix, rowKey) || foundValues;
+                foundValues = lazyLoader.size() > 0 || foundValues;
+                rowValue = foundValues ? rowValue : null;
+            }
+            nestedResultObjects.put(rowKey, rowValue);
+        }
+        return rowValue;
+    }
+
+    private boolean applyNestedResultMappings(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject, String parentPrefix,
+                                              RowKeyTable.RowKey parentRowKey) throws SQLException {
+        boolean foundValues = false;
+        for (ResultMapping resultMapping : resultMap.getPropertyResultMappings()) {
+            final String nestedResultMapId = resultMapping.getNestedResultMapId();
+            if (nestedResultMapId != null && resultMapping.getResultSet() == null) {
+                final String columnPrefix = getColumnPrefix(parentPrefix, resultMapping);
+                final ResultMap nestedResultMap = configuration.getResultMap(nestedResultMapId);
+                final RowKeyTable.RowKey combinedKey = createRowKey(nestedResultMap, rsw, columnPrefix).combine(parentRowKey);
+                Object rowValue = nestedResultObjects.get(combinedKey);
+                final boolean knownValue = rowValue != null;
+                //没有子行时集合属性为空集合而不是 null
+                instantiateCollectionPropertyIfAppropriate(resultMapping, metaObject);
+                if (anyNotNullColumnHasValue(resultMapping, columnPrefix, rsw)) {
+                    rowValue = getRowValue(rsw, nestedResultMap, combinedKey, columnPrefix, rowValue);
+                    if (rowValue != null && !knownValue) {
+                        linkObjects(metaObject, resultMapping, rowValue);
+                        foundValues = true;
+                    }
+                }
+            }
+        }
+        return foundValues;
+    }
+
+    private String getColumnPrefix(String parentPrefix, ResultMapping resultMapping) {
+        final StringBuilder columnPrefixBuilder = new StringBuilder();
+        if (parentPrefix != null) {
+            columnPrefixBuilder.append(parentPrefix);
+        }
+        if (resultMapping.getColumnPrefix() != null) {
+            columnPrefixBuilder.append(resultMapping.getColumnPrefix());
+        }
+        return columnPrefixBuilder.length() == 0 ? null : columnPrefixBuilder.toString().toUpperCase(Locale.ENGLISH);
+    }
+
+    private boolean anyNotNullColumnHasValue(ResultMapping resultMapping, String columnPrefix, ResultSetWrapper rsw) throws SQLException {
+        final Set<String> notNullColumns = resultMapping.getNotNullColumns();
+        if (notNullColumns != null && !notNullColumns.isEmpty()) {
+            final ResultSet rs = rsw.getResultSet();
+            for (String column : notNullColumns) {
+                rs.getObject(prependPrefix(column, columnPrefix));
+                if (!rs.wasNull()) {
+                    return true;
+                }
+            }
+            return false;
+        } else if (columnPrefix != null) {
+            for (String columnName : rsw.getColumnNames()) {
+                if (columnName.toUpperCase(Locale.ENGLISH).startsWith(columnPrefix)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 行键：id 列的值，没有 id 列时使用结果映射自己的属性列；这些列都取不到值时使用带前缀的全部列，
+     * 但不包括嵌套结果映射按 columnPrefix 占用的列，避免连接查询的每一行都成为一个新的父对象
+     */
+    private RowKeyTable.RowKey createRowKey(ResultMap resultMap, ResultSetWrapper rsw, String columnPrefix) throws SQLException {
+        RowKeyTable.RowKey rowKey = createRowKeyForMappings(resultMap, resultMap.getIdResultMappings(), rsw, columnPrefix);
+        if (rowKey == null) {
+            rowKey = createRowKeyForMappings(resultMap, resultMap.getPropertyResultMappings(), rsw, columnPrefix);
+        }
+        if (rowKey != null) {
+            return rowKey;
+        }
+        final List<String> nestedPrefixes = new ArrayList<>();
+        for (ResultMapping resultMapping : resultMap.getPropertyResultMappings()) {
+            if (resultMapping.getNestedResultMapId() != null && resultMapping.getColumnPrefix() != null) {
+                nestedPrefixes.add(getColumnPrefix(columnPrefix, resultMapping));
+            }
+        }
+        final ResultSet rs = rsw.getResultSet();
+        final List<Object> columnValues = new ArrayList<>();
+        columnValues.add(resultMap.getId());
+        boolean found = false;
+        for (String columnName : rsw.getColumnNames()) {
+            final String upperColumnName = columnName.toUpperCase(Locale.ENGLISH);
+            if ((columnPrefix == null || upperColumnName.startsWith(columnPrefix)) && !startsWithAny(upperColumnName, nestedPrefixes)) {
+                final Object value = rs.getObject(columnName);
+                found = found || value != null;
+                columnValues.add(value);
+            }
+        }
+        return found ? RowKeyTable.RowKey.of(columnValues.toArray()) : RowKeyTable.RowKey.NULL;
+    }
+
+    private static boolean startsWithAny(String columnName, List<String> prefixes) {
+        for (String prefix : prefixes) {
+            if (columnName.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 用给定映射中的简单列生成行键
+     *
+     * @return 这些列都不在结果集中或都为空时返回 null
+     */
+    private RowKeyTable.RowKey createRowKeyForMappings(ResultMap resultMap, List<ResultMapping> mappings, ResultSetWrapper rsw,
+                                                       String columnPrefix) throws SQLException {
+        final ResultSet rs = rsw.getResultSet();
+        final List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, columnPrefix);
+        final Object[] values = new Object[mappings.size() + 1];
+        values[0] = resultMap.getId();
+        int count = 1;
+        boolean found = false;
+        for (ResultMapping resultMapping : mappings) {
+            if (resultMapping.getNestedQueryId() == null && resultMapping.getNestedResultMapId() == null
+                    && resultMapping.getColumn() != null) {
+                final String column = prependPrefix(resultMapping.getColumn(), columnPrefix);
+                if (mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH))) {
+                    final Object value = resultMapping.getTypeHandler().getResult(rs, column);
+                    found = found || value != null;
+                    values[count++] = value;
+                }
+            }
+        }
+        return found ? RowKeyTable.RowKey.of(Arrays.copyOf(values, count)) : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void linkObjects(MetaObject metaObject, ResultMapping resultMapping, Object rowValue) {
+        final Object collectionProperty = instantiateCollectionPropertyIfAppropriate(resultMapping, metaObject);
+        if (collectionProperty != null) {
+            ((Collection<Object>) collectionProperty).add(rowValue);
+        } else {
+            metaObject.setValue(resultMapping.getProperty(), rowValue);
+        }
+    }
+
+    private Object instantiateCollectionPropertyIfAppropriate(ResultMapping resultMapping, MetaObject metaObject) {
+        final String propertyName = resultMapping.getProperty();
+        Object propertyValue = metaObject.getValue(propertyName);
+        if (propertyValue == null) {
+            Class<?> type = resultMapping.getJavaType();
+            if (type == null) {
+                type = metaObject.getSetterType(propertyName);
+            }
+            if (objectFactory.isCollection(type)) {
+                propertyValue = objectFactory.create(type);
+                metaObject.setValue(propertyName, propertyValue);
+                return propertyValue;
+            }
+        } else if (propertyValue instanceof Collection) {
+            return propertyValue;
+        }
+        return null;
+    }
+
+    //
+    // BATCHED NESTED QUERIES
+    //
+
+    /**
+     * 嵌套查询映射中最小的正数 batchSize，没有批量映射时返回 0
+     */
+    private int getNestedQueryBatchSize(ResultMap resultMap) {
+        int batchSize = 0;
+        for (ResultMapping propertyMapping : resultMap.getPropertyResultMappings()) {
+            if (propertyMapping.getNestedQueryId() != null && propertyMapping.getBatchSize() > 0 && !propertyMapping.isCompositeResult()
+                    && (batchSize == 0 || propertyMapping.getBatchSize() < batchSize)) {
+                batchSize = propertyMapping.getBatchSize();
+            }
+        }
+        return batchSize;
+    }
+
+    /**
+     * 每 batchSize 行父对象为一批，批内的嵌套查询合并成一条 IN 查询，加载完成后再把这一批交给 ResultHandler
+     */
+    private void handleRowValuesWithBatchedNestedQueries(ResultSetWrapper rsw, ResultMap resultMap, ResultHandler<?> resultHandler, RowBounds rowBounds,
+                                                         int batchSize) throws SQLException {
+        final DefaultResultContext<Object> resultContext = new DefaultResultContext<>();
+        final List<Object> rowValues = new ArrayList<>(batchSize);
+        nestedQueryBatch = new NestedQueryBatch(configuration, executor);
+        try {
+            skipRows(rsw.getResultSet(), rowBounds);
+            while (!resultContext.isStopped() && resultContext.getResultCount() + rowValues.size() < rowBounds.getLimit()
+                    && rsw.getResultSet().next()) {
+                rowValues.add(getRowValue(rsw, resultMap, null));
+                if (rowValues.size() >= batchSize) {
+                    flushNestedQueryBatch(resultHandler, resultContext, rowValues);
+                }
+            }
+            flushNestedQueryBatch(resultHandler, resultContext, rowValues);
+        } finally {
+            nestedQueryBatch = null;
+        }
+    }
+
+    private void flushNestedQueryBatch(ResultHandler<?> resultHandler, DefaultResultContext<Object> resultContext, List<Object> rowValues)
+            throws SQLException {
+        nestedQueryBatch.flush();
+        for (Object rowValue : rowValues) {
+            if (resultContext.isStopped()) {
+                break;
+            }
+            callResultHandler(resultHandler, resultContext, rowValue);
+        }
+        rowValues.clear();
+    }
+
+    //
+    // PIPELINED FETCH & MAP
+    //
+
+    /**
+     * 流水线映射：当前线程读取原始列值写入环形缓冲区，映射线程并行映射，结果按读取顺序交给 ResultHandler。
+     * 缓冲区满时当前线程也参与映射，映射线程不足时不会阻塞
+     */
+    private void handleRowValuesPipelined(ResultSetWrapper rsw, ResultMap resultMap, ResultHandler<?> resultHandler, RowBounds rowBounds)
+            throws SQLException {
+        final ResultSet rs = rsw.getResultSet();
+        final int columnCount = rsw.getColumnNames().size();
+        final RowRingBuffer buffer = new RowRingBuffer(configuration.getMappingBufferSize(), columnCount);
+        final DefaultResultContext<Object> resultContext = new DefaultResultContext<>();
+        final PipelineMapper self = new PipelineMapper(this, rsw, resultMap);
+        try {
+            for (int i = 0; i < mappedStatement.getMappingThreads(); i++) {
+                //每个映射线程使用独立的 handler，自动映射缓存等状态不共享
+                final PipelineMapper worker = new PipelineMapper(
+                        new DefaultResultSetHandler(executor, mappedStatement, parameterHandler, null, boundSql, rowBounds), rsw, resultMap);
+                try {
+                    configuration.getAsyncExecutor().execute(() -> worker.run(buffer));
+                } catch (RejectedExecutionException e) {
+                    //线程池已满时用已经启动的映射线程继续，一个都没有时由当前线程映射所有行
+                    break;
+                }
+            }
+            skipRows(rs, rowBounds);
+            int fetched = 0;
+            while (!resultContext.isStopped() && fetched < rowBounds.getLimit() && rs.next()) {
+                while (!buffer.hasFreeSlot() && !resultContext.isStopped()) {
+                    callResultHandler(resultHandler, resultContext, self.next(buffer));
+                }
+                if (resultContext.isStopped()) {
+                    break;
+                }
+                final Object[] slot = buffer.nextSlot();
+                for (int i = 0; i < columnCount; i++) {
+                    slot[i] = DetachedRow.detach(rs.getObject(i + 1));
+                }
+                buffer.publish();
+                fetched++;
+                Object rowValue;
+                while (!resultContext.isStopped() && (rowValue = buffer.take(false)) != RowRingBuffer.NONE) {
+                    callResultHandler(resultHandler, resultContext, rowValue);
+                }
+            }
+            buffer.finish();
+            Object rowValue;
+            while (!resultContext.isStopped() && (rowValue = self.next(buffer)) != RowRingBuffer.NONE) {
+                callResultHandler(resultHandler, resultContext, rowValue);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExecutorException("Interrupted while mapping results of " + mappedStatement.getId(), e);
+        } catch (RowRingBuffer.PipelineFailure e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new ExecutorException("Error mapping results of " + mappedStatement.getId() + ".  Cause: " + cause, cause);
+        } finally {
+            buffer.abort();
+        }
+    }
+
+    /**
+     * 只有不含嵌套查询、嵌套结果映射的结果映射可以脱离结果集和执行器在其他线程上映射
+     */
+    private boolean isPipelineSafe(ResultMap resultMap) {
+        for (ResultMapping resultMapping : resultMap.getResultMappings()) {
+            if (resultMapping.getNestedQueryId() != null || resultMapping.getNestedResultMapId() != null
+                    || resultMapping.getResultSet() != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 在脱离结果集的行上执行映射
+     */
+    private static final class PipelineMapper {
+        private final DefaultResultSetHandler handler;
+        private final DetachedRow row;
+        private final ResultSetWrapper rsw;
+        private final ResultMap resultMap;
+
+        private PipelineMapper(DefaultResultSetHandler handler, ResultSetWrapper source, ResultMap resultMap) {
+            this.handler = handler;
+            this.row = DetachedRow.forColumns(source.getColumnNames());
+            this.rsw = new ResultSetWrapper(source, row.getResultSet());
+            this.resultMap = resultMap;
+        }
+
+        private Object map(Object[] values) throws SQLException {
+            row.setValues(values);
+            return handler.getRowValue(rsw, resultMap, null);
+        }
+
+        /**
+         * 映射线程：不断领取行并写回结果，直到缓冲区关闭
+         */
+        private void run(RowRingBuffer buffer) {
+            try {
+                long sequence;
+                while ((sequence = buffer.claim()) >= 0) {
+                    buffer.complete(sequence, map(buffer.row(sequence)));
+                }
+            } catch (Throwable t) {
+                buffer.fail(t);
+            }
+        }
+
+        /**
+         * 读取线程取下一个结果，下一行无人映射时自己映射
+         *
+         * @return 下一个结果，全部取出后为 {@link RowRingBuffer#NONE}
+         */
+        private Object next(RowRingBuffer buffer) throws SQLException, InterruptedException {
+            while (true) {
+                final Object rowValue = buffer.take(false);
+                if (rowValue != RowRingBuffer.NONE || buffer.isDrained()) {
+                    return rowValue;
+                }
+                final long sequence = buffer.tryClaim();
+                if (sequence >= 0) {
+                    buffer.complete(sequence, map(buffer.row(sequence)));
+                } else {
+                    return buffer.take(true);
+                }
+            }
+        }
+    }
+
     private void storeObject(ResultHandler<?> resultHandler, DefaultResultContext<Object> resultContext, Object rowValue, ResultMapping parentMapping, ResultSet rs) throws SQLException {
 
         callResultHandler(resultHandler, resultContext, rowValue);
@@ -568,7 +1044,12 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         final Class<?> nestedQueryParameterType = nestedQuery.getParameterMap().getType();
         final Object nestedQueryParameterObject = prepareParameterForNestedQuery(rs, propertyMapping, nestedQueryParameterType, columnPrefix);
         Object value = null;
-        if (nestedQueryParameterObject != null) {
+        if (nestedQueryParameterObject != null && nestedQueryBatch != null && propertyMapping.getBatchSize() > 0
+                && !propertyMapping.isCompositeResult()) {
+            //批量模式下先记下键，整批一起加载
+            nestedQueryBatch.add(propertyMapping, nestedQueryParameterObject, metaResultObject);
+            value = DEFERED;
+        } else if (nestedQueryParameterObject != null) {
             final BoundSql nestedBoundSql = nestedQuery.getBoundSql(nestedQueryParameterObject);
             final Class<?> targetType = propertyMapping.getJavaType();
 
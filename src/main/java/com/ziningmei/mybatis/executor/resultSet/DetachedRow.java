@@ -0,0 +1,276 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.executor.resultSet;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import javax.sql.rowset.serial.SerialBlob;
+import javax.sql.rowset.serial.SerialClob;
+
+/**
+ * 已经从 JDBC 读出的一行数据，以只读 ResultSet 的形式提供给 TypeHandler，
+ * 使映射可以在读取结果集之外的线程上进行
+ * <p>
+ * 只支持按列下标或列名读取当前行的 getXxx 方法以及 wasNull，其余方法抛出 SQLFeatureNotSupportedException。
+ * 列值与 getXxx 要求的类型不一致时按 JDBC 驱动的惯例转换，例如对 VARCHAR 列调用 getInt、对 TIMESTAMP 列调用 getDate
+ */
+final class DetachedRow implements InvocationHandler {
+
+  private final Map<String, Integer> columnIndexes = new HashMap<>();
+  private final ResultSet resultSet;
+  private Object[] values;
+  private boolean wasNull;
+
+  private DetachedRow(List<String> columnNames) {
+    for (int i = 0; i < columnNames.size(); i++) {
+      columnIndexes.putIfAbsent(columnNames.get(i).toUpperCase(Locale.ENGLISH), i);
+    }
+    this.resultSet = (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class}, this);
+  }
+
+  static DetachedRow forColumns(List<String> columnNames) {
+    return new DetachedRow(columnNames);
+  }
+
+  ResultSet getResultSet() {
+    return resultSet;
+  }
+
+  void setValues(Object[] values) {
+    this.values = values;
+    this.wasNull = false;
+  }
+
+  @Override
+  public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+    String name = method.getName();
+    if (Object.class.equals(method.getDeclaringClass())) {
+      return method.invoke(this, args);
+    } else if ("wasNull".equals(name)) {
+      return wasNull;
+    } else if ("isClosed".equals(name)) {
+      return false;
+    } else if ("close".equals(name)) {
+      return null;
+    } else if (name.startsWith("get") && args != null && args.length >= 1
+        && (args[0] instanceof Integer || args[0] instanceof String)) {
+      Object value = values[columnIndex(args[0])];
+      wasNull = value == null;
+      Class<?> type = args.length == 2 && args[1] instanceof Class ? (Class<?>) args[1] : method.getReturnType();
+      return convert(value, type, name);
+    }
+    throw new SQLFeatureNotSupportedException("Method " + name + " is not supported on a detached row.");
+  }
+
+  private int columnIndex(Object column) throws SQLException {
+    if (column instanceof Integer) {
+      int index = (Integer) column - 1;
+      if (index < 0 || index >= values.length) {
+        throw new SQLException("Invalid column index " + column);
+      }
+      return index;
+    }
+    Integer index = columnIndexes.get(((String) column).toUpperCase(Locale.ENGLISH));
+    if (index == null) {
+      throw new SQLException("Column '" + column + "' not found.");
+    }
+    return index;
+  }
+
+  /**
+   * 按 JDBC 驱动的惯例在读出的原始值和 getXxx 要求的类型之间转换
+   */
+  private static Object convert(Object value, Class<?> type, String method) throws SQLException {
+    if (value == null) {
+      if (type == boolean.class) {
+        return Boolean.FALSE;
+      }
+      return type.isPrimitive() ? defaultNumber(type) : null;
+    }
+    try {
+      if (type == boolean.class || type == Boolean.class) {
+        return toBoolean(value, type, method);
+      } else if (type.isPrimitive() || Number.class.isAssignableFrom(type) && !type.isInstance(value)) {
+        return toNumber(value, type, method);
+      } else if (type.isInstance(value)) {
+        return value;
+      } else if (type == String.class) {
+        return value instanceof byte[] ? new String((byte[]) value, StandardCharsets.UTF_8) : value.toString();
+      } else if (type == Timestamp.class) {
+        return toTimestamp(value, type, method);
+      } else if (type == Date.class) {
+        return Date.valueOf(toTimestamp(value, type, method).toLocalDateTime().toLocalDate());
+      } else if (type == Time.class) {
+        return Time.valueOf(toTimestamp(value, type, method).toLocalDateTime().toLocalTime());
+      } else if (type == java.util.Date.class) {
+        return new java.util.Date(toTimestamp(value, type, method).getTime());
+      } else if (type == LocalDateTime.class) {
+        return toTimestamp(value, type, method).toLocalDateTime();
+      } else if (type == LocalDate.class) {
+        return toTimestamp(value, type, method).toLocalDateTime().toLocalDate();
+      } else if (type == LocalTime.class) {
+        return toTimestamp(value, type, method).toLocalDateTime().toLocalTime();
+      } else if (type == byte[].class && value instanceof String) {
+        return ((String) value).getBytes(StandardCharsets.UTF_8);
+      } else if (type == Clob.class && value instanceof String) {
+        return new SerialClob(((String) value).toCharArray());
+      } else if (type == Blob.class && value instanceof byte[]) {
+        return new SerialBlob((byte[]) value);
+      } else if (type == Reader.class && value instanceof String) {
+        return new StringReader((String) value);
+      } else if (type == InputStream.class && value instanceof byte[]) {
+        return new ByteArrayInputStream((byte[]) value);
+      } else if (type == InputStream.class && value instanceof String) {
+        return new ByteArrayInputStream(((String) value).getBytes(StandardCharsets.UTF_8));
+      }
+    } catch (IllegalArgumentException e) {
+      throw new SQLException("Cannot convert '" + value + "' to " + type.getName() + " in " + method, e);
+    }
+    throw cannotConvert(value, type, method);
+  }
+
+  private static Object toBoolean(Object value, Class<?> type, String method) throws SQLException {
+    if (value instanceof Boolean) {
+      return value;
+    } else if (value instanceof Number) {
+      return new BigDecimal(value.toString()).signum() != 0;
+    } else if (value instanceof String) {
+      String text = ((String) value).trim();
+      if ("true".equalsIgnoreCase(text) || "1".equals(text)) {
+        return Boolean.TRUE;
+      } else if ("false".equalsIgnoreCase(text) || "0".equals(text)) {
+        return Boolean.FALSE;
+      }
+    }
+    throw cannotConvert(value, type, method);
+  }
+
+  private static Object toNumber(Object value, Class<?> type, String method) throws SQLException {
+    final BigDecimal number;
+    if (value instanceof BigDecimal) {
+      number = (BigDecimal) value;
+    } else if (value instanceof Number || value instanceof String) {
+      //字符串和各种数值统一经 BigDecimal 转换，避免 Integer/Long 等装箱类型不一致
+      number = new BigDecimal(value.toString().trim());
+    } else if (value instanceof Boolean) {
+      number = (Boolean) value ? BigDecimal.ONE : BigDecimal.ZERO;
+    } else {
+      throw cannotConvert(value, type, method);
+    }
+    if (type == int.class || type == Integer.class) {
+      return number.intValue();
+    } else if (type == long.class || type == Long.class) {
+      return number.longValue();
+    } else if (type == double.class || type == Double.class) {
+      return number.doubleValue();
+    } else if (type == float.class || type == Float.class) {
+      return number.floatValue();
+    } else if (type == short.class || type == Short.class) {
+      return number.shortValue();
+    } else if (type == byte.class || type == Byte.class) {
+      return number.byteValue();
+    } else if (type == BigDecimal.class) {
+      return number;
+    } else if (type == BigInteger.class) {
+      return number.toBigInteger();
+    }
+    throw cannotConvert(value, type, method);
+  }
+
+  private static Timestamp toTimestamp(Object value, Class<?> type, String method) throws SQLException {
+    if (value instanceof Timestamp) {
+      return (Timestamp) value;
+    } else if (value instanceof Date) {
+      return Timestamp.valueOf(((Date) value).toLocalDate().atStartOfDay());
+    } else if (value instanceof Time) {
+      return Timestamp.valueOf(LocalDate.of(1970, 1, 1).atTime(((Time) value).toLocalTime()));
+    } else if (value instanceof java.util.Date) {
+      return new Timestamp(((java.util.Date) value).getTime());
+    } else if (value instanceof LocalDateTime) {
+      return Timestamp.valueOf((LocalDateTime) value);
+    } else if (value instanceof LocalDate) {
+      return Timestamp.valueOf(((LocalDate) value).atStartOfDay());
+    } else if (value instanceof LocalTime) {
+      return Timestamp.valueOf(LocalDate.of(1970, 1, 1).atTime((LocalTime) value));
+    } else if (value instanceof String) {
+      String text = ((String) value).trim();
+      if (text.length() == 10) {
+        return Timestamp.valueOf(Date.valueOf(text).toLocalDate().atStartOfDay());
+      } else if (text.length() == 8) {
+        return Timestamp.valueOf(LocalDate.of(1970, 1, 1).atTime(Time.valueOf(text).toLocalTime()));
+      }
+      return Timestamp.valueOf(text);
+    }
+    throw cannotConvert(value, type, method);
+  }
+
+  private static SQLException cannotConvert(Object value, Class<?> type, String method) {
+    return new SQLException("Cannot convert " + value.getClass().getName() + " to " + type.getName() + " in " + method);
+  }
+
+  /**
+   * 读取行时把 LOB 读成 String 或 byte[]，结果集移动到下一行后 LOB 定位器可能失效
+   */
+  static Object detach(Object value) throws SQLException {
+    if (value instanceof Clob) {
+      Clob clob = (Clob) value;
+      return clob.getSubString(1, (int) clob.length());
+    } else if (value instanceof Blob) {
+      Blob blob = (Blob) value;
+      return blob.getBytes(1, (int) blob.length());
+    }
+    return value;
+  }
+
+  private static Object defaultNumber(Class<?> type) {
+    if (type == long.class) {
+      return 0L;
+    } else if (type == double.class) {
+      return 0D;
+    } else if (type == float.class) {
+      return 0F;
+    } else if (type == short.class) {
+      return (short) 0;
+    } else if (type == byte.class) {
+      return (byte) 0;
+    }
+    return 0;
+  }
+
+}
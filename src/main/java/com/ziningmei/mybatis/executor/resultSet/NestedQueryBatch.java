@@ -0,0 +1,249 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.executor.resultSet;
+
+import com.ziningmei.mybatis.cache.CacheKey;
+import com.ziningmei.mybatis.executor.Executor;
+import com.ziningmei.mybatis.executor.ResultExtractor;
+import com.ziningmei.mybatis.loader.ResultLoader;
+import com.ziningmei.mybatis.logging.Log;
+import com.ziningmei.mybatis.logging.LogFactory;
+import com.ziningmei.mybatis.mapping.BoundSql;
+import com.ziningmei.mybatis.mapping.MappedStatement;
+import com.ziningmei.mybatis.mapping.ParameterMapping;
+import com.ziningmei.mybatis.mapping.ResultMap;
+import com.ziningmei.mybatis.mapping.ResultMapping;
+import com.ziningmei.mybatis.reflection.MetaObject;
+import com.ziningmei.mybatis.session.AutoMappingBehavior;
+import com.ziningmei.mybatis.session.Configuration;
+import com.ziningmei.mybatis.session.RowBounds;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 嵌套查询的批量加载，消除 N+1 查询
+ * <p>
+ * 一批父行中每个嵌套查询映射的不同键先收集起来，{@link #flush()} 时把嵌套查询的 "column = ?" 改写为 "column IN (?, ?, ...)"
+ * 执行一次，再按子对象的 column 属性建立哈希索引分发给各个父对象。
+ * 嵌套查询不是只有这一个条件的简单查询（带行数限制、分组、聚合、去重、子查询或其他条件），
+ * 子对象上找不到对应属性、结果映射不会映射该列，或有子对象的键为 null、不是请求的键（如嵌套查询没有返回该列）时，退回逐个键查询
+ */
+final class NestedQueryBatch {
+
+  private static final Log log = LogFactory.getLog(NestedQueryBatch.class);
+
+  /**
+   * 唯一的 "column = ?" 条件
+   */
+  private static final Pattern KEY_CONDITION = Pattern.compile("([\\w.]+)\\s*=\\s*\\?");
+
+  /**
+   * 改写为 IN 后每个键的结果会变化的写法：行数限制、分组、聚合、去重、集合运算和其他条件
+   */
+  private static final Pattern NOT_BATCHABLE = Pattern.compile(
+      "\\b(LIMIT|OFFSET|FETCH|TOP|ROWNUM|GROUP\\s+BY|HAVING|DISTINCT|UNION|INTERSECT|EXCEPT|AND|OR)\\b"
+          + "|\\b(COUNT|SUM|AVG|MIN|MAX)\\s*\\(",
+      Pattern.CASE_INSENSITIVE);
+
+  private static final Pattern SELECT = Pattern.compile("\\bSELECT\\b", Pattern.CASE_INSENSITIVE);
+
+  private static final String KEY_PARAMETER_PREFIX = "__batch_key_";
+
+  private final Configuration configuration;
+  private final Executor executor;
+  private final ResultExtractor resultExtractor;
+
+  /**
+   * 每个嵌套查询映射待加载的键，以及每个键对应的父对象
+   */
+  private final Map<ResultMapping, Map<Object, List<MetaObject>>> pending = new LinkedHashMap<>();
+
+  NestedQueryBatch(Configuration configuration, Executor executor) {
+    this.configuration = configuration;
+    this.executor = executor;
+    this.resultExtractor = new ResultExtractor(configuration, configuration.getObjectFactory());
+  }
+
+  void add(ResultMapping propertyMapping, Object key, MetaObject metaResultObject) {
+    pending.computeIfAbsent(propertyMapping, mapping -> new LinkedHashMap<>())
+        .computeIfAbsent(key, k -> new ArrayList<>())
+        .add(metaResultObject);
+  }
+
+  boolean isEmpty() {
+    return pending.isEmpty();
+  }
+
+  /**
+   * 加载所有待加载的键并设置到父对象上
+   *
+   * @throws SQLException
+   */
+  void flush() throws SQLException {
+    try {
+      for (Map.Entry<ResultMapping, Map<Object, List<MetaObject>>> entry : pending.entrySet()) {
+        load(entry.getKey(), entry.getValue());
+      }
+    } finally {
+      pending.clear();
+    }
+  }
+
+  private void load(ResultMapping propertyMapping, Map<Object, List<MetaObject>> parentsByKey) throws SQLException {
+    final MappedStatement nestedQuery = configuration.getMappedStatement(propertyMapping.getNestedQueryId());
+    final List<Object> keys = new ArrayList<>(parentsByKey.keySet());
+    final BoundSql template = nestedQuery.getBoundSql(keys.get(0));
+    final Matcher matcher = KEY_CONDITION.matcher(template.getSql());
+    if (keys.size() == 1 || template.getParameterMappings().size() != 1 || !isBatchable(template.getSql()) || !matcher.find()) {
+      loadOneByOne(propertyMapping, nestedQuery, parentsByKey);
+      return;
+    }
+    final String keyColumn = matcher.group(1).substring(matcher.group(1).lastIndexOf('.') + 1);
+    if (!mapsColumn(nestedQuery, keyColumn)) {
+      loadOneByOne(propertyMapping, nestedQuery, parentsByKey);
+      return;
+    }
+    final ParameterMapping keyMapping = template.getParameterMappings().get(0);
+    final StringBuilder sql = new StringBuilder(template.getSql().length() + keys.size() * 3);
+    sql.append(template.getSql(), 0, matcher.start()).append(matcher.group(1)).append(" IN (");
+    final List<ParameterMapping> parameterMappings = new ArrayList<>(keys.size());
+    for (int i = 0; i < keys.size(); i++) {
+      sql.append(i == 0 ? "?" : ", ?");
+      parameterMappings.add(new ParameterMapping.Builder(configuration, KEY_PARAMETER_PREFIX + i, keyMapping.getJavaType())
+          .jdbcType(keyMapping.getJdbcType()).build());
+    }
+    sql.append(')').append(template.getSql(), matcher.end(), template.getSql().length());
+    final BoundSql boundSql = new BoundSql(configuration, sql.toString(), parameterMappings, null);
+    for (int i = 0; i < keys.size(); i++) {
+      boundSql.setAdditionalParameter(KEY_PARAMETER_PREFIX + i, keys.get(i));
+    }
+    final CacheKey cacheKey = executor.createCacheKey(nestedQuery, null, RowBounds.DEFAULT, boundSql);
+    final List<Object> children = executor.query(nestedQuery, null, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER, cacheKey, boundSql);
+
+    //按子对象的键属性建立索引
+    final Set<Object> requestedKeys = new HashSet<>(keys.size() * 2);
+    for (Object key : keys) {
+      requestedKeys.add(normalize(key));
+    }
+    final Map<Object, List<Object>> childrenByKey = new HashMap<>(children.size() * 2);
+    String keyProperty = null;
+    for (Object child : children) {
+      final MetaObject metaChild = configuration.newMetaObject(child);
+      if (keyProperty == null) {
+        keyProperty = metaChild.findProperty(keyColumn, configuration.isMapUnderscoreToCamelCase());
+        if (keyProperty == null || !metaChild.hasGetter(keyProperty)) {
+          if (log.isDebugEnabled()) {
+            log.debug("No property for column " + keyColumn + " on " + child.getClass().getName()
+                + ", loading " + nestedQuery.getId() + " one key at a time.");
+          }
+          loadOneByOne(propertyMapping, nestedQuery, parentsByKey);
+          return;
+        }
+      }
+      final Object childKey = normalize(metaChild.getValue(keyProperty));
+      if (childKey == null || !requestedKeys.contains(childKey)) {
+        //键列没有被映射到子对象上，按键分发会得到错误的结果
+        if (log.isDebugEnabled()) {
+          log.debug("Child of " + nestedQuery.getId() + " has key " + childKey + " for column " + keyColumn
+              + " which was not requested, loading one key at a time.");
+        }
+        loadOneByOne(propertyMapping, nestedQuery, parentsByKey);
+        return;
+      }
+      childrenByKey.computeIfAbsent(childKey, k -> new ArrayList<>()).add(child);
+    }
+    for (Map.Entry<Object, List<MetaObject>> entry : parentsByKey.entrySet()) {
+      final List<Object> matched = childrenByKey.getOrDefault(normalize(entry.getKey()), Collections.emptyList());
+      for (MetaObject parent : entry.getValue()) {
+        //每个父对象得到独立的集合
+        setValue(parent, propertyMapping, resultExtractor.extractObjectFromList(new ArrayList<>(matched), propertyMapping.getJavaType()));
+      }
+    }
+  }
+
+  /**
+   * 只有一个 "column = ?" 条件、没有子查询和改变结果行数的子句的查询才能改写为 IN
+   *
+   * @param sql
+   * @return
+   */
+  private static boolean isBatchable(String sql) {
+    if (NOT_BATCHABLE.matcher(sql).find()) {
+      return false;
+    }
+    final Matcher select = SELECT.matcher(sql);
+    return select.find() && !select.find();
+  }
+
+  /**
+   * 嵌套查询的结果映射是否会映射键列：显式映射了该列，或者会自动映射
+   */
+  private boolean mapsColumn(MappedStatement nestedQuery, String column) {
+    for (ResultMap resultMap : nestedQuery.getResultMaps()) {
+      if (resultMap.getMappedColumns().contains(column.toUpperCase(Locale.ENGLISH))) {
+        continue;
+      }
+      final boolean autoMapping = resultMap.getAutoMapping() != null ? resultMap.getAutoMapping()
+          : resultMap.hasNestedResultMaps() ? configuration.getAutoMappingBehavior() == AutoMappingBehavior.FULL
+          : configuration.getAutoMappingBehavior() != AutoMappingBehavior.NONE;
+      if (!autoMapping) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void loadOneByOne(ResultMapping propertyMapping, MappedStatement nestedQuery, Map<Object, List<MetaObject>> parentsByKey)
+      throws SQLException {
+    for (Map.Entry<Object, List<MetaObject>> entry : parentsByKey.entrySet()) {
+      final BoundSql nestedBoundSql = nestedQuery.getBoundSql(entry.getKey());
+      final ResultLoader resultLoader = new ResultLoader(configuration, executor, nestedQuery, entry.getKey(),
+          propertyMapping.getJavaType(), nestedBoundSql);
+      final Object value = resultLoader.loadResult();
+      for (MetaObject parent : entry.getValue()) {
+        setValue(parent, propertyMapping, value);
+      }
+    }
+  }
+
+  private void setValue(MetaObject parent, ResultMapping propertyMapping, Object value) {
+    if (value != null || configuration.isCallSettersOnNulls()) {
+      parent.setValue(propertyMapping.getProperty(), value);
+    }
+  }
+
+  /**
+   * 整数键统一为 Long，避免父子两侧 Integer 与 Long 不相等
+   */
+  private static Object normalize(Object key) {
+    if (key instanceof Integer || key instanceof Long || key instanceof Short || key instanceof Byte) {
+      return ((Number) key).longValue();
+    }
+    return key;
+  }
+
+}
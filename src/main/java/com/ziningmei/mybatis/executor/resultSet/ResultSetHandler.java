@@ -15,6 +15,8 @@
  */
 package com.ziningmei.mybatis.executor.resultSet;
 
+import com.ziningmei.mybatis.cursor.Cursor;
+
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.List;
@@ -26,4 +28,14 @@ public interface ResultSetHandler {
 
   <E> List<E> handleResultSets(Statement stmt) throws SQLException;
 
+  /**
+   * 将结果集包装为游标，逐行映射
+   *
+   * @param stmt
+   * @param <E>
+   * @return
+   * @throws SQLException
+   */
+  <E> Cursor<E> handleCursorResultSets(Statement stmt) throws SQLException;
+
 }
@@ -52,6 +52,20 @@ public class ResultSetWrapper {
     }
   }
 
+  /**
+   * 复制列信息，读取另一个结果集，缓存互相独立
+   *
+   * @param source
+   * @param rs
+   */
+  ResultSetWrapper(ResultSetWrapper source, ResultSet rs) {
+    this.typeHandlerRegistry = source.typeHandlerRegistry;
+    this.resultSet = rs;
+    this.columnNames.addAll(source.columnNames);
+    this.jdbcTypes.addAll(source.jdbcTypes);
+    this.classNames.addAll(source.classNames);
+  }
+
   public ResultSet getResultSet() {
     return resultSet;
   }
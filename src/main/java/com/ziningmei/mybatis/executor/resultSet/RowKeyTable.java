@@ -0,0 +1,192 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.executor.resultSet;
+
+import java.util.Arrays;
+
+/**
+ * 嵌套结果映射中按行键查找已创建对象的哈希表
+ * <p>
+ * 行键的 64 位哈希由 id 列的值计算，表按哈希值开放寻址，只有哈希相同时才比较列值，
+ * 避免每行拼接字符串键和包装对象的开销
+ */
+final class RowKeyTable {
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  private long[] hashes;
+  private RowKey[] keys;
+  private Object[] values;
+  private int size;
+
+  RowKeyTable() {
+    allocate(INITIAL_CAPACITY);
+  }
+
+  Object get(RowKey key) {
+    if (key == RowKey.NULL) {
+      return null;
+    }
+    final int mask = keys.length - 1;
+    for (int i = (int) key.hash & mask; ; i = (i + 1) & mask) {
+      final RowKey candidate = keys[i];
+      if (candidate == null) {
+        return null;
+      }
+      if (hashes[i] == key.hash && candidate.equals(key)) {
+        return values[i];
+      }
+    }
+  }
+
+  void put(RowKey key, Object value) {
+    if (key == RowKey.NULL) {
+      return;
+    }
+    //装载因子不超过 1/2
+    if ((size + 1) * 2 > keys.length) {
+      resize();
+    }
+    if (insert(key, value)) {
+      size++;
+    }
+  }
+
+  void clear() {
+    if (size > 0) {
+      Arrays.fill(keys, null);
+      Arrays.fill(values, null);
+      size = 0;
+    }
+  }
+
+  int size() {
+    return size;
+  }
+
+  private boolean insert(RowKey key, Object value) {
+    final int mask = keys.length - 1;
+    for (int i = (int) key.hash & mask; ; i = (i + 1) & mask) {
+      final RowKey candidate = keys[i];
+      if (candidate == null) {
+        hashes[i] = key.hash;
+        keys[i] = key;
+        values[i] = value;
+        return true;
+      }
+      if (hashes[i] == key.hash && candidate.equals(key)) {
+        values[i] = value;
+        return false;
+      }
+    }
+  }
+
+  private void resize() {
+    final RowKey[] oldKeys = keys;
+    final Object[] oldValues = values;
+    allocate(oldKeys.length << 1);
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != null) {
+        insert(oldKeys[i], oldValues[i]);
+      }
+    }
+  }
+
+  private void allocate(int capacity) {
+    hashes = new long[capacity];
+    keys = new RowKey[capacity];
+    values = new Object[capacity];
+  }
+
+  /**
+   * 行键：结果映射 id 与 id 列的值
+   */
+  static final class RowKey {
+
+    /**
+     * id 列都为空的行，不参与合并
+     */
+    static final RowKey NULL = new RowKey(0L, new Object[0]);
+
+    private static final long PRIME = 0x100000001B3L;
+
+    final long hash;
+    private final Object[] values;
+
+    private RowKey(long hash, Object[] values) {
+      this.hash = hash;
+      this.values = values;
+    }
+
+    static RowKey of(Object[] values) {
+      long hash = 0xCBF29CE484222325L;
+      for (Object value : values) {
+        hash = (hash ^ hashOf(value)) * PRIME;
+      }
+      return new RowKey(spread(hash), values);
+    }
+
+    /**
+     * 嵌套对象的行键带上父对象的行键，同一个子对象在不同父对象下分别创建
+     */
+    RowKey combine(RowKey parent) {
+      if (this == NULL || parent == NULL) {
+        return NULL;
+      }
+      final Object[] combined = Arrays.copyOf(values, values.length + 1);
+      combined[values.length] = parent;
+      return new RowKey(spread(hash * PRIME + parent.hash), combined);
+    }
+
+    private static int hashOf(Object value) {
+      if (value == null) {
+        return 0;
+      }
+      return value.getClass().isArray() ? Arrays.deepHashCode(new Object[]{value}) : value.hashCode();
+    }
+
+    /**
+     * murmur3 的 64 位混合，让低位也分布均匀
+     */
+    private static long spread(long h) {
+      h ^= h >>> 33;
+      h *= 0xFF51AFD7ED558CCDL;
+      h ^= h >>> 33;
+      h *= 0xC4CEB9FE1A85EC53L;
+      h ^= h >>> 33;
+      return h;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof RowKey)) {
+        return false;
+      }
+      RowKey other = (RowKey) o;
+      return hash == other.hash && Arrays.deepEquals(values, other.values);
+    }
+
+    @Override
+    public int hashCode() {
+      return (int) (hash ^ (hash >>> 32));
+    }
+
+  }
+
+}
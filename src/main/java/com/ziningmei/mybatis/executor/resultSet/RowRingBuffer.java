@@ -0,0 +1,257 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.executor.resultSet;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 流水线映射使用的有界环形缓冲区
+ * <p>
+ * 读取线程按顺序写入原始列值并发布，映射线程按序号领取并写回映射结果，读取线程再按序号顺序取出结果。
+ * 每个槽位的列值数组在整个查询中复用。序号只增不减，槽位为序号对容量取模
+ */
+final class RowRingBuffer {
+
+  /**
+   * 没有可取出的结果
+   */
+  static final Object NONE = new Object();
+
+  private final Object[][] rows;
+  private final Object[] results;
+  private final boolean[] mapped;
+  private final int mask;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition rowPublished = lock.newCondition();
+  private final Condition rowMapped = lock.newCondition();
+
+  /**
+   * 已发布的行数，即下一个要写入的序号
+   */
+  private long published;
+
+  /**
+   * 下一个要领取映射的序号
+   */
+  private long claimed;
+
+  /**
+   * 下一个要取出的序号
+   */
+  private long delivered;
+
+  private boolean closed;
+  private Throwable failure;
+
+  RowRingBuffer(int capacity, int columnCount) {
+    int size = Integer.highestOneBit(Math.max(2, capacity - 1) << 1);
+    this.rows = new Object[size][columnCount];
+    this.results = new Object[size];
+    this.mapped = new boolean[size];
+    this.mask = size - 1;
+  }
+
+  /**
+   * 是否还有空闲槽位，只由读取线程调用
+   *
+   * @return
+   */
+  boolean hasFreeSlot() {
+    lock.lock();
+    try {
+      return published - delivered < rows.length;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * 下一个要写入的槽位，调用前需保证 {@link #hasFreeSlot()}
+   *
+   * @return
+   */
+  Object[] nextSlot() {
+    return rows[(int) (published & mask)];
+  }
+
+  /**
+   * 发布 {@link #nextSlot()} 中写好的行
+   */
+  void publish() {
+    lock.lock();
+    try {
+      published++;
+      rowPublished.signal();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * 映射线程领取一行，没有可领取的行时等待
+   *
+   * @return 序号，缓冲区关闭且全部领取完时为 -1
+   * @throws InterruptedException
+   */
+  long claim() throws InterruptedException {
+    lock.lock();
+    try {
+      while (claimed == published && !closed) {
+        rowPublished.await();
+      }
+      return claimed < published ? claimed++ : -1;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * 不等待地领取一行，读取线程在缓冲区满时用来自己映射
+   *
+   * @return 序号，没有可领取的行时为 -1
+   */
+  long tryClaim() {
+    lock.lock();
+    try {
+      return claimed < published ? claimed++ : -1;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * 已发布的行是否都已取出
+   *
+   * @return
+   */
+  boolean isDrained() {
+    lock.lock();
+    try {
+      return delivered == published;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  Object[] row(long sequence) {
+    return rows[(int) (sequence & mask)];
+  }
+
+  void complete(long sequence, Object result) {
+    lock.lock();
+    try {
+      int slot = (int) (sequence & mask);
+      results[slot] = result;
+      mapped[slot] = true;
+      rowMapped.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  void fail(Throwable cause) {
+    lock.lock();
+    try {
+      if (failure == null) {
+        failure = cause;
+      }
+      abortLocked();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * 按顺序取出下一个映射结果
+   *
+   * @param wait 下一行还没映射完时是否等待
+   * @return 映射结果，已经全部取出或不等待且未映射完时为 {@link #NONE}
+   * @throws InterruptedException
+   */
+  Object take(boolean wait) throws InterruptedException {
+    lock.lock();
+    try {
+      while (true) {
+        if (failure != null) {
+          throw new PipelineFailure(failure);
+        }
+        if (delivered == published) {
+          return NONE;
+        }
+        int slot = (int) (delivered & mask);
+        if (mapped[slot]) {
+          Object result = results[slot];
+          results[slot] = null;
+          mapped[slot] = false;
+          delivered++;
+          return result;
+        }
+        if (!wait) {
+          return NONE;
+        }
+        rowMapped.await();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * 读取结束，映射线程处理完已发布的行后退出
+   */
+  void finish() {
+    lock.lock();
+    try {
+      closed = true;
+      rowPublished.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * 放弃剩余的行，映射线程尽快退出
+   */
+  void abort() {
+    lock.lock();
+    try {
+      abortLocked();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void abortLocked() {
+    closed = true;
+    claimed = published;
+    rowPublished.signalAll();
+    rowMapped.signalAll();
+  }
+
+  /**
+   * 映射线程抛出的异常
+   */
+  static final class PipelineFailure extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    PipelineFailure(Throwable cause) {
+      super(cause);
+    }
+  }
+
+}
@@ -15,11 +15,15 @@
  */
 package com.ziningmei.mybatis.executor.statement;
 
+import com.ziningmei.mybatis.datasource.pooled.CachedStatement;
 import com.ziningmei.mybatis.executor.*;
 import com.ziningmei.mybatis.executor.ParameterHandler;
 import com.ziningmei.mybatis.executor.resultSet.ResultSetHandler;
+import com.ziningmei.mybatis.logging.jfr.StatementEvent;
+import com.ziningmei.mybatis.logging.jfr.StatementEvents;
 import com.ziningmei.mybatis.mapping.BoundSql;
 import com.ziningmei.mybatis.mapping.MappedStatement;
+import com.ziningmei.mybatis.mapping.StatementMetrics;
 import com.ziningmei.mybatis.reflection.factory.ObjectFactory;
 import com.ziningmei.mybatis.session.Configuration;
 import com.ziningmei.mybatis.session.ResultHandler;
@@ -80,11 +84,15 @@ public abstract class BaseStatementHandler implements StatementHandler {
   @Override
   public Statement prepare(Connection connection, Integer transactionTimeout) throws SQLException {
     ErrorContext.instance().sql(boundSql.getSql());
+    final StatementEvent event = StatementEvents.prepare();
     Statement statement = null;
     try {
+      final long start = System.nanoTime();
       statement = instantiateStatement(connection);
+      recordStatementCache(statement);
       setStatementTimeout(statement, transactionTimeout);
       setFetchSize(statement);
+      recordPhase(StatementMetrics.Phase.PREPARE, start);
       return statement;
     } catch (SQLException e) {
       closeStatement(statement);
@@ -92,11 +100,51 @@ public abstract class BaseStatementHandler implements StatementHandler {
     } catch (Exception e) {
       closeStatement(statement);
       throw new ExecutorException("Error preparing statement.  Cause: " + e, e);
+    } finally {
+      event.record(mappedStatement.getId(), boundSql.getSql(), connection, 0);
     }
   }
 
   protected abstract Statement instantiateStatement(Connection connection) throws SQLException;
 
+  /**
+   * 记录阶段耗时
+   *
+   * @param phase
+   * @param startNanos
+   */
+  protected void recordPhase(StatementMetrics.Phase phase, long startNanos) {
+    if (configuration.isStatementMetricsEnabled()) {
+      mappedStatement.getMetrics().recordSince(phase, startNanos);
+    }
+  }
+
+  /**
+   * 语句来自连接池的语句缓存时记录是否命中
+   *
+   * @param statement
+   */
+  protected void recordStatementCache(Statement statement) {
+    if (statement instanceof CachedStatement && configuration.isStatementMetricsEnabled()) {
+      mappedStatement.getMetrics().recordStatementCache(((CachedStatement) statement).isCacheHit());
+    }
+  }
+
+  /**
+   * 记录一次查询，计入 JMX 发布的计数
+   *
+   * @param rows 映射的行数
+   */
+  protected void recordQuery(long rows) {
+    configuration.getRuntimeCounters().queryExecuted(mappedStatement.getId(), rows);
+  }
+
+  protected void recordRows(long rows) {
+    if (configuration.isStatementMetricsEnabled()) {
+      mappedStatement.getMetrics().recordRows(rows);
+    }
+  }
+
   protected void setStatementTimeout(Statement stmt, Integer transactionTimeout) throws SQLException {
     Integer queryTimeout = null;
     if (mappedStatement.getTimeout() != null) {
@@ -119,6 +167,14 @@ public abstract class BaseStatementHandler implements StatementHandler {
     Integer defaultFetchSize = configuration.getDefaultFetchSize();
     if (defaultFetchSize != null) {
       stmt.setFetchSize(defaultFetchSize);
+      return;
+    }
+    //没有配置时按语句历史返回的行数选择
+    if (configuration.isAdaptiveResultSizing()) {
+      Integer suggestedFetchSize = mappedStatement.getResultSizeStatistics().getSuggestedFetchSize();
+      if (suggestedFetchSize != null) {
+        stmt.setFetchSize(suggestedFetchSize);
+      }
     }
   }
 
@@ -16,9 +16,11 @@
 package com.ziningmei.mybatis.executor.statement;
 
 
+import com.ziningmei.mybatis.cursor.Cursor;
 import com.ziningmei.mybatis.executor.Executor;
 import com.ziningmei.mybatis.mapping.BoundSql;
 import com.ziningmei.mybatis.mapping.MappedStatement;
+import com.ziningmei.mybatis.mapping.StatementMetrics;
 import com.ziningmei.mybatis.session.ResultHandler;
 import com.ziningmei.mybatis.session.RowBounds;
 
@@ -35,11 +37,56 @@ public class PreparedStatementHandler extends BaseStatementHandler {
     }
 
 
+    /**
+     * 执行增删改，优先使用 JDBC 4.2 的 executeLargeUpdate，驱动不支持时退回 executeUpdate
+     *
+     * @param statement
+     * @return
+     * @throws SQLException
+     */
+    @Override
+    public long update(Statement statement) throws SQLException {
+        PreparedStatement ps = (PreparedStatement) statement;
+        final long start = System.nanoTime();
+        long rows;
+        try {
+            rows = ps.executeLargeUpdate();
+        } catch (UnsupportedOperationException | SQLFeatureNotSupportedException e) {
+            rows = ps.executeUpdate();
+        }
+        recordPhase(StatementMetrics.Phase.EXECUTE, start);
+        recordRows(rows);
+        return rows;
+    }
+
+    @Override
+    public void batch(Statement statement) throws SQLException {
+        PreparedStatement ps = (PreparedStatement) statement;
+        ps.addBatch();
+    }
+
     @Override
     public <E> List<E> query(Statement statement, ResultHandler resultHandler) throws SQLException {
         PreparedStatement ps = (PreparedStatement) statement;
+        long start = System.nanoTime();
+        ps.execute();
+        recordPhase(StatementMetrics.Phase.EXECUTE, start);
+        start = System.nanoTime();
+        List<E> results = resultSetHandler.handleResultSets(ps);
+        recordPhase(StatementMetrics.Phase.MAP, start);
+        recordRows(results.size());
+        recordQuery(results.size());
+        return results;
+    }
+
+    @Override
+    public <E> Cursor<E> queryCursor(Statement statement) throws SQLException {
+        PreparedStatement ps = (PreparedStatement) statement;
+        final long start = System.nanoTime();
         ps.execute();
-        return resultSetHandler.handleResultSets(ps);
+        recordPhase(StatementMetrics.Phase.EXECUTE, start);
+        recordQuery(0);
+        return resultSetHandler.handleCursorResultSets(ps);
     }
 
     @Override
@@ -54,7 +101,9 @@ public class PreparedStatementHandler extends BaseStatementHandler {
 
     @Override
     public void parameterize(Statement statement) throws SQLException {
+        final long start = System.nanoTime();
         parameterHandler.setParameters((PreparedStatement) statement);
+        recordPhase(StatementMetrics.Phase.PARAMETERIZE, start);
     }
 
 }
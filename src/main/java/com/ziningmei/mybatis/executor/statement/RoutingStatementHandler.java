@@ -15,6 +15,7 @@
  */
 package com.ziningmei.mybatis.executor.statement;
 
+import com.ziningmei.mybatis.cursor.Cursor;
 import com.ziningmei.mybatis.executor.Executor;
 import com.ziningmei.mybatis.executor.ExecutorException;
 import com.ziningmei.mybatis.executor.StatementHandler;
@@ -58,11 +59,26 @@ public class RoutingStatementHandler implements StatementHandler {
     delegate.parameterize(statement);
   }
 
+  @Override
+  public void batch(Statement statement) throws SQLException {
+    delegate.batch(statement);
+  }
+
+  @Override
+  public long update(Statement statement) throws SQLException {
+    return delegate.update(statement);
+  }
+
   @Override
   public <E> List<E> query(Statement statement, ResultHandler resultHandler) throws SQLException {
     return delegate.query(statement, resultHandler);
   }
 
+  @Override
+  public <E> Cursor<E> queryCursor(Statement statement) throws SQLException {
+    return delegate.queryCursor(statement);
+  }
+
 
   @Override
   public BoundSql getBoundSql() {
@@ -15,6 +15,7 @@
  */
 package com.ziningmei.mybatis.loader;
 
+import com.ziningmei.mybatis.cursor.Cursor;
 import com.ziningmei.mybatis.executor.BaseExecutor;
 import com.ziningmei.mybatis.executor.BatchResult;
 import com.ziningmei.mybatis.executor.ExecutorException;
@@ -288,11 +289,21 @@ public class ResultLoaderMap {
       return true;
     }
 
+    @Override
+    protected long doUpdate(MappedStatement ms, Object parameter) throws SQLException {
+      throw new UnsupportedOperationException("Not supported.");
+    }
+
     @Override
     protected List<BatchResult> doFlushStatements(boolean isRollback) throws SQLException {
       throw new UnsupportedOperationException("Not supported.");
     }
 
+    @Override
+    protected <E> Cursor<E> doQueryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds, BoundSql boundSql) throws SQLException {
+      throw new UnsupportedOperationException("Not supported.");
+    }
+
     @Override
     protected <E> List<E> doQuery(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql) throws SQLException {
       throw new UnsupportedOperationException("Not supported.");
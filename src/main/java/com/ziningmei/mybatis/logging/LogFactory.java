@@ -16,6 +16,7 @@
 package com.ziningmei.mybatis.logging;
 
 import java.lang.reflect.Constructor;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * @author Clinton Begin
@@ -31,7 +32,12 @@ public final class LogFactory {
   /**
    * 使用的 Log 的构造方法
    */
-  private static Constructor<? extends Log> logConstructor;
+  private static volatile Constructor<? extends Log> logConstructor;
+
+  /**
+   * 切换实现时的公平锁，代替 synchronized，等待的虚拟线程不会占住载体线程
+   */
+  private static final ReentrantLock lock = new ReentrantLock(true);
 
   static {
     //逐个尝试，判断使用哪个 Log 的实现类，即初始化 logConstructor 属性
@@ -54,12 +60,22 @@ public final class LogFactory {
     }
   }
 
-  public static synchronized void useCustomLogging(Class<? extends Log> clazz) {
-    setImplementation(clazz);
+  public static void useCustomLogging(Class<? extends Log> clazz) {
+    lock.lock();
+    try {
+      setImplementation(clazz);
+    } finally {
+      lock.unlock();
+    }
   }
 
-  public static synchronized void useSlf4jLogging() {
-    setImplementation(Slf4jImpl.class);
+  public static void useSlf4jLogging() {
+    lock.lock();
+    try {
+      setImplementation(Slf4jImpl.class);
+    } finally {
+      lock.unlock();
+    }
   }
 
   /**
@@ -0,0 +1,77 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.logging.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * 语句事件的公共字段
+ */
+abstract class AbstractStatementEvent extends Event implements StatementEvent {
+
+  @Label("Statement Id")
+  String statementId;
+
+  @Label("SQL Hash")
+  @Description("String.hashCode() of the SQL sent to the driver")
+  int sqlHash;
+
+  @Label("Row Count")
+  long rowCount;
+
+  @Label("Connection Id")
+  @Description("Identity hash code of the JDBC connection")
+  int connectionId;
+
+  @Override
+  public void record(String statementId, String sql, Statement statement, long rowCount) {
+    end();
+    if (shouldCommit()) {
+      Connection connection = null;
+      if (statement != null) {
+        try {
+          connection = statement.getConnection();
+        } catch (SQLException e) {
+          // ignore
+        }
+      }
+      commit(statementId, sql, connection, rowCount);
+    }
+  }
+
+  @Override
+  public void record(String statementId, String sql, Connection connection, long rowCount) {
+    end();
+    if (shouldCommit()) {
+      commit(statementId, sql, connection, rowCount);
+    }
+  }
+
+  private void commit(String statementId, String sql, Connection connection, long rowCount) {
+    this.statementId = statementId;
+    this.sqlHash = sql == null ? 0 : sql.hashCode();
+    this.rowCount = rowCount;
+    this.connectionId = connection == null ? 0 : System.identityHashCode(connection);
+    commit();
+  }
+
+}
@@ -0,0 +1,89 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.logging.jfr;
+
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+
+/**
+ * 基于 jdk.jfr 的实现，只由 {@link StatementEvents} 反射创建
+ *
+ * 监听录制状态，没有正在运行的录制时直接返回 NOOP；
+ * 有录制时再由事件自己的 isEnabled 判断配置里是否打开
+ */
+final class JfrRecorder implements StatementEvents.Recorder, FlightRecorderListener {
+
+  private volatile boolean recording;
+
+  JfrRecorder() {
+    FlightRecorder.addListener(this);
+    if (FlightRecorder.isInitialized()) {
+      updateRecording(FlightRecorder.getFlightRecorder());
+    }
+  }
+
+  @Override
+  public void recorderInitialized(FlightRecorder recorder) {
+    updateRecording(recorder);
+  }
+
+  @Override
+  public void recordingStateChanged(Recording changed) {
+    updateRecording(FlightRecorder.getFlightRecorder());
+  }
+
+  private void updateRecording(FlightRecorder recorder) {
+    boolean running = false;
+    for (Recording r : recorder.getRecordings()) {
+      if (r.getState() == RecordingState.RUNNING) {
+        running = true;
+        break;
+      }
+    }
+    recording = running;
+  }
+
+  @Override
+  public StatementEvent query() {
+    return recording ? begin(new QueryEvent()) : StatementEvent.NOOP;
+  }
+
+  @Override
+  public StatementEvent prepare() {
+    return recording ? begin(new PrepareEvent()) : StatementEvent.NOOP;
+  }
+
+  @Override
+  public StatementEvent parameterize() {
+    return recording ? begin(new ParameterizeEvent()) : StatementEvent.NOOP;
+  }
+
+  @Override
+  public StatementEvent resultSet() {
+    return recording ? begin(new ResultSetEvent()) : StatementEvent.NOOP;
+  }
+
+  private static StatementEvent begin(AbstractStatementEvent event) {
+    if (!event.isEnabled()) {
+      return StatementEvent.NOOP;
+    }
+    event.begin();
+    return event;
+  }
+
+}
@@ -0,0 +1,33 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.logging.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * DefaultParameterHandler.setParameters 设置参数，行数为参数个数
+ */
+@Name("com.ziningmei.mybatis.Parameterize")
+@Label("Set Parameters")
+@Category({"MyBatis", "Statement"})
+@Description("Binding of parameter values to a prepared statement")
+@StackTrace(false)
+final class ParameterizeEvent extends AbstractStatementEvent {
+}
@@ -0,0 +1,59 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.logging.jfr;
+
+import java.sql.Connection;
+import java.sql.Statement;
+
+/**
+ * 语句生命周期中一个阶段的 JFR 事件，开始于 {@link StatementEvents} 的工厂方法，
+ * 结束于 record 方法
+ *
+ * 没有在录制时得到的是 {@link #NOOP}，record 什么都不做
+ */
+public interface StatementEvent {
+
+  StatementEvent NOOP = new StatementEvent() {
+    @Override
+    public void record(String statementId, String sql, Statement statement, long rowCount) {
+    }
+
+    @Override
+    public void record(String statementId, String sql, Connection connection, long rowCount) {
+    }
+  };
+
+  /**
+   * 结束事件，超过阈值时提交，连接从 statement 上取
+   *
+   * @param statementId
+   * @param sql
+   * @param statement
+   * @param rowCount
+   */
+  void record(String statementId, String sql, Statement statement, long rowCount);
+
+  /**
+   * 结束事件，超过阈值时提交
+   *
+   * @param statementId
+   * @param sql
+   * @param connection
+   * @param rowCount
+   */
+  void record(String statementId, String sql, Connection connection, long rowCount);
+
+}
@@ -0,0 +1,111 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.logging.jfr;
+
+/**
+ * 语句事件的工厂
+ *
+ * 运行时没有 jdk.jfr（Java 8u262 之前）时始终返回 {@link StatementEvent#NOOP}；
+ * 有 jdk.jfr 但没有录制在运行时也只读一次 volatile 变量，不创建事件对象
+ *
+ * 事件的开关和阈值由标准的 JFR 配置控制，名称为
+ * com.ziningmei.mybatis.Query、Prepare、Parameterize、ResultSet
+ */
+public final class StatementEvents {
+
+  private static final Recorder RECORDER = createRecorder();
+
+  private StatementEvents() {
+    // disable construction
+  }
+
+  /**
+   * 一次查询，从创建 StatementHandler 到结果映射完成
+   *
+   * @return
+   */
+  public static StatementEvent query() {
+    return RECORDER.query();
+  }
+
+  public static StatementEvent prepare() {
+    return RECORDER.prepare();
+  }
+
+  public static StatementEvent parameterize() {
+    return RECORDER.parameterize();
+  }
+
+  public static StatementEvent resultSet() {
+    return RECORDER.resultSet();
+  }
+
+  /**
+   * jdk.jfr 是否可用
+   *
+   * @return
+   */
+  public static boolean isAvailable() {
+    return !(RECORDER instanceof NoopRecorder);
+  }
+
+  private static Recorder createRecorder() {
+    try {
+      Class.forName("jdk.jfr.Event");
+      //通过反射加载，避免在没有 jdk.jfr 的运行时解析到事件类
+      return (Recorder) Class.forName(StatementEvents.class.getPackage().getName() + ".JfrRecorder").getDeclaredConstructor().newInstance();
+    } catch (Throwable t) {
+      return new NoopRecorder();
+    }
+  }
+
+  interface Recorder {
+
+    StatementEvent query();
+
+    StatementEvent prepare();
+
+    StatementEvent parameterize();
+
+    StatementEvent resultSet();
+
+  }
+
+  private static final class NoopRecorder implements Recorder {
+
+    @Override
+    public StatementEvent query() {
+      return StatementEvent.NOOP;
+    }
+
+    @Override
+    public StatementEvent prepare() {
+      return StatementEvent.NOOP;
+    }
+
+    @Override
+    public StatementEvent parameterize() {
+      return StatementEvent.NOOP;
+    }
+
+    @Override
+    public StatementEvent resultSet() {
+      return StatementEvent.NOOP;
+    }
+
+  }
+
+}
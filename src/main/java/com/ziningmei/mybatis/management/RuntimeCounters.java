@@ -0,0 +1,125 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.management;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一个 Configuration 下会话、连接、查询和异常的计数，由 {@link SqlSessionFactoryMXBean} 发布
+ * <p>
+ * 与语句的耗时统计相互独立，不受 statementMetricsEnabled 影响，重置时也不清空语句的统计
+ */
+public class RuntimeCounters {
+
+  private final LongAdder openSessions = new LongAdder();
+  private final LongAdder activeConnections = new LongAdder();
+  private final ConcurrentMap<String, LongAdder> queries = new ConcurrentHashMap<>();
+  private final LongAdder rowsMapped = new LongAdder();
+  private final ConcurrentMap<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+  public void sessionOpened() {
+    openSessions.increment();
+  }
+
+  public void sessionClosed() {
+    openSessions.decrement();
+  }
+
+  public void connectionOpened() {
+    activeConnections.increment();
+  }
+
+  public void connectionClosed() {
+    activeConnections.decrement();
+  }
+
+  /**
+   * 查询语句执行一次
+   *
+   * @param statementId
+   * @param rows 映射的行数
+   */
+  public void queryExecuted(String statementId, long rows) {
+    queries.computeIfAbsent(statementId, k -> new LongAdder()).increment();
+    rowsMapped.add(rows);
+  }
+
+  /**
+   * 按异常类型计数
+   *
+   * @param cause
+   */
+  public void errorOccurred(Throwable cause) {
+    errors.computeIfAbsent(cause.getClass().getName(), k -> new LongAdder()).increment();
+  }
+
+  public long getOpenSessions() {
+    return openSessions.sum();
+  }
+
+  public long getActiveConnections() {
+    return activeConnections.sum();
+  }
+
+  public long getQueryCount() {
+    long count = 0;
+    for (LongAdder adder : queries.values()) {
+      count += adder.sum();
+    }
+    return count;
+  }
+
+  public Map<String, Long> getQueriesPerStatement() {
+    return snapshot(queries);
+  }
+
+  public long getRowsMapped() {
+    return rowsMapped.sum();
+  }
+
+  public Map<String, Long> getErrorsByType() {
+    return snapshot(errors);
+  }
+
+  /**
+   * 清空查询和异常计数，打开的会话和连接是当前值，不清空
+   */
+  public void reset() {
+    queries.clear();
+    rowsMapped.reset();
+    errors.clear();
+  }
+
+  /**
+   * 清空异常计数
+   */
+  public void resetErrors() {
+    errors.clear();
+  }
+
+  private static Map<String, Long> snapshot(ConcurrentMap<String, LongAdder> counters) {
+    Map<String, Long> snapshot = new TreeMap<>();
+    for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+      snapshot.put(entry.getKey(), entry.getValue().sum());
+    }
+    return snapshot;
+  }
+
+}
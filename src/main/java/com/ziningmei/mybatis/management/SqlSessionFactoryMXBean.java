@@ -0,0 +1,94 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.management;
+
+import java.util.Map;
+
+/**
+ * SqlSessionFactory 的运行时统计，注册在 com.ziningmei.mybatis:type=SqlSessionFactory 下
+ *
+ * 按语句统计的查询次数和行数来自 {@link com.ziningmei.mybatis.mapping.StatementMetrics}，
+ * 关闭 statementMetricsEnabled 后不再增长
+ */
+public interface SqlSessionFactoryMXBean {
+
+  /**
+   * 打开且未关闭的会话数
+   *
+   * @return
+   */
+  long getOpenSessions();
+
+  /**
+   * 事务已取得且未关闭的连接数
+   *
+   * @return
+   */
+  long getActiveConnections();
+
+  /**
+   * 查询总次数
+   *
+   * @return
+   */
+  long getQueryCount();
+
+  /**
+   * 每个查询语句的执行次数
+   *
+   * @return
+   */
+  Map<String, Long> getQueriesPerStatement();
+
+  /**
+   * 查询映射出的总行数
+   *
+   * @return
+   */
+  long getRowsMapped();
+
+  /**
+   * 每个语句在连接池语句缓存上的命中率，只包含经过语句缓存的语句
+   *
+   * @return
+   */
+  Map<String, Double> getStatementCacheHitRatios();
+
+  /**
+   * 按异常类型统计的会话异常次数
+   *
+   * @return
+   */
+  Map<String, Long> getErrorsByType();
+
+  /**
+   * 所有 Mapper 代理缓存的 MapperMethod 数量
+   *
+   * @return
+   */
+  int getMapperMethodCacheSize();
+
+  /**
+   * 清空查询和异常计数，不影响各语句的耗时和语句缓存统计
+   */
+  void resetCounters();
+
+  /**
+   * 只清空异常计数
+   */
+  void resetErrorCounts();
+
+}
@@ -0,0 +1,93 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.management;
+
+import com.ziningmei.mybatis.mapping.MappedStatement;
+import com.ziningmei.mybatis.mapping.StatementMetrics;
+import com.ziningmei.mybatis.session.Configuration;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * {@link SqlSessionFactoryMXBean} 的实现，计数来自 {@link RuntimeCounters}，语句缓存命中率来自各语句的统计
+ */
+public class SqlSessionFactoryStatistics implements SqlSessionFactoryMXBean {
+
+  private final Configuration configuration;
+
+  public SqlSessionFactoryStatistics(Configuration configuration) {
+    this.configuration = configuration;
+  }
+
+  @Override
+  public long getOpenSessions() {
+    return configuration.getRuntimeCounters().getOpenSessions();
+  }
+
+  @Override
+  public long getActiveConnections() {
+    return configuration.getRuntimeCounters().getActiveConnections();
+  }
+
+  @Override
+  public long getQueryCount() {
+    return configuration.getRuntimeCounters().getQueryCount();
+  }
+
+  @Override
+  public Map<String, Long> getQueriesPerStatement() {
+    return configuration.getRuntimeCounters().getQueriesPerStatement();
+  }
+
+  @Override
+  public long getRowsMapped() {
+    return configuration.getRuntimeCounters().getRowsMapped();
+  }
+
+  @Override
+  public Map<String, Double> getStatementCacheHitRatios() {
+    Map<String, Double> ratios = new TreeMap<>();
+    for (MappedStatement ms : configuration.getDistinctMappedStatements()) {
+      StatementMetrics metrics = ms.getMetrics();
+      if (metrics.getStatementCacheHits() + metrics.getStatementCacheMisses() > 0) {
+        ratios.put(ms.getId(), metrics.getStatementCacheHitRatio());
+      }
+    }
+    return ratios;
+  }
+
+  @Override
+  public Map<String, Long> getErrorsByType() {
+    return configuration.getRuntimeCounters().getErrorsByType();
+  }
+
+  @Override
+  public int getMapperMethodCacheSize() {
+    return configuration.getMapperRegistry().getMethodCacheSize();
+  }
+
+  @Override
+  public void resetCounters() {
+    configuration.getRuntimeCounters().reset();
+  }
+
+  @Override
+  public void resetErrorCounts() {
+    configuration.getRuntimeCounters().resetErrors();
+  }
+
+}
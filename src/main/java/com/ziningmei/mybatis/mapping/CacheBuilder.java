@@ -0,0 +1,198 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.mapping;
+
+import com.ziningmei.mybatis.builder.BuilderException;
+import com.ziningmei.mybatis.cache.Cache;
+import com.ziningmei.mybatis.cache.CacheException;
+import com.ziningmei.mybatis.cache.decorators.LoggingCache;
+import com.ziningmei.mybatis.cache.decorators.LruCache;
+import com.ziningmei.mybatis.cache.decorators.StripedCache;
+import com.ziningmei.mybatis.cache.decorators.TtlCache;
+import com.ziningmei.mybatis.cache.impl.PerpetualCache;
+import com.ziningmei.mybatis.reflection.MetaObject;
+import com.ziningmei.mybatis.reflection.SystemMetaObject;
+
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author Clinton Begin
+ *
+ * 二级缓存构造器
+ * <p>
+ * 每个分段构造一条 淘汰策略 -> TtlCache（可选） -> 实现 的装饰链，再由 StripedCache 分段加锁，最外层是统计命中率的 LoggingCache。
+ * TtlCache 位于淘汰策略之下，淘汰的条目会同时从过期表中移除。
+ * 自定义实现（如 OffHeapCache）自行淘汰，不加淘汰策略，size、maxBytes 平均分配到各个分段
+ */
+public class CacheBuilder {
+
+  private final String id;
+  private Class<? extends Cache> implementation;
+  private final List<Class<? extends Cache>> decorators;
+  private Integer size;
+  private Long ttl;
+  private Integer stripes;
+  private Long maxBytes;
+
+  public CacheBuilder(String id) {
+    this.id = id;
+    this.decorators = new ArrayList<>();
+  }
+
+  public CacheBuilder implementation(Class<? extends Cache> implementation) {
+    this.implementation = implementation;
+    return this;
+  }
+
+  public CacheBuilder addDecorator(Class<? extends Cache> decorator) {
+    if (decorator != null) {
+      this.decorators.add(decorator);
+    }
+    return this;
+  }
+
+  public CacheBuilder size(Integer size) {
+    this.size = size;
+    return this;
+  }
+
+  public CacheBuilder ttl(Long ttl) {
+    this.ttl = ttl;
+    return this;
+  }
+
+  public CacheBuilder stripes(Integer stripes) {
+    this.stripes = stripes;
+    return this;
+  }
+
+  public CacheBuilder maxBytes(Long maxBytes) {
+    this.maxBytes = maxBytes;
+    return this;
+  }
+
+  public Cache build() {
+    setDefaultImplementations();
+    int segmentCount = segmentCount();
+    Cache[] segments = new Cache[segmentCount];
+    for (int i = 0; i < segmentCount; i++) {
+      segments[i] = newSegment(segmentCount);
+    }
+    return new LoggingCache(new StripedCache(id, segments));
+  }
+
+  private void setDefaultImplementations() {
+    if (implementation == null) {
+      implementation = PerpetualCache.class;
+      if (decorators.isEmpty()) {
+        decorators.add(LruCache.class);
+      }
+    }
+  }
+
+  private int segmentCount() {
+    int n = stripes == null || stripes < 1 ? 1 : stripes;
+    //分段过多时每段容量太小，淘汰会变得不准确
+    if (size != null && size > 0) {
+      n = Math.min(n, size);
+    }
+    int highest = Integer.highestOneBit(n);
+    return highest == n ? n : highest << 1;
+  }
+
+  private Cache newSegment(int segmentCount) {
+    Cache cache = newBaseCacheInstance(implementation, id);
+    Integer segmentSize = size == null ? null : Math.max(1, (size + segmentCount - 1) / segmentCount);
+    if (!PerpetualCache.class.equals(implementation)) {
+      setCacheSize(cache, segmentSize);
+      setMaxBytes(cache, segmentCount);
+    }
+    if (ttl != null && ttl > 0) {
+      TtlCache ttlCache = new TtlCache(cache);
+      ttlCache.setTtl(ttl);
+      cache = ttlCache;
+    }
+    if (PerpetualCache.class.equals(implementation)) {
+      for (Class<? extends Cache> decorator : decorators) {
+        cache = newCacheDecoratorInstance(decorator, cache);
+        setCacheSize(cache, segmentSize);
+      }
+    }
+    return cache;
+  }
+
+  private void setCacheSize(Cache cache, Integer size) {
+    if (size == null) {
+      return;
+    }
+    MetaObject metaCache = SystemMetaObject.forObject(cache);
+    if (metaCache.hasSetter("size")) {
+      metaCache.setValue("size", size);
+    }
+  }
+
+  /**
+   * 字节上限平均分配到各个分段，未指定时分配实现的默认值
+   */
+  private void setMaxBytes(Cache cache, int segmentCount) {
+    MetaObject metaCache = SystemMetaObject.forObject(cache);
+    if (!metaCache.hasSetter("maxBytes")) {
+      return;
+    }
+    long total;
+    if (maxBytes != null) {
+      total = maxBytes;
+    } else if (metaCache.hasGetter("maxBytes")) {
+      total = ((Number) metaCache.getValue("maxBytes")).longValue();
+    } else {
+      return;
+    }
+    metaCache.setValue("maxBytes", Math.max(1, total / segmentCount));
+  }
+
+  private Cache newBaseCacheInstance(Class<? extends Cache> cacheClass, String id) {
+    Constructor<? extends Cache> cacheConstructor = getConstructor(cacheClass, String.class,
+        "Invalid base cache implementation (" + cacheClass + ").  "
+            + "Base cache implementations must have a constructor that takes a String id as a parameter.");
+    try {
+      return cacheConstructor.newInstance(id);
+    } catch (Exception e) {
+      throw new CacheException("Could not instantiate cache implementation (" + cacheClass + "). Cause: " + e, e);
+    }
+  }
+
+  private Cache newCacheDecoratorInstance(Class<? extends Cache> cacheClass, Cache base) {
+    Constructor<? extends Cache> cacheConstructor = getConstructor(cacheClass, Cache.class,
+        "Invalid cache decorator (" + cacheClass + ").  "
+            + "Cache decorators must have a constructor that takes a Cache instance as a parameter.");
+    try {
+      return cacheConstructor.newInstance(base);
+    } catch (Exception e) {
+      throw new CacheException("Could not instantiate cache decorator (" + cacheClass + "). Cause: " + e, e);
+    }
+  }
+
+  private Constructor<? extends Cache> getConstructor(Class<? extends Cache> cacheClass, Class<?> parameterType, String message) {
+    try {
+      return cacheClass.getConstructor(parameterType);
+    } catch (Exception e) {
+      throw new BuilderException(message, e);
+    }
+  }
+
+}
@@ -0,0 +1,133 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.mapping;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁的耗时直方图（纳秒）
+ * <p>
+ * 与 HdrHistogram 相同的对数-线性分桶：1 微秒以下合为一个桶，之后每个 2 的幂区间再分 4 个子桶，相对误差不超过 25%，
+ * 上限约 18 分钟。每个桶是一个 {@link LongAdder}，第一次命中时才创建，没有用到的桶不占内存
+ */
+public class LatencyHistogram {
+
+  private static final int MIN_EXPONENT = 10;
+
+  private static final int MAX_EXPONENT = 40;
+
+  private static final int SUB_BUCKET_BITS = 2;
+
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+  private static final int BUCKET_COUNT = 1 + (MAX_EXPONENT - MIN_EXPONENT + 1) * SUB_BUCKET_COUNT;
+
+  private final AtomicReferenceArray<LongAdder> buckets = new AtomicReferenceArray<>(BUCKET_COUNT);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder totalNanos = new LongAdder();
+  private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+  public void record(long nanos) {
+    if (nanos < 0) {
+      nanos = 0;
+    }
+    final int index = bucketIndex(nanos);
+    LongAdder bucket = buckets.get(index);
+    if (bucket == null) {
+      buckets.compareAndSet(index, null, new LongAdder());
+      bucket = buckets.get(index);
+    }
+    bucket.increment();
+    count.increment();
+    totalNanos.add(nanos);
+    maxNanos.accumulate(nanos);
+  }
+
+  public long getCount() {
+    return count.sum();
+  }
+
+  public long getTotalNanos() {
+    return totalNanos.sum();
+  }
+
+  public long getMaxNanos() {
+    return maxNanos.get();
+  }
+
+  /**
+   * 百分位数，取所在桶的上界，不超过记录到的最大值
+   *
+   * @param percentile 0 到 100
+   * @return 没有记录时为 0
+   */
+  public long getPercentile(double percentile) {
+    final long[] counts = new long[BUCKET_COUNT];
+    long total = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      LongAdder bucket = buckets.get(i);
+      if (bucket != null) {
+        counts[i] = bucket.sum();
+        total += counts[i];
+      }
+    }
+    if (total == 0) {
+      return 0;
+    }
+    final long threshold = Math.max(1, (long) Math.ceil(total * Math.min(Math.max(percentile, 0), 100) / 100));
+    long cumulative = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      cumulative += counts[i];
+      if (cumulative >= threshold) {
+        return Math.min(upperBound(i), getMaxNanos());
+      }
+    }
+    return getMaxNanos();
+  }
+
+  public void reset() {
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      buckets.set(i, null);
+    }
+    count.reset();
+    totalNanos.reset();
+    maxNanos.reset();
+  }
+
+  static int bucketIndex(long nanos) {
+    final int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+    if (exponent < MIN_EXPONENT) {
+      return 0;
+    }
+    if (exponent > MAX_EXPONENT) {
+      return BUCKET_COUNT - 1;
+    }
+    final int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+    return 1 + (exponent - MIN_EXPONENT) * SUB_BUCKET_COUNT + subBucket;
+  }
+
+  static long upperBound(int index) {
+    if (index == 0) {
+      return (1L << MIN_EXPONENT) - 1;
+    }
+    final int exponent = MIN_EXPONENT + (index - 1) / SUB_BUCKET_COUNT;
+    final int subBucket = (index - 1) % SUB_BUCKET_COUNT;
+    return ((long) (SUB_BUCKET_COUNT + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+  }
+
+}
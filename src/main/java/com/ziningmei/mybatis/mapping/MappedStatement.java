@@ -15,6 +15,7 @@
  */
 package com.ziningmei.mybatis.mapping;
 
+import com.ziningmei.mybatis.cache.Cache;
 import com.ziningmei.mybatis.scripting.LanguageDriver;
 import com.ziningmei.mybatis.session.Configuration;
 
@@ -85,6 +86,56 @@ public final class MappedStatement {
    */
   private boolean resultOrdered;
 
+  /**
+   * 二级缓存，所在命名空间未声明缓存时为空
+   */
+  private Cache cache;
+
+  /**
+   * 执行前是否清空缓存
+   */
+  private boolean flushCacheRequired;
+
+  /**
+   * 是否使用缓存
+   */
+  private boolean useCache;
+
+  /**
+   * 相同参数的并发查询是否合并为一次执行
+   */
+  private boolean singleFlight;
+
+  /**
+   * 流水线映射的映射线程数，0 表示在读取结果集的线程上逐行映射
+   */
+  private int mappingThreads;
+
+  /**
+   * 分片键，为空表示不按键路由
+   */
+  private String shardKey;
+
+  /**
+   * 跨分片查询合并时的排序属性
+   */
+  private String mergeOrderBy;
+
+  /**
+   * 跨分片查询合并后的行数上限，空表示不限
+   */
+  private Integer mergeLimit;
+
+  /**
+   * 返回行数的运行统计
+   */
+  private ResultSizeStatistics resultSizeStatistics;
+
+  /**
+   * 各阶段耗时统计
+   */
+  private StatementMetrics metrics;
+
   /**
    * sql类型
    */
@@ -111,7 +162,10 @@ public final class MappedStatement {
       mappedStatement.parameterMap = new ParameterMap.Builder("defaultParameterMap", null).build();
       mappedStatement.resultMaps = new ArrayList<>();
       mappedStatement.sqlCommandType = sqlCommandType;
-
+      mappedStatement.flushCacheRequired = sqlCommandType != SqlCommandType.SELECT;
+      mappedStatement.useCache = sqlCommandType == SqlCommandType.SELECT;
+      mappedStatement.resultSizeStatistics = new ResultSizeStatistics();
+      mappedStatement.metrics = new StatementMetrics(id);
     }
 
     public Builder resource(String resource) {
@@ -158,6 +212,46 @@ public final class MappedStatement {
       return this;
     }
 
+    public Builder cache(Cache cache) {
+      mappedStatement.cache = cache;
+      return this;
+    }
+
+    public Builder flushCacheRequired(boolean flushCacheRequired) {
+      mappedStatement.flushCacheRequired = flushCacheRequired;
+      return this;
+    }
+
+    public Builder useCache(boolean useCache) {
+      mappedStatement.useCache = useCache;
+      return this;
+    }
+
+    public Builder singleFlight(boolean singleFlight) {
+      mappedStatement.singleFlight = singleFlight;
+      return this;
+    }
+
+    public Builder mappingThreads(int mappingThreads) {
+      mappedStatement.mappingThreads = mappingThreads;
+      return this;
+    }
+
+
+    public Builder shardKey(String shardKey) {
+      mappedStatement.shardKey = shardKey;
+      return this;
+    }
+
+    public Builder mergeOrderBy(String mergeOrderBy) {
+      mappedStatement.mergeOrderBy = mergeOrderBy;
+      return this;
+    }
+
+    public Builder mergeLimit(Integer mergeLimit) {
+      mappedStatement.mergeLimit = mergeLimit;
+      return this;
+    }
 
     public Builder lang(LanguageDriver driver) {
       mappedStatement.lang = driver;
@@ -222,6 +316,46 @@ public final class MappedStatement {
     return resultOrdered;
   }
 
+  public Cache getCache() {
+    return cache;
+  }
+
+  public boolean isFlushCacheRequired() {
+    return flushCacheRequired;
+  }
+
+  public boolean isUseCache() {
+    return useCache;
+  }
+
+  public boolean isSingleFlight() {
+    return singleFlight;
+  }
+
+  public int getMappingThreads() {
+    return mappingThreads;
+  }
+
+  public StatementMetrics getMetrics() {
+    return metrics;
+  }
+
+  public ResultSizeStatistics getResultSizeStatistics() {
+    return resultSizeStatistics;
+  }
+
+  public String getShardKey() {
+    return shardKey;
+  }
+
+  public String getMergeOrderBy() {
+    return mergeOrderBy;
+  }
+
+  public Integer getMergeLimit() {
+    return mergeLimit;
+  }
+
   public LanguageDriver getLang() {
     return lang;
   }
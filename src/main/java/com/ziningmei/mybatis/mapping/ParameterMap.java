@@ -16,6 +16,7 @@
 package com.ziningmei.mybatis.mapping;
 
 
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -47,6 +48,9 @@ public class ParameterMap {
 
     public ParameterMap build() {
       //lock down collections
+      parameterMap.parameterMappings = parameterMap.parameterMappings == null
+          ? Collections.<ParameterMapping>emptyList()
+          : Collections.unmodifiableList(parameterMap.parameterMappings);
       return parameterMap;
     }
   }
@@ -175,6 +175,14 @@ public class ResultMap {
     return type;
   }
 
+  public boolean hasNestedResultMaps() {
+    return hasNestedResultMaps;
+  }
+
+  public boolean hasNestedQueries() {
+    return hasNestedQueries;
+  }
+
   public List<ResultMapping> getResultMappings() {
     return resultMappings;
   }
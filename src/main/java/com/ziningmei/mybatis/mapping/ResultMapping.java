@@ -46,6 +46,11 @@ public class ResultMapping {
   private String resultSet;
   private String foreignColumn;
 
+  /**
+   * 嵌套查询批量加载时每批的父行数，0 表示逐行加载
+   */
+  private int batchSize;
+
   ResultMapping() {
   }
 
@@ -121,6 +126,11 @@ public class ResultMapping {
       return this;
     }
 
+    public Builder batchSize(int batchSize) {
+      resultMapping.batchSize = batchSize;
+      return this;
+    }
+
     public Builder composites(List<ResultMapping> composites) {
       resultMapping.composites = composites;
       return this;
@@ -177,6 +187,10 @@ public class ResultMapping {
     }
   }
 
+  public int getBatchSize() {
+    return batchSize;
+  }
+
   public String getProperty() {
     return property;
   }
@@ -0,0 +1,149 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.mapping;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 语句返回行数的运行统计：指数加权平均值和 p95，用于自动选择 JDBC fetchSize 和结果集合的初始容量
+ * <p>
+ * p95 由按 2 的幂分桶的直方图估算，每 {@link #DECAY_INTERVAL} 次采样所有桶减半，让统计跟随最近的数据变化。
+ * 所有更新都是无锁的，统计值是近似值
+ */
+public class ResultSizeStatistics {
+
+  /**
+   * 样本数达到该值后才给出建议值
+   */
+  public static final int MIN_SAMPLES = 8;
+
+  public static final int MIN_FETCH_SIZE = 16;
+
+  public static final int MAX_FETCH_SIZE = 1000;
+
+  public static final int MAX_INITIAL_CAPACITY = 4096;
+
+  /**
+   * 指数加权平均的平滑系数
+   */
+  private static final double ALPHA = 0.2;
+
+  private static final int DECAY_INTERVAL = 1024;
+
+  /**
+   * 第 i 个桶统计行数在 [2^(i-1), 2^i) 之间的样本，第 0 个桶统计 0 行
+   */
+  private final AtomicLongArray buckets = new AtomicLongArray(Integer.SIZE + 1);
+
+  private final AtomicLong sampleCount = new AtomicLong();
+
+  /**
+   * 平均值的 double 位模式
+   */
+  private final AtomicLong averageBits = new AtomicLong(Double.doubleToRawLongBits(-1));
+
+  /**
+   * 记录一次查询返回的行数
+   *
+   * @param rows
+   */
+  public void record(int rows) {
+    if (rows < 0) {
+      return;
+    }
+    buckets.incrementAndGet(Integer.SIZE - Integer.numberOfLeadingZeros(rows));
+    long previousBits;
+    double next;
+    do {
+      previousBits = averageBits.get();
+      double previous = Double.longBitsToDouble(previousBits);
+      next = previous < 0 ? rows : previous + ALPHA * (rows - previous);
+    } while (!averageBits.compareAndSet(previousBits, Double.doubleToRawLongBits(next)));
+    if (sampleCount.incrementAndGet() % DECAY_INTERVAL == 0) {
+      for (int i = 0; i < buckets.length(); i++) {
+        buckets.set(i, buckets.get(i) >> 1);
+      }
+    }
+  }
+
+  public long getSampleCount() {
+    return sampleCount.get();
+  }
+
+  /**
+   * 指数加权平均行数，没有样本时为 0
+   *
+   * @return
+   */
+  public double getAverage() {
+    return Math.max(Double.longBitsToDouble(averageBits.get()), 0);
+  }
+
+  /**
+   * p95 行数，取所在桶的上界
+   *
+   * @return
+   */
+  public int getPercentile95() {
+    long total = 0;
+    for (int i = 0; i < buckets.length(); i++) {
+      total += buckets.get(i);
+    }
+    if (total == 0) {
+      return 0;
+    }
+    long threshold = (long) Math.ceil(total * 0.95);
+    long cumulative = 0;
+    for (int i = 0; i < buckets.length(); i++) {
+      cumulative += buckets.get(i);
+      if (cumulative >= threshold) {
+        return i == 0 ? 0 : (int) Math.min((1L << i) - 1, Integer.MAX_VALUE);
+      }
+    }
+    return Integer.MAX_VALUE;
+  }
+
+  /**
+   * 建议的 fetchSize：p95 行数，限制在 [{@link #MIN_FETCH_SIZE}, {@link #MAX_FETCH_SIZE}] 之间
+   *
+   * @return 样本不足时为 null
+   */
+  public Integer getSuggestedFetchSize() {
+    if (getSampleCount() < MIN_SAMPLES) {
+      return null;
+    }
+    return Math.min(Math.max(getPercentile95() + 1, MIN_FETCH_SIZE), MAX_FETCH_SIZE);
+  }
+
+  /**
+   * 建议的结果集合初始容量：平均行数留 25% 余量，不超过 {@link #MAX_INITIAL_CAPACITY}
+   *
+   * @return 样本不足时为 0
+   */
+  public int getSuggestedInitialCapacity() {
+    if (getSampleCount() < MIN_SAMPLES) {
+      return 0;
+    }
+    return (int) Math.min(Math.ceil(getAverage() * 1.25) + 1, MAX_INITIAL_CAPACITY);
+  }
+
+  @Override
+  public String toString() {
+    return "ResultSizeStatistics[samples=" + getSampleCount() + ", average=" + getAverage() + ", p95=" + getPercentile95() + "]";
+  }
+
+}
@@ -0,0 +1,249 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.mapping;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 语句各阶段的耗时直方图、返回行数和连接池语句缓存的命中情况，每个 {@link MappedStatement} 一个
+ */
+public class StatementMetrics {
+
+  /**
+   * 语句执行的阶段
+   */
+  public enum Phase {
+    /**
+     * 获取连接
+     */
+    ACQUIRE,
+    /**
+     * 创建 Statement
+     */
+    PREPARE,
+    /**
+     * 设置参数
+     */
+    PARAMETERIZE,
+    /**
+     * 执行
+     */
+    EXECUTE,
+    /**
+     * 映射结果集
+     */
+    MAP
+  }
+
+  private static final Phase[] PHASES = Phase.values();
+
+  private final String id;
+  private final LatencyHistogram[] histograms = new LatencyHistogram[PHASES.length];
+  private final LongAdder rows = new LongAdder();
+  private final LongAdder statementCacheHits = new LongAdder();
+  private final LongAdder statementCacheMisses = new LongAdder();
+
+  public StatementMetrics(String id) {
+    this.id = id;
+    for (int i = 0; i < histograms.length; i++) {
+      histograms[i] = new LatencyHistogram();
+    }
+  }
+
+  /**
+   * 记录一个阶段从 startNanos 到现在的耗时
+   *
+   * @param phase
+   * @param startNanos {@link System#nanoTime()} 的起始值
+   */
+  public void recordSince(Phase phase, long startNanos) {
+    histograms[phase.ordinal()].record(System.nanoTime() - startNanos);
+  }
+
+  /**
+   * 记录查询返回或更新影响的行数
+   *
+   * @param count
+   */
+  public void recordRows(long count) {
+    rows.add(count);
+  }
+
+  /**
+   * 累计的行数
+   *
+   * @return
+   */
+  public long getRows() {
+    return rows.sum();
+  }
+
+  /**
+   * 记录一次连接池语句缓存的查找
+   *
+   * @param hit
+   */
+  public void recordStatementCache(boolean hit) {
+    (hit ? statementCacheHits : statementCacheMisses).increment();
+  }
+
+  public long getStatementCacheHits() {
+    return statementCacheHits.sum();
+  }
+
+  public long getStatementCacheMisses() {
+    return statementCacheMisses.sum();
+  }
+
+  /**
+   * 语句缓存命中率，没有经过语句缓存时为 0
+   *
+   * @return
+   */
+  public double getStatementCacheHitRatio() {
+    final long hits = statementCacheHits.sum();
+    final long total = hits + statementCacheMisses.sum();
+    return total == 0 ? 0 : (double) hits / total;
+  }
+
+  public LatencyHistogram getHistogram(Phase phase) {
+    return histograms[phase.ordinal()];
+  }
+
+  public Snapshot snapshot() {
+    final Map<Phase, PhaseSnapshot> phases = new EnumMap<>(Phase.class);
+    for (Phase phase : PHASES) {
+      LatencyHistogram histogram = histograms[phase.ordinal()];
+      phases.put(phase, new PhaseSnapshot(histogram.getCount(), histogram.getTotalNanos(), histogram.getPercentile(50),
+          histogram.getPercentile(90), histogram.getPercentile(99), histogram.getMaxNanos()));
+    }
+    return new Snapshot(id, rows.sum(), phases);
+  }
+
+  public void reset() {
+    for (LatencyHistogram histogram : histograms) {
+      histogram.reset();
+    }
+    rows.reset();
+    statementCacheHits.reset();
+    statementCacheMisses.reset();
+  }
+
+  /**
+   * 某一时刻的统计
+   */
+  public static class Snapshot {
+
+    private final String id;
+    private final long rows;
+    private final Map<Phase, PhaseSnapshot> phases;
+
+    Snapshot(String id, long rows, Map<Phase, PhaseSnapshot> phases) {
+      this.id = id;
+      this.rows = rows;
+      this.phases = Collections.unmodifiableMap(phases);
+    }
+
+    public String getId() {
+      return id;
+    }
+
+    /**
+     * 执行次数，以 EXECUTE 阶段为准
+     *
+     * @return
+     */
+    public long getExecutions() {
+      return phases.get(Phase.EXECUTE).getCount();
+    }
+
+    public long getRows() {
+      return rows;
+    }
+
+    public PhaseSnapshot getPhase(Phase phase) {
+      return phases.get(phase);
+    }
+
+    public Map<Phase, PhaseSnapshot> getPhases() {
+      return phases;
+    }
+
+    @Override
+    public String toString() {
+      return "StatementMetrics[" + id + ", executions=" + getExecutions() + ", rows=" + rows + ", phases=" + phases + "]";
+    }
+  }
+
+  /**
+   * 单个阶段的耗时统计，单位纳秒
+   */
+  public static class PhaseSnapshot {
+
+    private final long count;
+    private final long totalNanos;
+    private final long p50;
+    private final long p90;
+    private final long p99;
+    private final long max;
+
+    PhaseSnapshot(long count, long totalNanos, long p50, long p90, long p99, long max) {
+      this.count = count;
+      this.totalNanos = totalNanos;
+      this.p50 = p50;
+      this.p90 = p90;
+      this.p99 = p99;
+      this.max = max;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public long getTotalNanos() {
+      return totalNanos;
+    }
+
+    public long getMeanNanos() {
+      return count == 0 ? 0 : totalNanos / count;
+    }
+
+    public long getP50Nanos() {
+      return p50;
+    }
+
+    public long getP90Nanos() {
+      return p90;
+    }
+
+    public long getP99Nanos() {
+      return p99;
+    }
+
+    public long getMaxNanos() {
+      return max;
+    }
+
+    @Override
+    public String toString() {
+      return "{count=" + count + ", p50=" + p50 + ", p90=" + p90 + ", p99=" + p99 + ", max=" + max + "}";
+    }
+  }
+
+}
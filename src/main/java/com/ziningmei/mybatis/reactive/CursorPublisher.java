@@ -0,0 +1,210 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.reactive;
+
+import com.ziningmei.mybatis.cursor.Cursor;
+import com.ziningmei.mybatis.cursor.defaults.DefaultCursor;
+import com.ziningmei.mybatis.executor.ErrorContext;
+import com.ziningmei.mybatis.session.RowBounds;
+import com.ziningmei.mybatis.session.SqlSession;
+import com.ziningmei.mybatis.session.SqlSessionFactory;
+
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 基于游标的结果发布者
+ * <p>
+ * 每个订阅在调度线程池上打开独立的会话和游标，只有订阅者 request 过的行才会被读取和映射，
+ * 读取的行数不会超过请求数，也不会缓存整个结果集。所有 JDBC 调用都在调度线程池上执行，
+ * 同一个订阅同一时刻只有一个线程在读取。
+ *
+ * @param <T> 结果类型
+ */
+public class CursorPublisher<T> implements Publisher<T> {
+
+  private final SqlSessionFactory sqlSessionFactory;
+  private final String statement;
+  private final Object parameter;
+  private final RowBounds rowBounds;
+  private final Executor scheduler;
+
+  public CursorPublisher(SqlSessionFactory sqlSessionFactory, String statement, Object parameter, RowBounds rowBounds, Executor scheduler) {
+    this.sqlSessionFactory = sqlSessionFactory;
+    this.statement = statement;
+    this.parameter = parameter;
+    this.rowBounds = rowBounds;
+    this.scheduler = scheduler;
+  }
+
+  @Override
+  public void subscribe(Subscriber<? super T> subscriber) {
+    if (subscriber == null) {
+      throw new NullPointerException("subscriber");
+    }
+    CursorSubscription subscription = new CursorSubscription(subscriber);
+    subscriber.onSubscribe(subscription);
+  }
+
+  private final class CursorSubscription implements Subscription {
+
+    private final Subscriber<? super T> subscriber;
+
+    /**
+     * 未满足的请求数，Long.MAX_VALUE 表示不限
+     */
+    private final AtomicLong requested = new AtomicLong();
+
+    /**
+     * 调度计数，保证同一时刻只有一个读取任务
+     */
+    private final AtomicInteger wip = new AtomicInteger();
+
+    private volatile boolean cancelled;
+
+    private SqlSession sqlSession;
+    private volatile Cursor<T> cursor;
+    private Iterator<T> iterator;
+
+    private CursorSubscription(Subscriber<? super T> subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        cancel();
+        subscriber.onError(new IllegalArgumentException("Non-positive request signals are illegal, got " + n));
+        return;
+      }
+      long current;
+      long next;
+      do {
+        current = requested.get();
+        if (current == Long.MAX_VALUE) {
+          break;
+        }
+        next = current + n;
+        if (next < 0) {
+          next = Long.MAX_VALUE;
+        }
+      } while (!requested.compareAndSet(current, next));
+      schedule();
+    }
+
+    @Override
+    public void cancel() {
+      if (cancelled) {
+        return;
+      }
+      cancelled = true;
+      //打断正在进行的读取，Statement.cancel 允许从其他线程调用
+      Cursor<T> current = cursor;
+      if (current instanceof DefaultCursor) {
+        ((DefaultCursor<T>) current).cancel();
+      }
+      //由调度线程关闭游标和会话
+      schedule();
+    }
+
+    private void schedule() {
+      if (wip.getAndIncrement() == 0) {
+        scheduler.execute(this::drain);
+      }
+    }
+
+    private void drain() {
+      int missed = 1;
+      try {
+        do {
+          if (cancelled) {
+            cleanUp();
+            return;
+          }
+          if (iterator == null && !open()) {
+            return;
+          }
+          long demand = requested.get();
+          long emitted = 0;
+          while (emitted != demand) {
+            if (cancelled) {
+              cleanUp();
+              return;
+            }
+            T next;
+            try {
+              if (!iterator.hasNext()) {
+                cleanUp();
+                subscriber.onComplete();
+                return;
+              }
+              next = iterator.next();
+            } catch (RuntimeException e) {
+              cleanUp();
+              //取消导致的异常不再通知
+              if (!cancelled) {
+                subscriber.onError(e);
+              }
+              return;
+            }
+            subscriber.onNext(next);
+            emitted++;
+          }
+          if (emitted != 0 && demand != Long.MAX_VALUE) {
+            requested.addAndGet(-emitted);
+          }
+          missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+      } finally {
+        //调度线程会被复用
+        ErrorContext.instance().reset();
+      }
+    }
+
+    private boolean open() {
+      try {
+        sqlSession = sqlSessionFactory.openSession();
+        Cursor<T> opened = sqlSession.selectCursor(statement, parameter, rowBounds);
+        iterator = opened.iterator();
+        cursor = opened;
+        return true;
+      } catch (RuntimeException e) {
+        cleanUp();
+        subscriber.onError(e);
+        return false;
+      }
+    }
+
+    /**
+     * 关闭会话，会话会关闭其打开的游标。完成后 wip 不再归零，后续请求不会再调度
+     */
+    private void cleanUp() {
+      cursor = null;
+      iterator = null;
+      if (sqlSession != null) {
+        try {
+          sqlSession.close();
+        } catch (RuntimeException ignore) {
+          // Intentionally ignore. Prefer previous error.
+        }
+        sqlSession = null;
+      }
+    }
+  }
+
+}
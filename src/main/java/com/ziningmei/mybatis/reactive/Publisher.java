@@ -0,0 +1,35 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.reactive;
+
+/**
+ * 结果发布者，方法签名与 {@code java.util.concurrent.Flow.Publisher} 相同。
+ * <p>
+ * 项目以 Java 8 为目标，不能直接依赖 Flow，使用方可以用一行适配代码接入 Flow 或 Reactive Streams
+ *
+ * @param <T> 结果类型
+ */
+@FunctionalInterface
+public interface Publisher<T> {
+
+  /**
+   * 订阅，每次订阅都会重新执行查询
+   *
+   * @param subscriber
+   */
+  void subscribe(Subscriber<? super T> subscriber);
+
+}
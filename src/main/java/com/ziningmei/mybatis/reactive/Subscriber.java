@@ -0,0 +1,33 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.reactive;
+
+/**
+ * 结果订阅者，方法签名与 {@code java.util.concurrent.Flow.Subscriber} 相同
+ *
+ * @param <T> 结果类型
+ */
+public interface Subscriber<T> {
+
+  void onSubscribe(Subscription subscription);
+
+  void onNext(T item);
+
+  void onError(Throwable throwable);
+
+  void onComplete();
+
+}
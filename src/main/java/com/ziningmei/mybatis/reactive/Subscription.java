@@ -0,0 +1,35 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.reactive;
+
+/**
+ * 订阅关系，方法签名与 {@code java.util.concurrent.Flow.Subscription} 相同
+ */
+public interface Subscription {
+
+  /**
+   * 请求 n 行，只有请求过的行才会被读取和映射
+   *
+   * @param n
+   */
+  void request(long n);
+
+  /**
+   * 取消订阅，正在执行的 JDBC 语句会被取消
+   */
+  void cancel();
+
+}
@@ -19,10 +19,12 @@ import com.ziningmei.mybatis.reflection.factory.ObjectFactory;
 import com.ziningmei.mybatis.reflection.factory.ReflectorFactory;
 import com.ziningmei.mybatis.reflection.property.PropertyTokenizer;
 import com.ziningmei.mybatis.reflection.wrapper.BeanWrapper;
+import com.ziningmei.mybatis.reflection.wrapper.MapWrapper;
 import com.ziningmei.mybatis.reflection.wrapper.ObjectWrapper;
 import com.ziningmei.mybatis.reflection.wrapper.ObjectWrapperFactory;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * @author Clinton Begin
@@ -61,6 +63,8 @@ public class MetaObject {
             this.objectWrapper = (ObjectWrapper) object;
         } else if (objectWrapperFactory.hasWrapperFor(object)) {
             this.objectWrapper = objectWrapperFactory.getWrapperFor(this, object);
+        } else if (object instanceof Map) {
+            this.objectWrapper = new MapWrapper(this, (Map) object);
         } else {
             this.objectWrapper = new BeanWrapper(this, object);
         }
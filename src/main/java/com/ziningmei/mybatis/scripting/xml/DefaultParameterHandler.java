@@ -17,6 +17,8 @@ package com.ziningmei.mybatis.scripting.xml;
 
 import com.ziningmei.mybatis.executor.ErrorContext;
 import com.ziningmei.mybatis.executor.ParameterHandler;
+import com.ziningmei.mybatis.logging.jfr.StatementEvent;
+import com.ziningmei.mybatis.logging.jfr.StatementEvents;
 import com.ziningmei.mybatis.mapping.BoundSql;
 import com.ziningmei.mybatis.mapping.MappedStatement;
 import com.ziningmei.mybatis.mapping.ParameterMapping;
@@ -62,6 +64,15 @@ public class DefaultParameterHandler implements ParameterHandler {
   public void setParameters(PreparedStatement ps) {
     ErrorContext.instance().activity("setting parameters").object(mappedStatement.getParameterMap().getId());
     List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
+    final StatementEvent event = StatementEvents.parameterize();
+    try {
+      setParameters(ps, parameterMappings);
+    } finally {
+      event.record(mappedStatement.getId(), boundSql.getSql(), ps, parameterMappings == null ? 0 : parameterMappings.size());
+    }
+  }
+
+  private void setParameters(PreparedStatement ps, List<ParameterMapping> parameterMappings) {
     if (parameterMappings != null) {
       for (int i = 0; i < parameterMappings.size(); i++) {
         ParameterMapping parameterMapping = parameterMappings.get(i);
@@ -0,0 +1,96 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.session;
+
+import com.ziningmei.mybatis.logging.Log;
+import com.ziningmei.mybatis.logging.LogFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 异步查询和流式查询默认使用的线程池
+ * <p>
+ * JVM 支持虚拟线程时每个任务一个虚拟线程，否则退回到守护线程组成的缓存线程池。
+ * 通过反射调用，保证在 Java 8 上也能编译运行。
+ */
+final class AsyncExecutors {
+
+  private static final Log log = LogFactory.getLog(AsyncExecutors.class);
+
+  private AsyncExecutors() {
+    // Prevent Instantiation
+  }
+
+  /**
+   * 所有 Configuration 共享的默认线程池，第一次使用时创建
+   *
+   * @return
+   */
+  static Executor defaultExecutor() {
+    return Holder.INSTANCE;
+  }
+
+  /**
+   * 流式查询默认使用的调度线程池，与异步查询分开，阻塞的 JDBC 读取不会占用其他线程池
+   *
+   * @return
+   */
+  static Executor defaultStreamingScheduler() {
+    return StreamingHolder.INSTANCE;
+  }
+
+  private static final class Holder {
+    private static final Executor INSTANCE = newDefaultExecutor();
+  }
+
+  private static final class StreamingHolder {
+    private static final Executor INSTANCE = Executors.newCachedThreadPool(new DaemonThreadFactory("mybatis-stream-"));
+  }
+
+  private static Executor newDefaultExecutor() {
+    try {
+      Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (Executor) factory.invoke(null);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      //Java 21 以前没有该方法，或者虚拟线程仍是预览特性
+      if (log.isDebugEnabled()) {
+        log.debug("Virtual threads are not available, async queries use a cached thread pool. Cause: " + e);
+      }
+    }
+    return Executors.newCachedThreadPool(new DaemonThreadFactory("mybatis-async-"));
+  }
+
+  private static final class DaemonThreadFactory implements ThreadFactory {
+    private final AtomicInteger threadNumber = new AtomicInteger(1);
+    private final String namePrefix;
+
+    private DaemonThreadFactory(String namePrefix) {
+      this.namePrefix = namePrefix;
+    }
+
+    @Override
+    public Thread newThread(Runnable r) {
+      Thread thread = new Thread(r, namePrefix + threadNumber.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+
+}
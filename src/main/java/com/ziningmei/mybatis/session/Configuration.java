@@ -2,18 +2,33 @@ package com.ziningmei.mybatis.session;
 
 import com.ziningmei.mybatis.binding.MapperRegistry;
 import com.ziningmei.mybatis.builder.ResultMapResolver;
+import com.ziningmei.mybatis.cache.Cache;
 import com.ziningmei.mybatis.datasource.UnpooledDataSourceFactory;
+import com.ziningmei.mybatis.datasource.pooled.PooledDataSourceFactory;
+import com.ziningmei.mybatis.datasource.replica.LeastOutstandingReplicaSelector;
+import com.ziningmei.mybatis.datasource.replica.ReplicaSet;
+import com.ziningmei.mybatis.datasource.replica.RoundRobinReplicaSelector;
+import com.ziningmei.mybatis.datasource.shard.ShardedDataSource;
+import com.ziningmei.mybatis.executor.BaseExecutor;
+import com.ziningmei.mybatis.executor.BatchExecutor;
+import com.ziningmei.mybatis.executor.CachingExecutor;
 import com.ziningmei.mybatis.executor.Executor;
+import com.ziningmei.mybatis.executor.ReuseExecutor;
+import com.ziningmei.mybatis.executor.ReadWriteSplittingExecutor;
+import com.ziningmei.mybatis.executor.ShardingExecutor;
 import com.ziningmei.mybatis.executor.SimpleExecutor;
+import com.ziningmei.mybatis.executor.SingleFlight;
 import com.ziningmei.mybatis.executor.StatementHandler;
 import com.ziningmei.mybatis.executor.ParameterHandler;
 import com.ziningmei.mybatis.executor.resultSet.DefaultResultSetHandler;
 import com.ziningmei.mybatis.executor.resultSet.ResultSetHandler;
 import com.ziningmei.mybatis.executor.statement.RoutingStatementHandler;
+import com.ziningmei.mybatis.management.RuntimeCounters;
 import com.ziningmei.mybatis.mapping.BoundSql;
 import com.ziningmei.mybatis.mapping.MappedStatement;
 import com.ziningmei.mybatis.mapping.ParameterMap;
 import com.ziningmei.mybatis.mapping.ResultMap;
+import com.ziningmei.mybatis.mapping.StatementMetrics;
 import com.ziningmei.mybatis.parsing.XNode;
 import com.ziningmei.mybatis.reflection.MetaObject;
 import com.ziningmei.mybatis.reflection.factory.DefaultObjectFactory;
@@ -27,6 +42,7 @@ import com.ziningmei.mybatis.transaction.Transaction;
 import com.ziningmei.mybatis.type.TypeAliasRegistry;
 import com.ziningmei.mybatis.type.TypeHandlerRegistry;
 
+import javax.sql.DataSource;
 import java.util.*;
 
 /**
@@ -96,6 +112,16 @@ public class Configuration {
      */
     protected final Map<String, MappedStatement> mappedStatements = new StrictMap<>("Mapped Statements collection");
 
+    /**
+     * 二级缓存，key 为命名空间
+     */
+    protected final Map<String, Cache> caches = new StrictMap<>("Caches collection");
+
+    /**
+     * 是否开启二级缓存
+     */
+    protected boolean cacheEnabled = true;
+
     /**
      * 未完成的结果map
      */
@@ -106,6 +132,36 @@ public class Configuration {
      */
     protected Integer defaultStatementTimeout;
 
+    /**
+     * 一级缓存范围
+     */
+    protected LocalCacheScope localCacheScope = LocalCacheScope.SESSION;
+
+    /**
+     * 默认执行器类型
+     */
+    protected ExecutorType defaultExecutorType = ExecutorType.SIMPLE;
+
+    /**
+     * 执行异步查询的线程池，默认使用虚拟线程
+     */
+    protected java.util.concurrent.Executor asyncExecutor = AsyncExecutors.defaultExecutor();
+
+    /**
+     * 流式查询执行 JDBC 读取的调度线程池
+     */
+    protected java.util.concurrent.Executor streamingScheduler = AsyncExecutors.defaultStreamingScheduler();
+
+    /**
+     * 流水线映射的环形缓冲区大小（行数）
+     */
+    protected int mappingBufferSize = 1024;
+
+    /**
+     * 合并并发的相同查询，语句开启 singleFlight 时使用
+     */
+    protected final SingleFlight singleFlight = new SingleFlight();
+
     /**
      * 配置工厂
      */
@@ -126,11 +182,46 @@ public class Configuration {
      */
     boolean mapUnderscoreToCamelCase=false;
 
+    /**
+     * 未配置 fetchSize 时是否按语句返回行数的统计自动选择 fetchSize 和结果集合的初始容量
+     */
+    protected boolean adaptiveResultSizing = true;
+
+    /**
+     * 是否记录语句各阶段的耗时
+     */
+    protected boolean statementMetricsEnabled = true;
+
+    /**
+     * SqlSessionFactoryBuilder 创建工厂时是否注册 JMX MBean，默认关闭。
+     * MBean 持有工厂的引用，开启后不再使用的工厂需要调用 unregisterMBean 才能被回收
+     */
+    protected boolean jmxEnabled = false;
+
+    /**
+     * 会话、连接和异常的计数
+     */
+    protected final RuntimeCounters runtimeCounters = new RuntimeCounters();
+
+    /**
+     * 嵌套结果映射是否禁止使用 RowBounds
+     */
+    protected boolean safeRowBoundsEnabled;
+
+    /**
+     * 嵌套结果映射是否禁止使用自定义 ResultHandler（resultOrdered 的语句除外）
+     */
+    protected boolean safeResultHandlerEnabled = true;
+
 
     public Configuration() {
         typeAliasRegistry.registerAlias("JDBC", JdbcTransactionFactory.class);
 
         typeAliasRegistry.registerAlias("UNPOOLED", UnpooledDataSourceFactory.class);
+        typeAliasRegistry.registerAlias("POOLED", PooledDataSourceFactory.class);
+
+        typeAliasRegistry.registerAlias("ROUND_ROBIN", RoundRobinReplicaSelector.class);
+        typeAliasRegistry.registerAlias("LEAST_OUTSTANDING", LeastOutstandingReplicaSelector.class);
 
     }
 
@@ -281,10 +372,71 @@ public class Configuration {
 
 
     public Executor newExecutor(Transaction transaction) {
+        return newExecutor(transaction, defaultExecutorType);
+    }
+
+    public Executor newExecutor(Transaction transaction, ExecutorType executorType) {
+        return newExecutor(transaction, executorType, null);
+    }
+
+    /**
+     * 创建执行器
+     *
+     * @param transaction
+     * @param executorType
+     * @param localCacheScope 会话级别的一级缓存范围，为空时使用全局配置
+     * @return
+     */
+    public Executor newExecutor(Transaction transaction, ExecutorType executorType, LocalCacheScope localCacheScope) {
+        //未指定则使用默认类型
+        executorType = executorType == null ? defaultExecutorType : executorType;
+        executorType = executorType == null ? ExecutorType.SIMPLE : executorType;
+
+        Executor executor;
+        DataSource dataSource = environment == null ? null : environment.getDataSource();
+        if (dataSource instanceof ShardedDataSource) {
+            //分片数据源：传入的事务作为第 0 个分片的事务，其余分片各自创建事务
+            ShardedDataSource shardedDataSource = (ShardedDataSource) dataSource;
+            List<Executor> shards = new ArrayList<>(shardedDataSource.getShardCount());
+            shards.add(newBaseExecutor(transaction, executorType, localCacheScope, shardedDataSource.getShard(0)));
+            for (int i = 1; i < shardedDataSource.getShardCount(); i++) {
+                Transaction shardTransaction = environment.getTransactionFactory().newTransaction(shardedDataSource.getShard(i), null);
+                shards.add(newBaseExecutor(shardTransaction, executorType, localCacheScope, shardedDataSource.getShard(i)));
+            }
+            executor = new ShardingExecutor(this, shardedDataSource, shards);
+        } else if (environment != null && environment.getReplicaSet() != null) {
+            //配置了从库：查询在会话写主库之前路由到从库，从库的执行器按需创建
+            final ReplicaSet replicaSet = environment.getReplicaSet();
+            final ExecutorType type = executorType;
+            executor = new ReadWriteSplittingExecutor(newBaseExecutor(transaction, executorType, localCacheScope, dataSource), replicaSet,
+                    replica -> newBaseExecutor(environment.getTransactionFactory().newTransaction(replicaSet.getReplica(replica), null),
+                            type, localCacheScope, replicaSet.getReplica(replica)));
+        } else {
+            executor = newBaseExecutor(transaction, executorType, localCacheScope, dataSource);
+        }
 
-        //创建执行器
-        Executor executor = new SimpleExecutor(this, transaction);
+        //开启二级缓存时用 CachingExecutor 装饰
+        if (cacheEnabled) {
+            return new CachingExecutor(executor);
+        }
+        return executor;
+    }
 
+    private BaseExecutor newBaseExecutor(Transaction transaction, ExecutorType executorType, LocalCacheScope localCacheScope,
+                                         DataSource dataSource) {
+        BaseExecutor executor;
+        if (ExecutorType.BATCH == executorType) {
+            executor = new BatchExecutor(this, transaction);
+        } else if (ExecutorType.REUSE == executorType) {
+            executor = new ReuseExecutor(this, transaction);
+        } else {
+            executor = new SimpleExecutor(this, transaction);
+        }
+        executor.setLocalCacheScope(localCacheScope);
+        executor.setDataSource(dataSource);
+        if (transaction != null) {
+            transaction.setRuntimeCounters(runtimeCounters);
+        }
         return executor;
     }
 
@@ -327,6 +479,10 @@ public class Configuration {
         return mapperRegistry.getMapper(type, sqlSession);
     }
 
+    public MapperRegistry getMapperRegistry() {
+        return mapperRegistry;
+    }
+
     public boolean hasStatement(String statementName) {
         return hasStatement(statementName, true);
     }
@@ -370,6 +526,78 @@ public class Configuration {
         this.defaultFetchSize = defaultFetchSize;
     }
 
+    public void addCache(Cache cache) {
+        caches.put(cache.getId(), cache);
+    }
+
+    public Collection<String> getCacheNames() {
+        return caches.keySet();
+    }
+
+    public Collection<Cache> getCaches() {
+        return caches.values();
+    }
+
+    public Cache getCache(String id) {
+        return caches.get(id);
+    }
+
+    public boolean hasCache(String id) {
+        return caches.containsKey(id);
+    }
+
+    public boolean isCacheEnabled() {
+        return cacheEnabled;
+    }
+
+    public void setCacheEnabled(boolean cacheEnabled) {
+        this.cacheEnabled = cacheEnabled;
+    }
+
+    public LocalCacheScope getLocalCacheScope() {
+        return localCacheScope;
+    }
+
+    public void setLocalCacheScope(LocalCacheScope localCacheScope) {
+        this.localCacheScope = localCacheScope;
+    }
+
+    public java.util.concurrent.Executor getAsyncExecutor() {
+        return asyncExecutor;
+    }
+
+    public void setAsyncExecutor(java.util.concurrent.Executor asyncExecutor) {
+        this.asyncExecutor = asyncExecutor == null ? AsyncExecutors.defaultExecutor() : asyncExecutor;
+    }
+
+    public java.util.concurrent.Executor getStreamingScheduler() {
+        return streamingScheduler;
+    }
+
+    public void setStreamingScheduler(java.util.concurrent.Executor streamingScheduler) {
+        this.streamingScheduler = streamingScheduler == null ? AsyncExecutors.defaultStreamingScheduler() : streamingScheduler;
+    }
+
+    public int getMappingBufferSize() {
+        return mappingBufferSize;
+    }
+
+    public void setMappingBufferSize(int mappingBufferSize) {
+        this.mappingBufferSize = mappingBufferSize;
+    }
+
+    public SingleFlight getSingleFlight() {
+        return singleFlight;
+    }
+
+    public ExecutorType getDefaultExecutorType() {
+        return defaultExecutorType;
+    }
+
+    public void setDefaultExecutorType(ExecutorType defaultExecutorType) {
+        this.defaultExecutorType = defaultExecutorType;
+    }
+
     public Class<?> getConfigurationFactory() {
         return configurationFactory;
     }
@@ -382,5 +610,83 @@ public class Configuration {
         return mapUnderscoreToCamelCase;
     }
 
+    public boolean isAdaptiveResultSizing() {
+        return adaptiveResultSizing;
+    }
+
+    public void setAdaptiveResultSizing(boolean adaptiveResultSizing) {
+        this.adaptiveResultSizing = adaptiveResultSizing;
+    }
+
+    public boolean isStatementMetricsEnabled() {
+        return statementMetricsEnabled;
+    }
+
+    public void setStatementMetricsEnabled(boolean statementMetricsEnabled) {
+        this.statementMetricsEnabled = statementMetricsEnabled;
+    }
+
+    public boolean isJmxEnabled() {
+        return jmxEnabled;
+    }
+
+    public void setJmxEnabled(boolean jmxEnabled) {
+        this.jmxEnabled = jmxEnabled;
+    }
+
+    public RuntimeCounters getRuntimeCounters() {
+        return runtimeCounters;
+    }
+
+    /**
+     * 所有语句的耗时统计快照，同一语句的短名称不重复统计
+     *
+     * @return
+     */
+    public List<StatementMetrics.Snapshot> getStatementMetrics() {
+        List<StatementMetrics.Snapshot> snapshots = new ArrayList<>();
+        for (MappedStatement ms : getDistinctMappedStatements()) {
+            snapshots.add(ms.getMetrics().snapshot());
+        }
+        return snapshots;
+    }
+
+    public void resetStatementMetrics() {
+        for (MappedStatement ms : getDistinctMappedStatements()) {
+            ms.getMetrics().reset();
+        }
+    }
+
+    /**
+     * 去掉短名称和同名冲突标记后的全部语句
+     *
+     * @return
+     */
+    public Set<MappedStatement> getDistinctMappedStatements() {
+        Set<MappedStatement> statements = new LinkedHashSet<>();
+        for (Object value : mappedStatements.values()) {
+            if (value instanceof MappedStatement) {
+                statements.add((MappedStatement) value);
+            }
+        }
+        return statements;
+    }
+
+    public boolean isSafeRowBoundsEnabled() {
+        return safeRowBoundsEnabled;
+    }
+
+    public void setSafeRowBoundsEnabled(boolean safeRowBoundsEnabled) {
+        this.safeRowBoundsEnabled = safeRowBoundsEnabled;
+    }
+
+    public boolean isSafeResultHandlerEnabled() {
+        return safeResultHandlerEnabled;
+    }
+
+    public void setSafeResultHandlerEnabled(boolean safeResultHandlerEnabled) {
+        this.safeResultHandlerEnabled = safeResultHandlerEnabled;
+    }
+
 
 }
@@ -16,13 +16,24 @@
 package com.ziningmei.mybatis.session;
 
 
+import com.ziningmei.mybatis.cursor.Cursor;
 import com.ziningmei.mybatis.exception.ExceptionFactory;
 import com.ziningmei.mybatis.exception.TooManyResultsException;
+import com.ziningmei.mybatis.executor.BatchResult;
 import com.ziningmei.mybatis.executor.ErrorContext;
 import com.ziningmei.mybatis.executor.Executor;
 import com.ziningmei.mybatis.mapping.MappedStatement;
+import com.ziningmei.mybatis.reactive.CursorPublisher;
+import com.ziningmei.mybatis.reactive.Publisher;
+import com.ziningmei.mybatis.transaction.Deadline;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * The default implementation for {@link SqlSession}.
@@ -43,10 +54,18 @@ public class DefaultSqlSession implements SqlSession {
      */
     private final Executor executor;
 
+    /**
+     * 打开过的游标，关闭会话时一并关闭
+     */
+    private List<Cursor<?>> cursorList;
+
+    private boolean closed;
+
 
     public DefaultSqlSession(Configuration configuration, Executor executor) {
         this.configuration = configuration;
         this.executor = executor;
+        configuration.getRuntimeCounters().sessionOpened();
     }
 
 
@@ -66,19 +85,234 @@ public class DefaultSqlSession implements SqlSession {
 
     @Override
     public <E> List<E> selectList(String statement, Object parameter) {
+        return selectList(statement, parameter, RowBounds.DEFAULT);
+    }
+
+    @Override
+    public <E> List<E> selectList(String statement, Object parameter, RowBounds rowBounds) {
+        try {
+            MappedStatement ms = configuration.getMappedStatement(statement);
+            return executor.query(ms, parameter, rowBounds, Executor.NO_RESULT_HANDLER);
+        } catch (Exception e) {
+            throw wrapException("Error querying database.  Cause: " + e, e);
+        } finally {
+            ErrorContext.instance().reset();
+        }
+    }
+
+    @Override
+    public <T> Cursor<T> selectCursor(String statement, Object parameter) {
+        return selectCursor(statement, parameter, RowBounds.DEFAULT);
+    }
+
+    @Override
+    public <T> Cursor<T> selectCursor(String statement, Object parameter, RowBounds rowBounds) {
+        try {
+            MappedStatement ms = configuration.getMappedStatement(statement);
+            Cursor<T> cursor = executor.queryCursor(ms, parameter, rowBounds);
+            registerCursor(cursor);
+            return cursor;
+        } catch (Exception e) {
+            throw wrapException("Error querying database.  Cause: " + e, e);
+        } finally {
+            ErrorContext.instance().reset();
+        }
+    }
+
+    @Override
+    public <T> Publisher<T> selectPublisher(String statement, Object parameter) {
+        //提前校验语句是否存在
+        configuration.getMappedStatement(statement);
+        return new CursorPublisher<>(new DefaultSqlSessionFactory(configuration), statement, parameter, RowBounds.DEFAULT,
+                configuration.getStreamingScheduler());
+    }
+
+    @Override
+    public <T> CompletableFuture<T> selectOneAsync(String statement, Object parameter) {
+        return supplyAsync(session -> session.<T>selectOne(statement, parameter));
+    }
+
+    @Override
+    public <E> CompletableFuture<List<E>> selectListAsync(String statement, Object parameter) {
+        return supplyAsync(session -> session.<E>selectList(statement, parameter));
+    }
+
+    /**
+     * 在异步线程池上打开独立的会话执行查询，会话在任务结束时关闭
+     *
+     * @param query
+     * @param <T>
+     * @return
+     */
+    private <T> CompletableFuture<T> supplyAsync(Function<SqlSession, T> query) {
+        return CompletableFuture.supplyAsync(() -> {
+            try (SqlSession session = new DefaultSqlSessionFactory(configuration).openSession()) {
+                return query.apply(session);
+            } finally {
+                //线程池中的线程会被复用，不能把错误上下文留给下一个任务
+                ErrorContext.instance().reset();
+            }
+        }, configuration.getAsyncExecutor());
+    }
+
+    @Override
+    public int insert(String statement) {
+        return insert(statement, null);
+    }
+
+    @Override
+    public int insert(String statement, Object parameter) {
+        return update(statement, parameter);
+    }
+
+    @Override
+    public int update(String statement) {
+        return update(statement, null);
+    }
+
+    @Override
+    public int update(String statement, Object parameter) {
+        long rows = largeUpdate(statement, parameter);
+        // 超过 int 范围时截断，需要准确值请使用 largeUpdate
+        return rows > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) rows;
+    }
+
+    @Override
+    public int delete(String statement) {
+        return update(statement, null);
+    }
+
+    @Override
+    public int delete(String statement, Object parameter) {
+        return update(statement, parameter);
+    }
+
+    @Override
+    public long largeUpdate(String statement, Object parameter) {
         try {
             MappedStatement ms = configuration.getMappedStatement(statement);
-            return executor.query(ms, parameter, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+            return executor.update(ms, parameter);
+        } catch (Exception e) {
+            throw wrapException("Error updating database.  Cause: " + e, e);
+        } finally {
+            ErrorContext.instance().reset();
+        }
+    }
+
+    @Override
+    public void commit() {
+        commit(false);
+    }
+
+    @Override
+    public void commit(boolean force) {
+        try {
+            executor.commit(isCommitOrRollbackRequired(force));
+        } catch (Exception e) {
+            throw wrapException("Error committing transaction.  Cause: " + e, e);
+        } finally {
+            ErrorContext.instance().reset();
+        }
+    }
+
+    @Override
+    public void rollback() {
+        rollback(false);
+    }
+
+    @Override
+    public void rollback(boolean force) {
+        try {
+            executor.rollback(isCommitOrRollbackRequired(force));
+        } catch (Exception e) {
+            throw wrapException("Error rolling back transaction.  Cause: " + e, e);
+        } finally {
+            ErrorContext.instance().reset();
+        }
+    }
+
+    @Override
+    public List<BatchResult> flushStatements() {
+        try {
+            return executor.flushStatements();
         } catch (Exception e) {
-            throw ExceptionFactory.wrapException("Error querying database.  Cause: " + e, e);
+            throw wrapException("Error flushing statements.  Cause: " + e, e);
         } finally {
             ErrorContext.instance().reset();
         }
     }
 
+    @Override
+    public <T> T withDeadline(Duration timeout, Supplier<T> call) {
+        final Deadline previous = executor.getDeadline();
+        executor.setDeadline(Deadline.after(timeout).min(previous));
+        try {
+            return call.get();
+        } finally {
+            executor.setDeadline(previous);
+        }
+    }
+
+    @Override
+    public void clearCache() {
+        executor.clearLocalCache();
+    }
+
     @Override
     public void close() {
-        executor.close(true);
+        try {
+            closeCursors();
+            //有未提交的修改时回滚
+            executor.close(isCommitOrRollbackRequired(false));
+        } finally {
+            if (!closed) {
+                closed = true;
+                configuration.getRuntimeCounters().sessionClosed();
+            }
+            ErrorContext.instance().reset();
+        }
+    }
+
+    /**
+     * 按类型计数后包装异常
+     *
+     * @param message
+     * @param e
+     * @return
+     */
+    private RuntimeException wrapException(String message, Exception e) {
+        configuration.getRuntimeCounters().errorOccurred(e);
+        return ExceptionFactory.wrapException(message, e);
+    }
+
+    private void closeCursors() {
+        if (cursorList != null && !cursorList.isEmpty()) {
+            for (Cursor<?> cursor : cursorList) {
+                try {
+                    cursor.close();
+                } catch (IOException e) {
+                    throw wrapException("Error closing cursor.  Cause: " + e, e);
+                }
+            }
+            cursorList.clear();
+        }
+    }
+
+    private <T> void registerCursor(Cursor<T> cursor) {
+        if (cursorList == null) {
+            cursorList = new ArrayList<>();
+        }
+        cursorList.add(cursor);
+    }
+
+    /**
+     * 是否需要真正提交或回滚连接
+     *
+     * @param force
+     * @return
+     */
+    private boolean isCommitOrRollbackRequired(boolean force) {
+        return executor.isDirty() || force;
     }
 
     @Override
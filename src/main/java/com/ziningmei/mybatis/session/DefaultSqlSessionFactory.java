@@ -3,10 +3,20 @@ package com.ziningmei.mybatis.session;
 import com.ziningmei.mybatis.exception.ExceptionFactory;
 import com.ziningmei.mybatis.executor.ErrorContext;
 import com.ziningmei.mybatis.executor.Executor;
+import com.ziningmei.mybatis.management.SqlSessionFactoryMXBean;
+import com.ziningmei.mybatis.management.SqlSessionFactoryStatistics;
+import com.ziningmei.mybatis.transaction.Deadline;
 import com.ziningmei.mybatis.transaction.Transaction;
 import com.ziningmei.mybatis.transaction.TransactionFactory;
 
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
 import java.sql.SQLException;
+import java.time.Duration;
 
 /**
  * @author ziningmei
@@ -20,6 +30,11 @@ public class DefaultSqlSessionFactory implements SqlSessionFactory {
      */
     private final Configuration configuration;
 
+    /**
+     * 注册到 JMX 的名称，未注册时为 null
+     */
+    private ObjectName objectName;
+
 
     public DefaultSqlSessionFactory(Configuration configuration) {
 
@@ -36,14 +51,80 @@ public class DefaultSqlSessionFactory implements SqlSessionFactory {
     @Override
     public SqlSession openSession() {
         //通过数据源获取sqlsession
-        return openSessionFromDataSource();
+        return openSessionFromDataSource(configuration.getDefaultExecutorType(), null, null);
+    }
+
+    @Override
+    public SqlSession openSession(ExecutorType execType) {
+        return openSessionFromDataSource(execType, null, null);
+    }
+
+    @Override
+    public SqlSession openSession(ExecutorType execType, LocalCacheScope localCacheScope) {
+        return openSessionFromDataSource(execType, localCacheScope, null);
+    }
+
+    @Override
+    public SqlSession openSession(Duration timeout) {
+        return openSessionFromDataSource(configuration.getDefaultExecutorType(), null, Deadline.after(timeout));
+    }
+
+    /**
+     * 把运行时统计注册为 {@link SqlSessionFactoryMXBean}，
+     * 名称为 com.ziningmei.mybatis:type=SqlSessionFactory,environment=环境 id，同名已注册时追加 instance 序号
+     *
+     * @return 注册的名称
+     */
+    public synchronized ObjectName registerMBean() {
+        if (objectName != null) {
+            return objectName;
+        }
+        final Environment environment = configuration.getEnvironment();
+        final String baseName = "com.ziningmei.mybatis:type=SqlSessionFactory,environment="
+                + ObjectName.quote(environment == null ? "default" : environment.getId());
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            for (int instance = 1; ; instance++) {
+                ObjectName name = new ObjectName(instance == 1 ? baseName : baseName + ",instance=" + instance);
+                try {
+                    server.registerMBean(new SqlSessionFactoryStatistics(configuration), name);
+                    objectName = name;
+                    return name;
+                } catch (InstanceAlreadyExistsException e) {
+                    // 同一环境的另一个工厂，换下一个序号
+                }
+            }
+        } catch (JMException e) {
+            throw ExceptionFactory.wrapException("Error registering SqlSessionFactory MBean.  Cause: " + e, e);
+        }
+    }
+
+    /**
+     * 注销 {@link #registerMBean()} 注册的 MBean
+     */
+    public synchronized void unregisterMBean() {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (InstanceNotFoundException e) {
+            // 已被其他人注销
+        } catch (JMException e) {
+            throw ExceptionFactory.wrapException("Error unregistering SqlSessionFactory MBean.  Cause: " + e, e);
+        } finally {
+            objectName = null;
+        }
     }
 
     /**
      * 通过数据源获取sqlsession
+     * @param execType
+     * @param localCacheScope
+     * @param deadline
      * @return
      */
-    private SqlSession openSessionFromDataSource() {
+    private SqlSession openSessionFromDataSource(ExecutorType execType, LocalCacheScope localCacheScope, Deadline deadline) {
         Transaction tx = null;
         try {
             //获取环境
@@ -53,7 +134,11 @@ public class DefaultSqlSessionFactory implements SqlSessionFactory {
             //获取事务
             tx = transactionFactory.newTransaction(environment.getDataSource(), null);
             //获取执行器
-            final Executor executor = configuration.newExecutor(tx);
+            final Executor executor = configuration.newExecutor(tx, execType, localCacheScope);
+            if (deadline != null) {
+                //分片和从库的事务也使用会话的截止时间
+                executor.setDeadline(deadline);
+            }
             return new DefaultSqlSession(configuration, executor);
         } catch (Exception e) {
             // may have fetched a connection so lets call close()
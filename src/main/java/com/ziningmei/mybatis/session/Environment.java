@@ -1,5 +1,6 @@
 package com.ziningmei.mybatis.session;
 
+import com.ziningmei.mybatis.datasource.replica.ReplicaSet;
 import com.ziningmei.mybatis.transaction.TransactionFactory;
 
 import javax.sql.DataSource;
@@ -16,6 +17,11 @@ public final class Environment {
      */
     private final DataSource dataSource;
 
+    /**
+     * 只读从库，可以为空
+     */
+    private final ReplicaSet replicaSet;
+
     /**
      * 事务工厂
      */
@@ -33,6 +39,17 @@ public final class Environment {
      * @param dataSource
      */
     public Environment(String id, TransactionFactory transactionFactory, DataSource dataSource) {
+        this(id, transactionFactory, dataSource, null);
+    }
+
+    /**
+     * 构造函数
+     * @param id
+     * @param transactionFactory
+     * @param dataSource 主库
+     * @param replicaSet 只读从库，为空时所有语句都在主库执行
+     */
+    public Environment(String id, TransactionFactory transactionFactory, DataSource dataSource, ReplicaSet replicaSet) {
         if (id == null) {
             throw new IllegalArgumentException("Parameter 'id' must not be null");
         }
@@ -45,12 +62,17 @@ public final class Environment {
         }
         this.transactionFactory = transactionFactory;
         this.dataSource = dataSource;
+        this.replicaSet = replicaSet;
     }
 
     public DataSource getDataSource() {
         return this.dataSource;
     }
 
+    public ReplicaSet getReplicaSet() {
+        return replicaSet;
+    }
+
     /**
      * 静态内部类
      */
@@ -58,6 +80,7 @@ public final class Environment {
         private String id;
         private TransactionFactory transactionFactory;
         private DataSource dataSource;
+        private ReplicaSet replicaSet;
 
         public Builder(String id) {
             this.id = id;
@@ -73,13 +96,18 @@ public final class Environment {
             return this;
         }
 
+        public Builder replicaSet(ReplicaSet replicaSet) {
+            this.replicaSet = replicaSet;
+            return this;
+        }
+
         public String id() {
             return this.id;
         }
 
         public Environment build() {
 
-            return new Environment(this.id, this.transactionFactory, this.dataSource);
+            return new Environment(this.id, this.transactionFactory, this.dataSource, this.replicaSet);
 
         }
     }
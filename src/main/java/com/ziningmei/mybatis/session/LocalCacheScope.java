@@ -0,0 +1,32 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.session;
+
+/**
+ * @author Eduardo Macarron
+ *
+ * 一级缓存的作用范围
+ */
+public enum LocalCacheScope {
+  /**
+   * 会话内有效，提交、回滚、增删改时清空
+   */
+  SESSION,
+  /**
+   * 仅在一次语句执行内有效，相当于关闭一级缓存
+   */
+  STATEMENT
+}
@@ -1,7 +1,14 @@
 package com.ziningmei.mybatis.session;
 
+import com.ziningmei.mybatis.cursor.Cursor;
+import com.ziningmei.mybatis.executor.BatchResult;
+import com.ziningmei.mybatis.reactive.Publisher;
+
 import java.io.Closeable;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 /**
  * @author ziningmei
@@ -32,6 +39,196 @@ public interface SqlSession extends Closeable  {
      */
     <E> List<E> selectList(String statement, Object parameter);
 
+    /**
+     * Retrieve a list of mapped objects from the statement key and parameter,
+     * within the specified row bounds.
+     *
+     * 通过声明和参数获取结果，只返回 rowBounds 范围内的行
+     * @param <E> the returned list element type
+     * @param statement Unique identifier matching the statement to use.
+     * @param parameter A parameter object to pass to the statement.
+     * @param rowBounds  Bounds to limit object retrieval
+     * @return List of mapped object
+     */
+    <E> List<E> selectList(String statement, Object parameter, RowBounds rowBounds);
+
+    /**
+     * A Cursor offers the same results as a List, except it fetches data lazily using an Iterator.
+     *
+     * 以游标方式查询，结果逐行映射，会话关闭时未关闭的游标随之关闭
+     * @param <T> the returned cursor element type.
+     * @param statement Unique identifier matching the statement to use.
+     * @param parameter A parameter object to pass to the statement.
+     * @return Cursor of mapped objects
+     */
+    <T> Cursor<T> selectCursor(String statement, Object parameter);
+
+    /**
+     * A Cursor offers the same results as a List, except it fetches data lazily using an Iterator.
+     * @param <T> the returned cursor element type.
+     * @param statement Unique identifier matching the statement to use.
+     * @param parameter A parameter object to pass to the statement.
+     * @param rowBounds  Bounds to limit object retrieval
+     * @return Cursor of mapped objects
+     */
+    <T> Cursor<T> selectCursor(String statement, Object parameter, RowBounds rowBounds);
+
+    /**
+     * 以发布者方式流式查询，按订阅者的请求数读取和映射行
+     * <p>
+     * 每次订阅在 {@link Configuration#getStreamingScheduler()} 上使用独立的会话执行，
+     * 取消订阅会取消正在执行的 JDBC 语句
+     *
+     * @param <T> the returned element type.
+     * @param statement Unique identifier matching the statement to use.
+     * @param parameter A parameter object to pass to the statement.
+     * @return 冷发布者，订阅时才执行查询
+     */
+    <T> Publisher<T> selectPublisher(String statement, Object parameter);
+
+    /**
+     * 异步执行 {@link #selectOne(String, Object)}
+     * <p>
+     * 查询在 {@link Configuration#getAsyncExecutor()} 上使用独立的会话和连接执行，
+     * 因此看不到当前会话未提交的修改，也不会使用当前会话的一级缓存
+     *
+     * @param <T> the returned object type
+     * @param statement Unique identifier matching the statement to use.
+     * @param parameter A parameter object to pass to the statement.
+     * @return 查询完成时得到结果，出错时以 PersistenceException 异常完成
+     */
+    <T> CompletableFuture<T> selectOneAsync(String statement, Object parameter);
+
+    /**
+     * 异步执行 {@link #selectList(String, Object)}，执行方式同 {@link #selectOneAsync(String, Object)}
+     *
+     * @param <E> the returned list element type
+     * @param statement Unique identifier matching the statement to use.
+     * @param parameter A parameter object to pass to the statement.
+     * @return 查询完成时得到结果，出错时以 PersistenceException 异常完成
+     */
+    <E> CompletableFuture<List<E>> selectListAsync(String statement, Object parameter);
+
+    /**
+     * Execute an insert statement.
+     *
+     * 执行插入语句
+     * @param statement Unique identifier matching the statement to execute.
+     * @return int The number of rows affected by the insert.
+     */
+    int insert(String statement);
+
+    /**
+     * Execute an insert statement with the given parameter object.
+     *
+     * @param statement Unique identifier matching the statement to execute.
+     * @param parameter A parameter object to pass to the statement.
+     * @return int The number of rows affected by the insert.
+     */
+    int insert(String statement, Object parameter);
+
+    /**
+     * Execute an update statement. The number of rows affected will be returned.
+     *
+     * 执行更新语句
+     * @param statement Unique identifier matching the statement to execute.
+     * @return int The number of rows affected by the update.
+     */
+    int update(String statement);
+
+    /**
+     * Execute an update statement. The number of rows affected will be returned.
+     *
+     * @param statement Unique identifier matching the statement to execute.
+     * @param parameter A parameter object to pass to the statement.
+     * @return int The number of rows affected by the update.
+     */
+    int update(String statement, Object parameter);
+
+    /**
+     * Execute a delete statement. The number of rows affected will be returned.
+     *
+     * 执行删除语句
+     * @param statement Unique identifier matching the statement to execute.
+     * @return int The number of rows affected by the delete.
+     */
+    int delete(String statement);
+
+    /**
+     * Execute a delete statement. The number of rows affected will be returned.
+     *
+     * @param statement Unique identifier matching the statement to execute.
+     * @param parameter A parameter object to pass to the statement.
+     * @return int The number of rows affected by the delete.
+     */
+    int delete(String statement, Object parameter);
+
+    /**
+     * Execute an insert, update or delete statement through {@code executeLargeUpdate}.
+     *
+     * 执行增删改语句，影响行数可能超过 int 范围时使用
+     * @param statement Unique identifier matching the statement to execute.
+     * @param parameter A parameter object to pass to the statement.
+     * @return long The number of rows affected.
+     */
+    long largeUpdate(String statement, Object parameter);
+
+    /**
+     * Flushes batch statements and commits database connection.
+     * Note that database connection will not be committed if no updates/deletes/inserts were called.
+     *
+     * 执行积压的批量语句，有修改时提交
+     */
+    void commit();
+
+    /**
+     * Flushes batch statements and commits database connection.
+     *
+     * @param force forces connection commit
+     */
+    void commit(boolean force);
+
+    /**
+     * Discards pending batch statements and rolls database connection back.
+     * Note that database connection will not be rolled back if no updates/deletes/inserts were called.
+     *
+     * 丢弃积压的批量语句，有修改时回滚
+     */
+    void rollback();
+
+    /**
+     * Discards pending batch statements and rolls database connection back.
+     *
+     * @param force forces connection rollback
+     */
+    void rollback(boolean force);
+
+    /**
+     * Flushes batch statements.
+     *
+     * 执行积压的批量语句
+     * @return BatchResult list of updated records
+     */
+    List<BatchResult> flushStatements();
+
+    /**
+     * 在截止时间内执行一次调用，调用中的语句以剩余时间作为查询超时时间，到期仍未完成的语句被取消。
+     * 会话本身有截止时间时取两者中较早的一个
+     *
+     * @param timeout 本次调用的超时时间
+     * @param call    例如 {@code () -> mapper.selectXxx(...)}
+     * @param <T>
+     * @return call 的返回值
+     */
+    <T> T withDeadline(Duration timeout, Supplier<T> call);
+
+    /**
+     * Clears local session cache.
+     *
+     * 清空一级缓存
+     */
+    void clearCache();
+
     /**
      * 返回Configuration
      * @return
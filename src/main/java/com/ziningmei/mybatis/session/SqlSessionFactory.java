@@ -1,6 +1,7 @@
 package com.ziningmei.mybatis.session;
 
 import java.io.IOException;
+import java.time.Duration;
 
 /**
  * @author ziningmei
@@ -23,4 +24,29 @@ public interface SqlSessionFactory {
      * @throws IOException
      */
     SqlSession openSession();
+
+    /**
+     * 使用指定的执行器类型获取SqlSession
+     *
+     * @param execType
+     * @return
+     */
+    SqlSession openSession(ExecutorType execType);
+
+    /**
+     * 使用指定的执行器类型和一级缓存范围获取SqlSession
+     *
+     * @param execType
+     * @param localCacheScope
+     * @return
+     */
+    SqlSession openSession(ExecutorType execType, LocalCacheScope localCacheScope);
+
+    /**
+     * 获取带截止时间的SqlSession，会话中的每条语句以剩余时间作为查询超时时间，到期仍未完成的语句被取消
+     *
+     * @param timeout
+     * @return
+     */
+    SqlSession openSession(Duration timeout);
 }
@@ -22,7 +22,7 @@ public class SqlSessionFactoryBuilder {
             // 解析XMLConfigBuilder
             XMLConfigBuilder parser = new XMLConfigBuilder(reader);
             // 根据configuration返回默认的sqlsession工厂
-            return new DefaultSqlSessionFactory(parser.parse());
+            return build(parser.parse());
         } catch (Exception e) {
             throw ExceptionFactory.wrapException("Error building SqlSession.", e);
         } finally {
@@ -34,5 +34,18 @@ public class SqlSessionFactoryBuilder {
         }
     }
 
+    /**
+     * 根据configuration获取SqlSessionFactory，开启 jmxEnabled 时注册 MBean
+     *
+     * @param configuration
+     * @return
+     */
+    public SqlSessionFactory build(Configuration configuration) {
+        DefaultSqlSessionFactory sqlSessionFactory = new DefaultSqlSessionFactory(configuration);
+        if (configuration.isJmxEnabled()) {
+            sqlSessionFactory.registerMBean();
+        }
+        return sqlSessionFactory;
+    }
 
 }
@@ -21,6 +21,7 @@ import com.ziningmei.mybatis.session.ResultContext;
 import com.ziningmei.mybatis.session.ResultHandler;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -39,6 +40,19 @@ public class DefaultResultHandler implements ResultHandler<Object> {
     list = objectFactory.create(List.class);
   }
 
+  /**
+   * 按预计的行数预分配结果集合，避免扩容复制
+   *
+   * @param objectFactory
+   * @param initialCapacity 不大于 0 时使用默认容量
+   */
+  @SuppressWarnings("unchecked")
+  public DefaultResultHandler(ObjectFactory objectFactory, int initialCapacity) {
+    list = initialCapacity > 0
+        ? objectFactory.create(List.class, Collections.singletonList(int.class), Collections.singletonList(initialCapacity))
+        : objectFactory.create(List.class);
+  }
+
   @Override
   public void handleResult(ResultContext<? extends Object> context) {
     list.add(context.getResultObject());
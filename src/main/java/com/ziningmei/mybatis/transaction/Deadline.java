@@ -0,0 +1,99 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.ziningmei.mybatis.transaction;
+
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 事务或单次调用的截止时间，基于 {@link System#nanoTime()}，不受系统时钟调整影响
+ */
+public final class Deadline {
+
+  private final long deadlineNanos;
+
+  private Deadline(long deadlineNanos) {
+    this.deadlineNanos = deadlineNanos;
+  }
+
+  /**
+   * 从现在开始经过 timeout 后到期
+   *
+   * @param timeout
+   * @return
+   */
+  public static Deadline after(Duration timeout) {
+    if (timeout == null || timeout.isNegative()) {
+      throw new IllegalArgumentException("Deadline timeout must not be null or negative: " + timeout);
+    }
+    return new Deadline(System.nanoTime() + timeout.toNanos());
+  }
+
+  /**
+   * 剩余的纳秒数，到期后为 0 或负数
+   *
+   * @return
+   */
+  public long remainingNanos() {
+    return deadlineNanos - System.nanoTime();
+  }
+
+  public boolean isExpired() {
+    return remainingNanos() <= 0;
+  }
+
+  /**
+   * 剩余时间向上取整的秒数，作为 JDBC 的查询超时时间，至少为 1 秒
+   *
+   * @return
+   */
+  public int remainingSeconds() {
+    long seconds = (Math.max(remainingNanos(), 0) + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1);
+    return (int) Math.min(Math.max(seconds, 1), Integer.MAX_VALUE);
+  }
+
+  /**
+   * 两个截止时间中较早的一个
+   *
+   * @param other
+   * @return
+   */
+  public Deadline min(Deadline other) {
+    if (other == null) {
+      return this;
+    }
+    return other.deadlineNanos - deadlineNanos < 0 ? other : this;
+  }
+
+  /**
+   * 已到期时抛出 {@link SQLTimeoutException}
+   *
+   * @throws SQLTimeoutException
+   */
+  public void check() throws SQLTimeoutException {
+    long remaining = remainingNanos();
+    if (remaining <= 0) {
+      throw new SQLTimeoutException("Deadline exceeded " + TimeUnit.NANOSECONDS.toMillis(-remaining) + " ms ago");
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "Deadline[remaining=" + TimeUnit.NANOSECONDS.toMillis(remainingNanos()) + "ms]";
+  }
+
+}
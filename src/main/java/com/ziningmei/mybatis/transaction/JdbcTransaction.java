@@ -17,6 +17,7 @@ package com.ziningmei.mybatis.transaction;
 
 import com.ziningmei.mybatis.logging.Log;
 import com.ziningmei.mybatis.logging.LogFactory;
+import com.ziningmei.mybatis.management.RuntimeCounters;
 import com.ziningmei.mybatis.session.TransactionIsolationLevel;
 
 import javax.sql.DataSource;
@@ -51,6 +52,16 @@ public class JdbcTransaction implements Transaction {
    */
   protected TransactionIsolationLevel level;
 
+  /**
+   * 截止时间
+   */
+  protected Deadline deadline;
+
+  /**
+   * 连接计数，连接计入后到关闭前 counted 为 true
+   */
+  protected RuntimeCounters counters;
+  private boolean counted;
 
   public JdbcTransaction(DataSource ds, TransactionIsolationLevel desiredLevel) {
     dataSource = ds;
@@ -93,7 +104,14 @@ public class JdbcTransaction implements Transaction {
       if (log.isDebugEnabled()) {
         log.debug("Closing JDBC Connection [" + connection + "]");
       }
-      connection.close();
+      try {
+        connection.close();
+      } finally {
+        if (counted) {
+          counted = false;
+          counters.connectionClosed();
+        }
+      }
     }
   }
 
@@ -124,15 +142,42 @@ public class JdbcTransaction implements Transaction {
       log.debug("Opening JDBC Connection");
     }
     connection = dataSource.getConnection();
+    if (counters != null) {
+      counted = true;
+      counters.connectionOpened();
+    }
     if (level != null) {
       connection.setTransactionIsolation(level.getLevel());
     }
     connection.setAutoCommit(false);
   }
 
+  /**
+   * 剩余时间（秒），截止时间已过时抛出 {@link java.sql.SQLTimeoutException}
+   */
   @Override
   public Integer getTimeout() throws SQLException {
-    return null;
+    if (deadline == null) {
+      return null;
+    }
+    deadline.check();
+    return deadline.remainingSeconds();
   }
-  
+
+  @Override
+  public Deadline getDeadline() {
+    return deadline;
+  }
+
+  @Override
+  public void setDeadline(Deadline deadline) {
+    this.deadline = deadline;
+  }
+
+  @Override
+  public void setRuntimeCounters(RuntimeCounters counters) {
+    this.counters = counters;
+  }
+
+
 }
@@ -15,6 +15,8 @@
  */
 package com.ziningmei.mybatis.transaction;
 
+import com.ziningmei.mybatis.management.RuntimeCounters;
+
 import java.sql.Connection;
 import java.sql.SQLException;
 
@@ -64,5 +66,28 @@ public interface Transaction {
    * @throws SQLException
    */
   Integer getTimeout() throws SQLException;
-  
+
+  /**
+   * 事务的截止时间
+   * @return 未设置时为 null
+   */
+  default Deadline getDeadline() {
+    return null;
+  }
+
+  /**
+   * 设置截止时间，之后每条语句以剩余时间作为查询超时时间，到期的语句会被取消
+   * @param deadline 为 null 时清除
+   */
+  default void setDeadline(Deadline deadline) {
+    throw new UnsupportedOperationException(getClass().getName() + " does not support deadlines");
+  }
+
+  /**
+   * 设置连接计数，取得和关闭连接时更新
+   * @param counters
+   */
+  default void setRuntimeCounters(RuntimeCounters counters) {
+  }
+
 }
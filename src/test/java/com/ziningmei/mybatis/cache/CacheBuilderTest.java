@@ -0,0 +1,65 @@
+package com.ziningmei.mybatis.cache;
+
+import com.ziningmei.mybatis.cache.decorators.LruCache;
+import com.ziningmei.mybatis.cache.decorators.TtlCache;
+import com.ziningmei.mybatis.cache.impl.OffHeapCache;
+import com.ziningmei.mybatis.cache.impl.PerpetualCache;
+import com.ziningmei.mybatis.mapping.CacheBuilder;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CacheBuilderTest {
+
+  @Test
+  public void ttlAppliesToCustomImplementations() throws Exception {
+    Cache cache = new CacheBuilder("offHeap")
+        .implementation(OffHeapCache.class)
+        .ttl(50L)
+        .size(8)
+        .stripes(4)
+        .build();
+    cache.putObject("key", Collections.singletonList(1));
+    assertEquals(Collections.singletonList(1), cache.getObject("key"));
+    Thread.sleep(100);
+    assertNull(cache.getObject("key"));
+  }
+
+  @Test
+  public void evictedEntriesLeaveTheExpirationTable() throws Exception {
+    //TtlCache 位于淘汰策略之下，淘汰的 key 同时从过期表中移除
+    TtlCache ttlCache = new TtlCache(new PerpetualCache("ttl"));
+    LruCache cache = new LruCache(ttlCache);
+    cache.setSize(2);
+    for (int i = 0; i < 100; i++) {
+      cache.putObject(i, i);
+    }
+    assertEquals(2, cache.getSize());
+    assertEquals(Integer.valueOf(99), cache.getObject(99));
+    assertEquals(2, expirations(ttlCache));
+
+    //被装饰的缓存自行淘汰时，过期表也保持有界
+    OffHeapCache offHeap = new OffHeapCache("offHeap");
+    offHeap.setSize(2);
+    TtlCache overOffHeap = new TtlCache(offHeap);
+    for (int i = 0; i < 1000; i++) {
+      overOffHeap.putObject(i, Collections.singletonList(i));
+    }
+    assertEquals(2, overOffHeap.getSize());
+    assertEquals(Collections.singletonList(999), overOffHeap.getObject(999));
+    assertTrue(expirations(overOffHeap) <= 2 * 2 + 16 + 1);
+  }
+
+  private static int expirations(TtlCache cache) throws Exception {
+    Field field = TtlCache.class.getDeclaredField("expirations");
+    field.setAccessible(true);
+    return ((Map<?, ?>) field.get(cache)).size();
+  }
+
+}
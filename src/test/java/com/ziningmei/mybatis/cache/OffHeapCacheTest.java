@@ -0,0 +1,61 @@
+package com.ziningmei.mybatis.cache;
+
+import com.ziningmei.mybatis.cache.impl.OffHeapCache;
+import com.ziningmei.mybatis.executor.Account;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class OffHeapCacheTest {
+
+  @Test
+  public void decodesStoredRowsIntoNewObjects() {
+    OffHeapCache cache = new OffHeapCache("offHeap");
+    List<Account> accounts = Arrays.asList(new Account(1, -100), new Account(2, null));
+    cache.putObject("key", accounts);
+
+    @SuppressWarnings("unchecked")
+    List<Account> cached = (List<Account>) cache.getObject("key");
+    assertEquals(2, cached.size());
+    assertNotSame(accounts.get(0), cached.get(0));
+    assertEquals(Integer.valueOf(-100), cached.get(0).getBalance());
+    assertEquals(Integer.valueOf(2), cached.get(1).getId());
+    assertNull(cached.get(1).getBalance());
+
+    assertNull(cache.getObject("missing"));
+    assertEquals(1, cache.getHits());
+    assertEquals(1, cache.getMisses());
+    assertTrue(cache.getUsedBytes() > 0);
+  }
+
+  @Test
+  public void evictsLeastRecentlyUsedWhenOverByteBound() {
+    OffHeapCache cache = new OffHeapCache("offHeap");
+    List<Integer> rows = new ArrayList<>(Collections.nCopies(100, 1));
+    cache.putObject(1, rows);
+    long entryBytes = cache.getUsedBytes();
+    cache.setMaxBytes(entryBytes * 2);
+
+    cache.putObject(2, rows);
+    cache.getObject(1);
+    cache.putObject(3, rows);
+
+    assertEquals(2, cache.getSize());
+    assertEquals(1, cache.getEvictions());
+    assertNull(cache.getObject(2));
+    assertEquals(entryBytes * 2, cache.getUsedBytes());
+
+    // 无法编码的结果不缓存
+    cache.putObject(4, Collections.singletonList(new Object()));
+    assertEquals(1, cache.getRejects());
+  }
+
+}
@@ -0,0 +1,61 @@
+package com.ziningmei.mybatis.cursor.defaults;
+
+import com.ziningmei.mybatis.BaseDataTest;
+import com.ziningmei.mybatis.cursor.Cursor;
+import com.ziningmei.mybatis.executor.Account;
+import com.ziningmei.mybatis.executor.AccountMapper;
+import com.ziningmei.mybatis.io.Resources;
+import com.ziningmei.mybatis.session.SqlSession;
+import com.ziningmei.mybatis.session.SqlSessionFactory;
+import com.ziningmei.mybatis.session.SqlSessionFactoryBuilder;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.Reader;
+import java.util.Iterator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DefaultCursorTest {
+
+    private static SqlSessionFactory sqlSessionFactory;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        try (Reader reader = Resources.getResourceAsReader("com/ziningmei/mybatis/executor/mybatis-config.xml")) {
+            sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+        }
+
+        BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+                "com/ziningmei/mybatis/executor/CreateDB.sql");
+    }
+
+    @Test
+    public void cursorMapsOneRowPerNext() throws Exception {
+        try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+            Iterator<Account> iterator;
+            try (Cursor<Account> cursor = sqlSession.getMapper(AccountMapper.class).scanAccounts()) {
+                assertFalse(cursor.isOpen());
+                assertEquals(-1, cursor.getCurrentIndex());
+                iterator = cursor.iterator();
+                assertEquals(Integer.valueOf(1), iterator.next().getId());
+                assertTrue(cursor.isOpen());
+                assertEquals(0, cursor.getCurrentIndex());
+                assertEquals(Integer.valueOf(2), iterator.next().getId());
+                assertEquals(Integer.valueOf(3), iterator.next().getId());
+                assertFalse(iterator.hasNext());
+                assertTrue(cursor.isConsumed());
+                assertEquals(2, cursor.getCurrentIndex());
+            }
+
+            // 会话关闭时关闭未读完的游标
+            Cursor<Account> cursor = sqlSession.selectCursor("com.ziningmei.mybatis.executor.AccountMapper.scanAccounts", null);
+            assertTrue(cursor.iterator().hasNext());
+            sqlSession.close();
+            assertFalse(cursor.isOpen());
+        }
+    }
+
+}
@@ -0,0 +1,406 @@
+package com.ziningmei.mybatis.datasource;
+
+import com.ziningmei.mybatis.datasource.pooled.CachedStatement;
+import com.ziningmei.mybatis.datasource.pooled.PooledDataSource;
+import com.ziningmei.mybatis.datasource.pooled.PooledDataSourceFactory;
+import com.ziningmei.mybatis.session.Configuration;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PooledDataSourceTest {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    private PooledDataSource dataSource;
+
+    @Before
+    public void setUp() {
+        dataSource = new PooledDataSource("org.hsqldb.jdbcDriver", "jdbc:hsqldb:mem:pooled", "sa", null);
+        dataSource.setPoolMaximumSize(2);
+        dataSource.setPoolMaximumWait(5000);
+    }
+
+    @After
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Test
+    public void factoryIsRegisteredUnderPooledAlias() throws Exception {
+        Configuration configuration = new Configuration();
+        DataSourceFactory factory = (DataSourceFactory) configuration.getTypeAliasRegistry().resolveAlias("POOLED").getDeclaredConstructor().newInstance();
+        assertSame(PooledDataSourceFactory.class, factory.getClass());
+        Properties properties = new Properties();
+        properties.setProperty("driver", "org.hsqldb.jdbcDriver");
+        properties.setProperty("url", "jdbc:hsqldb:mem:pooled");
+        properties.setProperty("username", "sa");
+        properties.setProperty("poolMaximumSize", "3");
+        properties.setProperty("poolMaximumWait", "1000");
+        factory.setProperties(properties);
+        PooledDataSource pooled = (PooledDataSource) factory.getDataSource();
+        try {
+            assertEquals(3, pooled.getPoolMaximumSize());
+            assertEquals(1000, pooled.getPoolMaximumWait());
+            try (Connection connection = pooled.getConnection()) {
+                assertTrue(connection.isValid(1));
+            }
+        } finally {
+            pooled.close();
+        }
+    }
+
+    @Test
+    public void returnedConnectionsAreReused() throws Exception {
+        Connection first = dataSource.getConnection();
+        Connection physical = first.unwrap(Connection.class);
+        assertEquals(1, dataSource.getActiveConnections());
+        first.close();
+        assertTrue(first.isClosed());
+        try {
+            first.createStatement();
+            fail();
+        } catch (SQLException e) {
+            // expected
+        }
+        assertEquals(0, dataSource.getActiveConnections());
+        assertEquals(1, dataSource.getIdleConnections());
+
+        try (Connection second = dataSource.getConnection()) {
+            assertNotSame(first, second);
+            assertSame(physical, second.unwrap(Connection.class));
+            try (Statement statement = second.createStatement()) {
+                statement.execute("VALUES 1");
+            }
+        }
+        assertEquals(1, dataSource.getCreatedCount());
+        assertEquals(2, dataSource.getWaitTimeHistogram().getCount());
+    }
+
+    @Test
+    public void borrowWaitsForReturnedConnectionAndTimesOut() throws Exception {
+        Connection first = dataSource.getConnection();
+        Connection second = dataSource.getConnection();
+        assertEquals(2, dataSource.getActiveConnections());
+
+        dataSource.setPoolMaximumWait(200);
+        long start = System.nanoTime();
+        try {
+            dataSource.getConnection();
+            fail();
+        } catch (SQLTransientConnectionException e) {
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 190);
+        }
+        assertEquals(1, dataSource.getTimeoutCount());
+        assertEquals(2, dataSource.getTotalConnections());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            dataSource.setPoolMaximumWait(5000);
+            Future<Connection> waiter = executor.submit(() -> dataSource.getConnection().unwrap(Connection.class));
+            while (dataSource.getWaitingThreads() == 0) {
+                Thread.sleep(1);
+            }
+            Connection physical = first.unwrap(Connection.class);
+            first.close();
+            assertSame(physical, waiter.get(1, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdown();
+        }
+        second.close();
+    }
+
+    @Test
+    public void connectionsPastMaximumLifetimeAreReplaced() throws Exception {
+        dataSource.setPoolMaximumLifetime(20);
+        Connection physical;
+        try (Connection connection = dataSource.getConnection()) {
+            physical = connection.unwrap(Connection.class);
+        }
+        Thread.sleep(40);
+        try (Connection connection = dataSource.getConnection()) {
+            assertNotSame(physical, connection.unwrap(Connection.class));
+        }
+        //物理连接在后台线程关闭
+        await(() -> isClosed(physical));
+        assertTrue(dataSource.getClosedCount() >= 1);
+    }
+
+    @Test
+    public void housekeeperReplacesIdleConnectionsThatFailValidation() throws Exception {
+        dataSource.setPoolHousekeepingPeriod(50);
+        dataSource.setPoolPingQuery("VALUES 1");
+        dataSource.setPoolMinimumIdle(1);
+        Connection physical;
+        try (Connection connection = dataSource.getConnection()) {
+            physical = connection.unwrap(Connection.class);
+        }
+        //连接在池外被关闭，由后台线程发现并替换，借出的线程不需要校验
+        physical.close();
+        await(() -> dataSource.getValidationFailureCount() == 1 && dataSource.getIdleConnections() == 1);
+        try (Connection connection = dataSource.getConnection()) {
+            assertNotSame(physical, connection.unwrap(Connection.class));
+            assertFalse(connection.isClosed());
+        }
+        assertEquals(2, dataSource.getCreatedCount());
+    }
+
+    @Test
+    public void housekeeperEvictsIdleConnectionsAndTopsUpMinimumIdle() throws Exception {
+        dataSource.setPoolMaximumSize(4);
+        dataSource.setPoolHousekeepingPeriod(50);
+        dataSource.setPoolMaximumIdleTime(100);
+        Connection first = dataSource.getConnection();
+        Connection second = dataSource.getConnection();
+        first.close();
+        second.close();
+        assertEquals(2, dataSource.getIdleConnections());
+        await(() -> dataSource.getTotalConnections() == 0);
+        assertEquals(2, dataSource.getClosedCount());
+
+        dataSource.setPoolMinimumIdle(2);
+        try (Connection connection = dataSource.getConnection()) {
+            assertFalse(connection.isClosed());
+            await(() -> dataSource.getIdleConnections() == 2);
+            assertEquals(3, dataSource.getTotalConnections());
+            assertEquals(1, dataSource.getActiveConnections());
+        }
+        //空闲连接不少于最小值时不再关闭
+        Thread.sleep(300);
+        assertTrue(dataSource.getIdleConnections() >= 2);
+    }
+
+    @Test
+    public void warmUpOpensConnectionsInParallel() throws Exception {
+        PooledDataSourceFactory factory = new PooledDataSourceFactory();
+        Properties properties = new Properties();
+        properties.setProperty("driver", "org.hsqldb.jdbcDriver");
+        properties.setProperty("url", "jdbc:hsqldb:mem:pooled");
+        properties.setProperty("username", "sa");
+        properties.setProperty("poolWarmUpSize", "4");
+        factory.setProperties(properties);
+        PooledDataSource pooled = (PooledDataSource) factory.getDataSource();
+        try {
+            //默认等待预热完成
+            assertEquals(4, pooled.getIdleConnections());
+            assertEquals(4, pooled.getCreatedCount());
+            try (Connection connection = pooled.getConnection()) {
+                assertTrue(connection.isValid(1));
+            }
+            assertEquals(4, pooled.getCreatedCount());
+        } finally {
+            pooled.close();
+        }
+
+        CompletableFuture<Integer> warmUp = dataSource.warmUp(5);
+        assertEquals(Integer.valueOf(2), warmUp.get(5, TimeUnit.SECONDS));
+        assertEquals(2, dataSource.getIdleConnections());
+        assertEquals(Integer.valueOf(0), dataSource.warmUp(1).get());
+    }
+
+    @Test
+    public void concurrentBorrowersNeverExceedMaximumSize() throws Exception {
+        dataSource.setPoolMaximumSize(4);
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 200; j++) {
+                        try (Connection connection = dataSource.getConnection()) {
+                            assertTrue(dataSource.getTotalConnections() <= 4);
+                            connection.getAutoCommit();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(0, dataSource.getActiveConnections());
+        assertTrue(dataSource.getCreatedCount() <= 4);
+        assertEquals(3200, dataSource.getWaitTimeHistogram().getCount());
+        assertEquals(0, dataSource.getTimeoutCount());
+    }
+
+    @Test
+    public void preparedStatementsAreCachedPerPhysicalConnection() throws Exception {
+        dataSource.setPoolMaximumSize(1);
+        dataSource.setPoolPreparedStatementCacheSize(2);
+        PreparedStatement physical;
+        try (Connection connection = dataSource.getConnection()) {
+            PreparedStatement ps = connection.prepareStatement("select count(*) from INFORMATION_SCHEMA.SYSTEM_USERS where USER_NAME = ?");
+            assertFalse(((CachedStatement) ps).isCacheHit());
+            assertSame(connection, ps.getConnection());
+            physical = ps.unwrap(PreparedStatement.class);
+            ps.setString(1, "SA");
+            ps.setQueryTimeout(5);
+            ps.executeQuery().close();
+            ps.close();
+            assertTrue(ps.isClosed());
+            try {
+                ps.executeQuery();
+                fail();
+            } catch (SQLException e) {
+                // expected
+            }
+        }
+        assertEquals(1, dataSource.getCachedStatementCount());
+
+        //下一次借出拿到同一个物理语句，上次的参数和超时已清理
+        try (Connection connection = dataSource.getConnection()) {
+            PreparedStatement ps = connection.prepareStatement("select count(*) from INFORMATION_SCHEMA.SYSTEM_USERS where USER_NAME = ?");
+            assertTrue(((CachedStatement) ps).isCacheHit());
+            assertSame(physical, ps.unwrap(PreparedStatement.class));
+            assertEquals(0, ps.getQueryTimeout());
+            try {
+                ps.executeQuery();
+                fail();
+            } catch (SQLException e) {
+                // 参数已清空
+            }
+            ps.close();
+            //没有关闭的语句在连接归还时放回缓存
+            connection.prepareStatement("values 1");
+            connection.prepareStatement("values 2").close();
+        }
+        assertEquals(2, dataSource.getCachedStatementCount());
+        assertTrue(physical.isClosed());
+        assertEquals(1, dataSource.getStatementCacheHitCount());
+        assertEquals(3, dataSource.getStatementCacheMissCount());
+
+        dataSource.close();
+        assertEquals(0, dataSource.getCachedStatementCount());
+    }
+
+    @Test
+    public void tenThousandConcurrentBorrowersAllGetConnections() throws Exception {
+        dataSource.setPoolMaximumSize(8);
+        dataSource.setPoolMaximumWait(60000);
+        final int tasks = 10000;
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = newVirtualThreadPerTaskExecutor();
+        Assume.assumeNotNull(executor);
+        Object recording = startPinnedRecording();
+        try {
+            List<Future<?>> futures = new ArrayList<>(tasks);
+            for (int i = 0; i < tasks; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try (Connection connection = dataSource.getConnection()) {
+                        assertTrue(dataSource.getTotalConnections() <= 8);
+                        connection.getAutoCommit();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(0, dataSource.getActiveConnections());
+        assertTrue(dataSource.getCreatedCount() <= 8);
+        assertEquals(tasks, dataSource.getWaitTimeHistogram().getCount());
+        assertEquals(0, dataSource.getTimeoutCount());
+        //等待连接的虚拟线程不能钉住载体线程
+        if (recording != null) {
+            assertEquals(0, stopAndCountEvents(recording, PINNED_EVENT));
+        }
+    }
+
+    /**
+     * 运行时不支持虚拟线程时返回 null
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 用 JFR 记录虚拟线程钉住载体线程的事件，运行时没有 JFR 时返回 null
+     */
+    private static Object startPinnedRecording() {
+        try {
+            Object recording = Class.forName("jdk.jfr.Recording").getConstructor().newInstance();
+            recording.getClass().getMethod("enable", String.class).invoke(recording, PINNED_EVENT);
+            recording.getClass().getMethod("start").invoke(recording);
+            return recording;
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static int stopAndCountEvents(Object recording, String eventName) throws Exception {
+        Path file = Files.createTempFile("pooled-data-source", ".jfr");
+        try {
+            recording.getClass().getMethod("stop").invoke(recording);
+            recording.getClass().getMethod("dump", Path.class).invoke(recording, file);
+            List<?> events = (List<?>) Class.forName("jdk.jfr.consumer.RecordingFile")
+                    .getMethod("readAllEvents", Path.class).invoke(null, file);
+            int count = 0;
+            for (Object event : events) {
+                Object type = event.getClass().getMethod("getEventType").invoke(event);
+                if (eventName.equals(type.getClass().getMethod("getName").invoke(type))) {
+                    count++;
+                }
+            }
+            return count;
+        } finally {
+            ((AutoCloseable) recording).close();
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static boolean isClosed(Connection connection) {
+        try {
+            return connection.isClosed();
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue("condition not met in time", System.nanoTime() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+}
@@ -0,0 +1,54 @@
+package com.ziningmei.mybatis.executor;
+
+import java.util.List;
+
+/**
+ * 账户，测试类
+ */
+public class Account {
+
+  private Integer id;
+  private Integer balance;
+  private List<Deposit> deposits;
+  private Deposit latestDeposit;
+
+  public Account() {
+  }
+
+  public Account(Integer id, Integer balance) {
+    this.id = id;
+    this.balance = balance;
+  }
+
+  public Integer getId() {
+    return id;
+  }
+
+  public void setId(Integer id) {
+    this.id = id;
+  }
+
+  public Integer getBalance() {
+    return balance;
+  }
+
+  public void setBalance(Integer balance) {
+    this.balance = balance;
+  }
+
+  public List<Deposit> getDeposits() {
+    return deposits;
+  }
+
+  public void setDeposits(List<Deposit> deposits) {
+    this.deposits = deposits;
+  }
+
+  public Deposit getLatestDeposit() {
+    return latestDeposit;
+  }
+
+  public void setLatestDeposit(Deposit latestDeposit) {
+    this.latestDeposit = latestDeposit;
+  }
+}
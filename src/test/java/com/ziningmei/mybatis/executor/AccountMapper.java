@@ -0,0 +1,120 @@
+package com.ziningmei.mybatis.executor;
+
+import com.ziningmei.mybatis.annotation.Delete;
+import com.ziningmei.mybatis.annotation.Insert;
+import com.ziningmei.mybatis.annotation.Many;
+import com.ziningmei.mybatis.annotation.One;
+import com.ziningmei.mybatis.annotation.Options;
+import com.ziningmei.mybatis.annotation.Result;
+import com.ziningmei.mybatis.annotation.Results;
+import com.ziningmei.mybatis.annotation.Select;
+import com.ziningmei.mybatis.annotation.Update;
+
+import com.ziningmei.mybatis.cursor.Cursor;
+import com.ziningmei.mybatis.reactive.Publisher;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public interface AccountMapper {
+
+  @Select("SELECT * FROM account WHERE id = #{id}")
+  Account getAccount(int id);
+
+  @Select("SELECT * FROM account WHERE id = #{id}")
+  CompletableFuture<Account> getAccountAsync(int id);
+
+  @Options(singleFlight = true)
+  @Select("SELECT * FROM account WHERE id = #{id}")
+  Account getAccountShared(int id);
+
+  @Select("SELECT * FROM account WHERE id >= #{id} ORDER BY id")
+  CompletableFuture<List<Account>> getAccountsFromAsync(int id);
+
+  @Options(mappingThreads = 3)
+  @Select("SELECT * FROM account WHERE id >= #{id} ORDER BY id")
+  List<Account> getAccountsFromPipelined(int id);
+
+  @Options(mappingThreads = 2)
+  @Select("SELECT CAST(id AS VARCHAR(10)) AS id, CAST(balance AS BIGINT) AS balance FROM account WHERE id >= #{id} ORDER BY id")
+  List<Account> getConvertedAccountsFromPipelined(int id);
+
+  @Select("SELECT * FROM deposit WHERE accountId = #{accountId} ORDER BY id")
+  List<Deposit> getDeposits(int accountId);
+
+  @Select("SELECT * FROM deposit WHERE accountId = #{accountId} ORDER BY id DESC LIMIT 1")
+  Deposit getLatestDeposit(int accountId);
+
+  @Results({
+      @Result(property = "id", column = "id"),
+      @Result(property = "latestDeposit", column = "id", one = @One(select = "getLatestDeposit", batchSize = 3))
+  })
+  @Select("SELECT * FROM account WHERE id <= 3 ORDER BY id")
+  List<Account> getAccountsWithLatestDeposit();
+
+  @Results({
+      @Result(property = "id", column = "id"),
+      @Result(property = "deposits", column = "id", many = @Many(select = "getDeposits", batchSize = 2))
+  })
+  @Select("SELECT * FROM account WHERE id <= 3 ORDER BY id")
+  List<Account> getAccountsWithDeposits();
+
+  @Select("SELECT id, amount FROM deposit WHERE accountId = #{accountId} ORDER BY id")
+  List<Deposit> getDepositAmounts(int accountId);
+
+  @Results({
+      @Result(property = "id", column = "id"),
+      @Result(property = "deposits", column = "id", many = @Many(select = "getDepositAmounts", batchSize = 3))
+  })
+  @Select("SELECT * FROM account WHERE id <= 3 ORDER BY id")
+  List<Account> getAccountsWithDepositAmounts();
+
+  @Results(id = "depositMap", value = {
+      @Result(id = true, property = "id", column = "id"),
+      @Result(property = "accountId", column = "accountId"),
+      @Result(property = "amount", column = "amount")
+  })
+  @Select("SELECT * FROM deposit WHERE id = #{id}")
+  Deposit getDeposit(int id);
+
+  @Results({
+      @Result(id = true, property = "id", column = "id"),
+      @Result(property = "balance", column = "balance"),
+      @Result(property = "deposits", many = @Many(resultMap = "depositMap", columnPrefix = "d_"))
+  })
+  @Select("SELECT a.id, a.balance, d.id AS d_id, d.accountId AS d_accountId, d.amount AS d_amount"
+      + " FROM account a LEFT JOIN deposit d ON d.accountId = a.id WHERE a.id <= 4 ORDER BY a.id, d.id")
+  List<Account> getAccountsJoinDeposits();
+
+  @Results({
+      @Result(property = "id", column = "id"),
+      @Result(property = "balance", column = "balance"),
+      @Result(property = "deposits", many = @Many(resultMap = "depositMap", columnPrefix = "d_"))
+  })
+  @Select("SELECT a.id, a.balance, d.id AS d_id, d.accountId AS d_accountId, d.amount AS d_amount"
+      + " FROM account a LEFT JOIN deposit d ON d.accountId = a.id WHERE a.id <= 3 ORDER BY a.id, d.id")
+  List<Account> getAccountsJoinDepositsWithoutId();
+
+  @Results({
+      @Result(property = "deposits", many = @Many(resultMap = "depositMap", columnPrefix = "d_"))
+  })
+  @Select("SELECT a.id, a.balance, d.id AS d_id, d.accountId AS d_accountId, d.amount AS d_amount"
+      + " FROM account a LEFT JOIN deposit d ON d.accountId = a.id WHERE a.id <= 3 ORDER BY a.id, d.id")
+  List<Account> getAutoMappedAccountsJoinDeposits();
+
+  @Select("SELECT * FROM account WHERE id <= 3 ORDER BY id")
+  Cursor<Account> scanAccounts();
+
+  @Select("SELECT * FROM account WHERE id <= 3 ORDER BY id")
+  Publisher<Account> streamAccounts();
+
+  @Insert("INSERT INTO account (id, balance) VALUES (#{id}, #{balance})")
+  int insertAccount(Account account);
+
+  @Update("UPDATE account SET balance = #{balance} WHERE id = #{id}")
+  boolean updateAccount(Account account);
+
+  @Delete("DELETE FROM account WHERE id = #{id}")
+  long deleteAccount(int id);
+
+}
@@ -0,0 +1,16 @@
+package com.ziningmei.mybatis.executor;
+
+import com.ziningmei.mybatis.annotation.CacheNamespace;
+import com.ziningmei.mybatis.annotation.Select;
+import com.ziningmei.mybatis.annotation.Update;
+
+@CacheNamespace(size = 64, stripes = 4)
+public interface CachedAccountMapper {
+
+  @Select("SELECT * FROM account WHERE id = #{id}")
+  Account getAccount(int id);
+
+  @Update("UPDATE account SET balance = #{balance} WHERE id = #{id}")
+  boolean updateAccount(Account account);
+
+}
@@ -0,0 +1,55 @@
+package com.ziningmei.mybatis.executor;
+
+import com.ziningmei.mybatis.BaseDataTest;
+import com.ziningmei.mybatis.io.Resources;
+import com.ziningmei.mybatis.session.SqlSession;
+import com.ziningmei.mybatis.session.SqlSessionFactory;
+import com.ziningmei.mybatis.session.SqlSessionFactoryBuilder;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.Reader;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class CachingExecutorTest {
+
+    private static SqlSessionFactory sqlSessionFactory;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        try (Reader reader = Resources.getResourceAsReader("com/ziningmei/mybatis/executor/mybatis-config.xml")) {
+            sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+        }
+
+        BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+                "com/ziningmei/mybatis/executor/CreateDB.sql");
+    }
+
+    @Test
+    public void secondLevelCacheIsSharedAfterCommit() {
+        Account cached;
+        try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+            CachedAccountMapper mapper = sqlSession.getMapper(CachedAccountMapper.class);
+            cached = mapper.getAccount(2);
+            try (SqlSession other = sqlSessionFactory.openSession()) {
+                // 未提交前其他会话看不到
+                assertNotSame(cached, other.getMapper(CachedAccountMapper.class).getAccount(2));
+                other.rollback(true);
+            }
+        }
+        try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+            CachedAccountMapper mapper = sqlSession.getMapper(CachedAccountMapper.class);
+            assertSame(cached, mapper.getAccount(2));
+
+            // 提交的写操作会清空命名空间缓存
+            mapper.updateAccount(new Account(2, 200));
+            sqlSession.commit();
+        }
+        try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+            assertNotSame(cached, sqlSession.getMapper(CachedAccountMapper.class).getAccount(2));
+        }
+    }
+
+}
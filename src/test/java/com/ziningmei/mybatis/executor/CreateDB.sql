@@ -0,0 +1,44 @@
+--
+--    Copyright 2009-2018 the original author or authors.
+--
+--    Licensed under the Apache License, Version 2.0 (the "License");
+--    you may not use this file except in compliance with the License.
+--    You may obtain a copy of the License at
+--
+--       http://www.apache.org/licenses/LICENSE-2.0
+--
+--    Unless required by applicable law or agreed to in writing, software
+--    distributed under the License is distributed on an "AS IS" BASIS,
+--    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--    See the License for the specific language governing permissions and
+--    limitations under the License.
+--
+
+DROP TABLE account
+IF EXISTS;
+
+CREATE TABLE account (
+  id      INT NOT NULL,
+  balance INT
+);
+
+INSERT INTO account VALUES
+  (1, 100),
+  (2, 200),
+  (3, 300);
+
+DROP TABLE deposit
+IF EXISTS;
+
+CREATE TABLE deposit (
+  id        INT NOT NULL,
+  accountId INT NOT NULL,
+  amount    INT
+);
+
+INSERT INTO deposit VALUES
+  (1, 1, 10),
+  (2, 1, 20),
+  (3, 2, 30),
+  (4, 3, 40),
+  (5, 3, 50);
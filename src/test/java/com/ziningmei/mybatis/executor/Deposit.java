@@ -0,0 +1,35 @@
+package com.ziningmei.mybatis.executor;
+
+/**
+ * 存款记录，测试类
+ */
+public class Deposit {
+
+  private Integer id;
+  private Integer accountId;
+  private Integer amount;
+
+  public Integer getId() {
+    return id;
+  }
+
+  public void setId(Integer id) {
+    this.id = id;
+  }
+
+  public Integer getAccountId() {
+    return accountId;
+  }
+
+  public void setAccountId(Integer accountId) {
+    this.accountId = accountId;
+  }
+
+  public Integer getAmount() {
+    return amount;
+  }
+
+  public void setAmount(Integer amount) {
+    this.amount = amount;
+  }
+}
@@ -0,0 +1,114 @@
+package com.ziningmei.mybatis.executor;
+
+import com.ziningmei.mybatis.BaseDataTest;
+import com.ziningmei.mybatis.io.Resources;
+import com.ziningmei.mybatis.mapping.MappedStatement;
+import com.ziningmei.mybatis.session.Configuration;
+import com.ziningmei.mybatis.session.Environment;
+import com.ziningmei.mybatis.session.ExecutorType;
+import com.ziningmei.mybatis.session.RowBounds;
+import com.ziningmei.mybatis.session.SqlSession;
+import com.ziningmei.mybatis.session.SqlSessionFactory;
+import com.ziningmei.mybatis.session.SqlSessionFactoryBuilder;
+import com.ziningmei.mybatis.transaction.Transaction;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.Reader;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class ExecutorTypeTest {
+
+    private static SqlSessionFactory sqlSessionFactory;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        try (Reader reader = Resources.getResourceAsReader("com/ziningmei/mybatis/executor/mybatis-config.xml")) {
+            sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+        }
+
+        BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+                "com/ziningmei/mybatis/executor/CreateDB.sql");
+    }
+
+    @Test
+    public void reuseExecutorPreparesEachSqlOnce() throws Exception {
+        Configuration configuration = sqlSessionFactory.getConfiguration();
+        MappedStatement ms = configuration.getMappedStatement("com.ziningmei.mybatis.executor.AccountMapper.getAccount");
+        Executor executor = newExecutor(ExecutorType.REUSE);
+        try {
+            assertTrue(executor instanceof ReuseExecutor);
+            ReuseExecutor reuseExecutor = (ReuseExecutor) executor;
+            for (int id = 1; id <= 3; id++) {
+                List<Account> accounts = executor.query(ms, id, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+                assertEquals(Integer.valueOf(id * 100), accounts.get(0).getBalance());
+            }
+            assertEquals(1, reuseExecutor.getMissCount());
+            assertEquals(2, reuseExecutor.getHitCount());
+            assertEquals(1, reuseExecutor.getCachedStatementCount());
+
+            executor.commit(true);
+            assertEquals(0, reuseExecutor.getCachedStatementCount());
+        } finally {
+            executor.close(false);
+        }
+    }
+
+    @Test
+    public void batchExecutorGroupsConsecutiveStatements() throws Exception {
+        Configuration configuration = sqlSessionFactory.getConfiguration();
+        MappedStatement insert = configuration.getMappedStatement("com.ziningmei.mybatis.executor.AccountMapper.insertAccount");
+        MappedStatement select = configuration.getMappedStatement("com.ziningmei.mybatis.executor.AccountMapper.getAccount");
+        Executor executor = newExecutor(ExecutorType.BATCH);
+        try {
+            for (int id = 10; id < 13; id++) {
+                assertEquals(BatchExecutor.BATCH_UPDATE_RETURN_VALUE, executor.update(insert, new Account(id, id)));
+            }
+            List<BatchResult> results = executor.flushStatements();
+            assertEquals(1, results.size());
+            assertEquals(3, results.get(0).getParameterObjects().size());
+            assertArrayEquals(new int[]{1, 1, 1}, results.get(0).getUpdateCounts());
+
+            // 查询前会先执行积压的批次
+            executor.update(insert, new Account(13, 13));
+            List<Account> accounts = executor.query(select, 13, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+            assertEquals(1, accounts.size());
+            assertTrue(executor.flushStatements().isEmpty());
+        } finally {
+            executor.close(true);
+        }
+    }
+
+    @Test
+    public void writesGoThroughMapperAndCommitWhenDirty() {
+        try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+            AccountMapper mapper = sqlSession.getMapper(AccountMapper.class);
+            assertEquals(1, mapper.insertAccount(new Account(20, 1)));
+            assertTrue(mapper.updateAccount(new Account(20, 2)));
+            sqlSession.commit();
+        }
+        try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+            AccountMapper mapper = sqlSession.getMapper(AccountMapper.class);
+            assertEquals(Integer.valueOf(2), mapper.getAccount(20).getBalance());
+            assertEquals(1L, mapper.deleteAccount(20));
+            // 未提交的修改在回滚后不可见
+            sqlSession.rollback();
+            assertNotNull(mapper.getAccount(20));
+        }
+    }
+
+    private Executor newExecutor(ExecutorType executorType) {
+        Configuration configuration = sqlSessionFactory.getConfiguration();
+        Environment environment = configuration.getEnvironment();
+        Transaction tx = environment.getTransactionFactory().newTransaction(environment.getDataSource(), null);
+        Executor executor = configuration.newExecutor(tx, executorType);
+        // 去掉二级缓存装饰，直接测试底层执行器
+        return executor instanceof CachingExecutor ? ((CachingExecutor) executor).getDelegate() : executor;
+    }
+
+}
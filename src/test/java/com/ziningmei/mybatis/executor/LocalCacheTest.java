@@ -0,0 +1,51 @@
+package com.ziningmei.mybatis.executor;
+
+import com.ziningmei.mybatis.BaseDataTest;
+import com.ziningmei.mybatis.io.Resources;
+import com.ziningmei.mybatis.session.ExecutorType;
+import com.ziningmei.mybatis.session.LocalCacheScope;
+import com.ziningmei.mybatis.session.SqlSession;
+import com.ziningmei.mybatis.session.SqlSessionFactory;
+import com.ziningmei.mybatis.session.SqlSessionFactoryBuilder;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.Reader;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class LocalCacheTest {
+
+    private static SqlSessionFactory sqlSessionFactory;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        try (Reader reader = Resources.getResourceAsReader("com/ziningmei/mybatis/executor/mybatis-config.xml")) {
+            sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+        }
+
+        BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+                "com/ziningmei/mybatis/executor/CreateDB.sql");
+    }
+
+    @Test
+    public void localCacheServesRepeatedQueriesInSession() {
+        try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+            AccountMapper mapper = sqlSession.getMapper(AccountMapper.class);
+            Account first = mapper.getAccount(1);
+            assertSame(first, mapper.getAccount(1));
+            assertNotSame(first, mapper.getAccount(2));
+
+            // 增删改会清空一级缓存
+            mapper.updateAccount(new Account(3, 300));
+            assertNotSame(first, mapper.getAccount(1));
+            sqlSession.rollback();
+        }
+        try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.SIMPLE, LocalCacheScope.STATEMENT)) {
+            AccountMapper mapper = sqlSession.getMapper(AccountMapper.class);
+            assertNotSame(mapper.getAccount(1), mapper.getAccount(1));
+        }
+    }
+
+}
@@ -0,0 +1,146 @@
+package com.ziningmei.mybatis.executor;
+
+import com.ziningmei.mybatis.BaseDataTest;
+import com.ziningmei.mybatis.datasource.replica.LeastOutstandingReplicaSelector;
+import com.ziningmei.mybatis.datasource.replica.ReplicaSet;
+import com.ziningmei.mybatis.exception.PersistenceException;
+import com.ziningmei.mybatis.io.Resources;
+import com.ziningmei.mybatis.session.Environment;
+import com.ziningmei.mybatis.session.SqlSession;
+import com.ziningmei.mybatis.session.SqlSessionFactory;
+import com.ziningmei.mybatis.session.SqlSessionFactoryBuilder;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ReadWriteSplittingTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+  private static ReplicaSet replicaSet;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("com/ziningmei/mybatis/executor/replica-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    Environment environment = sqlSessionFactory.getConfiguration().getEnvironment();
+    replicaSet = environment.getReplicaSet();
+    BaseDataTest.runScript(environment.getDataSource(), "com/ziningmei/mybatis/executor/CreateDB.sql");
+    BaseDataTest.runScript(replicaSet.getReplica(0), "com/ziningmei/mybatis/executor/CreateDB.sql");
+    //从库上的数据与主库不同，便于区分查询落在哪个库
+    try (Connection connection = replicaSet.getReplica(0).getConnection(); Statement statement = connection.createStatement()) {
+      statement.executeUpdate("UPDATE account SET balance = 999 WHERE id = 1");
+    }
+  }
+
+  @Test
+  public void readsGoToReplicaUntilFirstWrite() {
+    assertTrue(replicaSet.getSelector() instanceof LeastOutstandingReplicaSelector);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      AccountMapper mapper = sqlSession.getMapper(AccountMapper.class);
+      assertEquals(Integer.valueOf(999), mapper.getAccount(1).getBalance());
+
+      mapper.insertAccount(new Account(10, 1000));
+      assertEquals(Integer.valueOf(100), mapper.getAccount(1).getBalance());
+      assertEquals(Integer.valueOf(1000), mapper.getAccount(10).getBalance());
+
+      //提交之后仍然留在主库
+      sqlSession.commit();
+      assertEquals(Integer.valueOf(100), mapper.getAccount(1).getBalance());
+      mapper.deleteAccount(10);
+      sqlSession.commit();
+    }
+    assertEquals(0, replicaSet.getOutstanding(0));
+  }
+
+  @Test
+  public void deadlinesApplyToReplicaReads() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(Duration.ofMillis(1))) {
+      Thread.sleep(20);
+      try {
+        sqlSession.getMapper(AccountMapper.class).getAccount(1);
+        fail("Expected the expired session deadline to fail the replica read");
+      } catch (PersistenceException e) {
+        assertTrue(e.getCause() instanceof SQLTimeoutException);
+      }
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      AccountMapper mapper = sqlSession.getMapper(AccountMapper.class);
+      //从库执行器已经创建之后再设置的截止时间
+      assertEquals(Integer.valueOf(999), mapper.getAccount(1).getBalance());
+      try {
+        sqlSession.withDeadline(Duration.ofMillis(1), () -> {
+          try {
+            Thread.sleep(20);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          return mapper.getAccount(2);
+        });
+        fail("Expected the expired call deadline to fail the replica read");
+      } catch (PersistenceException e) {
+        assertTrue(e.getCause() instanceof SQLTimeoutException);
+      }
+      assertEquals(Integer.valueOf(999), mapper.getAccount(1).getBalance());
+    }
+  }
+
+  @Test
+  public void laggingReplicaFallsBackToPrimary() {
+    long fallbacks = replicaSet.getPrimaryFallbackCount();
+    replicaSet.reportLag(0, 5000);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals(Integer.valueOf(100), sqlSession.getMapper(AccountMapper.class).getAccount(1).getBalance());
+    } finally {
+      replicaSet.reportLag(0, 0);
+    }
+    assertEquals(fallbacks + 1, replicaSet.getPrimaryFallbackCount());
+  }
+
+  @Test
+  public void lagIsProbedOffTheQueryThread() throws Exception {
+    ReplicaSet replicas = new ReplicaSet(Collections.singletonList(replicaSet.getReplica(0)));
+    CountDownLatch probing = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    replicas.setMaxLagMillis(100);
+    replicas.setLagProbe(replica -> {
+      probing.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return 5000;
+    });
+    try {
+      assertTrue(probing.await(5, TimeUnit.SECONDS));
+      //探测阻塞时选择从库不等待，使用上一次的结果
+      int replica = replicas.acquire();
+      assertEquals(0, replica);
+      replicas.release(replica);
+      release.countDown();
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+      while (!replicas.isLagging(0)) {
+        assertTrue(System.nanoTime() < deadline);
+        Thread.sleep(10);
+      }
+      assertEquals(-1, replicas.acquire());
+    } finally {
+      release.countDown();
+      replicas.close();
+    }
+  }
+
+}
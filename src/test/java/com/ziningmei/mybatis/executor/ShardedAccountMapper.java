@@ -0,0 +1,33 @@
+package com.ziningmei.mybatis.executor;
+
+import com.ziningmei.mybatis.annotation.Insert;
+import com.ziningmei.mybatis.annotation.Options;
+import com.ziningmei.mybatis.annotation.Select;
+import com.ziningmei.mybatis.annotation.Shard;
+
+import java.util.List;
+
+public interface ShardedAccountMapper {
+
+  @Shard(key = "id")
+  @Select("SELECT * FROM account WHERE id = #{id}")
+  Account getAccount(int id);
+
+  @Shard(key = "id")
+  @Insert("INSERT INTO account (id, balance) VALUES (#{id}, #{balance})")
+  int insertAccount(Account account);
+
+  @Shard(mergeOrderBy = "id")
+  @Options(singleFlight = true)
+  @Select("SELECT * FROM account ORDER BY id")
+  List<Account> getAllAccounts();
+
+  @Shard(mergeOrderBy = "balance desc, id", mergeLimit = 3)
+  @Select("SELECT * FROM account ORDER BY balance DESC, id")
+  List<Account> getTopAccounts();
+
+  @Shard(mergeOrderBy = "balance desc, id", mergeLimit = 1)
+  @Select("SELECT * FROM account ORDER BY balance DESC, id")
+  List<Account> getTopAccount();
+
+}
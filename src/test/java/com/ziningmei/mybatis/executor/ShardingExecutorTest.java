@@ -0,0 +1,155 @@
+package com.ziningmei.mybatis.executor;
+
+import com.ziningmei.mybatis.datasource.UnpooledDataSource;
+import com.ziningmei.mybatis.datasource.shard.ShardStatistics;
+import com.ziningmei.mybatis.datasource.shard.ShardedDataSource;
+import com.ziningmei.mybatis.exception.PersistenceException;
+import com.ziningmei.mybatis.mapping.MappedStatement;
+import com.ziningmei.mybatis.session.Configuration;
+import com.ziningmei.mybatis.session.Environment;
+import com.ziningmei.mybatis.session.SqlSession;
+import com.ziningmei.mybatis.session.SqlSessionFactory;
+import com.ziningmei.mybatis.session.DefaultSqlSessionFactory;
+import com.ziningmei.mybatis.transaction.JdbcTransactionFactory;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ShardingExecutorTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+  private static ShardedDataSource dataSource;
+  private static volatile long connectionDelayMillis;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    DataSource shard0 = delayed(new UnpooledDataSource("org.hsqldb.jdbcDriver", "jdbc:hsqldb:mem:shard0", "sa", null));
+    DataSource shard1 = new UnpooledDataSource("org.hsqldb.jdbcDriver", "jdbc:hsqldb:mem:shard1", "sa", null);
+    for (DataSource shard : Arrays.asList(shard0, shard1)) {
+      try (Connection connection = shard.getConnection(); Statement statement = connection.createStatement()) {
+        statement.execute("DROP TABLE account IF EXISTS");
+        statement.execute("CREATE TABLE account (id INT NOT NULL, balance INT)");
+      }
+    }
+    dataSource = new ShardedDataSource(Arrays.asList(shard0, shard1));
+    Configuration configuration = new Configuration();
+    configuration.setEnvironment(new Environment("sharded", new JdbcTransactionFactory(), dataSource));
+    configuration.addMapper(ShardedAccountMapper.class);
+    sqlSessionFactory = new DefaultSqlSessionFactory(configuration);
+
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      ShardedAccountMapper mapper = sqlSession.getMapper(ShardedAccountMapper.class);
+      for (int id = 1; id <= 6; id++) {
+        mapper.insertAccount(new Account(id, id * 100));
+      }
+      sqlSession.commit();
+    }
+  }
+
+  @Test
+  public void keyedStatementsRouteToOneShard() throws Exception {
+    //偶数 id 在分片 0，奇数 id 在分片 1
+    try (Connection connection = dataSource.getShard(0).getConnection(); Statement statement = connection.createStatement()) {
+      assertEquals(3, count(statement));
+    }
+    ShardStatistics statistics = dataSource.getStatistics();
+    statistics.reset();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      ShardedAccountMapper mapper = sqlSession.getMapper(ShardedAccountMapper.class);
+      assertEquals(Integer.valueOf(500), mapper.getAccount(5).getBalance());
+      assertNull(mapper.getAccount(8));
+    }
+    List<ShardStatistics.ShardLatency> latencies = statistics.snapshot();
+    assertEquals(1, latencies.get(0).getCount());
+    assertEquals(1, latencies.get(1).getCount());
+  }
+
+  @Test
+  public void unkeyedQueriesMergeAllShards() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Account> accounts = sqlSession.getMapper(ShardedAccountMapper.class).getTopAccounts();
+      assertEquals(3, accounts.size());
+      assertEquals(Integer.valueOf(6), accounts.get(0).getId());
+      assertEquals(Integer.valueOf(5), accounts.get(1).getId());
+      assertEquals(Integer.valueOf(4), accounts.get(2).getId());
+    }
+  }
+
+  @Test
+  public void mergeLimitCapsRowsFetchedPerShard() {
+    MappedStatement ms = sqlSessionFactory.getConfiguration().getMappedStatement(ShardedAccountMapper.class.getName() + ".getTopAccount");
+    ms.getMetrics().reset();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Account> accounts = sqlSession.getMapper(ShardedAccountMapper.class).getTopAccount();
+      assertEquals(1, accounts.size());
+      assertEquals(Integer.valueOf(6), accounts.get(0).getId());
+    }
+    //每个分片只读取一行
+    assertEquals(2, ms.getMetrics().getRows());
+  }
+
+  @Test
+  public void sessionDeadlineAppliesToEveryShard() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(Duration.ofMillis(1))) {
+      Thread.sleep(20);
+      try {
+        //id 5 在分片 1
+        sqlSession.getMapper(ShardedAccountMapper.class).getAccount(5);
+        fail("Expected the expired deadline to fail the query on shard 1");
+      } catch (PersistenceException e) {
+        assertTrue(e.getCause() instanceof SQLTimeoutException);
+      }
+    }
+  }
+
+  @Test
+  public void singleFlightDoesNotMergeQueriesOnDifferentShards() {
+    //分片 0 取连接时变慢，分片 1 的相同查询在它进行中到达
+    connectionDelayMillis = 300;
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Account> accounts = sqlSession.getMapper(ShardedAccountMapper.class).getAllAccounts();
+      assertEquals(6, accounts.size());
+      for (int i = 0; i < accounts.size(); i++) {
+        assertEquals(Integer.valueOf(i + 1), accounts.get(i).getId());
+      }
+    } finally {
+      connectionDelayMillis = 0;
+    }
+  }
+
+  private static DataSource delayed(DataSource target) {
+    return (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(), new Class<?>[]{DataSource.class}, (proxy, method, args) -> {
+      if ("getConnection".equals(method.getName()) && connectionDelayMillis > 0) {
+        Thread.sleep(connectionDelayMillis);
+      }
+      try {
+        return method.invoke(target, args);
+      } catch (InvocationTargetException e) {
+        throw e.getCause();
+      }
+    });
+  }
+
+  private static int count(Statement statement) throws Exception {
+    try (ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM account")) {
+      rs.next();
+      return rs.getInt(1);
+    }
+  }
+
+}
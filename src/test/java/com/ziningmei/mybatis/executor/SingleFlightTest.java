@@ -0,0 +1,189 @@
+package com.ziningmei.mybatis.executor;
+
+import com.ziningmei.mybatis.BaseDataTest;
+import com.ziningmei.mybatis.cache.CacheKey;
+import com.ziningmei.mybatis.io.Resources;
+import com.ziningmei.mybatis.mapping.MappedStatement;
+import com.ziningmei.mybatis.session.Configuration;
+import com.ziningmei.mybatis.session.Environment;
+import com.ziningmei.mybatis.session.ExecutorType;
+import com.ziningmei.mybatis.session.RowBounds;
+import com.ziningmei.mybatis.session.SqlSession;
+import com.ziningmei.mybatis.session.SqlSessionFactory;
+import com.ziningmei.mybatis.session.SqlSessionFactoryBuilder;
+import com.ziningmei.mybatis.transaction.Transaction;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Reader;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+public class SingleFlightTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("com/ziningmei/mybatis/executor/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "com/ziningmei/mybatis/executor/CreateDB.sql");
+  }
+
+  @Test
+  public void identicalConcurrentQueriesShareOneExecution() throws Exception {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    MappedStatement ms = configuration.getMappedStatement("com.ziningmei.mybatis.executor.AccountMapper.getAccountShared");
+    assertTrue(ms.isSingleFlight());
+    SingleFlight singleFlight = configuration.getSingleFlight();
+    long deduplicated = singleFlight.getDeduplicatedCount(ms.getId());
+
+    Executor executor = newExecutor(ExecutorType.SIMPLE);
+    CacheKey key;
+    try {
+      key = executor.createCacheKey(ms, 1, RowBounds.DEFAULT, ms.getBoundSql(1));
+    } finally {
+      executor.close(false);
+    }
+    // 占住相同的查询，直到会话中的调用进入等待
+    CountDownLatch release = new CountDownLatch(1);
+    CompletableFuture<List<Account>> leader = CompletableFuture.supplyAsync(() -> {
+      try {
+        return singleFlight.execute(ms.getId(), configuration.getEnvironment().getDataSource(), key, () -> {
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          return Collections.singletonList(new Account(1, 12345));
+        });
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    while (singleFlight.getInFlightCount() == 0) {
+      Thread.sleep(1);
+    }
+    CompletableFuture<Account> follower = CompletableFuture.supplyAsync(() -> {
+      try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+        return sqlSession.getMapper(AccountMapper.class).getAccountShared(1);
+      }
+    });
+    long deadline = System.currentTimeMillis() + 10000;
+    while (singleFlight.getDeduplicatedCount(ms.getId()) == deduplicated && System.currentTimeMillis() < deadline) {
+      Thread.sleep(1);
+    }
+    release.countDown();
+
+    assertEquals(Integer.valueOf(12345), follower.get(10, TimeUnit.SECONDS).getBalance());
+    assertEquals(Integer.valueOf(12345), leader.get(10, TimeUnit.SECONDS).get(0).getBalance());
+    assertEquals(deduplicated + 1, singleFlight.getDeduplicatedCount(ms.getId()));
+    assertEquals(0, singleFlight.getInFlightCount());
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals(Integer.valueOf(100), sqlSession.getMapper(AccountMapper.class).getAccountShared(1).getBalance());
+    }
+  }
+
+  private Executor newExecutor(ExecutorType executorType) {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    Environment environment = configuration.getEnvironment();
+    Transaction tx = environment.getTransactionFactory().newTransaction(environment.getDataSource(), null);
+    Executor executor = configuration.newExecutor(tx, executorType);
+    // 去掉二级缓存装饰，直接测试底层执行器
+    return executor instanceof CachingExecutor ? ((CachingExecutor) executor).getDelegate() : executor;
+  }
+
+  @Test
+  public void followersCopyAFrozenSnapshotOfTheLeaderResult() throws Exception {
+    SingleFlight singleFlight = new SingleFlight();
+    CacheKey key = new CacheKey(new Object[]{"snapshot"});
+    CountDownLatch leaderRunning = new CountDownLatch(1);
+    CountDownLatch followerJoined = new CountDownLatch(1);
+    CountDownLatch copying = new CountDownLatch(1);
+    CountDownLatch mutated = new CountDownLatch(1);
+
+    CompletableFuture<List<Row>> leader = CompletableFuture.supplyAsync(() -> {
+      try {
+        return singleFlight.execute("snapshot", null, key, () -> {
+          leaderRunning.countDown();
+          try {
+            followerJoined.await(5, TimeUnit.SECONDS);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          //第一行序列化时通知领头者，并等它修改完自己的列表
+          return new ArrayList<>(Arrays.asList(new Row(1, copying, mutated), new Row(2, null, null)));
+        });
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    assertTrue(leaderRunning.await(5, TimeUnit.SECONDS));
+    CompletableFuture<List<Row>> follower = CompletableFuture.supplyAsync(() -> {
+      try {
+        return singleFlight.execute("snapshot", null, key, () -> {
+          throw new IllegalStateException("follower must not query");
+        });
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    while (singleFlight.getDeduplicatedCount("snapshot") == 0) {
+      Thread.sleep(1);
+    }
+    followerJoined.countDown();
+
+    List<Row> own = leader.get(5, TimeUnit.SECONDS);
+    assertTrue(copying.await(5, TimeUnit.SECONDS));
+    //等待者正在复制时，领头者的调用者修改返回的列表
+    own.clear();
+    own.add(new Row(3, null, null));
+    mutated.countDown();
+
+    List<Row> copied = follower.get(5, TimeUnit.SECONDS);
+    assertEquals(2, copied.size());
+    assertEquals(1, copied.get(0).id);
+    assertEquals(2, copied.get(1).id);
+  }
+
+  private static final class Row implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int id;
+    private final transient CountDownLatch copying;
+    private final transient CountDownLatch mutated;
+
+    Row(int id, CountDownLatch copying, CountDownLatch mutated) {
+      this.id = id;
+      this.copying = copying;
+      this.mutated = mutated;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+      if (copying != null) {
+        copying.countDown();
+        try {
+          mutated.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      out.defaultWriteObject();
+    }
+  }
+
+}
@@ -0,0 +1,75 @@
+package com.ziningmei.mybatis.executor;
+
+import com.ziningmei.mybatis.transaction.Deadline;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class StatementWatchdogTest {
+
+    @Test
+    public void watchdogCancelsStatementAtDeadline() throws Exception {
+        CountDownLatch cancelled = new CountDownLatch(1);
+        Statement statement = (Statement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Statement.class},
+                (proxy, method, args) -> {
+                    if ("cancel".equals(method.getName())) {
+                        cancelled.countDown();
+                    }
+                    return null;
+                });
+        long cancelledCount = StatementWatchdog.getCancelledCount();
+        try {
+            StatementWatchdog.execute(statement, Deadline.after(Duration.ofMillis(50)), stmt -> {
+                try {
+                    assertTrue(cancelled.await(5, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    throw new SQLException(e);
+                }
+                throw new SQLException("Statement cancelled by driver");
+            });
+            fail("Expected the cancelled statement to fail");
+        } catch (SQLTimeoutException e) {
+            assertEquals(cancelledCount + 1, StatementWatchdog.getCancelledCount());
+        }
+        //截止时间内完成的语句不会被取消
+        assertEquals(Integer.valueOf(1), StatementWatchdog.execute(statement, Deadline.after(Duration.ofSeconds(30)), stmt -> 1));
+        assertEquals(cancelledCount + 1, StatementWatchdog.getCancelledCount());
+    }
+
+    @Test
+    public void watchdogWaitsForCancelInProgressBeforeReturning() throws Exception {
+        CountDownLatch cancelStarted = new CountDownLatch(1);
+        AtomicBoolean cancelReturned = new AtomicBoolean();
+        Statement statement = (Statement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Statement.class},
+                (proxy, method, args) -> {
+                    if ("cancel".equals(method.getName())) {
+                        cancelStarted.countDown();
+                        Thread.sleep(200);
+                        cancelReturned.set(true);
+                    }
+                    return null;
+                });
+        //语句在取消进行中正常完成，execute 要等取消结束才返回
+        assertEquals(Integer.valueOf(1), StatementWatchdog.execute(statement, Deadline.after(Duration.ofMillis(20)), stmt -> {
+            try {
+                assertTrue(cancelStarted.await(5, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                throw new SQLException(e);
+            }
+            return 1;
+        }));
+        assertTrue(cancelReturned.get());
+    }
+
+}
@@ -0,0 +1,78 @@
+package com.ziningmei.mybatis.executor.resultSet;
+
+import com.ziningmei.mybatis.BaseDataTest;
+import com.ziningmei.mybatis.executor.Account;
+import com.ziningmei.mybatis.executor.AccountMapper;
+import com.ziningmei.mybatis.io.Resources;
+import com.ziningmei.mybatis.session.SqlSession;
+import com.ziningmei.mybatis.session.SqlSessionFactory;
+import com.ziningmei.mybatis.session.SqlSessionFactoryBuilder;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class DefaultResultSetHandlerNestedResultMapTest {
+
+    private static SqlSessionFactory sqlSessionFactory;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        try (Reader reader = Resources.getResourceAsReader("com/ziningmei/mybatis/executor/mybatis-config.xml")) {
+            sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+        }
+
+        BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+                "com/ziningmei/mybatis/executor/CreateDB.sql");
+    }
+
+    @Test
+    public void joinedRowsAreMergedIntoObjectGraph() {
+        try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+            AccountMapper mapper = sqlSession.getMapper(AccountMapper.class);
+            mapper.insertAccount(new Account(4, 400));
+            List<Account> accounts = mapper.getAccountsJoinDeposits();
+            assertEquals(4, accounts.size());
+            int[][] amounts = {{10, 20}, {30}, {40, 50}, {}};
+            for (int i = 0; i < accounts.size(); i++) {
+                Account account = accounts.get(i);
+                assertEquals(Integer.valueOf(i + 1), account.getId());
+                assertEquals(Integer.valueOf((i + 1) * 100), account.getBalance());
+                assertEquals(amounts[i].length, account.getDeposits().size());
+                for (int j = 0; j < amounts[i].length; j++) {
+                    assertEquals(account.getId(), account.getDeposits().get(j).getAccountId());
+                    assertEquals(Integer.valueOf(amounts[i][j]), account.getDeposits().get(j).getAmount());
+                }
+            }
+            sqlSession.rollback();
+        }
+    }
+
+    @Test
+    public void joinedParentsWithoutIdAreGroupedByTheirOwnColumns() {
+        try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+            AccountMapper mapper = sqlSession.getMapper(AccountMapper.class);
+            //没有 id 映射时按映射的属性列分组，没有映射列时按不属于嵌套结果的列分组
+            List<Account> withoutId = mapper.getAccountsJoinDepositsWithoutId();
+            for (int i = 0; i < withoutId.size(); i++) {
+                assertEquals(Integer.valueOf(i + 1), withoutId.get(i).getId());
+            }
+            for (List<Account> accounts : Arrays.asList(withoutId, mapper.getAutoMappedAccountsJoinDeposits())) {
+                assertEquals(3, accounts.size());
+                int[][] amounts = {{10, 20}, {30}, {40, 50}};
+                for (int i = 0; i < accounts.size(); i++) {
+                    Account account = accounts.get(i);
+                    assertEquals(amounts[i].length, account.getDeposits().size());
+                    for (int j = 0; j < amounts[i].length; j++) {
+                        assertEquals(Integer.valueOf(amounts[i][j]), account.getDeposits().get(j).getAmount());
+                    }
+                }
+            }
+        }
+    }
+
+}
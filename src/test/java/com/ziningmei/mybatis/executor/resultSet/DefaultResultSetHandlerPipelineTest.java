@@ -0,0 +1,118 @@
+package com.ziningmei.mybatis.executor.resultSet;
+
+import com.ziningmei.mybatis.BaseDataTest;
+import com.ziningmei.mybatis.executor.Account;
+import com.ziningmei.mybatis.executor.AccountMapper;
+import com.ziningmei.mybatis.io.Resources;
+import com.ziningmei.mybatis.session.Configuration;
+import com.ziningmei.mybatis.session.SqlSession;
+import com.ziningmei.mybatis.session.SqlSessionFactory;
+import com.ziningmei.mybatis.session.SqlSessionFactoryBuilder;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class DefaultResultSetHandlerPipelineTest {
+
+    private static SqlSessionFactory sqlSessionFactory;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        try (Reader reader = Resources.getResourceAsReader("com/ziningmei/mybatis/executor/mybatis-config.xml")) {
+            sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+        }
+
+        BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+                "com/ziningmei/mybatis/executor/CreateDB.sql");
+    }
+
+    @Test
+    public void pipelinedMappingPreservesRowOrder() {
+        Configuration configuration = sqlSessionFactory.getConfiguration();
+        int bufferSize = configuration.getMappingBufferSize();
+        configuration.setMappingBufferSize(8);
+        try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+            AccountMapper mapper = sqlSession.getMapper(AccountMapper.class);
+            for (int id = 1000; id < 1500; id++) {
+                mapper.insertAccount(new Account(id, id * 2));
+            }
+            List<Account> accounts = mapper.getAccountsFromPipelined(1000);
+            assertEquals(500, accounts.size());
+            for (int i = 0; i < accounts.size(); i++) {
+                assertEquals(Integer.valueOf(1000 + i), accounts.get(i).getId());
+                assertEquals(Integer.valueOf((1000 + i) * 2), accounts.get(i).getBalance());
+            }
+            sqlSession.rollback();
+        } finally {
+            configuration.setMappingBufferSize(bufferSize);
+        }
+    }
+
+    @Test
+    public void pipelinedMappingConvertsColumnTypes() throws Exception {
+        try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+            AccountMapper mapper = sqlSession.getMapper(AccountMapper.class);
+            //VARCHAR 列和 BIGINT 列映射到 Integer 属性，与原始类型列的结果一致
+            List<Account> accounts = mapper.getConvertedAccountsFromPipelined(1);
+            List<Account> expected = mapper.getAccountsFromPipelined(1);
+            assertEquals(expected.size(), accounts.size());
+            for (int i = 0; i < accounts.size(); i++) {
+                assertEquals(expected.get(i).getId(), accounts.get(i).getId());
+                assertEquals(expected.get(i).getBalance(), accounts.get(i).getBalance());
+            }
+        }
+    }
+
+    @Test
+    public void rejectedMappingWorkersFallBackToTheReadingThread() throws Exception {
+        Configuration configuration = sqlSessionFactory.getConfiguration();
+        java.util.concurrent.Executor asyncExecutor = configuration.getAsyncExecutor();
+        int bufferSize = configuration.getMappingBufferSize();
+        configuration.setMappingBufferSize(2);
+        List<Account> expected;
+        try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+            expected = sqlSession.getMapper(AccountMapper.class).getAccountsFromPipelined(1);
+        }
+        try {
+            //只启动一个映射线程，以及一个都不启动
+            for (int accepted = 1; accepted >= 0; accepted--) {
+                final int limit = accepted;
+                List<Thread> workers = new ArrayList<>();
+                configuration.setAsyncExecutor(task -> {
+                    if (workers.size() >= limit) {
+                        throw new RejectedExecutionException("saturated");
+                    }
+                    Thread worker = new Thread(task, "mapping-worker");
+                    worker.setDaemon(true);
+                    workers.add(worker);
+                    worker.start();
+                });
+                List<Account> accounts;
+                try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+                    accounts = sqlSession.getMapper(AccountMapper.class).getAccountsFromPipelined(1);
+                }
+                assertEquals(expected.size(), accounts.size());
+                for (int i = 0; i < accounts.size(); i++) {
+                    assertEquals(expected.get(i).getId(), accounts.get(i).getId());
+                    assertEquals(expected.get(i).getBalance(), accounts.get(i).getBalance());
+                }
+                assertEquals(limit, workers.size());
+                for (Thread worker : workers) {
+                    worker.join(5000);
+                    assertFalse(worker.isAlive());
+                }
+            }
+        } finally {
+            configuration.setAsyncExecutor(asyncExecutor);
+            configuration.setMappingBufferSize(bufferSize);
+        }
+    }
+
+}
@@ -0,0 +1,106 @@
+package com.ziningmei.mybatis.executor.resultSet;
+
+import com.ziningmei.mybatis.BaseDataTest;
+import com.ziningmei.mybatis.executor.Account;
+import com.ziningmei.mybatis.executor.AccountMapper;
+import com.ziningmei.mybatis.executor.CachingExecutor;
+import com.ziningmei.mybatis.executor.Deposit;
+import com.ziningmei.mybatis.executor.Executor;
+import com.ziningmei.mybatis.executor.ReuseExecutor;
+import com.ziningmei.mybatis.io.Resources;
+import com.ziningmei.mybatis.mapping.MappedStatement;
+import com.ziningmei.mybatis.session.Configuration;
+import com.ziningmei.mybatis.session.Environment;
+import com.ziningmei.mybatis.session.ExecutorType;
+import com.ziningmei.mybatis.session.RowBounds;
+import com.ziningmei.mybatis.session.SqlSession;
+import com.ziningmei.mybatis.session.SqlSessionFactory;
+import com.ziningmei.mybatis.session.SqlSessionFactoryBuilder;
+import com.ziningmei.mybatis.transaction.Transaction;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.Reader;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class NestedQueryBatchTest {
+
+    private static SqlSessionFactory sqlSessionFactory;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        try (Reader reader = Resources.getResourceAsReader("com/ziningmei/mybatis/executor/mybatis-config.xml")) {
+            sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+        }
+
+        BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+                "com/ziningmei/mybatis/executor/CreateDB.sql");
+    }
+
+    @Test
+    public void nestedSelectsWithRowLimitsAreNotBatched() throws Exception {
+        try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+            List<Account> accounts = sqlSession.getMapper(AccountMapper.class).getAccountsWithLatestDeposit();
+            assertEquals(3, accounts.size());
+            int[] latest = {2, 3, 5};
+            for (int i = 0; i < accounts.size(); i++) {
+                assertEquals(Integer.valueOf(latest[i]), accounts.get(i).getLatestDeposit().getId());
+            }
+        }
+    }
+
+    @Test
+    public void nestedSelectsWithoutTheKeyColumnAreNotBatched() throws Exception {
+        try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+            //嵌套查询没有返回 accountId，无法按键分发，逐个键查询
+            List<Account> accounts = sqlSession.getMapper(AccountMapper.class).getAccountsWithDepositAmounts();
+            assertEquals(3, accounts.size());
+            int[][] amounts = {{10, 20}, {30}, {40, 50}};
+            for (int i = 0; i < accounts.size(); i++) {
+                List<Deposit> deposits = accounts.get(i).getDeposits();
+                assertEquals(amounts[i].length, deposits.size());
+                for (int j = 0; j < amounts[i].length; j++) {
+                    assertEquals(Integer.valueOf(amounts[i][j]), deposits.get(j).getAmount());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void nestedSelectsAreBatchedIntoInQueries() throws Exception {
+        Configuration configuration = sqlSessionFactory.getConfiguration();
+        MappedStatement ms = configuration.getMappedStatement("com.ziningmei.mybatis.executor.AccountMapper.getAccountsWithDeposits");
+        Executor executor = newExecutor(ExecutorType.REUSE);
+        try {
+            ReuseExecutor reuseExecutor = (ReuseExecutor) executor;
+            List<Account> accounts = executor.query(ms, null, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+            assertEquals(3, accounts.size());
+            int[][] amounts = {{10, 20}, {30}, {40, 50}};
+            for (int i = 0; i < accounts.size(); i++) {
+                List<Deposit> deposits = accounts.get(i).getDeposits();
+                assertEquals(amounts[i].length, deposits.size());
+                for (int j = 0; j < deposits.size(); j++) {
+                    assertEquals(accounts.get(i).getId(), deposits.get(j).getAccountId());
+                    assertEquals(Integer.valueOf(amounts[i][j]), deposits.get(j).getAmount());
+                }
+            }
+            // 父查询、账户 1 和 2 的 IN 查询、账户 3 的单键查询，每条都只执行一次
+            assertEquals(3, reuseExecutor.getMissCount());
+            assertEquals(0, reuseExecutor.getHitCount());
+        } finally {
+            executor.close(false);
+        }
+    }
+
+    private Executor newExecutor(ExecutorType executorType) {
+        Configuration configuration = sqlSessionFactory.getConfiguration();
+        Environment environment = configuration.getEnvironment();
+        Transaction tx = environment.getTransactionFactory().newTransaction(environment.getDataSource(), null);
+        Executor executor = configuration.newExecutor(tx, executorType);
+        // 去掉二级缓存装饰，直接测试底层执行器
+        return executor instanceof CachingExecutor ? ((CachingExecutor) executor).getDelegate() : executor;
+    }
+
+}
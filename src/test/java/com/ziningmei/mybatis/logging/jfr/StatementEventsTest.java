@@ -0,0 +1,101 @@
+package com.ziningmei.mybatis.logging.jfr;
+
+import com.ziningmei.mybatis.BaseDataTest;
+import com.ziningmei.mybatis.io.Resources;
+import com.ziningmei.mybatis.session.ExecutorType;
+import com.ziningmei.mybatis.session.SqlSession;
+import com.ziningmei.mybatis.session.SqlSessionFactory;
+import com.ziningmei.mybatis.session.SqlSessionFactoryBuilder;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.Reader;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class StatementEventsTest {
+
+    private static SqlSessionFactory sqlSessionFactory;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        try (Reader reader = Resources.getResourceAsReader("com/ziningmei/mybatis/executor/mybatis-config.xml")) {
+            sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+        }
+
+        BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+                "com/ziningmei/mybatis/executor/CreateDB.sql");
+    }
+
+    @Test
+    public void statementLifecycleIsRecordedAsJfrEvents() throws Exception {
+        //运行时没有 JFR 时跳过，事件 API 通过反射访问
+        Assume.assumeTrue(StatementEvents.isAvailable());
+        String id = "com.ziningmei.mybatis.executor.AccountMapper.getAccountsFromAsync";
+        Path file = Files.createTempFile("statement-events", ".jfr");
+        Object recording = Class.forName("jdk.jfr.Recording").getConstructor().newInstance();
+        try {
+            for (String name : new String[]{"Query", "Prepare", "Parameterize", "ResultSet"}) {
+                invoke(recording, "enable", "com.ziningmei.mybatis." + name);
+            }
+            invoke(recording, "start");
+            try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.SIMPLE)) {
+                sqlSession.selectList(id, 2);
+            }
+            invoke(recording, "stop");
+            invoke(recording, "dump", file);
+        } finally {
+            ((AutoCloseable) recording).close();
+        }
+        Map<String, Object> events = new HashMap<>();
+        try {
+            List<?> recorded = (List<?>) Class.forName("jdk.jfr.consumer.RecordingFile")
+                    .getMethod("readAllEvents", Path.class).invoke(null, file);
+            for (Object event : recorded) {
+                if (id.equals(invoke(event, "getString", "statementId"))) {
+                    assertNull(events.put((String) invoke(invoke(event, "getEventType"), "getName"), event));
+                }
+            }
+        } finally {
+            Files.delete(file);
+        }
+        assertEquals(4, events.size());
+        Object query = events.get("com.ziningmei.mybatis.Query");
+        assertEquals(2L, invoke(query, "getLong", "rowCount"));
+        assertEquals(2L, invoke(events.get("com.ziningmei.mybatis.ResultSet"), "getLong", "rowCount"));
+        assertEquals(1L, invoke(events.get("com.ziningmei.mybatis.Parameterize"), "getLong", "rowCount"));
+        int sqlHash = sqlSessionFactory.getConfiguration().getMappedStatement(id).getBoundSql(2).getSql().hashCode();
+        for (Object event : events.values()) {
+            assertEquals(sqlHash, invoke(event, "getInt", "sqlHash"));
+            assertEquals(invoke(query, "getInt", "connectionId"), invoke(event, "getInt", "connectionId"));
+            assertTrue((Integer) invoke(event, "getInt", "connectionId") != 0);
+        }
+
+        //没有录制时拿到的是 NOOP
+        assertSame(StatementEvent.NOOP, StatementEvents.query());
+    }
+
+    /**
+     * 按方法名和参数个数反射调用 JFR 的 API
+     */
+    private static Object invoke(Object target, String name, Object... args) throws Exception {
+        for (Method method : target.getClass().getMethods()) {
+            if (method.getName().equals(name) && method.getParameterCount() == args.length
+                    && (args.length == 0 || method.getParameterTypes()[0].isInstance(args[0]))) {
+                return method.invoke(target, args);
+            }
+        }
+        throw new NoSuchMethodException(target.getClass().getName() + "." + name);
+    }
+
+}
@@ -0,0 +1,99 @@
+package com.ziningmei.mybatis.management;
+
+import com.ziningmei.mybatis.BaseDataTest;
+import com.ziningmei.mybatis.exception.PersistenceException;
+import com.ziningmei.mybatis.executor.AccountMapper;
+import com.ziningmei.mybatis.io.Resources;
+import com.ziningmei.mybatis.mapping.MappedStatement;
+import com.ziningmei.mybatis.mapping.StatementMetrics;
+import com.ziningmei.mybatis.session.DefaultSqlSessionFactory;
+import com.ziningmei.mybatis.session.SqlSession;
+import com.ziningmei.mybatis.session.SqlSessionFactory;
+import com.ziningmei.mybatis.session.SqlSessionFactoryBuilder;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.management.JMX;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SqlSessionFactoryStatisticsTest {
+
+    private static SqlSessionFactory sqlSessionFactory;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        try (Reader reader = Resources.getResourceAsReader("com/ziningmei/mybatis/executor/mybatis-config.xml")) {
+            sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+        }
+
+        BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+                "com/ziningmei/mybatis/executor/CreateDB.sql");
+    }
+
+    @Test
+    public void runtimeStatisticsArePublishedOverJmx() throws Exception {
+        ObjectName name = ((DefaultSqlSessionFactory) sqlSessionFactory).registerMBean();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        assertTrue(server.isRegistered(name));
+        SqlSessionFactoryMXBean mbean = JMX.newMXBeanProxy(server, name, SqlSessionFactoryMXBean.class);
+        mbean.resetCounters();
+        long openSessions = mbean.getOpenSessions();
+        long activeConnections = mbean.getActiveConnections();
+
+        String id = "com.ziningmei.mybatis.executor.AccountMapper.getAccountsFromAsync";
+        try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+            assertEquals(openSessions + 1, mbean.getOpenSessions());
+            assertEquals(activeConnections, mbean.getActiveConnections());
+            assertEquals(2, sqlSession.selectList(id, 2).size());
+            assertEquals(activeConnections + 1, mbean.getActiveConnections());
+            assertNotNull(sqlSession.getMapper(AccountMapper.class).getAccount(1));
+            try {
+                sqlSession.selectList("com.ziningmei.mybatis.executor.AccountMapper.missing", null);
+                fail();
+            } catch (PersistenceException e) {
+                // expected
+            }
+        }
+        assertEquals(openSessions, mbean.getOpenSessions());
+        assertEquals(activeConnections, mbean.getActiveConnections());
+
+        assertEquals(Long.valueOf(1), mbean.getQueriesPerStatement().get(id));
+        assertEquals(2, mbean.getQueryCount());
+        assertEquals(3, mbean.getRowsMapped());
+        assertEquals(Collections.singletonMap(IllegalArgumentException.class.getName(), 1L), mbean.getErrorsByType());
+        assertTrue(mbean.getMapperMethodCacheSize() > 0);
+        assertEquals(mbean.getQueryCount(), ((Number) server.getAttribute(name, "QueryCount")).longValue());
+
+        //重置只清空 MBean 自己的计数，语句的耗时统计不受影响
+        MappedStatement ms = sqlSessionFactory.getConfiguration().getMappedStatement(id);
+        long executions = ms.getMetrics().getHistogram(StatementMetrics.Phase.EXECUTE).getCount();
+        mbean.resetCounters();
+        assertEquals(0, mbean.getQueryCount());
+        assertEquals(0, mbean.getRowsMapped());
+        assertTrue(mbean.getErrorsByType().isEmpty());
+        assertEquals(executions, ms.getMetrics().getHistogram(StatementMetrics.Phase.EXECUTE).getCount());
+
+        //关闭语句统计时仍然计数
+        sqlSessionFactory.getConfiguration().setStatementMetricsEnabled(false);
+        try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+            sqlSession.selectList(id, 2);
+        } finally {
+            sqlSessionFactory.getConfiguration().setStatementMetricsEnabled(true);
+        }
+        assertEquals(1, mbean.getQueryCount());
+        assertEquals(executions, ms.getMetrics().getHistogram(StatementMetrics.Phase.EXECUTE).getCount());
+        ((DefaultSqlSessionFactory) sqlSessionFactory).unregisterMBean();
+        assertFalse(server.isRegistered(name));
+    }
+
+}
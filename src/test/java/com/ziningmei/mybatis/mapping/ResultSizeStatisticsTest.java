@@ -0,0 +1,64 @@
+package com.ziningmei.mybatis.mapping;
+
+import com.ziningmei.mybatis.BaseDataTest;
+import com.ziningmei.mybatis.executor.AccountMapper;
+import com.ziningmei.mybatis.io.Resources;
+import com.ziningmei.mybatis.session.Configuration;
+import com.ziningmei.mybatis.session.SqlSession;
+import com.ziningmei.mybatis.session.SqlSessionFactory;
+import com.ziningmei.mybatis.session.SqlSessionFactoryBuilder;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.Reader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ResultSizeStatisticsTest {
+
+    private static SqlSessionFactory sqlSessionFactory;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        try (Reader reader = Resources.getResourceAsReader("com/ziningmei/mybatis/executor/mybatis-config.xml")) {
+            sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+        }
+
+        BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+                "com/ziningmei/mybatis/executor/CreateDB.sql");
+    }
+
+    @Test
+    public void resultSizeStatisticsDriveFetchSizeAndCapacity() {
+        Configuration configuration = sqlSessionFactory.getConfiguration();
+        ResultSizeStatistics statistics = configuration
+                .getMappedStatement("com.ziningmei.mybatis.executor.AccountMapper.getAccountsWithDeposits").getResultSizeStatistics();
+        long samples = statistics.getSampleCount();
+        try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+            sqlSession.getMapper(AccountMapper.class).getAccountsWithDeposits();
+        }
+        assertEquals(samples + 1, statistics.getSampleCount());
+
+        ResultSizeStatistics scan = new ResultSizeStatistics();
+        assertNull(scan.getSuggestedFetchSize());
+        for (int i = 0; i < 100; i++) {
+            scan.record(300);
+        }
+        for (int i = 0; i < 3; i++) {
+            scan.record(100000);
+        }
+        // 偶发的大结果不影响 p95
+        assertEquals(511, scan.getPercentile95());
+        assertEquals(Integer.valueOf(512), scan.getSuggestedFetchSize());
+        assertEquals(ResultSizeStatistics.MAX_INITIAL_CAPACITY, scan.getSuggestedInitialCapacity());
+
+        ResultSizeStatistics lookup = new ResultSizeStatistics();
+        for (int i = 0; i < ResultSizeStatistics.MIN_SAMPLES; i++) {
+            lookup.record(1);
+        }
+        assertEquals(Integer.valueOf(ResultSizeStatistics.MIN_FETCH_SIZE), lookup.getSuggestedFetchSize());
+        assertEquals(3, lookup.getSuggestedInitialCapacity());
+    }
+
+}
@@ -0,0 +1,109 @@
+package com.ziningmei.mybatis.mapping;
+
+import com.ziningmei.mybatis.BaseDataTest;
+import com.ziningmei.mybatis.datasource.pooled.PooledDataSource;
+import com.ziningmei.mybatis.executor.Executor;
+import com.ziningmei.mybatis.io.Resources;
+import com.ziningmei.mybatis.session.Configuration;
+import com.ziningmei.mybatis.session.Environment;
+import com.ziningmei.mybatis.session.ExecutorType;
+import com.ziningmei.mybatis.session.RowBounds;
+import com.ziningmei.mybatis.session.SqlSession;
+import com.ziningmei.mybatis.session.SqlSessionFactory;
+import com.ziningmei.mybatis.session.SqlSessionFactoryBuilder;
+import com.ziningmei.mybatis.transaction.Transaction;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.Reader;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class StatementMetricsTest {
+
+    private static SqlSessionFactory sqlSessionFactory;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        try (Reader reader = Resources.getResourceAsReader("com/ziningmei/mybatis/executor/mybatis-config.xml")) {
+            sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+        }
+
+        BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+                "com/ziningmei/mybatis/executor/CreateDB.sql");
+    }
+
+    @Test
+    public void statementMetricsRecordEachPhase() {
+        Configuration configuration = sqlSessionFactory.getConfiguration();
+        String id = "com.ziningmei.mybatis.executor.AccountMapper.getAccountsFromAsync";
+        configuration.getMappedStatement(id).getMetrics().reset();
+        try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+            for (int i = 0; i < 5; i++) {
+                sqlSession.selectList(id, 2);
+                sqlSession.clearCache();
+            }
+        }
+        StatementMetrics.Snapshot snapshot = null;
+        for (StatementMetrics.Snapshot candidate : configuration.getStatementMetrics()) {
+            if (candidate.getId().equals(id)) {
+                assertNull(snapshot);
+                snapshot = candidate;
+            }
+        }
+        assertNotNull(snapshot);
+        assertEquals(5, snapshot.getExecutions());
+        assertEquals(10, snapshot.getRows());
+        for (StatementMetrics.Phase phase : StatementMetrics.Phase.values()) {
+            StatementMetrics.PhaseSnapshot phaseSnapshot = snapshot.getPhase(phase);
+            assertEquals(5, phaseSnapshot.getCount());
+            assertTrue(phaseSnapshot.getP50Nanos() <= phaseSnapshot.getP99Nanos());
+            assertTrue(phaseSnapshot.getP99Nanos() <= phaseSnapshot.getMaxNanos());
+        }
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(50));
+        long p50 = histogram.getPercentile(50);
+        assertTrue(p50 >= TimeUnit.MICROSECONDS.toNanos(100) && p50 < TimeUnit.MICROSECONDS.toNanos(125));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(50), histogram.getPercentile(100));
+    }
+
+    @Test
+    public void pooledStatementCacheHitsAreCountedPerMappedStatement() throws Exception {
+        Configuration configuration = sqlSessionFactory.getConfiguration();
+        Environment environment = configuration.getEnvironment();
+        MappedStatement ms = configuration.getMappedStatement("com.ziningmei.mybatis.executor.AccountMapper.getAccountsFromAsync");
+        long hits = ms.getMetrics().getStatementCacheHits();
+        long misses = ms.getMetrics().getStatementCacheMisses();
+        PooledDataSource dataSource = new PooledDataSource("org.hsqldb.jdbcDriver", "jdbc:hsqldb:mem:executor", "sa", null);
+        dataSource.setPoolMaximumSize(1);
+        dataSource.setPoolPreparedStatementCacheSize(4);
+        try {
+            //每次新的会话都借到同一个物理连接，只有第一次真正 prepare
+            for (int i = 0; i < 3; i++) {
+                Transaction tx = environment.getTransactionFactory().newTransaction(dataSource, null);
+                Executor executor = configuration.newExecutor(tx, ExecutorType.SIMPLE);
+                try {
+                    assertEquals(2, executor.query(ms, 2, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER).size());
+                } finally {
+                    executor.close(false);
+                }
+            }
+            assertEquals(hits + 2, ms.getMetrics().getStatementCacheHits());
+            assertEquals(misses + 1, ms.getMetrics().getStatementCacheMisses());
+            assertEquals(1, dataSource.getCachedStatementCount());
+            assertEquals(2, dataSource.getStatementCacheHitCount());
+            assertEquals(1, dataSource.getStatementCacheMissCount());
+        } finally {
+            dataSource.close();
+        }
+    }
+
+}
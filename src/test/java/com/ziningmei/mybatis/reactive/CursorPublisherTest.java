@@ -0,0 +1,72 @@
+package com.ziningmei.mybatis.reactive;
+
+import com.ziningmei.mybatis.BaseDataTest;
+import com.ziningmei.mybatis.executor.Account;
+import com.ziningmei.mybatis.executor.AccountMapper;
+import com.ziningmei.mybatis.io.Resources;
+import com.ziningmei.mybatis.session.SqlSession;
+import com.ziningmei.mybatis.session.SqlSessionFactory;
+import com.ziningmei.mybatis.session.SqlSessionFactoryBuilder;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.Reader;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class CursorPublisherTest {
+
+    private static SqlSessionFactory sqlSessionFactory;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        try (Reader reader = Resources.getResourceAsReader("com/ziningmei/mybatis/executor/mybatis-config.xml")) {
+            sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+        }
+
+        BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+                "com/ziningmei/mybatis/executor/CreateDB.sql");
+    }
+
+    @Test
+    public void publisherEmitsOnlyRequestedRows() throws Exception {
+        BlockingQueue<Object> signals = new LinkedBlockingQueue<>();
+        Subscription[] subscription = new Subscription[1];
+        try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+            sqlSession.getMapper(AccountMapper.class).streamAccounts().subscribe(new Subscriber<Account>() {
+                @Override
+                public void onSubscribe(Subscription s) {
+                    subscription[0] = s;
+                    s.request(2);
+                }
+
+                @Override
+                public void onNext(Account item) {
+                    signals.add(item.getId());
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    signals.add(throwable);
+                }
+
+                @Override
+                public void onComplete() {
+                    signals.add("complete");
+                }
+            });
+        }
+        assertEquals(1, signals.poll(10, TimeUnit.SECONDS));
+        assertEquals(2, signals.poll(10, TimeUnit.SECONDS));
+        assertNull(signals.poll(200, TimeUnit.MILLISECONDS));
+
+        subscription[0].request(5);
+        assertEquals(3, signals.poll(10, TimeUnit.SECONDS));
+        assertEquals("complete", signals.poll(10, TimeUnit.SECONDS));
+    }
+
+}
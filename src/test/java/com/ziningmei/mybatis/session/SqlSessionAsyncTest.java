@@ -0,0 +1,48 @@
+package com.ziningmei.mybatis.session;
+
+import com.ziningmei.mybatis.BaseDataTest;
+import com.ziningmei.mybatis.executor.Account;
+import com.ziningmei.mybatis.executor.AccountMapper;
+import com.ziningmei.mybatis.io.Resources;
+import com.ziningmei.mybatis.session.SqlSessionFactory;
+import com.ziningmei.mybatis.session.SqlSessionFactoryBuilder;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.Reader;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class SqlSessionAsyncTest {
+
+    private static SqlSessionFactory sqlSessionFactory;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        try (Reader reader = Resources.getResourceAsReader("com/ziningmei/mybatis/executor/mybatis-config.xml")) {
+            sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+        }
+
+        BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+                "com/ziningmei/mybatis/executor/CreateDB.sql");
+    }
+
+    @Test
+    public void asyncQueriesRunOnTheirOwnSessions() throws Exception {
+        try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+            AccountMapper mapper = sqlSession.getMapper(AccountMapper.class);
+            CompletableFuture<Account> one = mapper.getAccountAsync(1);
+            CompletableFuture<List<Account>> many = mapper.getAccountsFromAsync(2);
+            CompletableFuture<List<Account>> viaSession =
+                    sqlSession.selectListAsync("com.ziningmei.mybatis.executor.AccountMapper.getAccountsFromAsync", 3);
+
+            assertEquals(Integer.valueOf(100), one.get(10, TimeUnit.SECONDS).getBalance());
+            assertEquals(Integer.valueOf(2), many.get(10, TimeUnit.SECONDS).get(0).getId());
+            assertEquals(Integer.valueOf(300), viaSession.get(10, TimeUnit.SECONDS).get(0).getBalance());
+        }
+    }
+
+}
@@ -0,0 +1,54 @@
+package com.ziningmei.mybatis.transaction;
+
+import com.ziningmei.mybatis.BaseDataTest;
+import com.ziningmei.mybatis.exception.PersistenceException;
+import com.ziningmei.mybatis.executor.Account;
+import com.ziningmei.mybatis.executor.AccountMapper;
+import com.ziningmei.mybatis.io.Resources;
+import com.ziningmei.mybatis.session.SqlSession;
+import com.ziningmei.mybatis.session.SqlSessionFactory;
+import com.ziningmei.mybatis.session.SqlSessionFactoryBuilder;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.Reader;
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DeadlineTest {
+
+    private static SqlSessionFactory sqlSessionFactory;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        try (Reader reader = Resources.getResourceAsReader("com/ziningmei/mybatis/executor/mybatis-config.xml")) {
+            sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+        }
+
+        BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+                "com/ziningmei/mybatis/executor/CreateDB.sql");
+    }
+
+    @Test
+    public void expiredDeadlineFailsFastAndCallDeadlineIsScoped() throws Exception {
+        try (SqlSession sqlSession = sqlSessionFactory.openSession(Duration.ofMillis(1))) {
+            Thread.sleep(20);
+            try {
+                sqlSession.getMapper(AccountMapper.class).getAccount(1);
+                fail("Expected the expired deadline to fail the query");
+            } catch (PersistenceException e) {
+                assertTrue(e.getCause() instanceof SQLTimeoutException);
+            }
+        }
+        try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+            AccountMapper mapper = sqlSession.getMapper(AccountMapper.class);
+            Account account = sqlSession.withDeadline(Duration.ofSeconds(30), () -> mapper.getAccount(2));
+            assertEquals(Integer.valueOf(200), account.getBalance());
+        }
+    }
+
+}